@@ -0,0 +1,120 @@
+package me.jadenp.notbounties.benchmarks;
+
+import me.jadenp.notbounties.data.Bounty;
+import me.jadenp.notbounties.data.PlayerStat;
+import me.jadenp.notbounties.data.Setter;
+import me.jadenp.notbounties.data.Whitelist;
+import me.jadenp.notbounties.utils.DataManager;
+import me.jadenp.notbounties.utils.configuration.NumberFormatting;
+import org.bukkit.Bukkit;
+import org.bukkit.Server;
+
+import java.lang.reflect.Proxy;
+import java.text.DecimalFormat;
+import java.text.DecimalFormatSymbols;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+/**
+ * Creates the data used by the benchmarks.
+ * The plugin is never enabled, so a stub server is registered for the few Bukkit calls made by the benchmarked code.
+ */
+final class BenchmarkData {
+    private static final Logger logger = Logger.getLogger("NotBounties-Benchmarks");
+    private static final long MAX_AGE = TimeUnit.DAYS.toMillis(30);
+
+    private BenchmarkData() {}
+
+    /**
+     * Register a server that returns empty values for every method.
+     * Bukkit.getPlayer() will return null, and Bukkit.getOnlinePlayers() will be empty.
+     */
+    static synchronized void stubServer() {
+        if (Bukkit.getServer() != null)
+            return;
+        Server server = (Server) Proxy.newProxyInstance(Server.class.getClassLoader(), new Class<?>[]{Server.class}, (proxy, method, args) -> switch (method.getName()) {
+            case "getLogger" -> logger;
+            case "getName", "getVersion", "getBukkitVersion" -> "Benchmark";
+            case "getOnlinePlayers" -> Collections.emptyList();
+            case "equals" -> proxy == args[0];
+            case "hashCode" -> System.identityHashCode(proxy);
+            case "toString" -> "BenchmarkServer";
+            default -> defaultValue(method.getReturnType());
+        });
+        Bukkit.setServer(server);
+    }
+
+    private static Object defaultValue(Class<?> type) {
+        if (!type.isPrimitive() || type == void.class)
+            return null;
+        if (type == boolean.class)
+            return false;
+        if (type == char.class)
+            return '\0';
+        if (type == long.class)
+            return 0L;
+        if (type == float.class)
+            return 0f;
+        if (type == double.class)
+            return 0d;
+        if (type == byte.class)
+            return (byte) 0;
+        if (type == short.class)
+            return (short) 0;
+        return 0;
+    }
+
+    /**
+     * Use the number formatting from the default config.
+     */
+    static void loadNumberFormatting() {
+        NumberFormatting.locale = Locale.US;
+        NumberFormatting.decimalFormat = new DecimalFormat("#,###.##", new DecimalFormatSymbols(Locale.US));
+        NumberFormatting.currencyPrefix = "&f";
+        NumberFormatting.currencySuffix = "&b◆";
+        NumberFormatting.useDivisions = true;
+        NumberFormatting.nfDivisions = new LinkedHashMap<>();
+        NumberFormatting.nfDivisions.put(1000000000000L, "T");
+        NumberFormatting.nfDivisions.put(1000000000L, "B");
+        NumberFormatting.nfDivisions.put(1000000L, "M");
+        NumberFormatting.nfDivisions.put(1000L, "K");
+    }
+
+    /**
+     * Create bounties with 1 to 3 setters each.
+     * @param amount Number of bounties to create.
+     * @param random Random used to create the bounties.
+     * @return A list of bounties on different players.
+     */
+    static List<Bounty> createBounties(int amount, Random random) {
+        List<Bounty> bounties = new ArrayList<>(amount);
+        for (int i = 0; i < amount; i++)
+            bounties.add(createBounty(new UUID(random.nextLong(), random.nextLong()), random));
+        return bounties;
+    }
+
+    /**
+     * Create a bounty with 1 to 3 setters.
+     */
+    static Bounty createBounty(UUID uuid, Random random) {
+        int setterCount = 1 + random.nextInt(3);
+        List<Setter> setters = new LinkedList<>();
+        for (int i = 0; i < setterCount; i++)
+            setters.add(createSetter(random));
+        return new Bounty(uuid, setters, "Player" + Math.abs(uuid.getLeastSignificantBits() % 100000), DataManager.GLOBAL_SERVER_ID);
+    }
+
+    private static Setter createSetter(Random random) {
+        double amount = Math.floor(random.nextDouble() * 10000) + 1;
+        long timeCreated = System.currentTimeMillis() - (long) (random.nextDouble() * MAX_AGE);
+        return new Setter("Setter" + random.nextInt(100000), new UUID(random.nextLong(), random.nextLong()), amount, new ArrayList<>(), timeCreated, true, new Whitelist(new ArrayList<>(), false), 0, amount);
+    }
+
+    /**
+     * Create random stats for a player.
+     */
+    static PlayerStat createStat(Random random) {
+        return new PlayerStat(random.nextInt(100), random.nextInt(100), random.nextInt(100), random.nextInt(1000000), random.nextInt(10000), random.nextInt(1000000), DataManager.GLOBAL_SERVER_ID);
+    }
+}
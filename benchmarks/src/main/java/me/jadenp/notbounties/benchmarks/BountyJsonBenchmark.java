@@ -0,0 +1,57 @@
+package me.jadenp.notbounties.benchmarks;
+
+import com.google.gson.JsonObject;
+import me.jadenp.notbounties.data.Bounty;
+import me.jadenp.notbounties.data.Setter;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Converting bounties to and from json, like when they are saved or sent to a database.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BountyJsonBenchmark {
+
+    @Param({"1", "10", "100"})
+    private int setters;
+
+    private Bounty bounty;
+    private String json;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        BenchmarkData.stubServer();
+        Random random = new Random(42);
+        UUID uuid = new UUID(random.nextLong(), random.nextLong());
+        List<Setter> setterList = new LinkedList<>();
+        while (setterList.size() < setters)
+            setterList.addAll(BenchmarkData.createBounty(uuid, random).getSetters());
+        bounty = new Bounty(uuid, new LinkedList<>(setterList.subList(0, setters)), "Player", new UUID(0, 0));
+        json = bounty.toJson().toString();
+    }
+
+    @Benchmark
+    public JsonObject toJson() {
+        return bounty.toJson();
+    }
+
+    @Benchmark
+    public String toJsonString() {
+        return bounty.toJson().toString();
+    }
+
+    @Benchmark
+    public Bounty fromJson() {
+        return new Bounty(json);
+    }
+}
@@ -0,0 +1,57 @@
+package me.jadenp.notbounties.benchmarks;
+
+import me.jadenp.notbounties.utils.configuration.LanguageOptions;
+import me.jadenp.notbounties.utils.configuration.NumberFormatting;
+import org.bukkit.OfflinePlayer;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Formatting numbers and parsing placeholders in messages.
+ * Messages are parsed without a receiver, so only the global placeholders are replaced.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class FormattingBenchmark {
+
+    private static final String MESSAGE = "&6&lBounties &8» &e{player} &7has set a bounty on &e{receiver} &7for {c_prefix}{amount}{c_suffix}&7! Minimum: {min_bounty}, Tax: {tax}%";
+    private static final String REWARD = "&#F93E3EREWARD: {c_prefix}{amount}{c_suffix}";
+
+    private final double[] amounts = new double[1024];
+    private int index = 0;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        BenchmarkData.stubServer();
+        BenchmarkData.loadNumberFormatting();
+        Random random = new Random(42);
+        for (int i = 0; i < amounts.length; i++)
+            amounts[i] = Math.floor(Math.pow(10, random.nextDouble() * 10) * 100) / 100;
+    }
+
+    private double nextAmount() {
+        index = (index + 1) % amounts.length;
+        return amounts[index];
+    }
+
+    @Benchmark
+    public String formatNumber() {
+        return NumberFormatting.formatNumber(nextAmount());
+    }
+
+    @Benchmark
+    public String parseMessage() {
+        return LanguageOptions.parse(MESSAGE, nextAmount(), (OfflinePlayer) null);
+    }
+
+    @Benchmark
+    public String parseReward() {
+        return LanguageOptions.parse(REWARD, nextAmount(), (OfflinePlayer) null);
+    }
+}
@@ -0,0 +1,59 @@
+package me.jadenp.notbounties.benchmarks;
+
+import me.jadenp.notbounties.data.Bounty;
+import me.jadenp.notbounties.utils.Inconsistent;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Finding the differences between the local bounties and the bounties in a database.
+ * About 1% of the bounties are only in one list, and about 1% have different setters.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class InconsistentBenchmark {
+
+    @Param({"1000", "10000", "100000"})
+    private int bounties;
+
+    private List<Bounty> localBounties;
+    private List<Bounty> databaseBounties;
+    private long lastSync;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        BenchmarkData.stubServer();
+        Random random = new Random(42);
+        lastSync = System.currentTimeMillis() - 3600000L;
+        localBounties = BenchmarkData.createBounties(bounties, random);
+        databaseBounties = new ArrayList<>(bounties);
+        for (Bounty bounty : localBounties) {
+            int change = random.nextInt(100);
+            if (change == 0)
+                // only in the local list
+                continue;
+            Bounty copy = new Bounty(bounty);
+            if (change == 1)
+                // different setters
+                copy.addBounty(BenchmarkData.createBounty(copy.getUUID(), random).getSetters().get(0));
+            databaseBounties.add(copy);
+            if (change == 2)
+                // only in the database list
+                databaseBounties.add(BenchmarkData.createBounty(new UUID(random.nextLong(), random.nextLong()), random));
+        }
+    }
+
+    @Benchmark
+    public List<Bounty>[] getAsyncronousObjects() {
+        return Inconsistent.getAsyncronousObjects(localBounties, databaseBounties, lastSync);
+    }
+}
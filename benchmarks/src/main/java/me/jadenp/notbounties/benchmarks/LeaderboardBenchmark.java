@@ -0,0 +1,77 @@
+package me.jadenp.notbounties.benchmarks;
+
+import me.jadenp.notbounties.Leaderboard;
+import me.jadenp.notbounties.data.PlayerStat;
+import me.jadenp.notbounties.databases.LocalData;
+import me.jadenp.notbounties.utils.DataManager;
+import org.openjdk.jmh.annotations.*;
+
+import java.lang.reflect.Field;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reading the top stats and ranks of the leaderboards.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LeaderboardBenchmark {
+
+    @Param({"1000", "10000", "100000"})
+    private int players;
+
+    private UUID[] uuids;
+    private LocalData localData;
+    private final Random random = new Random(42);
+    private int index = 0;
+
+    @Setup(Level.Trial)
+    public void setUp() throws ReflectiveOperationException {
+        BenchmarkData.stubServer();
+        Map<UUID, PlayerStat> stats = new HashMap<>();
+        for (int i = 0; i < players; i++)
+            stats.put(new UUID(random.nextLong(), random.nextLong()), BenchmarkData.createStat(random));
+        uuids = stats.keySet().toArray(new UUID[0]);
+        localData = new LocalData();
+        localData.setStats(stats);
+        // the local data is normally created when the plugin loads its data files
+        Field localDataField = DataManager.class.getDeclaredField("localData");
+        localDataField.setAccessible(true);
+        localDataField.set(null, localData);
+    }
+
+    @Benchmark
+    public Map<UUID, Double> getTop() {
+        return Leaderboard.ALL.getTop(0, 10);
+    }
+
+    /**
+     * Get a page in the middle of the leaderboard.
+     */
+    @Benchmark
+    public Map<UUID, Double> getTopMiddle() {
+        return Leaderboard.KILLS.getTop(players / 2, 10);
+    }
+
+    @Benchmark
+    public int getRank() {
+        index = (index + 1) % uuids.length;
+        return Leaderboard.CLAIMED.getRank(uuids[index]);
+    }
+
+    /**
+     * Change the stats of a player, which moves them on every leaderboard.
+     */
+    @Benchmark
+    public void addStats() {
+        index = (index + 1) % uuids.length;
+        localData.addStats(uuids[index], new PlayerStat(1, 0, 0, random.nextInt(1000), 0, 0, DataManager.GLOBAL_SERVER_ID));
+    }
+}
@@ -0,0 +1,72 @@
+package me.jadenp.notbounties.benchmarks;
+
+import me.jadenp.notbounties.data.Bounty;
+import me.jadenp.notbounties.databases.LocalData;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reading and writing bounties in the local data.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LocalDataBenchmark {
+
+    @Param({"1000", "10000", "100000"})
+    private int bounties;
+
+    private LocalData localData;
+    private UUID[] receivers;
+    private Bounty newBounty;
+    private int index = 0;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        BenchmarkData.stubServer();
+        Random random = new Random(42);
+        List<Bounty> bountyList = BenchmarkData.createBounties(bounties, random);
+        localData = new LocalData();
+        localData.addBounty(bountyList);
+        receivers = bountyList.stream().map(Bounty::getUUID).toArray(UUID[]::new);
+        newBounty = BenchmarkData.createBounty(new UUID(0, 1), random);
+    }
+
+    @Benchmark
+    public Bounty getBounty() {
+        index = (index + 1) % receivers.length;
+        return localData.getBounty(receivers[index]);
+    }
+
+    /**
+     * Add a bounty on a player without a bounty, then remove it so the size stays the same.
+     */
+    @Benchmark
+    public Bounty addBounty() {
+        Bounty added = localData.addBounty(new Bounty(newBounty));
+        localData.removeBounty(newBounty.getUUID());
+        return added;
+    }
+
+    @Benchmark
+    public List<Bounty> getAllBountiesUnsorted() {
+        return localData.getAllBounties(-1);
+    }
+
+    @Benchmark
+    public List<Bounty> getAllBountiesNewest() {
+        return localData.getAllBounties(1);
+    }
+
+    @Benchmark
+    public List<Bounty> getAllBountiesMostExpensive() {
+        return localData.getAllBounties(2);
+    }
+}
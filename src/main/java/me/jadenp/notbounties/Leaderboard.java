@@ -4,6 +4,7 @@ import me.jadenp.notbounties.data.Bounty;
 import me.jadenp.notbounties.utils.BountyManager;
 import me.jadenp.notbounties.utils.DataManager;
 import me.jadenp.notbounties.utils.LoggedPlayers;
+import me.jadenp.notbounties.utils.configuration.Immunity;
 import me.jadenp.notbounties.utils.configuration.NumberFormatting;
 import org.bukkit.Bukkit;
 import org.bukkit.ChatColor;
@@ -43,6 +44,9 @@ public enum Leaderboard {
      * @return stat
      */
     public double getStat(UUID uuid){
+        if (this == IMMUNITY)
+            // time immunity is calculated when it is read
+            return Immunity.getImmunity(uuid);
         return DataManager.getStat(uuid, this);
     }
 
@@ -110,20 +114,7 @@ public enum Leaderboard {
                 }
             }
         } else {
-            LinkedHashMap<UUID, Double> map = sortByValue(getStatMap());
-            for (Map.Entry<UUID, Double> entry : map.entrySet()){
-                String name = LoggedPlayers.getPlayerName(entry.getKey());
-                if (hiddenNames.contains(name))
-                    continue;
-                if (amount <= 0.01)
-                    return top;
-                if (skip == 0) {
-                    top.put(entry.getKey(), entry.getValue());
-                    amount--;
-                } else {
-                    skip--;
-                }
-            }
+            return DataManager.getLocalData().getStatRanking().getTop(this, skip, amount, getHiddenPlayers());
         }
         return top;
     }
@@ -137,19 +128,29 @@ public enum Leaderboard {
                 rank++;
             }
         } else {
-            LinkedHashMap<UUID, Double> map = sortByValue(getStatMap());
-            for (Map.Entry<UUID, Double> entry : map.entrySet()){
-                String name = LoggedPlayers.getPlayerName(entry.getKey());
-                if (hiddenNames.contains(name))
-                    continue;
-                if (entry.getKey().equals(uuid))
-                    return rank;
-                rank++;
-            }
+            return DataManager.getLocalData().getStatRanking().getRank(this, uuid, getHiddenPlayers());
         }
         return rank;
     }
 
+    /**
+     * Get the players that have their stats hidden from leaderboards.
+     * @return The UUIDs of the logged players with a hidden name.
+     */
+    private static Set<UUID> getHiddenPlayers() {
+        if (hiddenNames.isEmpty())
+            return Collections.emptySet();
+        Set<UUID> hiddenPlayers = new HashSet<>();
+        for (String name : hiddenNames) {
+            if (!LoggedPlayers.isLogged(name))
+                continue;
+            UUID uuid = LoggedPlayers.getPlayer(name);
+            if (uuid != null && LoggedPlayers.getPlayerName(uuid).equals(name))
+                hiddenPlayers.add(uuid);
+        }
+        return hiddenPlayers;
+    }
+
     /**
      * Construct a map of this specific leaderboard stat.
      * Will not work for the CURRENT leaderboard
@@ -187,21 +188,6 @@ public enum Leaderboard {
         return parse(text, player);
     }
 
-    private static LinkedHashMap<UUID, Double> sortByValue(Map<UUID, Double> hm) {
-        // Create a list from elements of HashMap
-        List<Map.Entry<UUID, Double>> list =
-                new LinkedList<>(hm.entrySet());
-
-        // Sort the list
-        list.sort((o1, o2) -> (o2.getValue()).compareTo(o1.getValue()));
-
-        // put data from sorted list to hashmap
-        LinkedHashMap<UUID, Double> temp = new LinkedHashMap<>();
-        for (Map.Entry<UUID, Double> aa : list) {
-            temp.put(aa.getKey(), aa.getValue());
-        }
-        return temp;
-    }
     private static LinkedHashMap<UUID, Double> sortByName(Map<UUID, Double> hm) {
         // Create a list from elements of HashMap
         List<Map.Entry<UUID, Double>> list = new LinkedList<>(hm.entrySet());
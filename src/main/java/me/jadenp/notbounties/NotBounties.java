@@ -1,13 +1,14 @@
 package me.jadenp.notbounties;
 
 import com.google.common.io.Files;
-import com.google.gson.stream.JsonWriter;
 import me.jadenp.notbounties.data.*;
 import me.jadenp.notbounties.databases.AsyncDatabaseWrapper;
+import me.jadenp.notbounties.databases.DataJournal;
 import me.jadenp.notbounties.databases.proxy.ProxyMessaging;
 import me.jadenp.notbounties.ui.BountyTracker;
 import me.jadenp.notbounties.ui.Commands;
 import me.jadenp.notbounties.ui.Events;
+import me.jadenp.notbounties.ui.HeadFetcher;
 import me.jadenp.notbounties.ui.SkinManager;
 import me.jadenp.notbounties.ui.gui.GUI;
 import me.jadenp.notbounties.ui.map.BountyBoard;
@@ -17,6 +18,7 @@ import me.jadenp.notbounties.utils.*;
 import me.jadenp.notbounties.utils.challenges.ChallengeListener;
 import me.jadenp.notbounties.utils.challenges.ChallengeManager;
 import me.jadenp.notbounties.utils.configuration.*;
+import me.jadenp.notbounties.utils.configuration.auto_bounties.AutoBountyScheduler;
 import me.jadenp.notbounties.utils.configuration.auto_bounties.MurderBounties;
 import me.jadenp.notbounties.utils.configuration.auto_bounties.RandomBounties;
 import me.jadenp.notbounties.utils.configuration.auto_bounties.TimedBounties;
@@ -37,7 +39,6 @@ import org.bukkit.scheduler.BukkitRunnable;
 
 import java.awt.Color;
 import java.io.File;
-import java.io.FileWriter;
 import java.io.IOException;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
@@ -175,10 +176,13 @@ public final class NotBounties extends JavaPlugin {
         }
 
         if (Bukkit.getPluginManager().getPlugin("PlaceholderAPI") != null) {
-            new BountyExpansion().register();
+            BountyExpansion bountyExpansion = new BountyExpansion();
+            bountyExpansion.register();
+            Bukkit.getPluginManager().registerEvents(bountyExpansion, this);
         }
 
         // load skins for bounties
+        SkinManager.loadSkins(new File(getDataFolder() + File.separator + "data" + File.separator + "skins.json"));
         for (Bounty bounty : BountyManager.getAllBounties(-1))
             SkinManager.saveSkin(bounty.getUUID());
 
@@ -261,8 +265,7 @@ public final class NotBounties extends JavaPlugin {
                 }
 
                 Immunity.update();
-                RandomBounties.update();
-                TimedBounties.update();
+                AutoBountyScheduler.update();
 
                 PVPRestrictions.checkCombatExpiry();
                 ChallengeManager.checkChallengeChange();
@@ -305,7 +308,7 @@ public final class NotBounties extends JavaPlugin {
                 RemovePersistentEntitiesEvent.checkRemovedEntities();
 
                 try {
-                    save();
+                    save(false);
                 } catch (IOException e) {
                     Bukkit.getLogger().severe("[NotBounties] Error autosaving saving data!");
                     Bukkit.getLogger().severe(e.toString());
@@ -324,7 +327,7 @@ public final class NotBounties extends JavaPlugin {
                 if (!removeBannedPlayers || paused)
                     return;
                 if (bountyListCopy.isEmpty()) {
-                    bountyListCopy = BountyManager.getAllBounties(-1);
+                    bountyListCopy = new ArrayList<>(BountyManager.getAllBounties(-1));
                     playersPerRun = bountyListCopy.size() / 12 + 1;
                 }
                 for (int i = 0; i < playersPerRun; i++) {
@@ -379,6 +382,15 @@ public final class NotBounties extends JavaPlugin {
             }
         }.runTaskTimer(this, 20, 1);
 
+        // point bounty trackers to moving players
+        new BukkitRunnable() {
+            @Override
+            public void run() {
+                if (!paused)
+                    BountyTracker.updatePositions();
+            }
+        }.runTaskTimer(this, 100, 1);
+
         // plugin was enabled successfully
         started = true;
     }
@@ -389,49 +401,27 @@ public final class NotBounties extends JavaPlugin {
     }
 
 
-    private void save() throws IOException {
+    /**
+     * Save the plugin data.
+     * @param compact Whether all the local bounties and stats should be written instead of the changes since the last save.
+     * @throws IOException If the data couldn't be saved.
+     */
+    private void save(boolean compact) throws IOException {
         File dataDirectory = new File(this.getDataFolder() + File.separator + "data");
         if (dataDirectory.mkdir())
             NotBounties.debugMessage("Created new data directory", false);
-        // save bounties
-        File bountiesFile = new File(dataDirectory + File.separator + "bounties.json");
-        if (bountiesFile.createNewFile()) {
-            NotBounties.debugMessage("Created a new bounties.json file.", false);
-        }
-        try (JsonWriter writer = new JsonWriter(new FileWriter(bountiesFile))) {
-            writer.beginArray();
-            BountyTypeAdapter adapter = new BountyTypeAdapter();
-            for (Bounty bounty : DataManager.getLocalBounties()) {
-                adapter.write(writer, bounty);
-            }
-            writer.endArray();
-        }
+        // save bounties and stats
+        // the snapshots are compacted before a daily backup, so the backup has all the data without the journal
+        File bountiesFile = DataManager.getDataJournal().getBountiesFile();
+        boolean backup = bountyBackups && !getBackupFile(bountiesFile).exists();
+        DataManager.saveLocalData(compact || backup);
 
-        // save stats
-        File statsFile = new File(dataDirectory + File.separator + "player_stats.json");
-        if (statsFile.createNewFile()) {
-            NotBounties.debugMessage("Created a new player_stats.json file.", false);
-        }
-        try (JsonWriter writer = new JsonWriter(new FileWriter(statsFile))) {
-            writer.beginArray();
-            PlayerStatAdapter adapter = new PlayerStatAdapter();
-            for (Map.Entry<UUID, PlayerStat> entry : DataManager.getLocalStats()) {
-                writer.beginObject();
-                writer.name("uuid").value(entry.getKey().toString());
-                writer.name("stats");
-                adapter.write(writer, entry.getValue());
-                writer.endObject();
-            }
-            writer.endArray();
-        }
+        // save skins
+        SkinManager.saveSkins(new File(dataDirectory + File.separator + "skins.json"));
 
         // save player data
         File playerDataFile = new File(dataDirectory + File.separator + "player_data.json");
-        if (playerDataFile.createNewFile()) {
-            NotBounties.debugMessage("Created a new player_data.json file.", false);
-        }
-
-        try (JsonWriter writer = new JsonWriter(new FileWriter(playerDataFile))) {
+        DataJournal.writeAtomically(playerDataFile, writer -> {
             writer.beginObject();
             writer.name("players");
             writer.beginArray();
@@ -482,6 +472,19 @@ public final class NotBounties extends JavaPlugin {
                 writer.endArray();
             }
 
+            Map<UUID, Long> immunityTimes = Immunity.getRemainingTimes();
+            if (!immunityTimes.isEmpty()) {
+                writer.name("timeImmunity");
+                writer.beginArray();
+                for (Map.Entry<UUID, Long> entry : immunityTimes.entrySet()) {
+                    writer.beginObject();
+                    writer.name("uuid").value(entry.getKey().toString());
+                    writer.name("time").value(entry.getValue());
+                    writer.endObject();
+                }
+                writer.endArray();
+            }
+
             writer.name("bountyBoards");
             writer.beginArray();
             BountyBoardTypeAdapter bountyBoardTypeAdapter = new BountyBoardTypeAdapter();
@@ -503,10 +506,10 @@ public final class NotBounties extends JavaPlugin {
                 writer.endArray();
             }
             writer.endObject();
-        }
+        });
 
         saveBackup(bountiesFile);
-        saveBackup(statsFile);
+        saveBackup(DataManager.getDataJournal().getStatsFile());
         saveBackup(playerDataFile);
     }
 
@@ -514,11 +517,13 @@ public final class NotBounties extends JavaPlugin {
         if (!bountyBackups) {
             return;
         }
-        Date date = new Date();
+        if (!file.exists())
+            // nothing has been saved to the file yet
+            return;
         SimpleDateFormat simpleDateFormat = new SimpleDateFormat("yy-MM-dd");
         File backupDirectory = new File(this.getDataFolder() + File.separator + "backups");
-        File todayDirectory = new File(backupDirectory + File.separator + simpleDateFormat.format(date));
-        File today = new File(todayDirectory + File.separator + file.getName());
+        File today = getBackupFile(file);
+        File todayDirectory = today.getParentFile();
         if (backupDirectory.mkdir()) {
             Bukkit.getLogger().info("[NotBounties] Created backup directory.");
         }
@@ -528,12 +533,25 @@ public final class NotBounties extends JavaPlugin {
             deleteOldBackups(backupDirectory, simpleDateFormat);
         }
         // try to create a daily backup
-        if (today.createNewFile()) {
-            Files.copy(file, today);
+        if (!today.exists()) {
+            // copied to a temporary file first, so a failed copy doesn't leave a backup for today
+            File tempFile = new File(todayDirectory, file.getName() + ".tmp");
+            Files.copy(file, tempFile);
+            Files.move(tempFile, today);
         }
 
     }
 
+    /**
+     * Get the file that today's backup of a data file is saved to.
+     * @param file The data file.
+     * @return The backup file.
+     */
+    private File getBackupFile(File file) {
+        SimpleDateFormat simpleDateFormat = new SimpleDateFormat("yy-MM-dd");
+        return new File(this.getDataFolder() + File.separator + "backups" + File.separator + simpleDateFormat.format(new Date()) + File.separator + file.getName());
+    }
+
     private void deleteOldBackups(File backupDirectory, SimpleDateFormat simpleDateFormat) {
         File[] files = backupDirectory.listFiles();
         if (files == null)
@@ -635,6 +653,7 @@ public final class NotBounties extends JavaPlugin {
     public void onDisable() {
         // Plugin shutdown logic
         SkinManager.shutdown();
+        WebhookOptions.shutdown();
         DataManager.shutdown();
         if (!started)
             // Plugin failed to start.
@@ -648,7 +667,7 @@ public final class NotBounties extends JavaPlugin {
         // save data
 
         try {
-            save();
+            save(true);
         } catch (IOException e) {
             Bukkit.getLogger().severe("Error saving data!");
             Bukkit.getLogger().severe(e.toString());
@@ -672,6 +691,12 @@ public final class NotBounties extends JavaPlugin {
         int bounties = BountyManager.getAllBounties(-1).size();
         sender.sendMessage(ChatColor.GOLD + "Databases > " + ChatColor.YELLOW + "Configured: " + numConfigured
                 + ChatColor.YELLOW + " Connected: " + connected);
+        for (AsyncDatabaseWrapper database : DataManager.getDatabases()) {
+            sender.sendMessage(ChatColor.GOLD + database.getName() + " > "
+                    + ChatColor.YELLOW + "Queued Writes: " + ChatColor.WHITE + database.getQueuedWrites()
+                    + ChatColor.YELLOW + " Peak Queued Writes: " + ChatColor.WHITE + database.resetPeakQueuedWrites()
+                    + ChatColor.YELLOW + " Flush Latency: " + ChatColor.WHITE + database.getLastFlushLatency() + "ms");
+        }
         sender.sendMessage(ChatColor.GOLD + "General > "
                 + ChatColor.YELLOW + "Author: " + ChatColor.GRAY + "Not_Jaden"
                 + ChatColor.YELLOW + " Plugin Version: " + ChatColor.WHITE + getDescription().getVersion()
@@ -682,6 +707,13 @@ public final class NotBounties extends JavaPlugin {
         sender.sendMessage(ChatColor.GOLD + "Stats > " + ChatColor.YELLOW + "Bounties: " + ChatColor.WHITE + bounties
                 + ChatColor.YELLOW + " Tracked Bounties: " + ChatColor.WHITE + BountyTracker.getTrackedBounties().size()
                 + ChatColor.YELLOW + " Bounty Boards: " + ChatColor.WHITE + BountyBoard.getBountyBoards().size());
+        sender.sendMessage(ChatColor.GOLD + "Skin Cache > "
+                + ChatColor.YELLOW + "Skins: " + ChatColor.WHITE + SkinManager.getSavedSkins().size()
+                + ChatColor.GRAY + " (" + SkinManager.getSavedSkins().getHits() + " hits, " + SkinManager.getSavedSkins().getMisses() + " misses)"
+                + ChatColor.YELLOW + " Faces: " + ChatColor.WHITE + SkinManager.getSavedFaces().size()
+                + ChatColor.GRAY + " (" + SkinManager.getSavedFaces().getHits() + " hits, " + SkinManager.getSavedFaces().getMisses() + " misses)"
+                + ChatColor.YELLOW + " Heads: " + ChatColor.WHITE + HeadFetcher.getSavedHeads().size()
+                + ChatColor.GRAY + " (" + HeadFetcher.getSavedHeads().getHits() + " hits, " + HeadFetcher.getSavedHeads().getMisses() + " misses)");
         String vault = vaultEnabled ? ChatColor.GREEN + "Vault" : ChatColor.RED + "Vault";
         String papi = papiEnabled ? ChatColor.GREEN + "PlaceholderAPI" : ChatColor.RED + "PlaceholderAPI";
         String hdb = HDBEnabled ? ChatColor.GREEN + "HeadDataBase" : ChatColor.RED + "HeadDataBase";
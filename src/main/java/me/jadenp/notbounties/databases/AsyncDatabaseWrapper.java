@@ -4,6 +4,7 @@ import me.jadenp.notbounties.data.Bounty;
 import me.jadenp.notbounties.NotBounties;
 import me.jadenp.notbounties.utils.DataManager;
 import me.jadenp.notbounties.utils.Inconsistent;
+import me.jadenp.notbounties.utils.LoggedPlayers;
 import me.jadenp.notbounties.data.PlayerStat;
 import org.bukkit.Bukkit;
 import org.bukkit.scheduler.BukkitRunnable;
@@ -13,6 +14,7 @@ import org.jetbrains.annotations.Nullable;
 
 import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicReference;
 
 public class AsyncDatabaseWrapper extends NotBountiesDatabase {
 
@@ -63,6 +65,15 @@ public class AsyncDatabaseWrapper extends NotBountiesDatabase {
     private static final long CONNECTION_TEST_INTERVAL = 500L; // the minimum amount of time between connection tests
     private long lastConnectionTest = 0;
     private boolean lastConnection = false;
+    private final WriteBehindQueue writeQueue = new WriteBehindQueue();
+    private final Object flushLock = new Object();
+    private static final long FLUSH_DELAY = 20L; // ticks to wait for more writes before flushing
+    private static final int FLUSH_SIZE = 100; // number of queued writes that are flushed right away
+    private BukkitTask flushTask = null;
+    private boolean immediateFlush = false;
+    // cursor of the latest change read from the database's change feed
+    // read and advanced by the async update task, and reset from the main thread
+    private final AtomicReference<String> changeCursor = new AtomicReference<>();
 
     public AsyncDatabaseWrapper(NotBountiesDatabase database) {
         this.database = database;
@@ -122,6 +133,7 @@ public class AsyncDatabaseWrapper extends NotBountiesDatabase {
         LocalData localData = DataManager.getLocalData();
         localData.setStats(databaseStats);
 
+        long reconcileStart = System.currentTimeMillis();
         List<Bounty>[] dataChanges = Inconsistent.getAsyncronousObjects(localData.getAllBounties(2), databaseBounties, database.getLastSync());
         // these bounties should be added/removed to local data
         List<Bounty> databaseAdded = dataChanges[0];
@@ -136,23 +148,84 @@ public class AsyncDatabaseWrapper extends NotBountiesDatabase {
         addBounty(localAdded);
         removeBounty(localRemoved);
 
+        NotBounties.debugMessage("Reconciled " + database.getName() + " in " + (System.currentTimeMillis() - reconcileStart) + "ms: databaseAdded=" + databaseAdded.size() + " databaseRemoved=" + databaseRemoved.size() + " localAdded=" + localAdded.size() + " localRemoved=" + localRemoved.size(), false);
+
         database.setLastSync(System.currentTimeMillis());
 
     }
 
     private void updateData() {
         if (isConnected()) {
+            // local changes should be in the database before it is compared to the local data
+            flushWrites();
             try {
-                List<Bounty> databaseBounties = database.getAllBounties(2);
-                Map<UUID, PlayerStat> databaseStats = database.getAllStats();
-                updateData(databaseBounties, databaseStats);
+                if (database instanceof ChangeFeed changeFeed && changeFeed.isChangeFeedEnabled()) {
+                    String cursor = changeCursor.get();
+                    if (cursor != null && updateChanges(changeFeed, cursor))
+                        return;
+                    // read the cursor before the data, so changes during the read are read again next time
+                    cursor = changeFeed.getChangeCursor();
+                    updateData(database.getAllBounties(2), database.getAllStats());
+                    changeCursor.set(cursor);
+                } else {
+                    List<Bounty> databaseBounties = database.getAllBounties(2);
+                    Map<UUID, PlayerStat> databaseStats = database.getAllStats();
+                    updateData(databaseBounties, databaseStats);
+                }
             } catch (IOException e) {
                 disconnect();
             }
         }
     }
 
+    /**
+     * Update the local data with the bounties and stats that changed since the last read.
+     * @param changeFeed The database's change feed.
+     * @param cursor Cursor of the latest change that was read.
+     * @return True if the changes were read, or false if a full synchronization is needed.
+     * @throws IOException When the database isn't connected.
+     */
+    private boolean updateChanges(ChangeFeed changeFeed, String cursor) throws IOException {
+        ChangeFeed.ChangeSet changes = changeFeed.getChangesSince(cursor);
+        if (changes == null)
+            return false;
+        NotBounties.debugMessage("Receiving " + database.getName() + " changes. bounties=" + changes.bounties().size() + " stats=" + changes.stats().size(), false);
+        LocalData localData = DataManager.getLocalData();
+
+        Map<UUID, Bounty> databaseBounties = changeFeed.getBounties(changes.bounties());
+        for (UUID uuid : changes.bounties()) {
+            Bounty bounty = databaseBounties.get(uuid);
+            if (bounty == null) {
+                localData.removeBounty(uuid);
+            } else if (localData.hasBounty(uuid)) {
+                localData.replaceBounty(uuid, bounty);
+            } else {
+                localData.addBounty(bounty);
+                if (!LoggedPlayers.isLogged(uuid) && !uuid.equals(DataManager.GLOBAL_SERVER_ID))
+                    LoggedPlayers.logPlayer(bounty.getName(), uuid);
+            }
+        }
+
+        Map<UUID, PlayerStat> databaseStats = changeFeed.getStats(changes.stats());
+        for (UUID uuid : changes.stats())
+            localData.replaceStats(uuid, databaseStats.get(uuid));
+
+        // a cursor reset while the changes were read isn't overwritten
+        changeCursor.compareAndSet(cursor, changes.cursor());
+        database.setLastSync(System.currentTimeMillis());
+        return true;
+    }
+
+    /**
+     * Set the cursor of the latest change that was read from the database.
+     * @param changeCursor Cursor from {@link ChangeFeed#getChangeCursor()}, or null to do a full synchronization next time.
+     */
+    public void setChangeCursor(@Nullable String changeCursor) {
+        this.changeCursor.set(changeCursor);
+    }
+
     public void disconnect() {
+        changeCursor.set(null);
         if (isConnected()) {
             database.disconnect();
             Bukkit.getLogger().warning(() -> "Disconnected from " + database.getName() + ".");
@@ -165,30 +238,13 @@ public class AsyncDatabaseWrapper extends NotBountiesDatabase {
 
 
     /**
-     * Adds stats to the statChanges queue
+     * Queues stats to be written to the database.
      * @param uuid UUID of the player that the changes are for
      * @param stats Changes in the player's stats
      */
     @Override
     public void addStats(UUID uuid, PlayerStat stats) {
-        new BukkitRunnable() {
-            @Override
-            public void run() {
-                if (!isConnected()) {
-                    if (System.currentTimeMillis() - getLastSync() < DataManager.CONNECTION_REMEMBRANCE_MS) {
-                        if (statChanges.containsKey(uuid)) {
-                            statChanges.replace(uuid, statChanges.get(uuid).combineStats(stats));
-                        } else {
-                            statChanges.put(uuid, stats);
-                        }
-                    }
-                    return;
-                }
-                if (isPermDatabase())
-                    stats.setServerID(DataManager.GLOBAL_SERVER_ID);
-                database.addStats(uuid, stats);
-            }
-        }.runTaskAsynchronously(NotBounties.getInstance());
+        requestFlush(writeQueue.addStats(uuid, stats));
     }
 
     @Override
@@ -203,40 +259,30 @@ public class AsyncDatabaseWrapper extends NotBountiesDatabase {
 
     @Override
     public void addStats(Map<UUID, PlayerStat> playerStats) {
-        if (!playerStats.isEmpty())
-            new BukkitRunnable() {
-                @Override
-                public void run() {
-                    if (isPermDatabase())
-                        playerStats.forEach((k, v) -> v.setServerID(DataManager.GLOBAL_SERVER_ID));
-                    database.addStats(playerStats);
-                    statChanges.clear();
-                }
-            }.runTaskAsynchronously(NotBounties.getInstance());
+        if (!playerStats.isEmpty()) {
+            int queued = 0;
+            for (Map.Entry<UUID, PlayerStat> entry : playerStats.entrySet())
+                queued = writeQueue.addStats(entry.getKey(), entry.getValue());
+            synchronized (statChanges) {
+                statChanges.clear();
+            }
+            requestFlush(queued);
+        }
     }
 
     @Override
     public void addBounty(List<Bounty> bounties) {
-        if (!bounties.isEmpty())
-            new BukkitRunnable() {
-                @Override
-                public void run() {
-                    if (isPermDatabase())
-                        bounties.forEach(bounty -> bounty.setServerID(DataManager.GLOBAL_SERVER_ID));
-                    database.addBounty(bounties);
-                }
-            }.runTaskAsynchronously(NotBounties.getInstance());
+        if (!bounties.isEmpty()) {
+            if (isPermDatabase())
+                bounties.forEach(bounty -> bounty.setServerID(DataManager.GLOBAL_SERVER_ID));
+            requestFlush(writeQueue.addBountyWrite(new WriteBehindQueue.AddBounties(copyBounties(bounties))));
+        }
     }
 
     @Override
     public void removeBounty(List<Bounty> bounties) {
         if (!bounties.isEmpty())
-            new BukkitRunnable() {
-                @Override
-                public void run() {
-                    database.removeBounty(bounties);
-                }
-            }.runTaskAsynchronously(NotBounties.getInstance());
+            requestFlush(writeQueue.addBountyWrite(new WriteBehindQueue.RemoveBounties(copyBounties(bounties))));
     }
 
     /**
@@ -246,35 +292,14 @@ public class AsyncDatabaseWrapper extends NotBountiesDatabase {
      */
     @Override
     public Bounty addBounty(@NotNull Bounty bounty) {
-        if (isConnected()) {
-            new BukkitRunnable() {
-                @Override
-                public void run() {
-                    try {
-                        Bounty newbounty = database.addBounty(bounty);
-                        if (newbounty != null && !newbounty.equals(bounty)) {
-                            bounty.getSetters().clear();
-                            bounty.getSetters().addAll(newbounty.getSetters());
-                        }
-                        if (isPermDatabase())
-                            bounty.setServerID(DataManager.GLOBAL_SERVER_ID);
-                    } catch (IOException e) {
-                        disconnect();
-                    }
-                }
-            }.runTaskAsynchronously(NotBounties.getInstance());
-        }
+        if (isConnected())
+            requestFlush(writeQueue.addBountyWrite(new WriteBehindQueue.AddBounty(new Bounty(bounty), bounty)));
         return bounty;
     }
 
     @Override
     public void replaceBounty(UUID uuid, @Nullable Bounty bounty) {
-        new BukkitRunnable() {
-            @Override
-            public void run() {
-                database.replaceBounty(uuid, bounty);
-            }
-        }.runTaskAsynchronously(NotBounties.getInstance());
+        requestFlush(writeQueue.addBountyWrite(new WriteBehindQueue.ReplaceBounty(uuid, bounty == null ? null : new Bounty(bounty))));
     }
 
     @Override
@@ -289,22 +314,133 @@ public class AsyncDatabaseWrapper extends NotBountiesDatabase {
 
     @Override
     public void removeBounty(UUID uuid) {
-        new BukkitRunnable() {
-            @Override
-            public void run() {
-                database.removeBounty(uuid);
-            }
-        }.runTaskAsynchronously(NotBounties.getInstance());
+        requestFlush(writeQueue.addBountyWrite(new WriteBehindQueue.RemoveReceiver(uuid)));
     }
 
     @Override
     public void removeBounty(Bounty bounty) {
-        new BukkitRunnable() {
-            @Override
-            public void run() {
-                database.removeBounty(bounty);
+        requestFlush(writeQueue.addBountyWrite(new WriteBehindQueue.RemoveBounties(copyBounties(Collections.singletonList(bounty)))));
+    }
+
+    /**
+     * Copy bounties so later changes to them aren't written with the queued change.
+     */
+    private static List<Bounty> copyBounties(List<Bounty> bounties) {
+        List<Bounty> copies = new ArrayList<>(bounties.size());
+        for (Bounty bounty : bounties)
+            copies.add(new Bounty(bounty));
+        return copies;
+    }
+
+    /**
+     * Schedules the queued writes to be flushed.
+     * Writes are flushed after a short delay so more changes can be combined, or right away if too many are queued.
+     * @param queued The number of writes in the queue.
+     */
+    private void requestFlush(int queued) {
+        if (!NotBounties.getInstance().isEnabled()) {
+            // tasks can't be scheduled while the plugin is disabled
+            flushWrites();
+            return;
+        }
+        boolean immediate = queued >= FLUSH_SIZE;
+        synchronized (writeQueue) {
+            if (flushTask != null && (!immediate || immediateFlush))
+                // a flush is already scheduled soon enough
+                return;
+            if (flushTask != null)
+                flushTask.cancel();
+            immediateFlush = immediate;
+            flushTask = new BukkitRunnable() {
+                @Override
+                public void run() {
+                    synchronized (writeQueue) {
+                        if (flushTask != null && flushTask.getTaskId() == getTaskId())
+                            flushTask = null;
+                    }
+                    flushWrites();
+                }
+            }.runTaskLaterAsynchronously(NotBounties.getInstance(), immediate ? 0 : FLUSH_DELAY);
+        }
+    }
+
+    /**
+     * Writes all the queued changes to the database.
+     * Stats that can't be written while disconnected are remembered and pushed when the database reconnects.
+     */
+    public void flushWrites() {
+        synchronized (flushLock) {
+            WriteBehindQueue.Batch batch = writeQueue.drain();
+            if (batch.isEmpty())
+                return;
+            if (!batch.stats().isEmpty()) {
+                if (!isConnected()) {
+                    if (System.currentTimeMillis() - getLastSync() < DataManager.CONNECTION_REMEMBRANCE_MS) {
+                        synchronized (statChanges) {
+                            batch.stats().forEach((uuid, stats) -> statChanges.merge(uuid, stats, PlayerStat::combineStats));
+                        }
+                    }
+                } else {
+                    if (isPermDatabase())
+                        batch.stats().forEach((k, v) -> v.setServerID(DataManager.GLOBAL_SERVER_ID));
+                    database.addStats(batch.stats());
+                }
             }
-        }.runTaskAsynchronously(NotBounties.getInstance());
+            for (WriteBehindQueue.BountyWrite write : batch.bountyWrites())
+                writeBounty(write);
+            writeQueue.flushed(batch);
+        }
+    }
+
+    private void writeBounty(WriteBehindQueue.BountyWrite write) {
+        if (write instanceof WriteBehindQueue.AddBounties add) {
+            database.addBounty(add.bounties());
+        } else if (write instanceof WriteBehindQueue.AddBounty add) {
+            try {
+                Bounty newbounty = database.addBounty(add.bounty());
+                Bounty bounty = add.original();
+                if (newbounty != null && !newbounty.equals(bounty)) {
+                    bounty.getSetters().clear();
+                    bounty.getSetters().addAll(newbounty.getSetters());
+                }
+                if (isPermDatabase())
+                    bounty.setServerID(DataManager.GLOBAL_SERVER_ID);
+            } catch (IOException e) {
+                disconnect();
+            }
+        } else if (write instanceof WriteBehindQueue.RemoveBounties remove) {
+            database.removeBounty(remove.bounties());
+        } else if (write instanceof WriteBehindQueue.RemoveReceiver remove) {
+            database.removeBounty(remove.uuid());
+        } else if (write instanceof WriteBehindQueue.ReplaceBounty replace) {
+            database.replaceBounty(replace.uuid(), replace.bounty());
+        } else if (write instanceof WriteBehindQueue.NotifyBounty notify) {
+            database.notifyBounty(notify.uuid());
+        }
+    }
+
+    /**
+     * Get the number of writes waiting to be flushed to the database.
+     * @return The number of queued writes.
+     */
+    public int getQueuedWrites() {
+        return writeQueue.size();
+    }
+
+    /**
+     * Get the largest number of writes that were waiting since the last time this was called.
+     * @return The largest number of queued writes.
+     */
+    public int resetPeakQueuedWrites() {
+        return writeQueue.resetPeakSize();
+    }
+
+    /**
+     * Get the time between when the oldest write of the last flush was queued, and when it was written.
+     * @return The latency of the last flush in milliseconds.
+     */
+    public long getLastFlushLatency() {
+        return writeQueue.getLastFlushLatency();
     }
 
     @Override
@@ -416,17 +552,13 @@ public class AsyncDatabaseWrapper extends NotBountiesDatabase {
 
     @Override
     public void shutdown() {
+        flushWrites();
         database.shutdown();
     }
 
     @Override
     public void notifyBounty(UUID uuid) {
-        new BukkitRunnable() {
-            @Override
-            public void run() {
-                database.notifyBounty(uuid);
-            }
-        }.runTaskAsynchronously(NotBounties.getInstance());
+        requestFlush(writeQueue.addBountyWrite(new WriteBehindQueue.NotifyBounty(uuid)));
     }
 
     @Override
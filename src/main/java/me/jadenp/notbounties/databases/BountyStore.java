@@ -0,0 +1,225 @@
+package me.jadenp.notbounties.databases;
+
+import me.jadenp.notbounties.data.Bounty;
+import me.jadenp.notbounties.data.Setter;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Stores active bounties by the UUID of the receiver.
+ * Sorted views are kept for the sort types used in {@link NotBountiesDatabase#getAllBounties(int)}. A view is sorted
+ * the first time it is requested, then each change moves only the changed bounty to its new position, so the bounties
+ * are never sorted again. Views are published as unmodifiable lists that are shared until the next change.
+ * Bounties are mutable, so the values that a bounty is sorted by are copied into an index key when the bounty is stored.
+ * If a stored bounty is changed outside the store, {@link #reindex(UUID)} should be called to update its position.
+ */
+public class BountyStore {
+
+    /**
+     * The values that a bounty was sorted by when it was indexed.
+     * @param uuid UUID of the receiver.
+     * @param amount Total display bounty.
+     * @param created Time the first setter was created.
+     * @param latestUpdate Time the latest setter was created.
+     */
+    private record IndexKey(UUID uuid, double amount, long created, long latestUpdate) {
+        static IndexKey of(Bounty bounty) {
+            List<Setter> setters = bounty.getSetters();
+            long created;
+            synchronized (setters) {
+                created = setters.isEmpty() ? 0 : setters.get(0).getTimeCreated();
+            }
+            return new IndexKey(bounty.getUUID(), bounty.getTotalDisplayBounty(), created, bounty.getLatestUpdate());
+        }
+    }
+
+    // most expensive bounties first
+    private static final Comparator<IndexKey> AMOUNT_ORDER = Comparator.comparingDouble(IndexKey::amount).reversed().thenComparing(IndexKey::uuid);
+    // oldest bounties first
+    private static final Comparator<IndexKey> CREATED_ORDER = Comparator.comparingLong(IndexKey::created).thenComparing(IndexKey::uuid);
+    // newest bounties first
+    private static final Comparator<IndexKey> UPDATE_ORDER = Comparator.comparingLong(IndexKey::latestUpdate).reversed().thenComparing(IndexKey::uuid);
+    // the order of each sort type
+    private static final List<Comparator<IndexKey>> ORDERS = List.of(CREATED_ORDER, UPDATE_ORDER, AMOUNT_ORDER, AMOUNT_ORDER.reversed());
+
+    /**
+     * The stored bounties in the order of a sort type. The arrays are never modified after the view is created.
+     * @param keys Index keys in sorted order.
+     * @param values The bounty of each key.
+     * @param bounties The bounties published as an unmodifiable list.
+     */
+    private record SortedView(IndexKey[] keys, Bounty[] values, List<Bounty> bounties) {
+        SortedView(IndexKey[] keys, Bounty[] values) {
+            this(keys, values, Collections.unmodifiableList(Arrays.asList(values)));
+        }
+
+        /**
+         * Create a view with a bounty moved to its new position.
+         * @param oldKey The key of the bounty before the change, or null if the bounty is new.
+         * @param newKey The key of the bounty after the change, or null if the bounty was removed.
+         * @param bounty The changed bounty, or null if the bounty was removed.
+         * @param order The order of the view.
+         * @return The changed view.
+         */
+        SortedView update(@Nullable IndexKey oldKey, @Nullable IndexKey newKey, @Nullable Bounty bounty, Comparator<IndexKey> order) {
+            IndexKey[] newKeys = keys;
+            Bounty[] newValues = values;
+            int removed = oldKey == null ? -1 : Arrays.binarySearch(keys, oldKey, order);
+            if (removed >= 0) {
+                newKeys = new IndexKey[keys.length - 1];
+                newValues = new Bounty[keys.length - 1];
+                System.arraycopy(keys, 0, newKeys, 0, removed);
+                System.arraycopy(values, 0, newValues, 0, removed);
+                System.arraycopy(keys, removed + 1, newKeys, removed, keys.length - removed - 1);
+                System.arraycopy(values, removed + 1, newValues, removed, keys.length - removed - 1);
+            }
+            if (newKey == null)
+                return removed >= 0 ? new SortedView(newKeys, newValues) : this;
+            int position = Arrays.binarySearch(newKeys, newKey, order);
+            if (position < 0)
+                position = -position - 1;
+            IndexKey[] insertedKeys = new IndexKey[newKeys.length + 1];
+            Bounty[] insertedValues = new Bounty[newKeys.length + 1];
+            System.arraycopy(newKeys, 0, insertedKeys, 0, position);
+            System.arraycopy(newValues, 0, insertedValues, 0, position);
+            insertedKeys[position] = newKey;
+            insertedValues[position] = bounty;
+            System.arraycopy(newKeys, position, insertedKeys, position + 1, newKeys.length - position);
+            System.arraycopy(newValues, position, insertedValues, position + 1, newKeys.length - position);
+            return new SortedView(insertedKeys, insertedValues);
+        }
+    }
+
+    private final Map<UUID, Bounty> bounties = new HashMap<>();
+    private final Map<UUID, IndexKey> indexKeys = new HashMap<>();
+    // the view of each sort type, or null if the view hasn't been requested
+    private final AtomicReferenceArray<SortedView> views = new AtomicReferenceArray<>(ORDERS.size());
+
+    /**
+     * Get a stored bounty.
+     * @param uuid UUID of the receiver.
+     * @return The stored bounty, or null if the receiver doesn't have a bounty.
+     */
+    public synchronized @Nullable Bounty get(UUID uuid) {
+        return bounties.get(uuid);
+    }
+
+    /**
+     * Check if a receiver has a stored bounty.
+     * @param uuid UUID of the receiver.
+     * @return True if a bounty is stored for the receiver.
+     */
+    public synchronized boolean contains(UUID uuid) {
+        return bounties.containsKey(uuid);
+    }
+
+    /**
+     * Store a bounty, replacing any bounty that the receiver had before.
+     * @param bounty Bounty to be stored.
+     * @return The bounty that was replaced, or null if the receiver didn't have a bounty.
+     */
+    public synchronized @Nullable Bounty put(@NotNull Bounty bounty) {
+        Bounty previous = bounties.put(bounty.getUUID(), bounty);
+        index(bounty);
+        return previous;
+    }
+
+    /**
+     * Remove a receiver's bounty from the store.
+     * @param uuid UUID of the receiver.
+     * @return The bounty that was removed, or null if the receiver didn't have a bounty.
+     */
+    public synchronized @Nullable Bounty remove(UUID uuid) {
+        Bounty removed = bounties.remove(uuid);
+        if (removed != null)
+            unindex(uuid);
+        return removed;
+    }
+
+    /**
+     * Update the position of a bounty in the indexes after it was changed.
+     * @param uuid UUID of the receiver.
+     */
+    public synchronized void reindex(UUID uuid) {
+        Bounty bounty = bounties.get(uuid);
+        if (bounty == null)
+            return;
+        index(bounty);
+    }
+
+    /**
+     * Remove all bounties from the store.
+     */
+    public synchronized void clear() {
+        bounties.clear();
+        indexKeys.clear();
+        for (int i = 0; i < views.length(); i++)
+            views.set(i, null);
+    }
+
+    public synchronized int size() {
+        return bounties.size();
+    }
+
+    public synchronized boolean isEmpty() {
+        return bounties.isEmpty();
+    }
+
+    /**
+     * Get the stored bounties in a sorted order.
+     * The returned list is a snapshot that is shared with other callers, so it can't be modified.
+     * @param sortType How the returned list should be sorted
+     *                 <p>-1  = Not sorted</p>
+     *                 <p> 0  = Oldest bounties first</p>
+     *                 <p> 1  = Newest bounties first</p>
+     *                 <p> 2  = Most expensive bounties first</p>
+     *                 <p> 3  = Least expensive bounties first</p>
+     * @return An unmodifiable list of the stored bounties.
+     */
+    public List<Bounty> getBounties(int sortType) {
+        // an unsorted list can be in any order
+        int index = sortType >= 0 && sortType < 4 ? sortType : 2;
+        SortedView view = views.get(index);
+        if (view != null)
+            return view.bounties();
+        synchronized (this) {
+            view = views.get(index);
+            if (view == null) {
+                // the view is sorted once, then kept in order as bounties change
+                IndexKey[] keys = indexKeys.values().toArray(new IndexKey[0]);
+                Arrays.sort(keys, ORDERS.get(index));
+                Bounty[] values = new Bounty[keys.length];
+                for (int i = 0; i < keys.length; i++)
+                    values[i] = bounties.get(keys[i].uuid());
+                view = new SortedView(keys, values);
+                views.set(index, view);
+            }
+            return view.bounties();
+        }
+    }
+
+    private void index(Bounty bounty) {
+        IndexKey key = IndexKey.of(bounty);
+        updateViews(indexKeys.put(key.uuid(), key), key, bounty);
+    }
+
+    private void unindex(UUID uuid) {
+        IndexKey key = indexKeys.remove(uuid);
+        if (key != null)
+            updateViews(key, null, null);
+    }
+
+    /**
+     * Move a changed bounty in the views that have been requested.
+     */
+    private void updateViews(@Nullable IndexKey oldKey, @Nullable IndexKey newKey, @Nullable Bounty bounty) {
+        for (int i = 0; i < views.length(); i++) {
+            SortedView view = views.get(i);
+            if (view != null)
+                views.set(i, view.update(oldKey, newKey, bounty, ORDERS.get(i)));
+        }
+    }
+}
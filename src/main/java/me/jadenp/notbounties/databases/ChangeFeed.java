@@ -0,0 +1,78 @@
+package me.jadenp.notbounties.databases;
+
+import me.jadenp.notbounties.data.Bounty;
+import me.jadenp.notbounties.data.PlayerStat;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * A database that records which bounties and stats were changed.
+ * Instead of reading all the bounties and stats every refresh, a server can read the changes after its cursor,
+ * and then read only the bounties and stats that were changed.
+ * A full synchronization is still done when the database connects, or if the changes after the cursor are no longer recorded.
+ * <p>
+ * Changes may become visible out of order. In MySQL, versions from AUTO_INCREMENT are given out before a write
+ * commits, so a reader can see version N+1 before version N. MySQL handles this with a lag window: every read
+ * includes the last 500 versions before the cursor and any change recorded in the last minute. Versions that were
+ * already read are remembered and skipped, so only the late changes are returned. Redis stream IDs are assigned
+ * when the entry is added, so that feed can't skip changes.
+ */
+public interface ChangeFeed {
+    /**
+     * How long changes are kept in the database.
+     * Servers that haven't synced in half this time will do a full synchronization.
+     */
+    long CHANGE_RETENTION_MS = 3600000L;
+
+    /**
+     * The players that had their bounties or stats changed.
+     * @param cursor Cursor of the latest change that was read.
+     * @param bounties UUIDs of the players whose bounties were changed.
+     * @param stats UUIDs of the players whose stats were changed.
+     */
+    record ChangeSet(String cursor, Set<UUID> bounties, Set<UUID> stats) {}
+
+    /**
+     * Check if the change feed should be used to synchronize data.
+     * Changes are recorded either way, so other servers can use the change feed.
+     * @return True if data should be synchronized with the change feed.
+     */
+    boolean isChangeFeedEnabled();
+
+    /**
+     * Get the cursor of the latest change in the database.
+     * This should be read before a full synchronization, so changes during the synchronization aren't missed.
+     * @return A cursor that can be passed to {@link #getChangesSince(String)}.
+     * @throws IOException When the database isn't connected.
+     */
+    String getChangeCursor() throws IOException;
+
+    /**
+     * Get the bounties and stats that were changed after a cursor.
+     * @param cursor Cursor of the latest change that was read.
+     * @return The changes after the cursor, or null if those changes are no longer recorded.
+     * @throws IOException When the database isn't connected.
+     */
+    @Nullable ChangeSet getChangesSince(String cursor) throws IOException;
+
+    /**
+     * Get the bounties of multiple players.
+     * @param uuids UUIDs of the players.
+     * @return The bounties in the database. Players without a bounty won't be in the map.
+     * @throws IOException When the database isn't connected.
+     */
+    Map<UUID, Bounty> getBounties(Collection<UUID> uuids) throws IOException;
+
+    /**
+     * Get the stats of multiple players.
+     * @param uuids UUIDs of the players.
+     * @return The stats in the database. Players without stats won't be in the map.
+     * @throws IOException When the database isn't connected.
+     */
+    Map<UUID, PlayerStat> getStats(Collection<UUID> uuids) throws IOException;
+}
@@ -0,0 +1,361 @@
+package me.jadenp.notbounties.databases;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+import me.jadenp.notbounties.NotBounties;
+import me.jadenp.notbounties.data.Bounty;
+import me.jadenp.notbounties.data.BountyTypeAdapter;
+import me.jadenp.notbounties.data.PlayerStat;
+import me.jadenp.notbounties.data.PlayerStatAdapter;
+import me.jadenp.notbounties.data.Setter;
+import me.jadenp.notbounties.utils.DataManager;
+import org.bukkit.Bukkit;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+
+/**
+ * Stores the local bounties and stats in snapshot files, with a journal of the changes made since the snapshots were
+ * written. Saving appends the bounties and stats that changed to the journal, so the cost of a save depends on the
+ * number of changes instead of the amount of data. The journal is compacted into new snapshots when it grows larger
+ * than the snapshots, after an hour, or when all the data should be written.
+ * Files are written to a temporary file, synced to the disk, and then moved over the old file, so a crash can't leave
+ * a partially written file.
+ */
+public class DataJournal {
+
+    /**
+     * Writes the contents of a json file.
+     */
+    @FunctionalInterface
+    public interface JsonWriteAction {
+        void write(JsonWriter writer) throws IOException;
+    }
+
+    private static final int MIN_COMPACT_ENTRIES = 1000; // the journal can always have this many entries before it is compacted
+    private static final long COMPACT_INTERVAL = 60 * 60 * 1000L; // 1 hour
+
+    private final File bountiesFile;
+    private final File statsFile;
+    private final File journalFile;
+    // exists while new snapshots are being moved into place
+    private final File compactMarker;
+
+    private int journalEntries = 0;
+    private int snapshotSize = 0;
+    private long lastCompact = System.currentTimeMillis();
+    private boolean compactNext = false;
+
+    /**
+     * Create a journal for the local data files.
+     * @param dataDirectory The directory that the files are stored in.
+     */
+    public DataJournal(File dataDirectory) {
+        bountiesFile = new File(dataDirectory, "bounties.json");
+        statsFile = new File(dataDirectory, "player_stats.json");
+        journalFile = new File(dataDirectory, "journal.jsonl");
+        compactMarker = new File(dataDirectory, "journal.compacting");
+    }
+
+    public File getBountiesFile() {
+        return bountiesFile;
+    }
+
+    public File getStatsFile() {
+        return statsFile;
+    }
+
+    /**
+     * Read the snapshots and the journal into the local data.
+     * If the journal had any changes, they are compacted into new snapshots.
+     * @param localData Local data to add the bounties and stats to.
+     * @throws IOException If the files couldn't be read.
+     */
+    public synchronized void load(LocalData localData) throws IOException {
+        finishCompaction();
+        // data added before the snapshots were read isn't in the files yet
+        compactNext = localData.getRevision() > 0;
+        Map<UUID, Bounty> bounties = readBounties();
+        Map<UUID, PlayerStat> stats = readStats();
+        boolean replayed = replayJournal(bounties, stats);
+
+        localData.addBounty(new ArrayList<>(bounties.values()));
+        localData.addStats(stats);
+        localData.drainChanges();
+        if (replayed) {
+            writeSnapshots(bounties.values(), stats.entrySet());
+        } else {
+            snapshotSize = bounties.size() + stats.size();
+        }
+    }
+
+    /**
+     * Save the changes in the local data.
+     * @param localData Local data that changed.
+     * @param compact Whether all the local data should be written to the snapshots.
+     * @throws IOException If the files couldn't be written.
+     */
+    public synchronized void save(LocalData localData, boolean compact) throws IOException {
+        // the current values are read after the changes are drained, so no change is missed
+        LocalData.Changes changes = localData.drainChanges();
+        try {
+            save(localData, changes, compact);
+        } catch (IOException | RuntimeException e) {
+            // the drained changes weren't written, so everything is written to the snapshots next time
+            compactNext = true;
+            throw e;
+        }
+    }
+
+    private void save(LocalData localData, LocalData.Changes changes, boolean compact) throws IOException {
+        if (compact || compactNext || changes.all()
+                || journalEntries + changes.size() > Math.max(MIN_COMPACT_ENTRIES, snapshotSize)
+                || System.currentTimeMillis() - lastCompact > COMPACT_INTERVAL) {
+            writeSnapshots(DataManager.getLocalBounties(), DataManager.getLocalStats());
+            return;
+        }
+        if (changes.isEmpty())
+            return;
+        UUID serverID = DataManager.getDatabaseServerID(false);
+        BountyTypeAdapter bountyAdapter = new BountyTypeAdapter();
+        PlayerStatAdapter statAdapter = new PlayerStatAdapter();
+        try (FileOutputStream outputStream = new FileOutputStream(journalFile, true);
+             Writer out = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8))) {
+            for (UUID uuid : changes.bounties()) {
+                Bounty bounty = localData.getBounty(uuid);
+                StringWriter entry = new StringWriter();
+                try (JsonWriter writer = new JsonWriter(entry)) {
+                    writer.beginObject();
+                    if (bounty != null && bounty.getServerID().equals(serverID)) {
+                        writer.name("type").value("bounty");
+                        writer.name("bounty");
+                        bountyAdapter.write(writer, bounty);
+                    } else {
+                        // bounties from other servers aren't stored locally
+                        writer.name("type").value("removeBounty");
+                        writer.name("uuid").value(uuid.toString());
+                    }
+                    writer.endObject();
+                }
+                out.write(entry.toString());
+                out.write('\n');
+            }
+            for (UUID uuid : changes.stats()) {
+                PlayerStat stat = localData.getStats(uuid);
+                StringWriter entry = new StringWriter();
+                try (JsonWriter writer = new JsonWriter(entry)) {
+                    writer.beginObject();
+                    writer.name("uuid").value(uuid.toString());
+                    if (stat != null && stat.serverID().equals(serverID)) {
+                        writer.name("type").value("stats");
+                        writer.name("stats");
+                        statAdapter.write(writer, stat);
+                    } else {
+                        writer.name("type").value("removeStats");
+                    }
+                    writer.endObject();
+                }
+                out.write(entry.toString());
+                out.write('\n');
+            }
+            out.flush();
+            outputStream.getFD().sync();
+        }
+        journalEntries += changes.size();
+        NotBounties.debugMessage("Saved " + changes.size() + " changes to the data journal.", false);
+    }
+
+    /**
+     * Write new snapshots and remove the journal.
+     */
+    private void writeSnapshots(Collection<Bounty> bounties, Collection<Map.Entry<UUID, PlayerStat>> stats) throws IOException {
+        File bountiesTemp = getTempFile(bountiesFile);
+        File statsTemp = getTempFile(statsFile);
+        writeSynced(bountiesTemp, writer -> {
+            writer.beginArray();
+            BountyTypeAdapter adapter = new BountyTypeAdapter();
+            for (Bounty bounty : bounties) {
+                adapter.write(writer, bounty);
+            }
+            writer.endArray();
+        });
+        writeSynced(statsTemp, writer -> {
+            writer.beginArray();
+            PlayerStatAdapter adapter = new PlayerStatAdapter();
+            for (Map.Entry<UUID, PlayerStat> entry : stats) {
+                writer.beginObject();
+                writer.name("uuid").value(entry.getKey().toString());
+                writer.name("stats");
+                adapter.write(writer, entry.getValue());
+                writer.endObject();
+            }
+            writer.endArray();
+        });
+        // both snapshots are complete - they replace the old snapshots and the journal from here on
+        writeSynced(compactMarker, writer -> writer.beginObject().name("time").value(System.currentTimeMillis()).endObject());
+        finishCompaction();
+
+        journalEntries = 0;
+        snapshotSize = bounties.size() + stats.size();
+        lastCompact = System.currentTimeMillis();
+        compactNext = false;
+    }
+
+    /**
+     * Move new snapshots into place if a compaction was started, or delete incomplete snapshots.
+     */
+    private void finishCompaction() throws IOException {
+        File bountiesTemp = getTempFile(bountiesFile);
+        File statsTemp = getTempFile(statsFile);
+        if (compactMarker.exists()) {
+            if (bountiesTemp.exists())
+                moveAtomically(bountiesTemp, bountiesFile);
+            if (statsTemp.exists())
+                moveAtomically(statsTemp, statsFile);
+            Files.deleteIfExists(journalFile.toPath());
+            Files.delete(compactMarker.toPath());
+        } else {
+            Files.deleteIfExists(bountiesTemp.toPath());
+            Files.deleteIfExists(statsTemp.toPath());
+        }
+    }
+
+    private Map<UUID, Bounty> readBounties() throws IOException {
+        Map<UUID, Bounty> bounties = new LinkedHashMap<>();
+        if (!bountiesFile.exists())
+            return bounties;
+        try (JsonReader reader = new JsonReader(new InputStreamReader(new FileInputStream(bountiesFile), StandardCharsets.UTF_8))) {
+            reader.beginArray();
+            BountyTypeAdapter adapter = new BountyTypeAdapter();
+            while (reader.hasNext()) {
+                Bounty bounty = adapter.read(reader);
+                Bounty prevBounty = bounties.putIfAbsent(bounty.getUUID(), bounty);
+                if (prevBounty != null) {
+                    for (Setter setter : bounty.getSetters())
+                        prevBounty.addBounty(setter);
+                }
+            }
+            reader.endArray();
+        }
+        return bounties;
+    }
+
+    private Map<UUID, PlayerStat> readStats() throws IOException {
+        Map<UUID, PlayerStat> stats = new LinkedHashMap<>();
+        if (!statsFile.exists())
+            return stats;
+        try (JsonReader reader = new JsonReader(new InputStreamReader(new FileInputStream(statsFile), StandardCharsets.UTF_8))) {
+            reader.beginArray();
+            PlayerStatAdapter adapter = new PlayerStatAdapter();
+            while (reader.hasNext()) {
+                reader.beginObject();
+                UUID uuid = null;
+                PlayerStat playerStat = null;
+                while (reader.hasNext()) {
+                    String name = reader.nextName();
+                    if (name.equals("uuid"))
+                        uuid = UUID.fromString(reader.nextString());
+                    else if (name.equals("stats"))
+                        playerStat = adapter.read(reader);
+                }
+                reader.endObject();
+                if (uuid != null && playerStat != null)
+                    stats.merge(uuid, playerStat, PlayerStat::combineStats);
+            }
+            reader.endArray();
+        }
+        return stats;
+    }
+
+    /**
+     * Apply the changes in the journal to the bounties and stats read from the snapshots.
+     * Reading stops at the first incomplete entry, which could be left by a crash during a save.
+     * @return True if any changes were in the journal.
+     */
+    private boolean replayJournal(Map<UUID, Bounty> bounties, Map<UUID, PlayerStat> stats) throws IOException {
+        if (!journalFile.exists())
+            return false;
+        int entries = 0;
+        BountyTypeAdapter bountyAdapter = new BountyTypeAdapter();
+        PlayerStatAdapter statAdapter = new PlayerStatAdapter();
+        try (BufferedReader lines = new BufferedReader(new InputStreamReader(new FileInputStream(journalFile), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = lines.readLine()) != null) {
+                if (line.isBlank())
+                    continue;
+                try (JsonReader reader = new JsonReader(new StringReader(line))) {
+                    String type = null;
+                    UUID uuid = null;
+                    Bounty bounty = null;
+                    PlayerStat stat = null;
+                    reader.beginObject();
+                    while (reader.hasNext()) {
+                        switch (reader.nextName()) {
+                            case "type" -> type = reader.nextString();
+                            case "uuid" -> uuid = UUID.fromString(reader.nextString());
+                            case "bounty" -> bounty = bountyAdapter.read(reader);
+                            case "stats" -> stat = statAdapter.read(reader);
+                            default -> reader.skipValue();
+                        }
+                    }
+                    reader.endObject();
+                    if (type == null)
+                        continue;
+                    switch (type) {
+                        case "bounty" -> bounties.put(bounty.getUUID(), bounty);
+                        case "removeBounty" -> bounties.remove(uuid);
+                        case "stats" -> stats.put(uuid, stat);
+                        case "removeStats" -> stats.remove(uuid);
+                        default -> {
+                            // unknown entry
+                        }
+                    }
+                    entries++;
+                } catch (IOException | RuntimeException e) {
+                    Bukkit.getLogger().warning("[NotBounties] The data journal has an incomplete entry. Changes after entry " + entries + " could not be read.");
+                    NotBounties.debugMessage(e.toString(), true);
+                    break;
+                }
+            }
+        }
+        NotBounties.debugMessage("Read " + entries + " changes from the data journal.", false);
+        return true;
+    }
+
+    /**
+     * Write a json file so that the file is either completely written or left unchanged.
+     * @param file File to write.
+     * @param action Writes the contents of the file.
+     * @throws IOException If the file couldn't be written.
+     */
+    public static void writeAtomically(File file, JsonWriteAction action) throws IOException {
+        File tempFile = getTempFile(file);
+        writeSynced(tempFile, action);
+        moveAtomically(tempFile, file);
+    }
+
+    private static void writeSynced(File file, JsonWriteAction action) throws IOException {
+        try (FileOutputStream outputStream = new FileOutputStream(file);
+             JsonWriter writer = new JsonWriter(new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8)))) {
+            action.write(writer);
+            writer.flush();
+            outputStream.getFD().sync();
+        }
+    }
+
+    private static void moveAtomically(File source, File target) throws IOException {
+        try {
+            Files.move(source.toPath(), target.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(source.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private static File getTempFile(File file) {
+        return new File(file.getParentFile(), file.getName() + ".tmp");
+    }
+}
@@ -3,6 +3,7 @@ package me.jadenp.notbounties.databases;
 import me.jadenp.notbounties.data.Bounty;
 import me.jadenp.notbounties.data.Setter;
 import me.jadenp.notbounties.utils.DataManager;
+import me.jadenp.notbounties.utils.configuration.BountyExpire;
 import me.jadenp.notbounties.data.PlayerStat;
 import org.bukkit.Bukkit;
 import org.bukkit.configuration.ConfigurationSection;
@@ -12,39 +13,66 @@ import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Collectors;
 
 import static me.jadenp.notbounties.NotBounties.isVanished;
 
 public class LocalData extends NotBountiesDatabase {
-    protected final List<Bounty> activeBounties;
+    protected final BountyStore activeBounties;
     protected final Map<UUID, PlayerStat> playerStats;
+    protected final StatRanking statRanking = new StatRanking();
+    private final AtomicLong revision = new AtomicLong();
+    // changes that haven't been saved yet
+    private final Set<UUID> changedBounties = ConcurrentHashMap.newKeySet();
+    private final Set<UUID> changedStats = ConcurrentHashMap.newKeySet();
+    private final AtomicBoolean allChanged = new AtomicBoolean(false);
+
+    /**
+     * Changes made to the bounties and stats since the last time they were drained.
+     * @param bounties UUIDs of the receivers whose bounties changed.
+     * @param stats UUIDs of the players whose stats changed.
+     * @param all True if changes were made to all the bounties or stats.
+     */
+    public record Changes(Set<UUID> bounties, Set<UUID> stats, boolean all) {
+        public int size() {
+            return bounties.size() + stats.size();
+        }
+
+        public boolean isEmpty() {
+            return !all && bounties.isEmpty() && stats.isEmpty();
+        }
+    }
 
     public LocalData() {
         super(null, "LocalData");
-        activeBounties = Collections.synchronizedList(new LinkedList<>());
+        activeBounties = new BountyStore();
         playerStats = Collections.synchronizedMap(new HashMap<>());
     }
 
-    protected LocalData(List<Bounty> activeBounties, Map<UUID, PlayerStat> playerStats) {
+    protected LocalData(BountyStore activeBounties, Map<UUID, PlayerStat> playerStats) {
         super(null, "LocalData");
         this.activeBounties = activeBounties;
         this.playerStats = playerStats;
-    }
-
-    private void sortActiveBounties() {
-        activeBounties.sort(Comparator.reverseOrder());
+        playerStats.forEach(statRanking::update);
     }
 
     @Override
     public void addStats(UUID uuid, PlayerStat stats) {
-        if (!playerStats.containsKey(uuid)) {
-            // player not in changes yet
-            this.playerStats.put(uuid, stats);
-        } else {
-            // add stats to the master values
-            this.playerStats.replace(uuid, this.playerStats.get(uuid).combineStats(stats));
+        synchronized (playerStats) {
+            if (!playerStats.containsKey(uuid)) {
+                // player not in changes yet
+                this.playerStats.put(uuid, stats);
+            } else {
+                // add stats to the master values
+                this.playerStats.replace(uuid, this.playerStats.get(uuid).combineStats(stats));
+            }
+            statRanking.update(uuid, playerStats.get(uuid));
         }
+        changedStats.add(uuid);
+        revision.incrementAndGet();
     }
 
     @Override
@@ -83,73 +111,149 @@ public class LocalData extends NotBountiesDatabase {
     }
 
     public void setStats(Map<UUID, PlayerStat> stats) {
-        playerStats.clear();
-        playerStats.putAll(stats);
+        synchronized (playerStats) {
+            playerStats.clear();
+            playerStats.putAll(stats);
+            statRanking.clear();
+            stats.forEach(statRanking::update);
+        }
+        allChanged.set(true);
+        revision.incrementAndGet();
+    }
+
+    /**
+     * Replace the stats of a player without combining them with the current stats.
+     * @param uuid UUID of the player.
+     * @param stats New stats of the player, or null to remove the player's stats.
+     */
+    public void replaceStats(UUID uuid, @Nullable PlayerStat stats) {
+        synchronized (playerStats) {
+            if (stats == null)
+                playerStats.remove(uuid);
+            else
+                playerStats.put(uuid, stats);
+            statRanking.update(uuid, stats);
+        }
+        changedStats.add(uuid);
+        revision.incrementAndGet();
+    }
+
+    /**
+     * Get the changes made since the last time this was called, and start tracking new changes.
+     * @return The bounties and stats that changed.
+     */
+    public Changes drainChanges() {
+        boolean all = allChanged.getAndSet(false);
+        return new Changes(drain(changedBounties), drain(changedStats), all);
+    }
+
+    private static Set<UUID> drain(Set<UUID> changes) {
+        Set<UUID> drained = new HashSet<>();
+        Iterator<UUID> iterator = changes.iterator();
+        while (iterator.hasNext()) {
+            drained.add(iterator.next());
+            iterator.remove();
+        }
+        return drained;
+    }
+
+    /**
+     * Record that a bounty changed, so it is saved and its expiry time is calculated again.
+     * @param uuid UUID of the bounty receiver.
+     */
+    private void markBountyChanged(UUID uuid) {
+        changedBounties.add(uuid);
+        BountyExpire.bountyChanged(uuid);
+    }
+
+    /**
+     * Get the number of times the bounties or stats have been changed.
+     * Values read from this data are outdated if this number changes.
+     * Changes to a bounty object that aren't made through this class aren't counted.
+     * @return The current revision of the data.
+     */
+    public long getRevision() {
+        return revision.get();
+    }
+
+    /**
+     * Get the ranking of the stored stats.
+     * @return The stats ranked by each leaderboard.
+     */
+    public StatRanking getStatRanking() {
+        return statRanking;
     }
 
     @Override
     public Bounty addBounty(@NotNull Bounty bounty) {
-        Bounty prevBounty = getBounty(bounty.getUUID());
-        if (prevBounty == null) {
-            // insert new bounty for this player
-            int index = activeBounties.size();
-            for (int i = 0; i < activeBounties.size(); i++) {
-                if (activeBounties.get(i).compareTo(bounty) < 0) {
-                    index = i;
-                    break;
+        synchronized (activeBounties) {
+            Bounty prevBounty = activeBounties.get(bounty.getUUID());
+            if (prevBounty == null) {
+                // insert new bounty for this player
+                activeBounties.put(bounty);
+                prevBounty = bounty;
+            } else {
+                // combine with previous bounty
+                for (Setter setter : bounty.getSetters()) {
+                    prevBounty.addBounty(setter);
                 }
+                activeBounties.reindex(prevBounty.getUUID());
             }
-            activeBounties.add(index, bounty);
-            prevBounty = bounty;
-        } else {
-            // combine with previous bounty
-            for (Setter setter : bounty.getSetters()) {
-                prevBounty.addBounty(setter);
-            }
-            sortActiveBounties();
+            markBountyChanged(bounty.getUUID());
+            revision.incrementAndGet();
+            return prevBounty;
         }
-        return prevBounty;
     }
 
     @Override
     public void replaceBounty(UUID uuid, @Nullable Bounty bounty) {
-        for (int i = 0; i < activeBounties.size(); i++) {
-            if (activeBounties.get(i).getUUID().equals(uuid)) {
-                if (bounty != null) {
-                    activeBounties.set(i, bounty);
-                    sortActiveBounties();
-                } else {
-                    activeBounties.remove(i);
-                }
-                break;
+        synchronized (activeBounties) {
+            if (!activeBounties.contains(uuid))
+                return;
+            if (bounty != null) {
+                if (!bounty.getUUID().equals(uuid))
+                    activeBounties.remove(uuid);
+                activeBounties.put(bounty);
+            } else {
+                activeBounties.remove(uuid);
             }
+            markBountyChanged(uuid);
+            if (bounty != null)
+                markBountyChanged(bounty.getUUID());
+            revision.incrementAndGet();
         }
     }
 
     @Override
     public @Nullable Bounty getBounty(UUID uuid) {
-        for (Bounty bounty : activeBounties) {
-            if (bounty.getUUID().equals(uuid))
-                return bounty;
-        }
-        return null;
+        return activeBounties.get(uuid);
+    }
+
+    /**
+     * Check if a player has a bounty without copying any data.
+     * @param uuid UUID of the player.
+     * @return True if the player has a bounty.
+     */
+    public boolean hasBounty(UUID uuid) {
+        return activeBounties.contains(uuid);
     }
 
     @Override
     public void removeBounty(Bounty bounty) {
-        for (int i = 0; i < activeBounties.size(); i++) {
-            if (activeBounties.get(i).getUUID().equals(bounty.getUUID())) {
-                Bounty bountyCopy = new Bounty(activeBounties.get(i));
-                removeSimilarSetters(bountyCopy.getSetters(), bounty.getSetters());
-                // if no master setters are left over, remove bounty entirely from active bounties
-                if (bountyCopy.getSetters().isEmpty()) {
-                    activeBounties.remove(i);
-                } else {
-                    activeBounties.set(i, bountyCopy);
-                    sortActiveBounties();
-                }
-                break;
+        synchronized (activeBounties) {
+            Bounty activeBounty = activeBounties.get(bounty.getUUID());
+            if (activeBounty == null)
+                return;
+            Bounty bountyCopy = new Bounty(activeBounty);
+            removeSimilarSetters(bountyCopy.getSetters(), bounty.getSetters());
+            // if no master setters are left over, remove bounty entirely from active bounties
+            if (bountyCopy.getSetters().isEmpty()) {
+                activeBounties.remove(bounty.getUUID());
+            } else {
+                activeBounties.put(bountyCopy);
             }
+            markBountyChanged(bounty.getUUID());
+            revision.incrementAndGet();
         }
 
         // bounty.getSetters() contains the leftover setters that couldn't be removed
@@ -178,45 +282,14 @@ public class LocalData extends NotBountiesDatabase {
 
     @Override
     public void removeBounty(UUID uuid) {
-        synchronized (activeBounties) {
-            ListIterator<Bounty> bountyListIterator = activeBounties.listIterator();
-            while (bountyListIterator.hasNext()) {
-                Bounty bounty = bountyListIterator.next();
-                if (bounty.getUUID().equals(uuid)) {
-                    bountyListIterator.remove();
-                    return;
-                }
-            }
-        }
+        activeBounties.remove(uuid);
+        markBountyChanged(uuid);
+        revision.incrementAndGet();
     }
 
     @Override
     public List<Bounty> getAllBounties(int sortType) {
-        List<Bounty> sortedList;
-        sortedList = new ArrayList<>(activeBounties);
-        if (sortType == -1)
-            return sortedList;
-        if (sortType == 2)
-            return sortedList;
-        if (sortType == 3) {
-            Collections.reverse(sortedList);
-            return sortedList;
-        }
-        if (sortedList.isEmpty())
-            return sortedList;
-        Bounty temp;
-        for (int i = 0; i < sortedList.size(); i++) {
-            for (int j = i + 1; j < sortedList.size(); j++) {
-                if (!sortedList.get(i).getSetters().isEmpty()
-                        && ((sortedList.get(i).getSetters().get(0).getTimeCreated() > sortedList.get(j).getSetters().get(0).getTimeCreated() && sortType == 0) || // oldest bounties at top
-                        (sortedList.get(i).getLatestUpdate() < sortedList.get(j).getLatestUpdate() && sortType == 1))) {// newest bounties at top
-                    temp = sortedList.get(i);
-                    sortedList.set(i, sortedList.get(j));
-                    sortedList.set(j, temp);
-                }
-            }
-        }
-        return sortedList;
+        return activeBounties.getBounties(sortType);
     }
 
     @Override
@@ -290,6 +363,8 @@ public class LocalData extends NotBountiesDatabase {
         Bounty bounty = getBounty(uuid);
         if (bounty != null) {
             bounty.notifyBounty();
+            markBountyChanged(uuid);
+            revision.incrementAndGet();
         }
     }
 
@@ -307,10 +382,11 @@ public class LocalData extends NotBountiesDatabase {
      * Replaces the server IDs that match with the local server with the global ID.
      */
     public void syncPermData() {
-        for (Bounty bounty : activeBounties)
+        for (Bounty bounty : activeBounties.getBounties(-1))
                 bounty.setServerID(DataManager.GLOBAL_SERVER_ID);
         for (Map.Entry<UUID, PlayerStat> entry : playerStats.entrySet())
                 entry.getValue().setServerID(DataManager.GLOBAL_SERVER_ID);
+        allChanged.set(true);
     }
 
 }
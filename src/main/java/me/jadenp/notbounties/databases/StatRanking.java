@@ -0,0 +1,308 @@
+package me.jadenp.notbounties.databases;
+
+import me.jadenp.notbounties.Leaderboard;
+import me.jadenp.notbounties.data.PlayerStat;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.*;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Ranks player stats for each leaderboard.
+ * Each leaderboard has an order statistic tree sorted by the stat in descending order, so the top stats can be read
+ * without sorting every stat, and a player's rank can be found without reading the players ranked above them.
+ * Stats should be updated here whenever they are changed in the local data.
+ * The CURRENT leaderboard is ranked by the active bounties, so it isn't ranked here.
+ */
+public class StatRanking {
+
+    private static final Leaderboard[] RANKED_LEADERBOARDS = Arrays.stream(Leaderboard.values()).filter(leaderboard -> leaderboard != Leaderboard.CURRENT).toArray(Leaderboard[]::new);
+
+    private final Map<UUID, PlayerStat> rankedStats = new HashMap<>();
+    private final Map<Leaderboard, RankTree> trees = new EnumMap<>(Leaderboard.class);
+
+    public StatRanking() {
+        for (Leaderboard leaderboard : RANKED_LEADERBOARDS)
+            trees.put(leaderboard, new RankTree());
+    }
+
+    /**
+     * Update the ranked stats of a player.
+     * @param uuid UUID of the player.
+     * @param stats New stats of the player, or null if the player no longer has stats.
+     */
+    public synchronized void update(UUID uuid, @Nullable PlayerStat stats) {
+        PlayerStat previous = stats == null ? rankedStats.remove(uuid) : rankedStats.put(uuid, stats);
+        for (Leaderboard leaderboard : RANKED_LEADERBOARDS) {
+            RankTree tree = trees.get(leaderboard);
+            if (previous != null && stats != null && previous.leaderboardType(leaderboard) == stats.leaderboardType(leaderboard))
+                // rank didn't change
+                continue;
+            if (previous != null)
+                tree.remove(previous.leaderboardType(leaderboard), uuid);
+            if (stats != null)
+                tree.insert(stats.leaderboardType(leaderboard), uuid);
+        }
+    }
+
+    /**
+     * Remove all ranked stats.
+     */
+    public synchronized void clear() {
+        rankedStats.clear();
+        for (RankTree tree : trees.values())
+            tree.clear();
+    }
+
+    /**
+     * Get the top stats of a leaderboard in descending order.
+     * @param leaderboard Leaderboard to read.
+     * @param skip Number of ranked players to skip.
+     * @param amount Maximum number of stats to return.
+     * @param hidden Players that shouldn't be ranked.
+     * @return An ordered map of the players and their stat.
+     */
+    public synchronized LinkedHashMap<UUID, Double> getTop(Leaderboard leaderboard, int skip, int amount, Set<UUID> hidden) {
+        LinkedHashMap<UUID, Double> top = new LinkedHashMap<>();
+        RankTree tree = trees.get(leaderboard);
+        if (tree == null || amount <= 0)
+            return top;
+        // move the start past any hidden players that would have been skipped
+        int start = Math.max(skip, 0);
+        for (int hiddenIndex : getHiddenIndexes(leaderboard, hidden)) {
+            if (hiddenIndex > start)
+                break;
+            start++;
+        }
+        Iterator<RankTree.Node> iterator = tree.iterator(start);
+        while (iterator.hasNext() && top.size() < amount) {
+            RankTree.Node node = iterator.next();
+            if (!hidden.contains(node.uuid))
+                top.put(node.uuid, node.value);
+        }
+        return top;
+    }
+
+    /**
+     * Get the rank of a player on a leaderboard.
+     * Players without stats, and hidden players, are ranked after every other player.
+     * @param leaderboard Leaderboard to read.
+     * @param uuid UUID of the player.
+     * @param hidden Players that shouldn't be ranked.
+     * @return The rank of the player, starting at 1.
+     */
+    public synchronized int getRank(Leaderboard leaderboard, UUID uuid, Set<UUID> hidden) {
+        RankTree tree = trees.get(leaderboard);
+        if (tree == null)
+            return 1;
+        List<Integer> hiddenIndexes = getHiddenIndexes(leaderboard, hidden);
+        PlayerStat stats = rankedStats.get(uuid);
+        if (stats == null || hidden.contains(uuid))
+            return tree.size() - hiddenIndexes.size() + 1;
+        int index = tree.indexOf(stats.leaderboardType(leaderboard), uuid);
+        int hiddenAbove = 0;
+        for (int hiddenIndex : hiddenIndexes) {
+            if (hiddenIndex > index)
+                break;
+            hiddenAbove++;
+        }
+        return index - hiddenAbove + 1;
+    }
+
+    /**
+     * Get the indexes of the hidden players that are ranked on a leaderboard.
+     * @return A sorted list of indexes.
+     */
+    private List<Integer> getHiddenIndexes(Leaderboard leaderboard, Set<UUID> hidden) {
+        if (hidden.isEmpty())
+            return Collections.emptyList();
+        RankTree tree = trees.get(leaderboard);
+        List<Integer> indexes = new ArrayList<>(hidden.size());
+        for (UUID uuid : hidden) {
+            PlayerStat stats = rankedStats.get(uuid);
+            if (stats != null)
+                indexes.add(tree.indexOf(stats.leaderboardType(leaderboard), uuid));
+        }
+        Collections.sort(indexes);
+        return indexes;
+    }
+
+    /**
+     * A treap where every node stores the size of its subtree.
+     * Nodes are sorted by value in descending order, then by UUID.
+     */
+    private static class RankTree {
+        private static class Node {
+            private final UUID uuid;
+            private final double value;
+            private final int priority;
+            private int size = 1;
+            private Node left;
+            private Node right;
+
+            Node(UUID uuid, double value) {
+                this.uuid = uuid;
+                this.value = value;
+                this.priority = ThreadLocalRandom.current().nextInt();
+            }
+        }
+
+        private Node root = null;
+
+        private static int size(Node node) {
+            return node == null ? 0 : node.size;
+        }
+
+        private static void resize(Node node) {
+            node.size = size(node.left) + size(node.right) + 1;
+        }
+
+        private static int compare(double value, UUID uuid, Node node) {
+            int compare = Double.compare(node.value, value);
+            return compare != 0 ? compare : uuid.compareTo(node.uuid);
+        }
+
+        int size() {
+            return size(root);
+        }
+
+        void clear() {
+            root = null;
+        }
+
+        void insert(double value, UUID uuid) {
+            root = insert(root, new Node(uuid, value));
+        }
+
+        void remove(double value, UUID uuid) {
+            root = remove(root, value, uuid);
+        }
+
+        /**
+         * Get the index of a node in the tree.
+         * @return The number of nodes before the node.
+         */
+        int indexOf(double value, UUID uuid) {
+            int index = 0;
+            Node node = root;
+            while (node != null) {
+                int compare = compare(value, uuid, node);
+                if (compare < 0) {
+                    node = node.left;
+                } else if (compare > 0) {
+                    index += size(node.left) + 1;
+                    node = node.right;
+                } else {
+                    return index + size(node.left);
+                }
+            }
+            return index;
+        }
+
+        /**
+         * Iterate through the nodes in order, starting at an index.
+         */
+        Iterator<Node> iterator(int start) {
+            // ancestors that haven't been visited yet
+            Deque<Node> stack = new ArrayDeque<>();
+            Node node = root;
+            int index = start;
+            while (node != null) {
+                int leftSize = size(node.left);
+                if (index < leftSize) {
+                    stack.push(node);
+                    node = node.left;
+                } else if (index == leftSize) {
+                    stack.push(node);
+                    break;
+                } else {
+                    index -= leftSize + 1;
+                    node = node.right;
+                }
+            }
+            return new Iterator<>() {
+                @Override
+                public boolean hasNext() {
+                    return !stack.isEmpty();
+                }
+
+                @Override
+                public Node next() {
+                    if (stack.isEmpty())
+                        throw new NoSuchElementException();
+                    Node next = stack.pop();
+                    for (Node child = next.right; child != null; child = child.left)
+                        stack.push(child);
+                    return next;
+                }
+            };
+        }
+
+        private static Node insert(Node node, Node inserted) {
+            if (node == null)
+                return inserted;
+            if (inserted.priority > node.priority) {
+                Node[] split = split(node, inserted.value, inserted.uuid);
+                inserted.left = split[0];
+                inserted.right = split[1];
+                resize(inserted);
+                return inserted;
+            }
+            if (compare(inserted.value, inserted.uuid, node) < 0)
+                node.left = insert(node.left, inserted);
+            else
+                node.right = insert(node.right, inserted);
+            resize(node);
+            return node;
+        }
+
+        private static Node remove(Node node, double value, UUID uuid) {
+            if (node == null)
+                return null;
+            int compare = compare(value, uuid, node);
+            if (compare == 0)
+                return merge(node.left, node.right);
+            if (compare < 0)
+                node.left = remove(node.left, value, uuid);
+            else
+                node.right = remove(node.right, value, uuid);
+            resize(node);
+            return node;
+        }
+
+        /**
+         * Split a tree into the nodes before a key, and the nodes after it.
+         */
+        private static Node[] split(Node node, double value, UUID uuid) {
+            if (node == null)
+                return new Node[2];
+            if (compare(value, uuid, node) > 0) {
+                Node[] split = split(node.right, value, uuid);
+                node.right = split[0];
+                resize(node);
+                split[0] = node;
+                return split;
+            }
+            Node[] split = split(node.left, value, uuid);
+            node.left = split[1];
+            resize(node);
+            split[1] = node;
+            return split;
+        }
+
+        private static Node merge(Node left, Node right) {
+            if (left == null)
+                return right;
+            if (right == null)
+                return left;
+            if (left.priority > right.priority) {
+                left.right = merge(left.right, right);
+                resize(left);
+                return left;
+            }
+            right.left = merge(left, right.left);
+            resize(right);
+            return right;
+        }
+    }
+}
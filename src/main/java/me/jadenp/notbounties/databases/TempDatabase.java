@@ -4,6 +4,8 @@ import me.jadenp.notbounties.data.Bounty;
 import me.jadenp.notbounties.data.PlayerStat;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -22,7 +24,8 @@ public abstract class TempDatabase extends NotBountiesDatabase{
      * @return All the bounties that have the serverID in their data.
      */
     public List<Bounty> getServerBounties(UUID serverID) throws IOException {
-        List<Bounty> bounties = getAllBounties(-1);
+        // the list may be a shared snapshot, so it is copied before it is modified
+        List<Bounty> bounties = new ArrayList<>(getAllBounties(-1));
         bounties.removeIf(bounty -> bounty.getServerID() != serverID);
         return bounties;
     }
@@ -33,7 +36,7 @@ public abstract class TempDatabase extends NotBountiesDatabase{
      * @return All the stats that have the serverID Vin their data.
      */
     public Map<UUID, PlayerStat> getServerStats(UUID serverID) throws IOException{
-        Map<UUID, PlayerStat> stats = getAllStats();
+        Map<UUID, PlayerStat> stats = new HashMap<>(getAllStats());
         stats.entrySet().removeIf(entry -> entry.getValue().serverID() != serverID);
         return stats;
     }
@@ -0,0 +1,185 @@
+package me.jadenp.notbounties.databases;
+
+import me.jadenp.notbounties.data.Bounty;
+import me.jadenp.notbounties.data.PlayerStat;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Holds writes for a database until they are flushed.
+ * Stat changes are combined for each player, and consecutive bounty changes of the same type are combined into one
+ * batch, so a flush can use the database's batch statements.
+ * Bounty changes are kept in the order they were made.
+ */
+class WriteBehindQueue {
+
+    /**
+     * A change to the bounties in a database.
+     */
+    sealed interface BountyWrite permits AddBounties, AddBounty, RemoveBounties, RemoveReceiver, ReplaceBounty, NotifyBounty {}
+
+    /**
+     * Add bounties with one batch.
+     * @param bounties Copies of the bounties to add.
+     */
+    record AddBounties(List<Bounty> bounties) implements BountyWrite {}
+
+    /**
+     * Add a bounty, and update the setters of the original bounty with the bounty in the database.
+     * @param bounty A copy of the bounty to add.
+     * @param original The bounty to be updated.
+     */
+    record AddBounty(Bounty bounty, Bounty original) implements BountyWrite {}
+
+    /**
+     * Remove setters from bounties with one batch.
+     * @param bounties Copies of the bounties with the setters to remove.
+     */
+    record RemoveBounties(List<Bounty> bounties) implements BountyWrite {}
+
+    /**
+     * Remove all of a receiver's bounties.
+     * @param uuid UUID of the receiver.
+     */
+    record RemoveReceiver(UUID uuid) implements BountyWrite {}
+
+    /**
+     * Replace the bounty of a receiver.
+     * @param uuid UUID of the receiver.
+     * @param bounty A copy of the new bounty, or null to remove it.
+     */
+    record ReplaceBounty(UUID uuid, @Nullable Bounty bounty) implements BountyWrite {}
+
+    /**
+     * Mark a receiver's bounty as notified.
+     * @param uuid UUID of the receiver.
+     */
+    record NotifyBounty(UUID uuid) implements BountyWrite {}
+
+    /**
+     * Writes that were removed from the queue to be flushed.
+     * @param stats Combined stat changes for each player.
+     * @param bountyWrites Bounty changes in the order they were made.
+     * @param queuedTime The time in milliseconds when the oldest write was queued.
+     */
+    record Batch(Map<UUID, PlayerStat> stats, List<BountyWrite> bountyWrites, long queuedTime) {
+        boolean isEmpty() {
+            return stats.isEmpty() && bountyWrites.isEmpty();
+        }
+    }
+
+    private Map<UUID, PlayerStat> stats = new LinkedHashMap<>();
+    private List<BountyWrite> bountyWrites = new ArrayList<>();
+    private long queuedTime = 0;
+    // the number of queued writes, counted as they are added so it doesn't have to be counted again
+    private final AtomicInteger size = new AtomicInteger();
+    private int peakSize = 0;
+    private long lastFlushLatency = 0;
+
+    /**
+     * Queue a stat change. Changes for the same player are combined.
+     * @param uuid UUID of the player.
+     * @param change Change in the player's stats.
+     * @return The number of queued writes.
+     */
+    synchronized int addStats(UUID uuid, PlayerStat change) {
+        // changes for a player that already has a queued change don't add a write
+        int added = stats.containsKey(uuid) ? 0 : 1;
+        stats.merge(uuid, change, PlayerStat::combineStats);
+        return queued(added);
+    }
+
+    /**
+     * Queue a bounty change. Batches of the same type are combined with the last queued change.
+     * @param write Change to the bounties.
+     * @return The number of queued writes.
+     */
+    synchronized int addBountyWrite(BountyWrite write) {
+        BountyWrite last = bountyWrites.isEmpty() ? null : bountyWrites.get(bountyWrites.size() - 1);
+        if (last instanceof ReplaceBounty lastReplace && write instanceof ReplaceBounty replace && lastReplace.uuid().equals(replace.uuid())) {
+            // only the latest replacement matters
+            bountyWrites.set(bountyWrites.size() - 1, replace);
+            return queued(0);
+        }
+        if (last instanceof AddBounties lastAdd && write instanceof AddBounties add) {
+            lastAdd.bounties().addAll(add.bounties());
+        } else if (last instanceof RemoveBounties lastRemove && write instanceof RemoveBounties remove) {
+            lastRemove.bounties().addAll(remove.bounties());
+        } else {
+            bountyWrites.add(write);
+        }
+        return queued(countWrites(write));
+    }
+
+    /**
+     * Remove all the queued writes.
+     * @return The writes that were queued.
+     */
+    synchronized Batch drain() {
+        Batch batch = new Batch(stats, bountyWrites, queuedTime);
+        int drained = stats.size();
+        for (BountyWrite write : bountyWrites)
+            drained += countWrites(write);
+        stats = new LinkedHashMap<>();
+        bountyWrites = new ArrayList<>();
+        queuedTime = 0;
+        size.addAndGet(-drained);
+        return batch;
+    }
+
+    /**
+     * Record that a batch finished writing to the database.
+     * @param batch The batch that was written.
+     */
+    synchronized void flushed(Batch batch) {
+        lastFlushLatency = System.currentTimeMillis() - batch.queuedTime();
+    }
+
+    /**
+     * Get the number of writes waiting to be flushed.
+     * Bounty batches count as one write for each bounty.
+     * @return The number of queued writes.
+     */
+    int size() {
+        return size.get();
+    }
+
+    /**
+     * Get the largest number of writes that were waiting since the last time this was called.
+     * @return The largest number of queued writes.
+     */
+    synchronized int resetPeakSize() {
+        int peak = Math.max(peakSize, size());
+        peakSize = 0;
+        return peak;
+    }
+
+    /**
+     * Get the time between when the oldest write of the last flush was queued, and when it was written.
+     * @return The latency of the last flush in milliseconds.
+     */
+    synchronized long getLastFlushLatency() {
+        return lastFlushLatency;
+    }
+
+    private int queued(int added) {
+        if (queuedTime == 0)
+            queuedTime = System.currentTimeMillis();
+        int queued = size.addAndGet(added);
+        peakSize = Math.max(peakSize, queued);
+        return queued;
+    }
+
+    /**
+     * Get the number of writes in a bounty change. Bounty batches count as one write for each bounty.
+     */
+    private static int countWrites(BountyWrite write) {
+        if (write instanceof AddBounties add)
+            return add.bounties().size();
+        if (write instanceof RemoveBounties remove)
+            return remove.bounties().size();
+        return 1;
+    }
+}
@@ -0,0 +1,339 @@
+package me.jadenp.notbounties.databases.proxy;
+
+import me.jadenp.notbounties.data.Bounty;
+import me.jadenp.notbounties.data.PlayerStat;
+import me.jadenp.notbounties.data.Setter;
+import me.jadenp.notbounties.data.Whitelist;
+import me.jadenp.notbounties.utils.BountyChange;
+import me.jadenp.notbounties.utils.SerializeInventory;
+import org.bukkit.inventory.ItemStack;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Binary format for bounty and stat updates sent through the proxy.
+ * An update is encoded, compressed if it is large, then split into chunks that fit in a plugin message.
+ * Each chunk is sent as a separate message and put back together when every chunk is received.
+ * <p>Chunk: version (byte), message id (long), chunk index (short), chunk count (short), length (int), bytes</p>
+ * <p>Message: flags (byte), then the body which may be deflated</p>
+ * <p>Body: type (byte), count (int), entries</p>
+ * UUIDs are written as 2 longs, and each setter is prefixed with its length so newer fields can be skipped.
+ */
+class ProxyCodec {
+
+    static final byte VERSION = 1;
+    /**
+     * The largest number of message bytes in a chunk.
+     * Plugin messages sent to a server can be at most 32767 bytes, and the length of the message is written as a short.
+     */
+    static final int MAX_CHUNK_SIZE = 30000;
+    private static final int COMPRESSION_THRESHOLD = 512;
+    private static final byte FLAG_DEFLATED = 1;
+    private static final byte BOUNTY_UPDATE = 0;
+    private static final byte STAT_UPDATE = 1;
+    // incomplete messages are dropped after this long
+    private static final long CHUNK_TIMEOUT = 60000L;
+
+    /**
+     * A decoded update.
+     * @param bountyChanges Bounty changes in the update, or an empty list.
+     * @param statChanges Stat changes in the update, or an empty map.
+     */
+    record Update(List<BountyChange> bountyChanges, Map<UUID, PlayerStat> statChanges) {}
+
+    private record PartialMessage(byte[][] chunks, long firstReceived) {}
+
+    private static final Map<Long, PartialMessage> partialMessages = new HashMap<>();
+
+    private ProxyCodec() {}
+
+    /**
+     * Encode bounty changes into chunks.
+     * @param bountyChanges Changes to encode.
+     * @return The chunks to send.
+     * @throws IOException if an I/O error occurs
+     */
+    static List<byte[]> encodeBountyChanges(List<BountyChange> bountyChanges) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeByte(BOUNTY_UPDATE);
+        out.writeInt(bountyChanges.size());
+        for (BountyChange bountyChange : bountyChanges) {
+            out.writeByte(bountyChange.changeType().ordinal());
+            writeBounty(out, bountyChange.change());
+        }
+        return chunk(bytes.toByteArray());
+    }
+
+    /**
+     * Encode stat changes into chunks.
+     * @param statChanges Changes to encode.
+     * @return The chunks to send.
+     * @throws IOException if an I/O error occurs
+     */
+    static List<byte[]> encodeStatChanges(Map<UUID, PlayerStat> statChanges) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeByte(STAT_UPDATE);
+        out.writeInt(statChanges.size());
+        for (Map.Entry<UUID, PlayerStat> entry : statChanges.entrySet()) {
+            writeUUID(out, entry.getKey());
+            PlayerStat stats = entry.getValue();
+            out.writeLong(stats.kills());
+            out.writeLong(stats.set());
+            out.writeLong(stats.deaths());
+            out.writeDouble(stats.all());
+            out.writeDouble(stats.immunity());
+            out.writeDouble(stats.claimed());
+            writeUUID(out, stats.serverID());
+        }
+        return chunk(bytes.toByteArray());
+    }
+
+    /**
+     * Read a received chunk.
+     * @param in The chunk after the channel name.
+     * @return The update if this was the last missing chunk of the message, or null if more chunks are needed.
+     * @throws IOException if the chunk or message can't be read
+     */
+    static synchronized @Nullable Update receiveChunk(DataInputStream in) throws IOException {
+        byte version = in.readByte();
+        if (version > VERSION)
+            throw new IOException("Received a proxy message with a newer format (" + version + "). Update NotBounties on this server.");
+        long messageId = in.readLong();
+        int chunkIndex = in.readUnsignedShort();
+        int chunkCount = in.readUnsignedShort();
+        byte[] chunk = new byte[in.readInt()];
+        in.readFully(chunk);
+        if (chunkIndex >= chunkCount)
+            throw new IOException("Invalid proxy message chunk.");
+
+        byte[] message;
+        if (chunkCount == 1) {
+            message = chunk;
+        } else {
+            long now = System.currentTimeMillis();
+            partialMessages.values().removeIf(partialMessage -> now - partialMessage.firstReceived() > CHUNK_TIMEOUT);
+            PartialMessage partialMessage = partialMessages.computeIfAbsent(messageId, k -> new PartialMessage(new byte[chunkCount][], now));
+            if (partialMessage.chunks().length != chunkCount)
+                throw new IOException("Invalid proxy message chunk.");
+            partialMessage.chunks()[chunkIndex] = chunk;
+            int length = 0;
+            for (byte[] receivedChunk : partialMessage.chunks()) {
+                if (receivedChunk == null)
+                    // waiting for more chunks
+                    return null;
+                length += receivedChunk.length;
+            }
+            partialMessages.remove(messageId);
+            message = new byte[length];
+            int position = 0;
+            for (byte[] receivedChunk : partialMessage.chunks()) {
+                System.arraycopy(receivedChunk, 0, message, position, receivedChunk.length);
+                position += receivedChunk.length;
+            }
+        }
+        return decode(message);
+    }
+
+    /**
+     * Compress a message if it is large enough, then split it into chunks.
+     */
+    private static List<byte[]> chunk(byte[] body) throws IOException {
+        byte flags = 0;
+        if (body.length > COMPRESSION_THRESHOLD) {
+            byte[] deflated = deflate(body);
+            if (deflated.length < body.length) {
+                body = deflated;
+                flags |= FLAG_DEFLATED;
+            }
+        }
+        byte[] message = new byte[body.length + 1];
+        message[0] = flags;
+        System.arraycopy(body, 0, message, 1, body.length);
+
+        int chunkCount = Math.max(1, (message.length + MAX_CHUNK_SIZE - 1) / MAX_CHUNK_SIZE);
+        if (chunkCount > 0xFFFF)
+            throw new IOException("Proxy message is too large to send.");
+        long messageId = ThreadLocalRandom.current().nextLong();
+        List<byte[]> chunks = new ArrayList<>(chunkCount);
+        for (int i = 0; i < chunkCount; i++) {
+            int start = i * MAX_CHUNK_SIZE;
+            int length = Math.min(MAX_CHUNK_SIZE, message.length - start);
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(length + 17);
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeByte(VERSION);
+            out.writeLong(messageId);
+            out.writeShort(i);
+            out.writeShort(chunkCount);
+            out.writeInt(length);
+            out.write(message, start, length);
+            chunks.add(bytes.toByteArray());
+        }
+        return chunks;
+    }
+
+    private static Update decode(byte[] message) throws IOException {
+        byte[] body = Arrays.copyOfRange(message, 1, message.length);
+        if ((message[0] & FLAG_DEFLATED) != 0)
+            body = inflate(body);
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(body));
+        byte type = in.readByte();
+        int count = in.readInt();
+        if (type == BOUNTY_UPDATE) {
+            BountyChange.ChangeType[] changeTypes = BountyChange.ChangeType.values();
+            List<BountyChange> bountyChanges = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                int changeType = in.readUnsignedByte();
+                if (changeType >= changeTypes.length)
+                    throw new IOException("Unknown bounty change type: " + changeType);
+                bountyChanges.add(new BountyChange(changeTypes[changeType], readBounty(in)));
+            }
+            return new Update(bountyChanges, Collections.emptyMap());
+        } else if (type == STAT_UPDATE) {
+            Map<UUID, PlayerStat> statChanges = new HashMap<>();
+            for (int i = 0; i < count; i++) {
+                UUID uuid = readUUID(in);
+                statChanges.put(uuid, new PlayerStat(in.readLong(), in.readLong(), in.readLong(), in.readDouble(), in.readDouble(), in.readDouble(), readUUID(in)));
+            }
+            return new Update(Collections.emptyList(), statChanges);
+        }
+        throw new IOException("Unknown proxy update type: " + type);
+    }
+
+    private static void writeBounty(DataOutputStream out, Bounty bounty) throws IOException {
+        writeUUID(out, bounty.getUUID());
+        writeString(out, bounty.getName());
+        writeUUID(out, bounty.getServerID());
+        List<Setter> setters = bounty.getSetters();
+        synchronized (setters) {
+            out.writeInt(setters.size());
+            for (Setter setter : setters) {
+                byte[] setterBytes = encodeSetter(setter);
+                out.writeInt(setterBytes.length);
+                out.write(setterBytes);
+            }
+        }
+    }
+
+    private static Bounty readBounty(DataInputStream in) throws IOException {
+        UUID uuid = readUUID(in);
+        String name = readString(in);
+        UUID serverID = readUUID(in);
+        int numSetters = in.readInt();
+        List<Setter> setters = new ArrayList<>(numSetters);
+        for (int i = 0; i < numSetters; i++) {
+            byte[] setterBytes = new byte[in.readInt()];
+            in.readFully(setterBytes);
+            setters.add(decodeSetter(setterBytes));
+        }
+        return new Bounty(uuid, setters, name, serverID);
+    }
+
+    private static byte[] encodeSetter(Setter setter) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        writeString(out, setter.getName());
+        writeUUID(out, setter.getUuid());
+        out.writeDouble(setter.getAmount());
+        out.writeDouble(setter.getDisplayAmount());
+        out.writeLong(setter.getTimeCreated());
+        out.writeLong(setter.getReceiverPlaytime());
+        out.writeBoolean(setter.isNotified());
+        Whitelist whitelist = setter.getWhitelist();
+        out.writeBoolean(whitelist.isBlacklist());
+        out.writeInt(whitelist.getList().size());
+        for (UUID uuid : whitelist.getList())
+            writeUUID(out, uuid);
+        if (setter.getItems().isEmpty()) {
+            out.writeInt(0);
+        } else {
+            byte[] items = SerializeInventory.itemStackArrayToBinaryStream(setter.getItems().toArray(new ItemStack[0])).readAllBytes();
+            out.writeInt(items.length);
+            out.write(items);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static Setter decodeSetter(byte[] setterBytes) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(setterBytes));
+        String name = readString(in);
+        UUID uuid = readUUID(in);
+        double amount = in.readDouble();
+        double display = in.readDouble();
+        long time = in.readLong();
+        long playtime = in.readLong();
+        boolean notified = in.readBoolean();
+        boolean blacklist = in.readBoolean();
+        int whitelistSize = in.readInt();
+        List<UUID> whitelist = new ArrayList<>(whitelistSize);
+        for (int i = 0; i < whitelistSize; i++)
+            whitelist.add(readUUID(in));
+        List<ItemStack> items = new ArrayList<>();
+        int itemsLength = in.readInt();
+        if (itemsLength > 0) {
+            byte[] itemBytes = new byte[itemsLength];
+            in.readFully(itemBytes);
+            items.addAll(Arrays.asList(SerializeInventory.itemStackArrayFromBinaryStream(new ByteArrayInputStream(itemBytes))));
+        }
+        // any remaining bytes are from a newer version
+        return new Setter(name, uuid, amount, items, time, notified, new Whitelist(whitelist, blacklist), playtime, display);
+    }
+
+    private static void writeUUID(DataOutputStream out, UUID uuid) throws IOException {
+        out.writeLong(uuid.getMostSignificantBits());
+        out.writeLong(uuid.getLeastSignificantBits());
+    }
+
+    private static UUID readUUID(DataInputStream in) throws IOException {
+        return new UUID(in.readLong(), in.readLong());
+    }
+
+    private static void writeString(DataOutputStream out, @Nullable String string) throws IOException {
+        out.writeBoolean(string != null);
+        if (string != null)
+            out.writeUTF(string);
+    }
+
+    private static @Nullable String readString(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    private static byte[] deflate(byte[] bytes) {
+        Deflater deflater = new Deflater();
+        deflater.setInput(bytes);
+        deflater.finish();
+        ByteArrayOutputStream out = new ByteArrayOutputStream(bytes.length / 2);
+        byte[] buffer = new byte[4096];
+        while (!deflater.finished())
+            out.write(buffer, 0, deflater.deflate(buffer));
+        deflater.end();
+        return out.toByteArray();
+    }
+
+    private static byte[] inflate(byte[] bytes) throws IOException {
+        Inflater inflater = new Inflater();
+        inflater.setInput(bytes);
+        ByteArrayOutputStream out = new ByteArrayOutputStream(bytes.length * 2);
+        byte[] buffer = new byte[4096];
+        try {
+            while (!inflater.finished()) {
+                int length = inflater.inflate(buffer);
+                if (length == 0 && (inflater.needsInput() || inflater.needsDictionary()))
+                    throw new IOException("Incomplete compressed proxy message.");
+                out.write(buffer, 0, length);
+            }
+        } catch (DataFormatException e) {
+            throw new IOException("Invalid compressed proxy message.", e);
+        } finally {
+            inflater.end();
+        }
+        return out.toByteArray();
+    }
+}
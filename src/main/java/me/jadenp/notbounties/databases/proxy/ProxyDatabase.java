@@ -149,6 +149,7 @@ public class ProxyDatabase extends NotBountiesDatabase {
         if (configuration == null)
             return null;
         enabled = configuration.getBoolean("enabled");
+        ProxyMessaging.setBinaryMessages(configuration.getBoolean("binary-messages", false));
         return configuration;
     }
 
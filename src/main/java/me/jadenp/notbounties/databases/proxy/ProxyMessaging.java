@@ -27,6 +27,10 @@ import java.util.*;
 public class ProxyMessaging implements PluginMessageListener, Listener {
     private static boolean connectedBefore = false;
     private static final String CHANNEL = "notbounties:main";
+    // send updates in the binary format. This is opt-in because older versions drop binary updates
+    private static boolean binaryMessages = false;
+    // another server on the network only reads the JSON format
+    private static boolean legacyPeer = false;
 
     private static void setConnectedBefore() {
         ProxyMessaging.connectedBefore = true;
@@ -40,6 +44,31 @@ public class ProxyMessaging implements PluginMessageListener, Listener {
         return connectedBefore;
     }
 
+    /**
+     * Set whether updates should be sent in the binary format.
+     * This should only be enabled when every server on the network reads the binary format.
+     * Updates are sent as JSON anyway after a JSON update is received from another server.
+     * @param binaryMessages True if updates should be sent in the binary format.
+     */
+    public static void setBinaryMessages(boolean binaryMessages) {
+        ProxyMessaging.binaryMessages = binaryMessages;
+    }
+
+    private static boolean useBinaryMessages() {
+        return binaryMessages && !legacyPeer;
+    }
+
+    /**
+     * Called when a JSON update is received.
+     * Older versions only send JSON updates, so updates will be sent as JSON until the server restarts.
+     */
+    private static void receivedLegacyUpdate() {
+        if (binaryMessages && !legacyPeer) {
+            legacyPeer = true;
+            NotBounties.debugMessage("Received a JSON proxy update. Another server may be on an older version, so updates will be sent as JSON.", false);
+        }
+    }
+
     @Override
     public void onPluginMessageReceived(@NotNull String channel, @NotNull Player player, byte @NotNull [] bytes) {
         if (!channel.equals(CHANNEL))
@@ -74,6 +103,7 @@ public class ProxyMessaging implements PluginMessageListener, Listener {
                 switch (subSubChannel) {
                     case "BountyUpdate" -> receiveBountyUpdate(msgIn);
                     case "StatUpdate" -> receiveStatUpdate(msgIn);
+                    case "DataChunk" -> receiveDataChunk(msgIn);
                     case "LogPlayer" -> {
                         short numPlayers = msgIn.readShort();
                         for (short i = 0; i < numPlayers; i++) {
@@ -178,12 +208,21 @@ public class ProxyMessaging implements PluginMessageListener, Listener {
      */
     private void receiveBountyUpdate(DataInputStream msgIn) throws IOException {
         // Forward BountyUpdate
+        receivedLegacyUpdate();
         short numBounties = msgIn.readShort();
-        LocalData localData = DataManager.getLocalData();
+        List<BountyChange> bountyChanges = new ArrayList<>(numBounties);
         for (short i = 0; i < numBounties; i++) {
             BountyChange.ChangeType changeType = BountyChange.ChangeType.valueOf(msgIn.readUTF());
-            Bounty bounty = new Bounty(msgIn.readUTF());
-            switch (changeType) {
+            bountyChanges.add(new BountyChange(changeType, new Bounty(msgIn.readUTF())));
+        }
+        applyBountyChanges(bountyChanges);
+    }
+
+    private static void applyBountyChanges(List<BountyChange> bountyChanges) {
+        LocalData localData = DataManager.getLocalData();
+        for (BountyChange bountyChange : bountyChanges) {
+            Bounty bounty = bountyChange.change();
+            switch (bountyChange.changeType()) {
                 case ADD_BOUNTY -> localData.addBounty(bounty);
                 case DELETE_BOUNTY -> localData.removeBounty(bounty);
                 case NOTIFY -> localData.notifyBounty(bounty.getUUID());
@@ -192,6 +231,26 @@ public class ProxyMessaging implements PluginMessageListener, Listener {
         }
     }
 
+    /**
+     * Received a chunk of a binary update from another server.
+     * The update is applied once all of its chunks are received.
+     * @param msgIn The received message.
+     */
+    private void receiveDataChunk(DataInputStream msgIn) {
+        try {
+            ProxyCodec.Update update = ProxyCodec.receiveChunk(msgIn);
+            if (update == null)
+                // waiting for more chunks
+                return;
+            NotBounties.debugMessage("Received a proxy update with " + update.bountyChanges().size() + " bounty changes and " + update.statChanges().size() + " stat changes.", false);
+            applyBountyChanges(update.bountyChanges());
+            DataManager.getLocalData().addStats(update.statChanges());
+        } catch (IOException e) {
+            Bukkit.getLogger().warning("[NotBounties] Could not read a data update from the proxy.");
+            Bukkit.getLogger().warning(e.toString());
+        }
+    }
+
     /**
      * Received an update from another server with stats to be changed.
      * @param msgIn The received message.
@@ -199,6 +258,7 @@ public class ProxyMessaging implements PluginMessageListener, Listener {
      */
     private void receiveStatUpdate(DataInputStream msgIn) throws IOException {
         // Forward StatUpdate
+        receivedLegacyUpdate();
         short numStats = msgIn.readShort();
         LocalData localData = DataManager.getLocalData();
         for (short i = 0; i < numStats; i++) {
@@ -246,8 +306,9 @@ public class ProxyMessaging implements PluginMessageListener, Listener {
         // send proxy message
         NotBounties.debugMessage("Sending Bounty Update of " + bountyChanges.size() + " changes.", false);
         try {
-            byte[] message = wrapGlobalMessage(encodeMessage(bountyChanges));
-            sendMessage(CHANNEL, message);
+            List<ByteArrayOutputStream> messages = useBinaryMessages() ? encodeChunks(ProxyCodec.encodeBountyChanges(bountyChanges)) : encodeMessage(bountyChanges);
+            for (ByteArrayOutputStream message : messages)
+                sendMessage(CHANNEL, wrapGlobalMessage(message));
         } catch (IOException e) {
             Bukkit.getLogger().warning("Could not send a data update.");
             Bukkit.getLogger().warning(e.toString());
@@ -263,8 +324,9 @@ public class ProxyMessaging implements PluginMessageListener, Listener {
         // send proxy message
         NotBounties.debugMessage("Sending Stat Update of " + statChanges.size() + " changes.", false);
         try {
-            byte[] message = wrapGlobalMessage(encodeMessage(statChanges));
-            sendMessage(CHANNEL, message);
+            List<ByteArrayOutputStream> messages = useBinaryMessages() ? encodeChunks(ProxyCodec.encodeStatChanges(statChanges)) : encodeMessage(statChanges);
+            for (ByteArrayOutputStream message : messages)
+                sendMessage(CHANNEL, wrapGlobalMessage(message));
         } catch (IOException e) {
             Bukkit.getLogger().warning("Could not send a data update.");
             Bukkit.getLogger().warning(e.toString());
@@ -275,8 +337,12 @@ public class ProxyMessaging implements PluginMessageListener, Listener {
      * Wraps a message in the needed bytes to send the message globally
      * @param stream A ByteArrayOutputStream to be sent as the message
      * @return A byte[] ready to be sent as a message
+     * @throws IOException if the message is too large for its length to be written
      */
-    private static byte[] wrapGlobalMessage(ByteArrayOutputStream stream) {
+    static byte[] wrapGlobalMessage(ByteArrayOutputStream stream) throws IOException {
+        if (stream.size() > Short.MAX_VALUE)
+            // the length would overflow and the message couldn't be read
+            throw new IOException("Proxy message is too large to send (" + stream.size() + " bytes).");
         ByteArrayDataOutput out = ByteStreams.newDataOutput();
         out.writeUTF("Forward");
         //out.writeUTF("ALL"); // This is the target server. "ALL" will message all servers apart from the one sending the message
@@ -288,51 +354,125 @@ public class ProxyMessaging implements PluginMessageListener, Listener {
         return out.toByteArray();
     }
 
-    private static List<String> encodeBounty(BountyChange bountyChange) {
-        List<String> encoded = new LinkedList<>();
-        encoded.add(bountyChange.changeType().toString());
-        encoded.add(bountyChange.change().toJson().toString());
-        return encoded;
+    /**
+     * Wraps binary chunks in messages to be sent to all the other servers on the network.
+     * @param chunks Chunks from the {@link ProxyCodec}.
+     * @return A ByteArrayOutputStream for each chunk with the message ready to be wrapped
+     * @throws IOException if an I/O error occurs
+     */
+    private static List<ByteArrayOutputStream> encodeChunks(List<byte[]> chunks) throws IOException {
+        List<ByteArrayOutputStream> messages = new ArrayList<>(chunks.size());
+        for (byte[] chunk : chunks) {
+            ByteArrayOutputStream msgBytes = new ByteArrayOutputStream();
+            DataOutputStream msgout = new DataOutputStream(msgBytes);
+            msgout.writeUTF("DataChunk"); // write the channel
+            msgout.write(chunk);
+            messages.add(msgBytes);
+        }
+        return messages;
     }
 
     /**
-     * Encodes a message in a byte array to be sent to all the other servers on the network.
+     * Encodes messages in a byte array to be sent to all the other servers on the network.
      * This function will encode the bounties into a string array.
+     * Changes are split into multiple messages, so no message is too large to be sent.
      * @param bountyChanges Bounties to encode.
-     * @return A ByteArrayOutputStream with the message ready to be wrapped
+     * @return ByteArrayOutputStreams with the messages ready to be wrapped
      * @throws IOException if an I/O error occurs
      */
-    private static ByteArrayOutputStream encodeMessage(List<BountyChange> bountyChanges) throws IOException {
-        ByteArrayOutputStream msgBytes = new ByteArrayOutputStream();
-        DataOutputStream msgout = new DataOutputStream(msgBytes);
-
-        msgout.writeUTF("BountyUpdate"); // write the channel
-        msgout.writeShort(bountyChanges.size()); // write the number of bounties
-        for (BountyChange bounty : bountyChanges)
-            for (String str : encodeBounty(bounty))
-                msgout.writeUTF(str);
-
-        return msgBytes;
+    private static List<ByteArrayOutputStream> encodeMessage(List<BountyChange> bountyChanges) throws IOException {
+        List<byte[]> entries = new ArrayList<>(bountyChanges.size());
+        List<BountyChange> oversized = new ArrayList<>();
+        for (BountyChange bountyChange : bountyChanges) {
+            byte[] entry = encodeEntry(bountyChange.changeType().toString(), bountyChange.change().toJson().toString());
+            if (entry != null)
+                entries.add(entry);
+            else
+                oversized.add(bountyChange);
+        }
+        if (oversized.isEmpty())
+            return splitMessages("BountyUpdate", entries);
+        Bukkit.getLogger().warning("[NotBounties] " + oversized.size() + " bounty changes are too large for a proxy message and will be sent in the binary format. Servers on older versions won't receive them.");
+        List<ByteArrayOutputStream> messages = entries.isEmpty() ? new ArrayList<>() : splitMessages("BountyUpdate", entries);
+        messages.addAll(encodeChunks(ProxyCodec.encodeBountyChanges(oversized)));
+        return messages;
     }
 
     /**
-     * Encodes a message in a byte array to be sent to all the other servers on the network.
-     * This function will encode the bounties into a string array.
+     * Encodes messages in a byte array to be sent to all the other servers on the network.
+     * This function will encode the stats into a string array.
+     * Changes are split into multiple messages, so no message is too large to be sent.
      * @param statChanges Stats to encode.
-     * @return A ByteArrayOutputStream with the message ready to be wrapped
+     * @return ByteArrayOutputStreams with the messages ready to be wrapped
      * @throws IOException if an I/O error occurs
      */
-    private static ByteArrayOutputStream encodeMessage(Map<UUID, PlayerStat> statChanges) throws IOException {
-        ByteArrayOutputStream msgBytes = new ByteArrayOutputStream();
-        DataOutputStream msgout = new DataOutputStream(msgBytes);
+    private static List<ByteArrayOutputStream> encodeMessage(Map<UUID, PlayerStat> statChanges) throws IOException {
+        List<byte[]> entries = new ArrayList<>(statChanges.size());
+        Map<UUID, PlayerStat> oversized = new HashMap<>();
+        for (Map.Entry<UUID, PlayerStat> statChange : statChanges.entrySet()) {
+            byte[] entry = encodeEntry(statChange.getKey().toString(), statChange.getValue().toJson().toString());
+            if (entry != null)
+                entries.add(entry);
+            else
+                oversized.put(statChange.getKey(), statChange.getValue());
+        }
+        if (oversized.isEmpty())
+            return splitMessages("StatUpdate", entries);
+        Bukkit.getLogger().warning("[NotBounties] " + oversized.size() + " stat changes are too large for a proxy message and will be sent in the binary format. Servers on older versions won't receive them.");
+        List<ByteArrayOutputStream> messages = entries.isEmpty() ? new ArrayList<>() : splitMessages("StatUpdate", entries);
+        messages.addAll(encodeChunks(ProxyCodec.encodeStatChanges(oversized)));
+        return messages;
+    }
 
-        msgout.writeUTF("StatUpdate"); // write the channel
-        msgout.writeShort(statChanges.size()); // write the number of stats
-        for (Map.Entry<UUID, PlayerStat> entry : statChanges.entrySet()) {
-            msgout.writeUTF(entry.getKey().toString());
-            msgout.writeUTF(entry.getValue().toJson().toString());
+    /**
+     * Encode an entry of a BountyUpdate or StatUpdate message.
+     * @param key The first string of the entry.
+     * @param json The json of the entry.
+     * @return The encoded entry, or null if the entry is larger than {@link ProxyCodec#MAX_CHUNK_SIZE} and can't be
+     *         sent in one message.
+     * @throws IOException if an I/O error occurs
+     */
+    static byte[] encodeEntry(String key, String json) throws IOException {
+        ByteArrayOutputStream entry = new ByteArrayOutputStream();
+        DataOutputStream entryOut = new DataOutputStream(entry);
+        try {
+            entryOut.writeUTF(key);
+            entryOut.writeUTF(json);
+        } catch (UTFDataFormatException e) {
+            // the json is longer than a string can be written
+            return null;
+        }
+        return entry.size() > ProxyCodec.MAX_CHUNK_SIZE ? null : entry.toByteArray();
+    }
+
+    /**
+     * Puts encoded entries into as few messages as possible without going over the chunk size.
+     * @param channel Channel of the messages.
+     * @param entries Encoded entries from {@link #encodeEntry(String, String)}.
+     * @return ByteArrayOutputStreams with the messages ready to be wrapped
+     * @throws IOException if an I/O error occurs
+     */
+    static List<ByteArrayOutputStream> splitMessages(String channel, List<byte[]> entries) throws IOException {
+        List<ByteArrayOutputStream> messages = new ArrayList<>();
+        int start = 0;
+        while (start < entries.size() || messages.isEmpty()) {
+            int end = start;
+            int size = 0;
+            // always include at least one entry
+            while (end < entries.size() && (end == start || size + entries.get(end).length <= ProxyCodec.MAX_CHUNK_SIZE) && end - start < Short.MAX_VALUE) {
+                size += entries.get(end).length;
+                end++;
+            }
+            ByteArrayOutputStream msgBytes = new ByteArrayOutputStream();
+            DataOutputStream msgout = new DataOutputStream(msgBytes);
+            msgout.writeUTF(channel); // write the channel
+            msgout.writeShort(end - start); // write the number of entries
+            for (int i = start; i < end; i++)
+                msgout.write(entries.get(i));
+            messages.add(msgBytes);
+            start = end;
         }
-        return msgBytes;
+        return messages;
     }
 
     /**
@@ -370,11 +510,10 @@ public class ProxyMessaging implements PluginMessageListener, Listener {
             msgout.writeUTF("LogPlayer");
             msgout.writeShort(1);
             msgout.writeUTF(uuid.toString() + ":" + playerName);
+            sendMessage(CHANNEL, wrapGlobalMessage(msgBytes));
         } catch (IOException e) {
             Bukkit.getLogger().warning(e.toString());
-            return;
         }
-        sendMessage(CHANNEL, wrapGlobalMessage(msgBytes));
     }
 
     private static final List<UUID> queuedSkinRequests = new ArrayList<>();
@@ -1,13 +1,12 @@
 package me.jadenp.notbounties.databases.redis;
 
-import io.lettuce.core.RedisClient;
-import io.lettuce.core.RedisConnectionException;
-import io.lettuce.core.RedisURI;
-import io.lettuce.core.StaticCredentialsProvider;
+import io.lettuce.core.*;
 import io.lettuce.core.api.StatefulRedisConnection;
+import io.lettuce.core.api.async.RedisAsyncCommands;
 import io.lettuce.core.api.sync.RedisCommands;
 import me.jadenp.notbounties.data.Bounty;
 import me.jadenp.notbounties.NotBounties;
+import me.jadenp.notbounties.databases.ChangeFeed;
 import me.jadenp.notbounties.databases.NotBountiesDatabase;
 import me.jadenp.notbounties.utils.DataManager;
 import me.jadenp.notbounties.data.PlayerStat;
@@ -18,14 +17,18 @@ import org.jetbrains.annotations.NotNull;
 import javax.annotation.Nullable;
 import java.io.IOException;
 import java.util.*;
+import java.util.function.BiConsumer;
+import java.util.stream.Collectors;
 
 /**
  * Data is stored in Redis which is basically a string hashmap
  */
-public class RedisConnection extends NotBountiesDatabase {
+public class RedisConnection extends NotBountiesDatabase implements ChangeFeed {
     private RedisClient redis = null;
     private StatefulRedisConnection<String, String> connection = null;
     private RedisCommands<String, String> data = null;
+    private RedisAsyncCommands<String, String> asyncData = null;
+    private String addStatsScriptSha = null;
     private long failedConnectionTimeout = 0;
     private boolean connectedBefore = false;
 
@@ -35,10 +38,40 @@ public class RedisConnection extends NotBountiesDatabase {
     private int port = 3306;
     private int databaseNumber = -1;
     private boolean ssl = false;
+    private boolean changeFeed = false;
 
     private static final String BOUNTIES_KEY = "bounties";
     private static final String STATS_KEY = "stats";
     private static final String ONLINE_PLAYERS_KEY = "players";
+    private static final String CHANGES_KEY = "changes";
+    private static final String BOUNTY_CHANGE = "bounty";
+    private static final String STAT_CHANGE = "stat";
+    // number of hash fields requested in each scan
+    private static final int SCAN_COUNT = 500;
+    /**
+     * Adds stats to the stored stats of multiple players in one atomic operation.
+     * KEYS[1] is the stats hash.
+     * ARGV[1] is the server ID for new stats, followed by the UUID, kills, set, deaths, all, immunity, and claimed of each player.
+     * Stats are written in the same JSON format as PlayerStat.toJson().
+     */
+    private static final String ADD_STATS_SCRIPT = """
+            local fields = {'kills', 'set', 'deaths', 'all', 'immunity', 'claimed'}
+            for i = 2, #ARGV, 7 do
+                local current = redis.call('HGET', KEYS[1], ARGV[i])
+                local stats = {}
+                if current then
+                    stats = cjson.decode(current)
+                end
+                local json = {}
+                for f = 1, 6 do
+                    local value = (tonumber(stats[fields[f]]) or 0) + tonumber(ARGV[i + f])
+                    json[f] = '"' .. fields[f] .. '":' .. string.format('%.17g', value)
+                end
+                json[7] = '"serverID":"' .. (stats['serverID'] or stats['server-id'] or ARGV[1]) .. '"'
+                redis.call('HSET', KEYS[1], ARGV[i], '{' .. table.concat(json, ',') .. '}')
+            end
+            return (#ARGV - 1) / 7
+            """;
 
     public RedisConnection(Plugin plugin, String name) {
         super(plugin, name);
@@ -57,6 +90,7 @@ public class RedisConnection extends NotBountiesDatabase {
         username = configuration.isSet( "user") ? configuration.getString( "user") : "user";
         password = configuration.isSet( "password") ? configuration.getString( "password") : "";
         ssl = configuration.isSet( "use-ssl") && configuration.getBoolean( "use-ssl");
+        changeFeed = configuration.isSet("change-feed") && configuration.getBoolean("change-feed");
         return configuration;
     }
 
@@ -78,6 +112,44 @@ public class RedisConnection extends NotBountiesDatabase {
         return data;
     }
 
+    /**
+     * Get the asynchronous commands for the connection.
+     * Commands sent without waiting for the previous response are pipelined.
+     * @return The asynchronous commands, or null if not connected.
+     */
+    private RedisAsyncCommands<String, String> getAsyncData() {
+        if (asyncData == null && getData() != null)
+            asyncData = connection.async();
+        return asyncData;
+    }
+
+    /**
+     * Wait for pipelined commands to complete.
+     * @param futures Commands that were sent.
+     * @throws IOException If the commands didn't complete before the connection timed out.
+     */
+    private void awaitAll(List<RedisFuture<?>> futures) throws IOException {
+        if (!futures.isEmpty() && !LettuceFutures.awaitAll(connection.getTimeout(), futures.toArray(new RedisFuture[0])))
+            throw notConnectedException;
+    }
+
+    /**
+     * Read every field of a hash in pages, so the whole hash doesn't need to be in memory at once.
+     * A field may be read more than once if the hash changes during the scan.
+     * @param key Key of the hash.
+     * @param consumer Consumer of the fields and values.
+     */
+    private void scanHash(String key, BiConsumer<String, String> consumer) {
+        ScanArgs scanArgs = ScanArgs.Builder.limit(SCAN_COUNT);
+        MapScanCursor<String, String> cursor = getData().hscan(key, scanArgs);
+        while (true) {
+            cursor.getMap().forEach(consumer);
+            if (cursor.isFinished())
+                break;
+            cursor = getData().hscan(key, cursor, scanArgs);
+        }
+    }
+
     private RedisURI constructURI() {
         RedisURI uri = new RedisURI();
 
@@ -127,6 +199,8 @@ public class RedisConnection extends NotBountiesDatabase {
         if (getData() != null) {
             connection.close();
             data = null;
+            asyncData = null;
+            addStatsScriptSha = null;
         }
     }
 
@@ -137,6 +211,8 @@ public class RedisConnection extends NotBountiesDatabase {
             connection = redis.connect();
             if (data == null)
                 data = connection.sync();
+            asyncData = null;
+            addStatsScriptSha = null;
             DataManager.databaseConnect(this);
             connectedBefore = true;
             return true;
@@ -214,12 +290,7 @@ public class RedisConnection extends NotBountiesDatabase {
      * @param stats The stats to add
      */
     public void addStats(UUID uuid, PlayerStat stats) {
-        try {
-            PlayerStat previousStats = getStats(uuid);
-            getData().hset(STATS_KEY, uuid.toString(), previousStats.combineStats(stats).toJson().toString());
-        } catch (IOException e) {
-            // database not connected
-        }
+        addStats(Collections.singletonMap(uuid, stats));
     }
 
     /**
@@ -245,31 +316,62 @@ public class RedisConnection extends NotBountiesDatabase {
         if (getData() == null)
             throw notConnectedException;
         Map<UUID, PlayerStat> stats = new HashMap<>();
-        for (Map.Entry<String, String> entry : getData().hgetall(STATS_KEY).entrySet()) {
-            stats.put(UUID.fromString(entry.getKey()), new PlayerStat(entry.getValue()));
-        }
+        scanHash(STATS_KEY, (uuid, json) -> stats.put(UUID.fromString(uuid), new PlayerStat(json)));
         return stats;
     }
 
     @Override
     public void addStats(Map<UUID, PlayerStat> playerStats) {
-        if (getData() != null) {
+        if (getData() != null && !playerStats.isEmpty()) {
+            String[] args = new String[playerStats.size() * 7 + 1];
+            args[0] = DataManager.GLOBAL_SERVER_ID.toString();
+            int i = 1;
+            for (Map.Entry<UUID, PlayerStat> entry : playerStats.entrySet()) {
+                PlayerStat stats = entry.getValue();
+                args[i++] = entry.getKey().toString();
+                args[i++] = Long.toString(stats.kills());
+                args[i++] = Long.toString(stats.set());
+                args[i++] = Long.toString(stats.deaths());
+                args[i++] = Double.toString(stats.all());
+                args[i++] = Double.toString(stats.immunity());
+                args[i++] = Double.toString(stats.claimed());
+            }
+            String[] keys = {STATS_KEY};
             try {
-                for (Map.Entry<UUID, PlayerStat> entry : playerStats.entrySet()) {
-                    PlayerStat previousStats = getStats(entry.getKey());
-                    getData().hset(STATS_KEY, entry.getKey().toString(), previousStats.combineStats(entry.getValue()).toJson().toString());
-                }
-            } catch (IOException ignored) {
-                // database isn't connected
+                getData().evalsha(getAddStatsScript(), ScriptOutputType.INTEGER, keys, args);
+            } catch (RedisNoScriptException e) {
+                // the script cache was flushed
+                addStatsScriptSha = null;
+                getData().evalsha(getAddStatsScript(), ScriptOutputType.INTEGER, keys, args);
             }
+            recordChanges(STAT_CHANGE, playerStats.keySet());
         }
     }
 
+    private String getAddStatsScript() {
+        if (addStatsScriptSha == null)
+            addStatsScriptSha = getData().scriptLoad(ADD_STATS_SCRIPT);
+        return addStatsScriptSha;
+    }
+
     @Override
     public void addBounty(List<Bounty> bounties) {
+        if (getData() == null || bounties.isEmpty())
+            return;
         try {
-            for (Bounty bounty : bounties)
-                addBounty(bounty);
+            // read all the current bounties at once
+            Map<UUID, Bounty> currentBounties = getBounties(bounties.stream().map(Bounty::getUUID).collect(Collectors.toSet()));
+            for (Bounty bounty : bounties) {
+                Bounty currentBounty = currentBounties.get(bounty.getUUID());
+                if (currentBounty != null)
+                    currentBounty.getSetters().addAll(bounty.getSetters());
+                else
+                    currentBounties.put(bounty.getUUID(), new Bounty(bounty));
+            }
+            Map<String, String> updatedBounties = new HashMap<>();
+            currentBounties.forEach((uuid, bounty) -> updatedBounties.put(uuid.toString(), bounty.toJson().toString()));
+            getData().hset(BOUNTIES_KEY, updatedBounties);
+            recordChanges(BOUNTY_CHANGE, currentBounties.keySet());
         } catch (IOException e) {
             // database not connected
         }
@@ -277,8 +379,40 @@ public class RedisConnection extends NotBountiesDatabase {
 
     @Override
     public void removeBounty(List<Bounty> bounties) {
-        for (Bounty bounty : bounties)
-            removeBounty(bounty);
+        if (getAsyncData() == null || bounties.isEmpty())
+            return;
+        try {
+            // read all the current bounties at once
+            Map<UUID, Bounty> currentBounties = getBounties(bounties.stream().map(Bounty::getUUID).collect(Collectors.toSet()));
+            for (Bounty bounty : bounties) {
+                Bounty currentBounty = currentBounties.get(bounty.getUUID());
+                if (currentBounty == null)
+                    // bounty doesn't exist
+                    continue;
+                // delete if uuid and time created match in any setter from the two bounties
+                currentBounty.getSetters().removeIf(setter -> bounty.getSetters().stream().anyMatch(toDeleteSetter -> setter.getUuid().equals(toDeleteSetter.getUuid()) && setter.getTimeCreated() == toDeleteSetter.getTimeCreated()));
+            }
+            if (currentBounties.isEmpty())
+                return;
+            Map<String, String> replacedBounties = new HashMap<>();
+            List<String> removedBounties = new ArrayList<>();
+            currentBounties.forEach((uuid, bounty) -> {
+                if (bounty.getSetters().isEmpty())
+                    removedBounties.add(uuid.toString());
+                else
+                    replacedBounties.put(uuid.toString(), bounty.toJson().toString());
+            });
+            // send the replacements and deletions together
+            List<RedisFuture<?>> futures = new ArrayList<>(2);
+            if (!replacedBounties.isEmpty())
+                futures.add(getAsyncData().hset(BOUNTIES_KEY, replacedBounties));
+            if (!removedBounties.isEmpty())
+                futures.add(getAsyncData().hdel(BOUNTIES_KEY, removedBounties.toArray(new String[0])));
+            awaitAll(futures);
+            recordChanges(BOUNTY_CHANGE, currentBounties.keySet());
+        } catch (IOException e) {
+            // database not connected
+        }
     }
 
     /**
@@ -298,6 +432,7 @@ public class RedisConnection extends NotBountiesDatabase {
             prevBounty = bounty;
         }
         getData().hset(BOUNTIES_KEY, bounty.getUUID().toString(), prevBounty.toJson().toString());
+        recordChanges(BOUNTY_CHANGE, Collections.singletonList(bounty.getUUID()));
         return prevBounty;
     }
 
@@ -308,10 +443,12 @@ public class RedisConnection extends NotBountiesDatabase {
      */
     public void replaceBounty(UUID uuid, @Nullable Bounty bounty) {
         if (getData() != null) {
-            if (bounty != null)
+            if (bounty != null) {
                 getData().hset(BOUNTIES_KEY, uuid.toString(), bounty.toJson().toString());
-            else
+                recordChanges(BOUNTY_CHANGE, Collections.singletonList(uuid));
+            } else {
                 removeBounty(uuid);
+            }
         }
     }
 
@@ -331,25 +468,7 @@ public class RedisConnection extends NotBountiesDatabase {
      * @param bounty Bounty to be removed
      */
     public void removeBounty(Bounty bounty) {
-        if (getData() != null) {
-            try {
-                Bounty currentBounty = getBounty(bounty.getUUID());
-                if (currentBounty == null)
-                    // bounty doesn't exist
-                    return;
-                // delete if uuid and time created match in any setter from the two bounties
-                currentBounty.getSetters().removeIf(setter -> bounty.getSetters().stream().anyMatch(toDeleteSetter -> setter.getUuid().equals(toDeleteSetter.getUuid()) && setter.getTimeCreated() == toDeleteSetter.getTimeCreated()));
-                if (currentBounty.getSetters().isEmpty()) {
-                    // bounty should be deleted
-                    removeBounty(bounty.getUUID());
-                } else {
-                    // replace bounty
-                    getData().hset(BOUNTIES_KEY, bounty.getUUID().toString(), currentBounty.toJson().toString());
-                }
-            } catch (IOException e) {
-                // database not connected
-            }
-        }
+        removeBounty(Collections.singletonList(bounty));
     }
 
     /**
@@ -360,6 +479,7 @@ public class RedisConnection extends NotBountiesDatabase {
         if (getData() == null)
             return;
         getData().hdel(BOUNTIES_KEY, uuid.toString());
+        recordChanges(BOUNTY_CHANGE, Collections.singletonList(uuid));
     }
 
     /**
@@ -370,10 +490,10 @@ public class RedisConnection extends NotBountiesDatabase {
     public List<Bounty> getAllBounties(int sortType) throws IOException{
         if (getData() == null)
             throw notConnectedException;
-        List<Bounty> bounties = new ArrayList<>();
-        for (Map.Entry<String, String> entry : getData().hgetall(BOUNTIES_KEY).entrySet()) {
-            bounties.add(new Bounty(entry.getValue()));
-        }
+        // keyed by uuid, because a scan can return a field more than once
+        Map<String, Bounty> scannedBounties = new HashMap<>();
+        scanHash(BOUNTIES_KEY, (uuid, json) -> scannedBounties.put(uuid, new Bounty(json)));
+        List<Bounty> bounties = new ArrayList<>(scannedBounties.values());
 
         if (sortType == -1)
             return bounties;
@@ -385,21 +505,93 @@ public class RedisConnection extends NotBountiesDatabase {
             Collections.sort(bounties);
             return bounties;
         }
-        // sort in other ways
-        Bounty temp;
-        for (int i = 0; i < bounties.size(); i++) {
-            for (int j = i + 1; j < bounties.size(); j++) {
-                if (!bounties.get(i).getSetters().isEmpty()
-                        && ((bounties.get(i).getSetters().get(0).getTimeCreated() > bounties.get(j).getSetters().get(0).getTimeCreated() && sortType == 0) || // oldest bounties at top
-                        (bounties.get(i).getSetters().get(0).getTimeCreated() < bounties.get(j).getSetters().get(0).getTimeCreated() && sortType == 1))) { // newest bounties at top
-                    temp = bounties.get(i);
-                    bounties.set(i, bounties.get(j));
-                    bounties.set(j, temp);
-                }
-            }
+        // sort by the time the first setter was created
+        Comparator<Bounty> createdOrder = Comparator.comparingLong(bounty -> bounty.getSetters().isEmpty() ? Long.MAX_VALUE : bounty.getSetters().get(0).getTimeCreated());
+        bounties.sort(sortType == 0 ? createdOrder : createdOrder.reversed());  // oldest or newest bounties at top
+
+        return bounties;
+    }
+
+    /**
+     * Records that bounties or stats were changed, so other servers can read only the changed data.
+     * Changes older than the change retention are trimmed from the stream.
+     * @param type BOUNTY_CHANGE or STAT_CHANGE
+     * @param uuids UUIDs of the players that were changed.
+     */
+    private void recordChanges(String type, Collection<UUID> uuids) {
+        if (uuids.isEmpty() || getData() == null)
+            return;
+        Map<String, String> change = new HashMap<>();
+        change.put("type", type);
+        change.put("uuids", uuids.stream().map(UUID::toString).collect(Collectors.joining(",")));
+        // pipelined with the next command instead of waiting for a response
+        getAsyncData().xadd(CHANGES_KEY, new XAddArgs().minId(String.valueOf(System.currentTimeMillis() - CHANGE_RETENTION_MS)).approximateTrimming(), change)
+                .exceptionally(e -> {
+                    NotBounties.debugMessage("Failed to record changes in " + getName() + ": " + e.getMessage(), true);
+                    return null;
+                });
+    }
+
+    @Override
+    public boolean isChangeFeedEnabled() {
+        return changeFeed;
+    }
+
+    @Override
+    public String getChangeCursor() throws IOException {
+        if (getData() == null)
+            throw notConnectedException;
+        List<StreamMessage<String, String>> latest = getData().xrevrange(CHANGES_KEY, Range.unbounded(), Limit.create(0, 1));
+        return latest.isEmpty() ? "0-0" : latest.get(0).getId();
+    }
+
+    @Override
+    public @Nullable ChangeSet getChangesSince(String cursor) throws IOException {
+        if (System.currentTimeMillis() - getLastSync() > CHANGE_RETENTION_MS / 2)
+            // changes may have been trimmed since the last sync
+            return null;
+        if (getData() == null)
+            throw notConnectedException;
+        Set<UUID> bounties = new HashSet<>();
+        Set<UUID> stats = new HashSet<>();
+        String latestId = cursor;
+        for (StreamMessage<String, String> message : getData().xrange(CHANGES_KEY, Range.from(Range.Boundary.excluding(cursor), Range.Boundary.unbounded()))) {
+            latestId = message.getId();
+            String uuids = message.getBody().get("uuids");
+            if (uuids == null || uuids.isEmpty())
+                continue;
+            Set<UUID> changed = BOUNTY_CHANGE.equals(message.getBody().get("type")) ? bounties : stats;
+            for (String uuid : uuids.split(","))
+                changed.add(UUID.fromString(uuid));
         }
+        return new ChangeSet(latestId, bounties, stats);
+    }
 
+    @Override
+    public Map<UUID, Bounty> getBounties(Collection<UUID> uuids) throws IOException {
+        if (getData() == null)
+            throw notConnectedException;
+        Map<UUID, Bounty> bounties = new HashMap<>();
+        if (uuids.isEmpty())
+            return bounties;
+        for (KeyValue<String, String> entry : getData().hmget(BOUNTIES_KEY, uuids.stream().map(UUID::toString).toArray(String[]::new))) {
+            if (entry.hasValue())
+                bounties.put(UUID.fromString(entry.getKey()), new Bounty(entry.getValue()));
+        }
         return bounties;
     }
 
+    @Override
+    public Map<UUID, PlayerStat> getStats(Collection<UUID> uuids) throws IOException {
+        if (getData() == null)
+            throw notConnectedException;
+        Map<UUID, PlayerStat> stats = new HashMap<>();
+        if (uuids.isEmpty())
+            return stats;
+        for (KeyValue<String, String> entry : getData().hmget(STATS_KEY, uuids.stream().map(UUID::toString).toArray(String[]::new))) {
+            if (entry.hasValue())
+                stats.put(UUID.fromString(entry.getKey()), new PlayerStat(entry.getValue()));
+        }
+        return stats;
+    }
 }
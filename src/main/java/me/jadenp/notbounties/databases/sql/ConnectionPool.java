@@ -0,0 +1,177 @@
+package me.jadenp.notbounties.databases.sql;
+
+import java.sql.*;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A pool of connections to a database, so tasks running at the same time don't have to share one connection.
+ * Connections are reused from most to least recently used, and connections that have been idle for a while are
+ * validated before they are used.
+ */
+class ConnectionPool {
+
+    private static final long CONNECTION_TIMEOUT = 10000L; // how long to wait for a connection in milliseconds
+    private static final long VALIDATION_INTERVAL = 30000L; // connections idle for longer than this are validated
+    private static final int VALIDATION_TIMEOUT = 5; // seconds
+
+    /**
+     * A connection that isn't in use.
+     * @param connection The connection.
+     * @param lastUsed The time in milliseconds when the connection was returned to the pool.
+     */
+    private record IdleConnection(Connection connection, long lastUsed) {}
+
+    /**
+     * A connection borrowed from the pool. Closing it returns the connection to the pool.
+     */
+    static class PooledConnection implements AutoCloseable {
+        private final ConnectionPool pool;
+        private final Connection connection;
+        private boolean released = false;
+
+        private PooledConnection(ConnectionPool pool, Connection connection) {
+            this.pool = pool;
+            this.connection = connection;
+        }
+
+        PreparedStatement prepareStatement(String sql) throws SQLException {
+            return connection.prepareStatement(sql);
+        }
+
+        @Override
+        public void close() {
+            if (!released) {
+                released = true;
+                pool.release(connection);
+            }
+        }
+    }
+
+    private final String url;
+    private final String username;
+    private final String password;
+    private final Semaphore permits;
+    private final BlockingDeque<IdleConnection> idleConnections = new LinkedBlockingDeque<>();
+    // the connection that each thread returned last, so it can be evicted if its statement failed
+    private final ThreadLocal<Connection> lastReleased = new ThreadLocal<>();
+    private volatile boolean closed = false;
+
+    /**
+     * Create a connection pool. No connections are made until one is requested.
+     * @param url JDBC url of the database.
+     * @param username Username to connect with.
+     * @param password Password to connect with.
+     * @param maxSize The maximum number of connections that can be open at once.
+     */
+    ConnectionPool(String url, String username, String password, int maxSize) {
+        this.url = url;
+        this.username = username;
+        this.password = password;
+        permits = new Semaphore(Math.max(1, maxSize), true);
+    }
+
+    /**
+     * Borrow a connection from the pool. The connection must be closed to return it.
+     * @return A valid connection.
+     * @throws SQLException If a connection couldn't be made, or no connection was available in time.
+     */
+    PooledConnection getConnection() throws SQLException {
+        if (closed)
+            throw new SQLNonTransientConnectionException("The connection pool is closed.");
+        try {
+            if (!permits.tryAcquire(CONNECTION_TIMEOUT, TimeUnit.MILLISECONDS))
+                throw new SQLTransientConnectionException("Timed out waiting for a database connection.");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLTransientConnectionException("Interrupted while waiting for a database connection.", e);
+        }
+        try {
+            IdleConnection idleConnection;
+            while ((idleConnection = idleConnections.pollFirst()) != null) {
+                if (isUsable(idleConnection))
+                    return new PooledConnection(this, idleConnection.connection());
+                closeQuietly(idleConnection.connection());
+            }
+            return new PooledConnection(this, DriverManager.getConnection(url, username, password));
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Test that a connection can be made to the database.
+     * @throws SQLException If a connection couldn't be made.
+     */
+    void validate() throws SQLException {
+        getConnection().close();
+    }
+
+    boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * Close all the idle connections. Connections that are in use are closed when they are returned.
+     */
+    void close() {
+        closed = true;
+        IdleConnection idleConnection;
+        while ((idleConnection = idleConnections.pollFirst()) != null)
+            closeQuietly(idleConnection.connection());
+    }
+
+    /**
+     * Close the connection that the current thread returned last, so it isn't used again.
+     * This should be called when a statement failed after its connection was returned. Other connections are not
+     * affected.
+     */
+    void evictLastReleased() {
+        Connection connection = lastReleased.get();
+        if (connection == null)
+            return;
+        lastReleased.remove();
+        // if another thread is using the connection, it is closed when that thread returns it
+        if (idleConnections.removeIf(idleConnection -> idleConnection.connection() == connection))
+            closeQuietly(connection);
+    }
+
+    private void release(Connection connection) {
+        lastReleased.set(connection);
+        try {
+            if (!closed && !connection.isClosed()) {
+                if (!connection.getAutoCommit())
+                    connection.setAutoCommit(true);
+                idleConnections.offerFirst(new IdleConnection(connection, System.currentTimeMillis()));
+            } else {
+                closeQuietly(connection);
+            }
+        } catch (SQLException e) {
+            closeQuietly(connection);
+        } finally {
+            permits.release();
+        }
+    }
+
+    private static boolean isUsable(IdleConnection idleConnection) {
+        try {
+            if (idleConnection.connection().isClosed())
+                return false;
+            return System.currentTimeMillis() - idleConnection.lastUsed() < VALIDATION_INTERVAL
+                    || idleConnection.connection().isValid(VALIDATION_TIMEOUT);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private static void closeQuietly(Connection connection) {
+        try {
+            connection.close();
+        } catch (SQLException ignored) {
+            // connection is already unusable
+        }
+    }
+}
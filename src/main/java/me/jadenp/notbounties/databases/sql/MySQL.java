@@ -3,7 +3,9 @@ package me.jadenp.notbounties.databases.sql;
 import me.jadenp.notbounties.data.Bounty;
 import me.jadenp.notbounties.NotBounties;
 import me.jadenp.notbounties.data.Setter;
+import me.jadenp.notbounties.databases.ChangeFeed;
 import me.jadenp.notbounties.databases.NotBountiesDatabase;
+import me.jadenp.notbounties.databases.sql.ConnectionPool.PooledConnection;
 import me.jadenp.notbounties.utils.DataManager;
 import me.jadenp.notbounties.data.PlayerStat;
 import me.jadenp.notbounties.utils.SerializeInventory;
@@ -17,15 +19,49 @@ import org.jetbrains.annotations.Nullable;
 
 import java.io.IOException;
 import java.io.StreamCorruptedException;
+import java.nio.ByteBuffer;
 import java.sql.*;
 import java.util.*;
 
 // remove bounty server id
-public class MySQL extends NotBountiesDatabase {
-    private Connection connection;
+public class MySQL extends NotBountiesDatabase implements ChangeFeed {
+    // replaced by connect and disconnect on any thread, so it is read once into a local variable
+    private volatile ConnectionPool connectionPool;
     private boolean hasConnected = false;
     private long nextReconnectAttempt;
     private int reconnectAttempts;
+    private long lastChangePrune = 0;
+    // versions of changes that were read in the lag window, and the time they were read
+    private final Map<Long, Long> readVersions = new HashMap<>();
+
+    private static final int BOUNTY_CHANGE = 0;
+    private static final int STAT_CHANGE = 1;
+    private static final long CHANGE_PRUNE_INTERVAL = 300000L; // minimum time between deleting old changes
+    // changes can become visible out of order when servers write at the same time,
+    // so changes this far behind the cursor are read again
+    private static final long CHANGE_VERSION_LAG = 500;
+    private static final long CHANGE_TIME_LAG = 60000L;
+    private static final int MAX_QUERY_PARAMETERS = 500; // maximum number of uuids in a single IN clause
+    private static final int FETCH_SIZE = 500; // rows read at a time when reading all bounties
+    private static final int SCHEMA_VERSION = 2; // version 2 stores setters and whitelists in separate tables with binary uuids
+    private static final String SETTER_COLUMNS = "receiver, name, setter, setter_name, created, amount, display, notified, blacklist, playtime, items";
+    // setters have a unique receiver, setter, and time created. If a setter is added twice, the amounts are combined
+    private static final String INSERT_SETTER = "INSERT INTO bounty_setters(" + SETTER_COLUMNS + ") VALUES(?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?) " +
+            "ON DUPLICATE KEY UPDATE amount = amount + VALUES(amount), display = IF(display < 0 OR VALUES(display) < 0, -1, display + VALUES(display));";
+    private static final String INSERT_WHITELIST = "INSERT IGNORE INTO bounty_whitelists(receiver, setter, created, player) VALUES(?, ?, ?, ?);";
+    // appended to a write so the change is recorded in the same round trip. The last parameter is whether to record it
+    private static final String RECORD_CHANGE = " INSERT INTO bounty_changes(type, uuid, time) SELECT ?, ?, ? FROM DUAL WHERE ?;";
+    private static final String ADD_STATS = "INSERT INTO bounty_data(uuid, claimed, sets, received, alltime, immunity, allclaimed) VALUES(?, ?, ?, ?, ?, ?, ?) ON DUPLICATE KEY UPDATE claimed = claimed + ?, sets = sets + ?, received = received + ?, alltime = alltime + ?, immunity = immunity + ?, allclaimed = allclaimed + ?;";
+
+    /**
+     * Identifies a setter row.
+     * @param receiver UUID of the player with the bounty.
+     * @param setter UUID of the setter.
+     * @param created Time the setter was created.
+     */
+    private record SetterKey(UUID receiver, UUID setter, long created) {}
+    // statements are prepared and cached on the server, and large results can be read in parts with a fetch size
+    private static final String CONNECTION_PROPERTIES = "&useServerPrepStmts=true&cachePrepStmts=true&prepStmtCacheSize=250&prepStmtCacheSqlLimit=2048&useCursorFetch=true";
 
     private String host;
     private int port;
@@ -33,6 +69,8 @@ public class MySQL extends NotBountiesDatabase {
     private String username;
     private String password;
     private boolean useSSL;
+    private boolean changeFeed;
+    private int poolSize;
 
     public MySQL(Plugin plugin, String name){
         super(plugin, name);
@@ -52,12 +90,14 @@ public class MySQL extends NotBountiesDatabase {
         username = configuration.isSet( "user") ? configuration.getString( "user") : "user";
         password = configuration.isSet( "password") ? configuration.getString( "password") : "";
         useSSL = configuration.isSet( "use-ssl") && configuration.getBoolean( "use-ssl");
+        changeFeed = configuration.isSet("change-feed") && configuration.getBoolean("change-feed");
+        poolSize = configuration.isSet("pool-size") ? Math.max(1, configuration.getInt("pool-size")) : 4;
         return configuration;
     }
 
     @Override
     public int hashCode() {
-        return super.hashCode() + Objects.hash(host, port, database, username, password, useSSL);
+        return super.hashCode() + Objects.hash(host, port, database, username, password, useSSL, poolSize);
     }
 
     @Override
@@ -68,7 +108,8 @@ public class MySQL extends NotBountiesDatabase {
         MySQL mySQL = (MySQL) o;
         return hasConnected == mySQL.hasConnected && nextReconnectAttempt == mySQL.nextReconnectAttempt
                 && reconnectAttempts == mySQL.reconnectAttempts && port == mySQL.port && useSSL == mySQL.useSSL
-                && Objects.equals(connection, mySQL.connection) && Objects.equals(host, mySQL.host)
+                && poolSize == mySQL.poolSize
+                && Objects.equals(connectionPool, mySQL.connectionPool) && Objects.equals(host, mySQL.host)
                 && Objects.equals(database, mySQL.database) && Objects.equals(username, mySQL.username)
                 && Objects.equals(password, mySQL.password);
     }
@@ -78,21 +119,14 @@ public class MySQL extends NotBountiesDatabase {
     }
 
     public boolean connect() {
-        if (isConnected())
-            try {
-                connection.close();
-            } catch (SQLException ignored) {
-                // unable to access database
-                return false;
-            }
-        connection = null;
+        disconnect();
         readConfig();
         return makeConnection();
     }
 
     @Override
     public void addStats(UUID uuid, PlayerStat stats) {
-        try (PreparedStatement ps = getConnection().prepareStatement("INSERT INTO bounty_data(uuid, claimed, sets, received, alltime, immunity, allclaimed) VALUES(?, ?, ?, ?, ?, ?, ?) ON DUPLICATE KEY UPDATE claimed = claimed + ?, sets = sets + ?, received = received + ?, alltime = alltime + ?, immunity = immunity + ?, allclaimed = allclaimed + ?;")){
+        try (PooledConnection connection = getConnection(); PreparedStatement ps = connection.prepareStatement(recordingChanges(ADD_STATS))){
             ps.setString(1, uuid.toString());
             ps.setLong(2, stats.kills());
             ps.setLong(3, stats.set());
@@ -106,6 +140,7 @@ public class MySQL extends NotBountiesDatabase {
             ps.setDouble(11, stats.all());
             ps.setDouble(12, stats.immunity());
             ps.setDouble(13, stats.claimed());
+            bindChange(ps, 14, STAT_CHANGE, uuid, true);
             ps.executeUpdate();
 
         } catch (SQLException e){
@@ -116,7 +151,7 @@ public class MySQL extends NotBountiesDatabase {
     @Override
     public @NotNull PlayerStat getStats(UUID uuid) throws IOException {
         if (isConnected()) {
-            try (PreparedStatement ps = getConnection().prepareStatement("SELECT claimed, sets, received, alltime, immunity, allclaimed FROM bounty_data WHERE uuid = ?;")) {
+            try (PooledConnection connection = getConnection(); PreparedStatement ps = connection.prepareStatement("SELECT claimed, sets, received, alltime, immunity, allclaimed FROM bounty_data WHERE uuid = ?;")) {
                 ps.setString(1, uuid.toString());
                 ResultSet rs = ps.executeQuery();
                 long kills = rs.getLong("claimed");
@@ -138,7 +173,7 @@ public class MySQL extends NotBountiesDatabase {
     @Override
     public Map<UUID, PlayerStat> getAllStats() throws IOException{
         if (isConnected()) {
-            try (PreparedStatement ps = getConnection().prepareStatement("SELECT uuid, claimed, sets, received, alltime, immunity, allclaimed FROM bounty_data;")) {
+            try (PooledConnection connection = getConnection(); PreparedStatement ps = connection.prepareStatement("SELECT uuid, claimed, sets, received, alltime, immunity, allclaimed FROM bounty_data;")) {
                 ResultSet rs = ps.executeQuery();
 
                 Map<UUID, PlayerStat> stats = new HashMap<>();
@@ -166,7 +201,7 @@ public class MySQL extends NotBountiesDatabase {
     @Override
     public void addStats(Map<UUID, PlayerStat> playerStats) {
         if (isConnected()) {
-            try (PreparedStatement ps = getConnection().prepareStatement("INSERT INTO bounty_data(uuid, claimed, sets, received, alltime, immunity, allclaimed) VALUES(?, ?, ?, ?, ?, ?, ?) ON DUPLICATE KEY UPDATE claimed = claimed + ?, sets = sets + ?, received = received + ?, alltime = alltime + ?, immunity = immunity + ?, allclaimed = allclaimed + ?;")) {
+            try (PooledConnection connection = getConnection(); PreparedStatement ps = connection.prepareStatement(recordingChanges(ADD_STATS))) {
                 for (Map.Entry<UUID, PlayerStat> entry : playerStats.entrySet()) {
                     PlayerStat stats = entry.getValue();
                     ps.setString(1, entry.getKey().toString());
@@ -182,6 +217,7 @@ public class MySQL extends NotBountiesDatabase {
                     ps.setDouble(11, stats.all());
                     ps.setDouble(12, stats.immunity());
                     ps.setDouble(13, stats.claimed());
+                    bindChange(ps, 14, STAT_CHANGE, entry.getKey(), true);
                     ps.addBatch();
                 }
                 ps.executeBatch();
@@ -195,25 +231,8 @@ public class MySQL extends NotBountiesDatabase {
     @Override
     public void addBounty(List<Bounty> bounties) {
         if (isConnected()) {
-            try (PreparedStatement ps = getConnection().prepareStatement("INSERT INTO notbounties(uuid, name, setter, suuid, amount, notified, created, whitelist, playtime, items, display) VALUES(?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?);")) {
-                for (Bounty bounty : bounties) {
-                    for (Setter setter : bounty.getSetters()) {
-                        ps.setString(1, bounty.getUUID().toString());
-                        ps.setString(2, bounty.getName());
-                        ps.setString(3, setter.getName());
-                        ps.setString(4, setter.getUuid().toString());
-                        ps.setDouble(5, setter.getAmount());
-                        ps.setBoolean(6, setter.isNotified());
-                        ps.setLong(7, setter.getTimeCreated());
-                        ps.setString(8, encodeWhitelist(setter.getWhitelist()));
-                        ps.setLong(9, setter.getReceiverPlaytime());
-                        ps.setBlob(10, SerializeInventory.itemStackArrayToBinaryStream(setter.getItems().toArray(new ItemStack[0])));
-                        ps.setDouble(11, setter.getDisplayAmount());
-                        ps.addBatch();
-                    }
-                }
-                ps.executeBatch();
-
+            try (PooledConnection connection = getConnection()) {
+                insertSetters(connection, bounties);
             } catch (SQLException e) {
                 if (reconnect(e)) {
                     addBounty(bounties);
@@ -225,16 +244,8 @@ public class MySQL extends NotBountiesDatabase {
     @Override
     public void removeBounty(List<Bounty> bounties) {
         if (isConnected()) {
-            try (PreparedStatement ps = getConnection().prepareStatement("DELETE FROM notbounties WHERE uuid = ? AND suuid = ? AND created = ?;")) {
-                for (Bounty bounty : bounties) {
-                    ps.setString(1, bounty.getUUID().toString());
-                    for (Setter setter : bounty.getSetters()) {
-                        ps.setString(2, setter.getUuid().toString());
-                        ps.setLong(3, setter.getTimeCreated());
-                        ps.addBatch();
-                    }
-                }
-                ps.executeBatch();
+            try (PooledConnection connection = getConnection()) {
+                deleteSetters(connection, bounties);
             } catch (SQLException e) {
                 if (reconnect(e)) {
                     removeBounty(bounties);
@@ -243,6 +254,125 @@ public class MySQL extends NotBountiesDatabase {
         }
     }
 
+    /**
+     * Insert the setters of bounties and their whitelists.
+     * @param connection Connection to insert with.
+     * @param bounties Bounties to insert.
+     */
+    private void insertSetters(PooledConnection connection, Collection<Bounty> bounties) throws SQLException {
+        try (PreparedStatement setterStatement = connection.prepareStatement(recordingChanges(INSERT_SETTER));
+             PreparedStatement whitelistStatement = connection.prepareStatement(recordingChanges(INSERT_WHITELIST))) {
+            boolean hasWhitelist = false;
+            for (Bounty bounty : bounties) {
+                // the change is recorded once with the last statement that writes the bounty
+                Setter lastWhitelisted = null;
+                for (Setter setter : bounty.getSetters())
+                    if (!setter.getWhitelist().getList().isEmpty())
+                        lastWhitelisted = setter;
+                boolean record = lastWhitelisted == null;
+                for (Setter setter : bounty.getSetters()) {
+                    bindSetter(setterStatement, bounty.getUUID(), bounty.getName(), setter.getUuid(), setter.getName(), setter.getTimeCreated(),
+                            setter.getAmount(), setter.getDisplayAmount(), setter.isNotified(), setter.getWhitelist().isBlacklist(), setter.getReceiverPlaytime());
+                    setterStatement.setBlob(11, SerializeInventory.itemStackArrayToBinaryStream(setter.getItems().toArray(new ItemStack[0])));
+                    bindChange(setterStatement, 12, BOUNTY_CHANGE, bounty.getUUID(), record);
+                    setterStatement.addBatch();
+                    record = false;
+                    hasWhitelist |= addWhitelistBatch(whitelistStatement, bounty.getUUID(), setter.getUuid(), setter.getTimeCreated(), setter.getWhitelist().getList(), setter == lastWhitelisted);
+                }
+            }
+            // whitelists reference the setter rows
+            setterStatement.executeBatch();
+            if (hasWhitelist)
+                whitelistStatement.executeBatch();
+        }
+    }
+
+    /**
+     * Delete the setters of bounties. Their whitelists are deleted with them.
+     * @param connection Connection to delete with.
+     * @param bounties Bounties with the setters to delete.
+     */
+    private void deleteSetters(PooledConnection connection, Collection<Bounty> bounties) throws SQLException {
+        try (PreparedStatement ps = connection.prepareStatement(recordingChanges("DELETE FROM bounty_setters WHERE receiver = ? AND setter = ? AND created = ?;"))) {
+            for (Bounty bounty : bounties) {
+                ps.setBytes(1, toBytes(bounty.getUUID()));
+                // the change is recorded once with the last setter
+                int remaining = bounty.getSetters().size();
+                for (Setter setter : bounty.getSetters()) {
+                    ps.setBytes(2, toBytes(setter.getUuid()));
+                    ps.setLong(3, setter.getTimeCreated());
+                    bindChange(ps, 4, BOUNTY_CHANGE, bounty.getUUID(), --remaining == 0);
+                    ps.addBatch();
+                }
+            }
+            ps.executeBatch();
+        }
+    }
+
+    /**
+     * Sets the parameters of INSERT_SETTER, except for the items.
+     */
+    private static void bindSetter(PreparedStatement ps, UUID receiver, String name, UUID setterUUID, String setterName, long created,
+                                   double amount, double display, boolean notified, boolean blacklist, long playtime) throws SQLException {
+        ps.setBytes(1, toBytes(receiver));
+        ps.setString(2, name);
+        ps.setBytes(3, toBytes(setterUUID));
+        ps.setString(4, setterName);
+        ps.setLong(5, created);
+        ps.setDouble(6, amount);
+        ps.setDouble(7, display);
+        ps.setBoolean(8, notified);
+        ps.setBoolean(9, blacklist);
+        ps.setLong(10, playtime);
+    }
+
+    /**
+     * Adds the players in a setter's whitelist to a batch of INSERT_WHITELIST.
+     * @return True if any players were added.
+     */
+    private static boolean addWhitelistBatch(PreparedStatement ps, UUID receiver, UUID setterUUID, long created, List<UUID> players) throws SQLException {
+        for (UUID player : players) {
+            ps.setBytes(1, toBytes(receiver));
+            ps.setBytes(2, toBytes(setterUUID));
+            ps.setLong(3, created);
+            ps.setBytes(4, toBytes(player));
+            ps.addBatch();
+        }
+        return !players.isEmpty();
+    }
+
+    /**
+     * Adds the players in a setter's whitelist to a batch of INSERT_WHITELIST with a change record.
+     * @param recordChange Whether the change to the receiver's bounty is recorded with the last player.
+     * @return True if any players were added.
+     */
+    private boolean addWhitelistBatch(PreparedStatement ps, UUID receiver, UUID setterUUID, long created, List<UUID> players, boolean recordChange) throws SQLException {
+        for (int i = 0; i < players.size(); i++) {
+            ps.setBytes(1, toBytes(receiver));
+            ps.setBytes(2, toBytes(setterUUID));
+            ps.setLong(3, created);
+            ps.setBytes(4, toBytes(players.get(i)));
+            bindChange(ps, 5, BOUNTY_CHANGE, receiver, recordChange && i == players.size() - 1);
+            ps.addBatch();
+        }
+        return !players.isEmpty();
+    }
+
+    /**
+     * Convert a UUID to the 16 bytes stored in the database.
+     */
+    private static byte[] toBytes(UUID uuid) {
+        return ByteBuffer.allocate(16).putLong(uuid.getMostSignificantBits()).putLong(uuid.getLeastSignificantBits()).array();
+    }
+
+    /**
+     * Convert 16 bytes from the database to a UUID.
+     */
+    private static UUID fromBytes(byte[] bytes) {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        return new UUID(buffer.getLong(), buffer.getLong());
+    }
+
     /**
      * Get a list of UUIDs from a string separating UUIDs with ','
      * @param whitelist Single string of uuids
@@ -264,45 +394,11 @@ public class MySQL extends NotBountiesDatabase {
         return new Whitelist(uuids, blacklist);
     }
 
-    /**
-     * Get a single string separating all the UUIDs with ','
-     * @param whitelist list of UUIDs to encode
-     * @return a string with separated UUIDs or an empty string if the list is empty
-     */
-    public String encodeWhitelist(Whitelist whitelist){
-        StringBuilder combinedUuids = new StringBuilder();
-        for (UUID uuid : whitelist.getList()){
-            combinedUuids.append(uuid);
-            if (whitelist.isBlacklist())
-                combinedUuids.append(".");
-            else
-                combinedUuids.append(",");
-        }
-        if (!combinedUuids.isEmpty() && combinedUuids.length() > 37)
-            combinedUuids.deleteCharAt(combinedUuids.length()-1);
-        return combinedUuids.toString();
-    }
-
     @Override
     public Bounty addBounty(@NotNull Bounty bounty) throws IOException {
         if (isConnected()) {
-            try (PreparedStatement ps = getConnection().prepareStatement("INSERT INTO notbounties(uuid, name, setter, suuid, amount, notified, created, whitelist, playtime, items, display) VALUES(?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?);")) {
-                for (Setter setter : bounty.getSetters()) {
-                    ps.setString(1, bounty.getUUID().toString());
-                    ps.setString(2, bounty.getName());
-                    ps.setString(3, setter.getName());
-                    ps.setString(4, setter.getUuid().toString());
-                    ps.setDouble(5, setter.getAmount());
-                    ps.setBoolean(6, setter.isNotified());
-                    ps.setLong(7, setter.getTimeCreated());
-                    ps.setString(8, encodeWhitelist(setter.getWhitelist()));
-                    ps.setLong(9, setter.getReceiverPlaytime());
-                    ps.setBlob(10, SerializeInventory.itemStackArrayToBinaryStream(setter.getItems().toArray(new ItemStack[0])));
-                    ps.setDouble(11, setter.getDisplayAmount());
-                    ps.addBatch();
-                }
-                ps.executeBatch();
-
+            try (PooledConnection connection = getConnection()) {
+                insertSetters(connection, Collections.singletonList(bounty));
             } catch (SQLException e) {
                 if (reconnect(e)) {
                     return addBounty(bounty);
@@ -317,50 +413,20 @@ public class MySQL extends NotBountiesDatabase {
         throw notConnectedException;
     }
 
-    /**
-     * Converts a blob of encoded ItemStacks into a list. The blob is freed afterward.
-     * @param encodedItems Blob to be converted
-     * @return An ArrayList of ItemStacks that the blob represented.
-     */
-    private @NotNull List<ItemStack> convertEncodedItems(@Nullable Blob encodedItems) {
-        List<ItemStack> items;
-        try {
-            if (encodedItems != null) {
-                items = new ArrayList<>(Arrays.asList(SerializeInventory.itemStackArrayFromBinaryStream(encodedItems.getBinaryStream())));
-                encodedItems.free();
-            } else {
-                items = new ArrayList<>();
-            }
-        } catch (SQLException | IOException e) {
-            // items haven't been set yet
-            items = new ArrayList<>();
-        }
-        return items;
-    }
-
     @Override
     public @Nullable Bounty getBounty(UUID uuid) throws IOException{
         if (isConnected()) {
-            try (PreparedStatement ps = getConnection().prepareStatement("SELECT * FROM `notbounties` WHERE uuid = ?;")) {
-                ps.setString(1, uuid.toString());
-                ResultSet rs = ps.executeQuery();
-
-                List<Setter> setters = new ArrayList<>();
-                String bountyName = "";
-                while (rs.next()) {
-                    if (bountyName.isEmpty()) {
-                        bountyName = rs.getString("name");
-                    }
-                    Blob encodedItems = rs.getBlob("items");
-                    List<ItemStack> items = convertEncodedItems(encodedItems);
-
-                    UUID setterUUID = rs.getString("suuid").equalsIgnoreCase("CONSOLE") ? new UUID(0, 0) : UUID.fromString(rs.getString("suuid"));
-                    Setter setter = new Setter(rs.getString("setter"), setterUUID, rs.getDouble("amount"), items, rs.getLong("created"), rs.getBoolean("notified"), decodeWhitelist(rs.getString("whitelist")), rs.getLong("playtime"), rs.getDouble("display"));
-                    setters.add(setter);
+            try (PooledConnection connection = getConnection();
+                 PreparedStatement whitelistStatement = connection.prepareStatement("SELECT receiver, setter, created, player FROM bounty_whitelists WHERE receiver = ?;");
+                 PreparedStatement setterStatement = connection.prepareStatement("SELECT " + SETTER_COLUMNS + " FROM bounty_setters WHERE receiver = ?;")) {
+                whitelistStatement.setBytes(1, toBytes(uuid));
+                setterStatement.setBytes(1, toBytes(uuid));
+                Map<UUID, Bounty> bounties = new HashMap<>();
+                try (ResultSet whitelistRows = whitelistStatement.executeQuery();
+                     ResultSet setterRows = setterStatement.executeQuery()) {
+                    readSetterRows(setterRows, readWhitelistRows(whitelistRows), bounties);
                 }
-                if (setters.isEmpty())
-                    return null;
-                return new Bounty(uuid, setters, bountyName);
+                return bounties.get(uuid);
             } catch (SQLException e) {
                 if (reconnect(e)) {
                     return getBounty(uuid);
@@ -373,8 +439,9 @@ public class MySQL extends NotBountiesDatabase {
     @Override
     public void removeBounty(UUID uuid) {
         if (isConnected()) {
-            try (PreparedStatement ps = getConnection().prepareStatement("DELETE FROM notbounties WHERE uuid = ?")) {
-                ps.setString(1, uuid.toString());
+            try (PooledConnection connection = getConnection(); PreparedStatement ps = connection.prepareStatement(recordingChanges("DELETE FROM bounty_setters WHERE receiver = ?;"))) {
+                ps.setBytes(1, toBytes(uuid));
+                bindChange(ps, 2, BOUNTY_CHANGE, uuid, true);
                 ps.executeUpdate();
             } catch (SQLException e) {
                 if (reconnect(e)) {
@@ -387,14 +454,8 @@ public class MySQL extends NotBountiesDatabase {
     @Override
     public void removeBounty(Bounty bounty) {
         if (isConnected()) {
-            try (PreparedStatement ps = getConnection().prepareStatement("DELETE FROM notbounties WHERE uuid = ? AND suuid = ? AND created = ?;")) {
-                ps.setString(1, bounty.getUUID().toString());
-                for (Setter setter : bounty.getSetters()) {
-                    ps.setString(2, setter.getUuid().toString());
-                    ps.setLong(3, setter.getTimeCreated());
-                    ps.addBatch();
-                }
-                ps.executeBatch();
+            try (PooledConnection connection = getConnection()) {
+                deleteSetters(connection, Collections.singletonList(bounty));
             } catch (SQLException e) {
                 if (reconnect(e)) {
                     removeBounty(bounty);
@@ -406,52 +467,32 @@ public class MySQL extends NotBountiesDatabase {
     @Override
     public List<Bounty> getAllBounties(int sortType) throws IOException {
         if (isConnected()) {
-            try (PreparedStatement ps = getConnection().prepareStatement("SELECT uuid, name, setter, suuid, amount, notified, created, whitelist, playtime, items, display FROM notbounties;")) {
-                ResultSet resultSet = ps.executeQuery();
-                Map<String, Bounty> bountyAmounts = new HashMap<>();
-                while (resultSet.next()) {
-                    String uuid = resultSet.getString("uuid");
-                    if (uuid != null) {
-                        try {
-                            Blob encodedItems = resultSet.getBlob("items");
-                            List<ItemStack> items;
-                            try {
-                                items = encodedItems != null ? new ArrayList<>(Arrays.asList(SerializeInventory.itemStackArrayFromBinaryStream(encodedItems.getBinaryStream()))) : new ArrayList<>();
-                            } catch (StreamCorruptedException e) {
-                                items = new ArrayList<>();
-                            }
-                            long timeCreated = resultSet.getLong("created");
-                            Setter setter = new Setter(resultSet.getString("setter"), UUID.fromString(resultSet.getString("suuid")), resultSet.getDouble("amount"), items, timeCreated, resultSet.getBoolean("notified"), decodeWhitelist(resultSet.getString("whitelist")), resultSet.getLong("playtime"), resultSet.getDouble("display"));
-                            if (bountyAmounts.containsKey(uuid)) {
-                                bountyAmounts.get(uuid).addBounty(setter);
-                            } else {
-                                bountyAmounts.put(uuid, new Bounty(UUID.fromString(uuid), new ArrayList<>(Collections.singletonList(setter)), resultSet.getString("name")));
-                            }
-                        } catch (IOException e) {
-                            // error parsing encoded items
-                            Bukkit.getLogger().warning("[NotBounties] Error decoding items from SQL");
-                            Bukkit.getLogger().warning(e.toString());
-                        }
-                    }
+            // bounties are sorted by the combined values of their setters, and the setter rows of a bounty are read together
+            String order = switch (sortType) {
+                case 0 -> " ORDER BY t.first_created, s.receiver, s.created"; // oldest bounties at top
+                case 1 -> " ORDER BY t.last_created DESC, s.receiver, s.created"; // newest bounties at top
+                case 2 -> " ORDER BY t.total DESC, s.receiver, s.created"; // more expensive bounties at top
+                case 3 -> " ORDER BY t.total, s.receiver, s.created"; // less expensive bounties at top
+                default -> null;
+            };
+            String query = order == null ? "SELECT " + SETTER_COLUMNS + " FROM bounty_setters;"
+                    : "SELECT s.receiver, s.name, s.setter, s.setter_name, s.created, s.amount, s.display, s.notified, s.blacklist, s.playtime, s.items FROM bounty_setters s " +
+                    "JOIN (SELECT receiver, MIN(created) AS first_created, MAX(created) AS last_created, SUM(IF(display < 0, amount, display)) AS total FROM bounty_setters GROUP BY receiver) t " +
+                    "ON s.receiver = t.receiver" + order + ";";
+            try (PooledConnection connection = getConnection();
+                 PreparedStatement whitelistStatement = connection.prepareStatement("SELECT receiver, setter, created, player FROM bounty_whitelists;");
+                 PreparedStatement setterStatement = connection.prepareStatement(query)) {
+                Map<SetterKey, List<UUID>> whitelists;
+                try (ResultSet whitelistRows = whitelistStatement.executeQuery()) {
+                    whitelists = readWhitelistRows(whitelistRows);
                 }
-                List<Bounty> sortedList = new ArrayList<>(bountyAmounts.values());
-                if (sortType == -1)
-                    return sortedList;
-                Bounty temp;
-                for (int i = 0; i < sortedList.size(); i++) {
-                    for (int j = i + 1; j < sortedList.size(); j++) {
-                        if (!sortedList.get(i).getSetters().isEmpty()
-                                && ((sortedList.get(i).getSetters().get(0).getTimeCreated() > sortedList.get(j).getSetters().get(0).getTimeCreated() && sortType == 0) || // oldest bounties at top
-                                (sortedList.get(i).getSetters().get(0).getTimeCreated() < sortedList.get(j).getSetters().get(0).getTimeCreated() && sortType == 1) || // newest bounties at top
-                                (sortedList.get(i).getTotalDisplayBounty() < sortedList.get(j).getTotalDisplayBounty() && sortType == 2) || // more expensive bounties at top
-                                (sortedList.get(i).getTotalDisplayBounty() > sortedList.get(j).getTotalDisplayBounty() && sortType == 3))) { // less expensive bounties at top
-                            temp = sortedList.get(i);
-                            sortedList.set(i, sortedList.get(j));
-                            sortedList.set(j, temp);
-                        }
-                    }
+                // read the rows in parts instead of loading the whole result at once
+                setterStatement.setFetchSize(FETCH_SIZE);
+                Map<UUID, Bounty> bounties = new LinkedHashMap<>();
+                try (ResultSet setterRows = setterStatement.executeQuery()) {
+                    readSetterRows(setterRows, whitelists, bounties);
                 }
-                return sortedList;
+                return new ArrayList<>(bounties.values());
             } catch (SQLException e) {
                 if (reconnect(e)) {
                     return getAllBounties(sortType);
@@ -461,16 +502,58 @@ public class MySQL extends NotBountiesDatabase {
         throw notConnectedException;
     }
 
-    public boolean isConnected() {
-        if (connection == null)
-            return false;
-        try {
-            if (connection.isClosed())
-                return false;
-        } catch (SQLException e) {
-            return false;
+    /**
+     * Reads rows of the bounty_whitelists table.
+     * @param resultSet Rows with the receiver, setter, created, and player columns.
+     * @return The whitelisted players of each setter.
+     */
+    private static Map<SetterKey, List<UUID>> readWhitelistRows(ResultSet resultSet) throws SQLException {
+        Map<SetterKey, List<UUID>> whitelists = new HashMap<>();
+        while (resultSet.next()) {
+            SetterKey key = new SetterKey(fromBytes(resultSet.getBytes(1)), fromBytes(resultSet.getBytes(2)), resultSet.getLong(3));
+            whitelists.computeIfAbsent(key, k -> new ArrayList<>()).add(fromBytes(resultSet.getBytes(4)));
         }
-        return true;
+        return whitelists;
+    }
+
+    /**
+     * Reads rows of the bounty_setters table and combines them into bounties.
+     * @param resultSet Rows with the SETTER_COLUMNS.
+     * @param whitelists The whitelisted players of the setters.
+     * @param bounties Map to add the bounties to, keyed by the receiver's uuid. Bounties are added in the order that their first row is read.
+     */
+    private void readSetterRows(ResultSet resultSet, Map<SetterKey, List<UUID>> whitelists, Map<UUID, Bounty> bounties) throws SQLException {
+        while (resultSet.next()) {
+            try {
+                UUID receiver = fromBytes(resultSet.getBytes("receiver"));
+                UUID setterUUID = fromBytes(resultSet.getBytes("setter"));
+                long timeCreated = resultSet.getLong("created");
+                Blob encodedItems = resultSet.getBlob("items");
+                List<ItemStack> items;
+                try {
+                    items = encodedItems != null ? new ArrayList<>(Arrays.asList(SerializeInventory.itemStackArrayFromBinaryStream(encodedItems.getBinaryStream()))) : new ArrayList<>();
+                } catch (StreamCorruptedException e) {
+                    items = new ArrayList<>();
+                }
+                Whitelist whitelist = new Whitelist(whitelists.getOrDefault(new SetterKey(receiver, setterUUID, timeCreated), new ArrayList<>()), resultSet.getBoolean("blacklist"));
+                Setter setter = new Setter(resultSet.getString("setter_name"), setterUUID, resultSet.getDouble("amount"), items, timeCreated, resultSet.getBoolean("notified"), whitelist, resultSet.getLong("playtime"), resultSet.getDouble("display"));
+                Bounty bounty = bounties.get(receiver);
+                if (bounty != null) {
+                    bounty.addBounty(setter);
+                } else {
+                    bounties.put(receiver, new Bounty(receiver, new ArrayList<>(Collections.singletonList(setter)), resultSet.getString("name")));
+                }
+            } catch (IOException e) {
+                // error parsing encoded items
+                Bukkit.getLogger().warning("[NotBounties] Error decoding items from SQL");
+                Bukkit.getLogger().warning(e.toString());
+            }
+        }
+    }
+
+    public boolean isConnected() {
+        ConnectionPool pool = connectionPool;
+        return pool != null && !pool.isClosed();
     }
 
     public boolean hasConnectedBefore() {
@@ -478,19 +561,23 @@ public class MySQL extends NotBountiesDatabase {
     }
 
     private boolean makeConnection(){
+        ConnectionPool pool = new ConnectionPool("jdbc:mysql://" +
+                host + ":" + port + "/" + database + "?useSSL=" + useSSL + "&allowMultiQueries=true" + CONNECTION_PROPERTIES,
+                username, password, poolSize);
         try {
-            connection = DriverManager.getConnection("jdbc:mysql://" +
-                            host + ":" + port + "/" + database + "?useSSL=" + useSSL + "&allowMultiQueries=true",
-                    username, password);
+            pool.validate();
+            connectionPool = pool;
             if (!hasConnected) {
-                createTable();
+                updateSchema();
                 createDataTable();
                 createOnlinePlayerTable();
+                createChangeTable();
             }
             DataManager.databaseConnect(this);
             hasConnected = true;
             return true;
         } catch (SQLException e) {
+            pool.close();
             return false;
         }
     }
@@ -502,6 +589,13 @@ public class MySQL extends NotBountiesDatabase {
             return false;
         }
         NotBounties.debugMessage(e.toString(), true);
+        ConnectionPool pool = connectionPool;
+        if (pool != null)
+            // the connection that failed may be broken, so it isn't reused
+            pool.evictLastReleased();
+        if (!isConnectionError(e))
+            // the other connections are still usable
+            return false;
         if (System.currentTimeMillis() > nextReconnectAttempt) {
             reconnectAttempts++;
             disconnect();
@@ -520,8 +614,174 @@ public class MySQL extends NotBountiesDatabase {
         return false;
     }
 
-    public void createTable(){
-        try (PreparedStatement ps = getConnection().prepareStatement("CREATE TABLE IF NOT EXISTS notbounties" +
+    /**
+     * Check if an exception means the connection to the database was lost, instead of a single statement failing.
+     * @param e The exception from a statement.
+     * @return True if the connection pool should be reconnected.
+     */
+    private static boolean isConnectionError(SQLException e) {
+        String sqlState = e.getSQLState();
+        // class 08 is a connection exception
+        return (sqlState != null && sqlState.startsWith("08")) || e instanceof SQLNonTransientConnectionException;
+    }
+
+    /**
+     * Creates the tables for the current schema version, and migrates bounties from older versions.
+     * Only one server migrates the bounties at a time.
+     * @throws SQLException If the schema couldn't be updated.
+     */
+    private void updateSchema() throws SQLException {
+        try (PooledConnection connection = getConnection()) {
+            try (PreparedStatement ps = connection.prepareStatement("CREATE TABLE IF NOT EXISTS bounty_schema" +
+                    "(" +
+                    "    name VARCHAR(32) NOT NULL," +
+                    "    version INT NOT NULL," +
+                    "    PRIMARY KEY (name)" +
+                    ");")) {
+                ps.executeUpdate();
+            }
+            if (getSchemaVersion(connection) >= SCHEMA_VERSION)
+                return;
+            try (PreparedStatement ps = connection.prepareStatement("SELECT GET_LOCK('notbounties_schema', 600);");
+                 ResultSet rs = ps.executeQuery()) {
+                if (!rs.next() || rs.getInt(1) != 1)
+                    throw new SQLTransientException("Timed out waiting for another server to update the database schema.");
+            }
+            try {
+                // another server may have updated the schema while waiting for the lock
+                if (getSchemaVersion(connection) < SCHEMA_VERSION) {
+                    createSetterTables(connection);
+                    migrateBounties(connection);
+                    try (PreparedStatement ps = connection.prepareStatement("INSERT INTO bounty_schema(name, version) VALUES('bounties', ?) ON DUPLICATE KEY UPDATE version = ?;")) {
+                        ps.setInt(1, SCHEMA_VERSION);
+                        ps.setInt(2, SCHEMA_VERSION);
+                        ps.executeUpdate();
+                    }
+                }
+            } finally {
+                try (PreparedStatement ps = connection.prepareStatement("SELECT RELEASE_LOCK('notbounties_schema');")) {
+                    ps.executeQuery().close();
+                }
+            }
+        } catch (SQLException e) {
+            Bukkit.getLogger().warning("[NotBounties] Could not update the SQL tables.");
+            Bukkit.getLogger().warning(e.toString());
+            throw e;
+        }
+    }
+
+    private static int getSchemaVersion(PooledConnection connection) throws SQLException {
+        try (PreparedStatement ps = connection.prepareStatement("SELECT version FROM bounty_schema WHERE name = 'bounties';");
+             ResultSet rs = ps.executeQuery()) {
+            return rs.next() ? rs.getInt(1) : 1;
+        }
+    }
+
+    private static void createSetterTables(PooledConnection connection) throws SQLException {
+        // the primary key starts with the receiver, so it is also used to find the setters of a receiver
+        try (PreparedStatement setters = connection.prepareStatement("CREATE TABLE IF NOT EXISTS bounty_setters" +
+                "(" +
+                "    receiver BINARY(16) NOT NULL," +
+                "    name VARCHAR(16) NOT NULL," +
+                "    setter BINARY(16) NOT NULL," +
+                "    setter_name VARCHAR(16) NOT NULL," +
+                "    created BIGINT NOT NULL," +
+                "    amount DOUBLE DEFAULT 0 NOT NULL," +
+                "    display DOUBLE DEFAULT -1 NOT NULL," +
+                "    notified BOOLEAN DEFAULT TRUE NOT NULL," +
+                "    blacklist BOOLEAN DEFAULT FALSE NOT NULL," +
+                "    playtime BIGINT DEFAULT 0 NOT NULL," +
+                "    items BLOB," +
+                "    PRIMARY KEY (receiver, setter, created)" +
+                ");");
+             PreparedStatement whitelists = connection.prepareStatement("CREATE TABLE IF NOT EXISTS bounty_whitelists" +
+                     "(" +
+                     "    receiver BINARY(16) NOT NULL," +
+                     "    setter BINARY(16) NOT NULL," +
+                     "    created BIGINT NOT NULL," +
+                     "    player BINARY(16) NOT NULL," +
+                     "    PRIMARY KEY (receiver, setter, created, player)," +
+                     "    FOREIGN KEY (receiver, setter, created) REFERENCES bounty_setters(receiver, setter, created) ON DELETE CASCADE" +
+                     ");")) {
+            setters.executeUpdate();
+            whitelists.executeUpdate();
+        }
+    }
+
+    /**
+     * Copies the bounties from the notbounties table of schema version 1 to the setter and whitelist tables.
+     * The rows are copied in batches, and the old table is renamed to notbounties_v1 afterward.
+     * @param connection Connection that holds the schema lock.
+     */
+    private void migrateBounties(PooledConnection connection) throws SQLException {
+        try (PreparedStatement ps = connection.prepareStatement("SHOW TABLES LIKE 'notbounties';");
+             ResultSet rs = ps.executeQuery()) {
+            if (!rs.next())
+                // nothing to migrate
+                return;
+        }
+        Bukkit.getLogger().info("[NotBounties] Migrating SQL bounties to the new table format. This may take a while.");
+        updateLegacyTable(connection);
+        // remove anything copied by a migration that didn't finish
+        try (PreparedStatement ps = connection.prepareStatement("DELETE FROM bounty_setters;")) {
+            ps.executeUpdate();
+        }
+        int rows = 0;
+        try (PreparedStatement read = connection.prepareStatement("SELECT uuid, name, setter, suuid, amount, notified, created, whitelist, playtime, items, display FROM notbounties;");
+             PreparedStatement setterStatement = connection.prepareStatement(INSERT_SETTER);
+             PreparedStatement whitelistStatement = connection.prepareStatement(INSERT_WHITELIST)) {
+            read.setFetchSize(FETCH_SIZE);
+            int batchSize = 0;
+            boolean hasWhitelist = false;
+            try (ResultSet rs = read.executeQuery()) {
+                while (rs.next()) {
+                    UUID receiver;
+                    UUID setterUUID;
+                    try {
+                        receiver = UUID.fromString(rs.getString("uuid"));
+                        String suuid = rs.getString("suuid");
+                        setterUUID = suuid.equalsIgnoreCase("CONSOLE") ? DataManager.GLOBAL_SERVER_ID : UUID.fromString(suuid);
+                    } catch (IllegalArgumentException | NullPointerException e) {
+                        NotBounties.debugMessage("Skipping SQL bounty with an invalid uuid: " + e, true);
+                        continue;
+                    }
+                    long created = rs.getLong("created");
+                    Whitelist whitelist = decodeWhitelist(rs.getString("whitelist"));
+                    bindSetter(setterStatement, receiver, rs.getString("name"), setterUUID, rs.getString("setter"), created,
+                            rs.getDouble("amount"), rs.getDouble("display"), rs.getBoolean("notified"), whitelist.isBlacklist(), rs.getLong("playtime"));
+                    // the items are copied without decoding them
+                    setterStatement.setBytes(11, rs.getBytes("items"));
+                    setterStatement.addBatch();
+                    hasWhitelist |= addWhitelistBatch(whitelistStatement, receiver, setterUUID, created, whitelist.getList());
+                    rows++;
+                    if (++batchSize >= FETCH_SIZE) {
+                        setterStatement.executeBatch();
+                        if (hasWhitelist)
+                            whitelistStatement.executeBatch();
+                        batchSize = 0;
+                        hasWhitelist = false;
+                    }
+                }
+            }
+            if (batchSize > 0) {
+                setterStatement.executeBatch();
+                if (hasWhitelist)
+                    whitelistStatement.executeBatch();
+            }
+        }
+        // the old table is kept in case the data needs to be recovered
+        try (PreparedStatement ps = connection.prepareStatement("RENAME TABLE notbounties TO notbounties_v1;")) {
+            ps.executeUpdate();
+        }
+        Bukkit.getLogger().info("[NotBounties] Migrated " + rows + " SQL bounty setters. The old table was renamed to notbounties_v1.");
+    }
+
+    /**
+     * Adds columns that were missing from older versions of the notbounties table, so the rows can be migrated.
+     * @param connection Connection to update the table with.
+     */
+    private void updateLegacyTable(PooledConnection connection) throws SQLException {
+        try (PreparedStatement ps = connection.prepareStatement("CREATE TABLE IF NOT EXISTS notbounties" +
                 "(" +
                 "    uuid CHAR(36) NOT NULL," +
                 "    name VARCHAR(16) NOT NULL," +
@@ -535,20 +795,20 @@ public class MySQL extends NotBountiesDatabase {
                 "    items BLOB," +
                 "    display FLOAT(53) DEFAULT -1 NOT NULL" +
                 ");");
-             PreparedStatement checkAmount = getConnection().prepareStatement("select column_name,data_type from information_schema.columns where table_schema = ? and table_name = 'notbounties' and column_name = 'amount';");
-             PreparedStatement alterAmount = getConnection().prepareStatement("ALTER TABLE notbounties MODIFY COLUMN amount FLOAT(53);");
-             PreparedStatement checkWhitelist = getConnection().prepareStatement("SHOW COLUMNS FROM `notbounties` LIKE 'whitelist';");
-             PreparedStatement addWhitelist = getConnection().prepareStatement("ALTER TABLE notbounties ADD whitelist VARCHAR(369);");
-             PreparedStatement checkPlaytime = getConnection().prepareStatement("SHOW COLUMNS FROM `notbounties` LIKE 'playtime';");
-             PreparedStatement addPlaytime = getConnection().prepareStatement("ALTER TABLE notbounties ADD playtime BIGINT DEFAULT 0 NOT NULL;");
-             PreparedStatement checkItems = getConnection().prepareStatement("SHOW COLUMNS FROM `notbounties` LIKE 'items';");
-             PreparedStatement addItems = getConnection().prepareStatement("ALTER TABLE notbounties ADD items BLOB;");
-             PreparedStatement checkItemsType = getConnection().prepareStatement("select column_name,data_type from information_schema.columns where table_schema = ? and table_name = 'notbounties' and column_name = 'items';");
-             PreparedStatement alterItems = getConnection().prepareStatement("ALTER TABLE notbounties MODIFY COLUMN items BLOB;");
-             PreparedStatement checkDisplay = getConnection().prepareStatement("SHOW COLUMNS FROM `notbounties` LIKE 'display';");
-             PreparedStatement addDisplay = getConnection().prepareStatement("ALTER TABLE notbounties ADD display FLOAT(53) DEFAULT -1 NOT NULL;");
-             PreparedStatement checkTimeName = getConnection().prepareStatement("select column_name from information_schema.columns where table_schema = ? and table_name = 'notbounties' and column_name = 'time';");
-             PreparedStatement alterTimeName = getConnection().prepareStatement("ALTER TABLE notbounties CHANGE time created BIGINT;")){
+             PreparedStatement checkAmount = connection.prepareStatement("select column_name,data_type from information_schema.columns where table_schema = ? and table_name = 'notbounties' and column_name = 'amount';");
+             PreparedStatement alterAmount = connection.prepareStatement("ALTER TABLE notbounties MODIFY COLUMN amount FLOAT(53);");
+             PreparedStatement checkWhitelist = connection.prepareStatement("SHOW COLUMNS FROM `notbounties` LIKE 'whitelist';");
+             PreparedStatement addWhitelist = connection.prepareStatement("ALTER TABLE notbounties ADD whitelist VARCHAR(369);");
+             PreparedStatement checkPlaytime = connection.prepareStatement("SHOW COLUMNS FROM `notbounties` LIKE 'playtime';");
+             PreparedStatement addPlaytime = connection.prepareStatement("ALTER TABLE notbounties ADD playtime BIGINT DEFAULT 0 NOT NULL;");
+             PreparedStatement checkItems = connection.prepareStatement("SHOW COLUMNS FROM `notbounties` LIKE 'items';");
+             PreparedStatement addItems = connection.prepareStatement("ALTER TABLE notbounties ADD items BLOB;");
+             PreparedStatement checkItemsType = connection.prepareStatement("select column_name,data_type from information_schema.columns where table_schema = ? and table_name = 'notbounties' and column_name = 'items';");
+             PreparedStatement alterItems = connection.prepareStatement("ALTER TABLE notbounties MODIFY COLUMN items BLOB;");
+             PreparedStatement checkDisplay = connection.prepareStatement("SHOW COLUMNS FROM `notbounties` LIKE 'display';");
+             PreparedStatement addDisplay = connection.prepareStatement("ALTER TABLE notbounties ADD display FLOAT(53) DEFAULT -1 NOT NULL;");
+             PreparedStatement checkTimeName = connection.prepareStatement("select column_name from information_schema.columns where table_schema = ? and table_name = 'notbounties' and column_name = 'time';");
+             PreparedStatement alterTimeName = connection.prepareStatement("ALTER TABLE notbounties CHANGE time created BIGINT;")){
 
 
             ps.executeUpdate();
@@ -599,12 +859,10 @@ public class MySQL extends NotBountiesDatabase {
             }
             rs.close();
 
-        } catch (SQLException e){
-            Bukkit.getLogger().warning(e.toString());
         }
     }
     public void createDataTable(){
-        try (PreparedStatement ps = getConnection().prepareStatement("CREATE TABLE IF NOT EXISTS bounty_data" +
+        try (PooledConnection connection = getConnection(); PreparedStatement ps = connection.prepareStatement("CREATE TABLE IF NOT EXISTS bounty_data" +
                 "(" +
                 "    uuid CHAR(36) NOT NULL," +
                 "    claimed BIGINT DEFAULT 0 NOT NULL," +
@@ -615,8 +873,8 @@ public class MySQL extends NotBountiesDatabase {
                 "    allclaimed FLOAT(53) DEFAULT 0 NOT NULL," +
                 "    PRIMARY KEY (uuid)" +
                 ");");
-             PreparedStatement ps1 = getConnection().prepareStatement("select column_name,data_type from information_schema.columns where table_schema = ? and table_name = 'bounty_data' and column_name = 'claimed';");
-             PreparedStatement ps2 = getConnection().prepareStatement("ALTER TABLE bounty_data MODIFY COLUMN claimed BIGINT, MODIFY sets BIGINT, MODIFY received BIGINT, MODIFY alltime FLOAT(53), MODIFY immunity FLOAT(53), MODIFY allclaimed FLOAT(53);")) {
+             PreparedStatement ps1 = connection.prepareStatement("select column_name,data_type from information_schema.columns where table_schema = ? and table_name = 'bounty_data' and column_name = 'claimed';");
+             PreparedStatement ps2 = connection.prepareStatement("ALTER TABLE bounty_data MODIFY COLUMN claimed BIGINT, MODIFY sets BIGINT, MODIFY received BIGINT, MODIFY alltime FLOAT(53), MODIFY immunity FLOAT(53), MODIFY allclaimed FLOAT(53);")) {
 
             ps.executeUpdate();
 
@@ -632,15 +890,15 @@ public class MySQL extends NotBountiesDatabase {
         }
     }
     public void createOnlinePlayerTable() {
-        try(PreparedStatement ps = getConnection().prepareStatement("CREATE TABLE IF NOT EXISTS bounty_players" +
+        try (PooledConnection connection = getConnection(); PreparedStatement ps = connection.prepareStatement("CREATE TABLE IF NOT EXISTS bounty_players" +
                 "(" +
                 "    uuid CHAR(36) NOT NULL," +
                 "    name VARCHAR(16) NOT NULL," +
                 "    id CHAR(36) NOT NULL," +
                 "    PRIMARY KEY (uuid)" +
                 ");");
-            PreparedStatement checkServerID = getConnection().prepareStatement("select column_name,data_type from information_schema.columns where table_schema = ? and table_name = 'bounty_players' and column_name = 'id';");
-            PreparedStatement alterServerID = getConnection().prepareStatement("ALTER TABLE bounty_players MODIFY COLUMN id CHAR(36);");) {
+            PreparedStatement checkServerID = connection.prepareStatement("select column_name,data_type from information_schema.columns where table_schema = ? and table_name = 'bounty_players' and column_name = 'id';");
+            PreparedStatement alterServerID = connection.prepareStatement("ALTER TABLE bounty_players MODIFY COLUMN id CHAR(36);");) {
 
             ps.executeUpdate();
 
@@ -655,25 +913,213 @@ public class MySQL extends NotBountiesDatabase {
         }
     }
 
-    public void disconnect(){
-        if (isConnected())
-            try {
-                connection.close();
+    public void createChangeTable() {
+        try (PooledConnection connection = getConnection(); PreparedStatement ps = connection.prepareStatement("CREATE TABLE IF NOT EXISTS bounty_changes" +
+                "(" +
+                "    version BIGINT NOT NULL AUTO_INCREMENT," +
+                "    type TINYINT NOT NULL," +
+                "    uuid CHAR(36) NOT NULL," +
+                "    time BIGINT NOT NULL," +
+                "    PRIMARY KEY (version)," +
+                "    INDEX (time)" +
+                ");")) {
+            ps.executeUpdate();
+        } catch (SQLException e) {
+            Bukkit.getLogger().warning(e.toString());
+        }
+    }
+
+    /**
+     * Adds a change record to a write, so other servers can read only the changed data.
+     * The change is sent in the same round trip as the write. Nothing is added if the change feed is disabled.
+     * @param sql The statement that writes the data.
+     * @return The statement to prepare.
+     */
+    private String recordingChanges(String sql) {
+        return changeFeed ? sql + RECORD_CHANGE : sql;
+    }
+
+    /**
+     * Sets the parameters of a change record added by recordingChanges().
+     * @param ps Statement to bind.
+     * @param index Index of the first parameter of the change record.
+     * @param type BOUNTY_CHANGE or STAT_CHANGE
+     * @param uuid UUID of the player that was changed.
+     * @param record Whether the change is recorded by this execution of the statement.
+     */
+    private void bindChange(PreparedStatement ps, int index, int type, UUID uuid, boolean record) throws SQLException {
+        if (!changeFeed)
+            return;
+        ps.setInt(index, type);
+        ps.setString(index + 1, uuid.toString());
+        ps.setLong(index + 2, System.currentTimeMillis());
+        ps.setBoolean(index + 3, record);
+    }
+
+    /**
+     * Deletes changes that are older than the change retention.
+     */
+    private void pruneChanges(PooledConnection connection) throws SQLException {
+        if (System.currentTimeMillis() - lastChangePrune < CHANGE_PRUNE_INTERVAL)
+            return;
+        lastChangePrune = System.currentTimeMillis();
+        try (PreparedStatement ps = connection.prepareStatement("DELETE FROM bounty_changes WHERE time < ?;")) {
+            ps.setLong(1, System.currentTimeMillis() - CHANGE_RETENTION_MS);
+            ps.executeUpdate();
+        }
+    }
+
+    @Override
+    public boolean isChangeFeedEnabled() {
+        return changeFeed;
+    }
+
+    @Override
+    public String getChangeCursor() throws IOException {
+        if (isConnected()) {
+            try (PooledConnection connection = getConnection(); PreparedStatement ps = connection.prepareStatement("SELECT MAX(version) FROM bounty_changes;")) {
+                ResultSet rs = ps.executeQuery();
+                synchronized (readVersions) {
+                    // a full synchronization is read after this cursor
+                    readVersions.clear();
+                }
+                return rs.next() ? String.valueOf(rs.getLong(1)) : "0";
             } catch (SQLException e) {
-                Bukkit.getLogger().warning(e.toString());
+                if (reconnect(e)) {
+                    return getChangeCursor();
+                }
             }
-        connection = null;
+        }
+        throw notConnectedException;
     }
 
-    public Connection getConnection() {
-        return connection;
+    @Override
+    public @Nullable ChangeSet getChangesSince(String cursor) throws IOException {
+        if (System.currentTimeMillis() - getLastSync() > CHANGE_RETENTION_MS / 2)
+            // changes may have been deleted since the last sync
+            return null;
+        if (isConnected()) {
+            try (PooledConnection connection = getConnection(); PreparedStatement ps = connection.prepareStatement("SELECT version, type, uuid FROM bounty_changes WHERE version > ? OR time >= ?;")) {
+                pruneChanges(connection);
+                long version = Long.parseLong(cursor);
+                long now = System.currentTimeMillis();
+                // read the lag window again to find changes that committed after a later version was read
+                ps.setLong(1, version - CHANGE_VERSION_LAG);
+                ps.setLong(2, now - CHANGE_TIME_LAG);
+                ResultSet rs = ps.executeQuery();
+                Set<UUID> bounties = new HashSet<>();
+                Set<UUID> stats = new HashSet<>();
+                synchronized (readVersions) {
+                    long latestVersion = version;
+                    while (rs.next()) {
+                        long changeVersion = rs.getLong(1);
+                        latestVersion = Math.max(latestVersion, changeVersion);
+                        if (readVersions.putIfAbsent(changeVersion, now) != null)
+                            continue; // already read
+                        UUID uuid = UUID.fromString(rs.getString(3));
+                        if (rs.getInt(2) == BOUNTY_CHANGE)
+                            bounties.add(uuid);
+                        else
+                            stats.add(uuid);
+                    }
+                    long oldestVersion = latestVersion - CHANGE_VERSION_LAG;
+                    readVersions.entrySet().removeIf(entry -> entry.getKey() <= oldestVersion && now - entry.getValue() > CHANGE_TIME_LAG * 2);
+                    version = latestVersion;
+                }
+                return new ChangeSet(String.valueOf(version), bounties, stats);
+            } catch (SQLException e) {
+                if (reconnect(e)) {
+                    return getChangesSince(cursor);
+                }
+            }
+        }
+        throw notConnectedException;
+    }
+
+    @Override
+    public Map<UUID, Bounty> getBounties(Collection<UUID> uuids) throws IOException {
+        if (isConnected()) {
+            Map<UUID, Bounty> bounties = new HashMap<>();
+            List<UUID> uuidList = new ArrayList<>(uuids);
+            try (PooledConnection connection = getConnection()) {
+                for (int i = 0; i < uuidList.size(); i += MAX_QUERY_PARAMETERS) {
+                    List<UUID> chunk = uuidList.subList(i, Math.min(uuidList.size(), i + MAX_QUERY_PARAMETERS));
+                    String parameters = String.join(", ", Collections.nCopies(chunk.size(), "?"));
+                    try (PreparedStatement whitelistStatement = connection.prepareStatement("SELECT receiver, setter, created, player FROM bounty_whitelists WHERE receiver IN (" + parameters + ");");
+                         PreparedStatement setterStatement = connection.prepareStatement("SELECT " + SETTER_COLUMNS + " FROM bounty_setters WHERE receiver IN (" + parameters + ");")) {
+                        for (int j = 0; j < chunk.size(); j++) {
+                            whitelistStatement.setBytes(j + 1, toBytes(chunk.get(j)));
+                            setterStatement.setBytes(j + 1, toBytes(chunk.get(j)));
+                        }
+                        try (ResultSet whitelistRows = whitelistStatement.executeQuery();
+                             ResultSet setterRows = setterStatement.executeQuery()) {
+                            readSetterRows(setterRows, readWhitelistRows(whitelistRows), bounties);
+                        }
+                    }
+                }
+            } catch (SQLException e) {
+                if (reconnect(e)) {
+                    return getBounties(uuids);
+                }
+                throw notConnectedException;
+            }
+            return bounties;
+        }
+        throw notConnectedException;
+    }
+
+    @Override
+    public Map<UUID, PlayerStat> getStats(Collection<UUID> uuids) throws IOException {
+        if (isConnected()) {
+            Map<UUID, PlayerStat> stats = new HashMap<>();
+            List<UUID> uuidList = new ArrayList<>(uuids);
+            try (PooledConnection connection = getConnection()) {
+                for (int i = 0; i < uuidList.size(); i += MAX_QUERY_PARAMETERS) {
+                    List<UUID> chunk = uuidList.subList(i, Math.min(uuidList.size(), i + MAX_QUERY_PARAMETERS));
+                    try (PreparedStatement ps = connection.prepareStatement("SELECT uuid, claimed, sets, received, alltime, immunity, allclaimed FROM bounty_data WHERE uuid IN (" + String.join(", ", Collections.nCopies(chunk.size(), "?")) + ");")) {
+                        for (int j = 0; j < chunk.size(); j++)
+                            ps.setString(j + 1, chunk.get(j).toString());
+                        ResultSet rs = ps.executeQuery();
+                        while (rs.next()) {
+                            stats.put(UUID.fromString(rs.getString(1)), new PlayerStat(rs.getLong(2), rs.getLong(3), rs.getLong(4), rs.getDouble(5), rs.getDouble(6), rs.getDouble(7), DataManager.GLOBAL_SERVER_ID));
+                        }
+                    }
+                }
+            } catch (SQLException e) {
+                if (reconnect(e)) {
+                    return getStats(uuids);
+                }
+                throw notConnectedException;
+            }
+            return stats;
+        }
+        throw notConnectedException;
+    }
+
+    public void disconnect(){
+        ConnectionPool pool = connectionPool;
+        connectionPool = null;
+        if (pool != null)
+            pool.close();
+    }
+
+    /**
+     * Borrow a connection from the connection pool. The connection must be closed to return it to the pool.
+     * @return A connection to the database.
+     * @throws SQLException If the database isn't connected, or no connection could be made.
+     */
+    private PooledConnection getConnection() throws SQLException {
+        ConnectionPool pool = connectionPool;
+        if (pool == null)
+            throw new SQLNonTransientConnectionException("Database not connected!");
+        return pool.getConnection();
     }
 
     @Override
     public Map<UUID, String> getOnlinePlayers() {
         Map<UUID, String> networkPlayers = new HashMap<>();
         if (isConnected()) {
-            try (PreparedStatement ps = getConnection().prepareStatement("SELECT uuid, name FROM bounty_players;")) {
+            try (PooledConnection connection = getConnection(); PreparedStatement ps = connection.prepareStatement("SELECT uuid, name FROM bounty_players;")) {
                 ResultSet rs = ps.executeQuery();
 
                 while (rs.next()) {
@@ -698,8 +1144,9 @@ public class MySQL extends NotBountiesDatabase {
     @Override
     public void notifyBounty(UUID uuid) {
         if (isConnected()) {
-            try (PreparedStatement ps = getConnection().prepareStatement("UPDATE notbounties SET notified = 1 WHERE uuid = ?;")) {
-                ps.setString(1, uuid.toString());
+            try (PooledConnection connection = getConnection(); PreparedStatement ps = connection.prepareStatement(recordingChanges("UPDATE bounty_setters SET notified = TRUE WHERE receiver = ?;"))) {
+                ps.setBytes(1, toBytes(uuid));
+                bindChange(ps, 2, BOUNTY_CHANGE, uuid, true);
                 // if a player joins after a bounty is placed, but before the next sync, then it won't be updated if the time is included, and they will get a duplicate notification
                 // without the time, if a player joins after a bounty is placed on another server and this server, then they won't get the notification for the other bounty.
                 //ps.setLong(2, getLastSync());
@@ -716,7 +1163,7 @@ public class MySQL extends NotBountiesDatabase {
     @Override
     public void logout(UUID uuid) {
         if (isConnected()) {
-            try (PreparedStatement ps = getConnection().prepareStatement("DELETE FROM bounty_players WHERE uuid = ? AND id = ?;")) {
+            try (PooledConnection connection = getConnection(); PreparedStatement ps = connection.prepareStatement("DELETE FROM bounty_players WHERE uuid = ? AND id = ?;")) {
                 ps.setString(1, uuid.toString());
                 ps.setString(2, DataManager.getDatabaseServerID(false).toString());
                 ps.executeUpdate();
@@ -731,7 +1178,7 @@ public class MySQL extends NotBountiesDatabase {
     @Override
     public void login(UUID uuid, String playerName) {
         if (isConnected()) {
-            try (PreparedStatement ps = getConnection().prepareStatement("INSERT INTO bounty_players(uuid, name, id) VALUES(?, ?, ?) ON DUPLICATE KEY UPDATE id = ?;")) {
+            try (PooledConnection connection = getConnection(); PreparedStatement ps = connection.prepareStatement("INSERT INTO bounty_players(uuid, name, id) VALUES(?, ?, ?) ON DUPLICATE KEY UPDATE id = ?;")) {
                 ps.setString(1, uuid.toString());
                 ps.setString(2, playerName);
                 ps.setString(3, DataManager.getDatabaseServerID(false).toString());
@@ -17,13 +17,12 @@ import org.bukkit.entity.EntityType;
 import org.bukkit.entity.ItemFrame;
 import org.bukkit.entity.Player;
 import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
 import org.bukkit.event.Listener;
 import org.bukkit.event.block.Action;
 import org.bukkit.event.inventory.*;
-import org.bukkit.event.player.PlayerDropItemEvent;
-import org.bukkit.event.player.PlayerInteractEntityEvent;
-import org.bukkit.event.player.PlayerInteractEvent;
-import org.bukkit.event.player.PlayerItemHeldEvent;
+import org.bukkit.event.entity.EntityPickupItemEvent;
+import org.bukkit.event.player.*;
 import org.bukkit.inventory.*;
 import org.bukkit.inventory.meta.CompassMeta;
 import org.bukkit.inventory.meta.ItemMeta;
@@ -37,10 +36,7 @@ import org.bukkit.scheduler.BukkitRunnable;
 import org.jetbrains.annotations.Nullable;
 
 import javax.xml.crypto.Data;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Objects;
-import java.util.UUID;
+import java.util.*;
 import java.util.stream.Collectors;
 
 import static me.jadenp.notbounties.NotBounties.*;
@@ -67,6 +63,27 @@ public class BountyTracker implements Listener {
 
     private static long lastInventorySearch = 0;
     private static BiMap<Integer, UUID> trackedBounties = HashBiMap.create();
+    /**
+     * The distance squared that a tracked player has to move before the compass is updated.
+     */
+    private static final double COMPASS_UPDATE_DISTANCE_SQUARED = 2 * 2;
+    /**
+     * The player that each player's held tracker is tracking.
+     * This is updated when the held item changes, and with every tracker update.
+     */
+    private static final Map<UUID, UUID> heldTrackers = new HashMap<>();
+    /**
+     * The location that each player's held tracker is pointing to, if it is pointing to a tracked player.
+     */
+    private static final Map<UUID, Location> compassTargets = new HashMap<>();
+    /**
+     * The locations of the online tracked players. This is refreshed every tick.
+     */
+    private static final Map<UUID, Location> trackedLocations = new HashMap<>();
+    /**
+     * Players that may have changed their held item this tick.
+     */
+    private static final Set<UUID> queuedHeldUpdates = new HashSet<>();
     private static NamespacedKey bountyTrackerRecipe;
 
     public static void loadConfiguration(ConfigurationSection configuration) {
@@ -239,6 +256,8 @@ public class BountyTracker implements Listener {
      */
     public static void removeTracker(Player player) {
         removeTracker(player.getInventory());
+        if (Bukkit.isPrimaryThread())
+            refreshHeldTracker(player);
     }
 
     /**
@@ -311,12 +330,102 @@ public class BountyTracker implements Listener {
         for (Player player : Bukkit.getOnlinePlayers()) {
             ItemStack item = player.getInventory().getItemInMainHand();
             UUID trackedUUID = getTrackedPlayer(item);
+            // the held item can change without an event, like when a command gives a tracker
+            setHeldTracker(player.getUniqueId(), trackedUUID);
             if (trackedUUID == null)
                 continue;
             updateHeldTracker(player, item, trackedUUID, false);
         }
     }
 
+    /**
+     * Point held trackers to their tracked players if the tracked players have moved.
+     * This should be called every tick. Only the players in the tracker registry are checked.
+     */
+    public static void updatePositions() {
+        trackedLocations.clear();
+        if (!tracker || heldTrackers.isEmpty())
+            return;
+        // cache the tracked player locations, so each location is only read once
+        for (UUID trackedUUID : heldTrackers.values()) {
+            if (trackedLocations.containsKey(trackedUUID) || DataManager.GLOBAL_SERVER_ID.equals(trackedUUID))
+                continue;
+            Player trackedPlayer = Bukkit.getPlayer(trackedUUID);
+            if (trackedPlayer != null)
+                trackedLocations.put(trackedUUID, trackedPlayer.getLocation());
+        }
+        for (Map.Entry<UUID, UUID> entry : heldTrackers.entrySet()) {
+            Location trackedLocation = trackedLocations.get(entry.getValue());
+            Location compassTarget = compassTargets.get(entry.getKey());
+            if (trackedLocation == null || compassTarget == null)
+                // the compass isn't pointing to a player - the regular update will handle it
+                continue;
+            if (Objects.equals(compassTarget.getWorld(), trackedLocation.getWorld()) && compassTarget.distanceSquared(trackedLocation) <= COMPASS_UPDATE_DISTANCE_SQUARED)
+                // tracked player hasn't moved far enough
+                continue;
+            Player player = Bukkit.getPlayer(entry.getKey());
+            Player trackedPlayer = Bukkit.getPlayer(entry.getValue());
+            if (player == null || trackedPlayer == null || !player.canSee(trackedPlayer) || isVanished(trackedPlayer))
+                continue;
+            ItemStack item = player.getInventory().getItemInMainHand();
+            if (item.getType() != Material.COMPASS || !(item.getItemMeta() instanceof CompassMeta compassMeta))
+                continue;
+            if (!entry.getValue().equals(getTrackedPlayer(item)))
+                // the player switched items, and the registry hasn't been refreshed yet
+                continue;
+            Location lodestone = getBlockLocation(trackedLocation);
+            compassMeta.setLodestone(lodestone);
+            compassMeta.setLodestoneTracked(false);
+            item.setItemMeta(compassMeta);
+            compassTargets.put(entry.getKey(), lodestone);
+        }
+    }
+
+    /**
+     * Update the tracker registry with the item that a player is holding.
+     * @param player Player to check.
+     */
+    public static void refreshHeldTracker(Player player) {
+        setHeldTracker(player.getUniqueId(), getTrackedPlayer(player.getInventory().getItemInMainHand()));
+    }
+
+    private static void setHeldTracker(UUID holder, @Nullable UUID trackedUUID) {
+        if (trackedUUID == null) {
+            heldTrackers.remove(holder);
+            compassTargets.remove(holder);
+        } else if (!trackedUUID.equals(heldTrackers.put(holder, trackedUUID))) {
+            // different tracker
+            compassTargets.remove(holder);
+        }
+    }
+
+    /**
+     * Update the tracker registry for a player on the next tick, after their inventory has changed.
+     * @param player Player that may have changed their held item.
+     */
+    private static void queueHeldUpdate(Player player) {
+        if (!tracker || NotBounties.isPaused())
+            return;
+        if (queuedHeldUpdates.isEmpty()) {
+            new BukkitRunnable() {
+                @Override
+                public void run() {
+                    for (UUID uuid : queuedHeldUpdates) {
+                        Player queuedPlayer = Bukkit.getPlayer(uuid);
+                        if (queuedPlayer != null)
+                            refreshHeldTracker(queuedPlayer);
+                    }
+                    queuedHeldUpdates.clear();
+                }
+            }.runTask(NotBounties.getInstance());
+        }
+        queuedHeldUpdates.add(player.getUniqueId());
+    }
+
+    private static Location getBlockLocation(Location location) {
+        return new Location(location.getWorld(), location.getBlockX(), location.getBlockY(), location.getBlockZ());
+    }
+
     private static void updateHeldTracker(Player player, ItemStack item, UUID uuid, boolean force) {
         if (item.getType() != Material.COMPASS)
             return;
@@ -330,6 +439,7 @@ public class BountyTracker implements Listener {
         assert compassMeta != null;
         Location previousLocation = compassMeta.hasLodestone() ? compassMeta.getLodestone() : null;
         if (!player.hasPermission("notbounties.tracker") || !canTrack) {
+            compassTargets.remove(player.getUniqueId());
             // no permission or empty tracker - track other world for funky compass movements
             if (Bukkit.getWorlds().size() > 1) {
                 for (World world : Bukkit.getWorlds()) {
@@ -358,24 +468,24 @@ public class BountyTracker implements Listener {
             }
             return;
         }
-        if (!hasBounty(uuid))
-            // no bounty
-            return;
         Player trackedPlayer = Bukkit.getPlayer(uuid);
         if (trackedPlayer != null && (NotBounties.serverVersion >= 17 && player.canSee(Objects.requireNonNull(trackedPlayer))) && !isVanished(trackedPlayer)) {
             // can track player
+            Location trackedLocation = trackedPlayer.getLocation();
+            Location playerLocation = player.getLocation();
             if (!compassMeta.hasLodestone() || compassMeta.getLodestone() == null) {
-                compassMeta.setLodestone(trackedPlayer.getLocation().getBlock().getLocation());
-            } else if (Objects.equals(compassMeta.getLodestone().getWorld(), trackedPlayer.getWorld())) {
-                if (compassMeta.getLodestone().distance(trackedPlayer.getLocation()) > 2) {
-                    compassMeta.setLodestone(trackedPlayer.getLocation().getBlock().getLocation());
+                compassMeta.setLodestone(getBlockLocation(trackedLocation));
+            } else if (Objects.equals(compassMeta.getLodestone().getWorld(), trackedLocation.getWorld())) {
+                if (compassMeta.getLodestone().distanceSquared(trackedLocation) > COMPASS_UPDATE_DISTANCE_SQUARED) {
+                    compassMeta.setLodestone(getBlockLocation(trackedLocation));
                 }
             } else {
-                compassMeta.setLodestone(trackedPlayer.getLocation().getBlock().getLocation());
+                compassMeta.setLodestone(getBlockLocation(trackedLocation));
             }
+            compassTargets.put(player.getUniqueId(), compassMeta.getLodestone());
+            boolean sameWorld = Objects.equals(trackedLocation.getWorld(), playerLocation.getWorld());
 
-
-            if (trackerGlow > 0 && trackedPlayer.getWorld().equals(player.getWorld()) && player.getLocation().distance(trackedPlayer.getLocation()) < trackerGlow) {
+            if (trackerGlow > 0 && sameWorld && playerLocation.distanceSquared(trackedLocation) < (double) trackerGlow * trackerGlow) {
                 trackedPlayer.addPotionEffect(new PotionEffect(PotionEffectType.GLOWING, 45, 0));
                 trackedPlayer.spigot().sendMessage(ChatMessageType.ACTION_BAR, new TextComponent(parse(getMessage("tracked-notify"), trackedPlayer)));
             }
@@ -387,25 +497,26 @@ public class BountyTracker implements Listener {
                 if (TABPlayerName)
                     actionBar.append(" ").append(ChatColor.YELLOW).append(trackedPlayer.getName()).append(ChatColor.DARK_GRAY).append(" |");
                 if (TABDistance) {
-                    if (trackedPlayer.getWorld().equals(player.getWorld())) {
-                        actionBar.append(" ").append(ChatColor.GOLD).append((int) player.getLocation().distance(trackedPlayer.getLocation())).append("m").append(ChatColor.DARK_GRAY).append(" |");
+                    if (sameWorld) {
+                        actionBar.append(" ").append(ChatColor.GOLD).append((int) playerLocation.distance(trackedLocation)).append("m").append(ChatColor.DARK_GRAY).append(" |");
                     } else {
                         actionBar.append(" ?m |");
                     }
                 }
                 if (TABPosition)
-                    actionBar.append(" ").append(ChatColor.RED).append(trackedPlayer.getLocation().getBlockX()).append("x ").append(trackedPlayer.getLocation().getBlockY()).append("y ").append(trackedPlayer.getLocation().getBlockZ()).append("z").append(ChatColor.DARK_GRAY).append(" |");
+                    actionBar.append(" ").append(ChatColor.RED).append(trackedLocation.getBlockX()).append("x ").append(trackedLocation.getBlockY()).append("y ").append(trackedLocation.getBlockZ()).append("z").append(ChatColor.DARK_GRAY).append(" |");
                 if (TABWorld)
                     actionBar.append(" ").append(ChatColor.LIGHT_PURPLE).append(trackedPlayer.getWorld().getName()).append(ChatColor.DARK_GRAY).append(" |");
                 player.spigot().sendMessage(ChatMessageType.ACTION_BAR, new TextComponent(actionBar.toString()));
             }
-            if (previousLocation == null || !Objects.equals(previousLocation.getWorld(), Objects.requireNonNull(compassMeta.getLodestone()).getWorld()) || previousLocation.distance(compassMeta.getLodestone()) > 2) {
+            if (previousLocation == null || !Objects.equals(previousLocation.getWorld(), Objects.requireNonNull(compassMeta.getLodestone()).getWorld()) || previousLocation.distanceSquared(compassMeta.getLodestone()) > COMPASS_UPDATE_DISTANCE_SQUARED) {
                 // only update if location is greater than 2 blocks away
                 compassMeta.setLodestoneTracked(false);
                 item.setItemMeta(compassMeta);
             }
         } else {
             // player offline -
+            compassTargets.remove(player.getUniqueId());
             if (trackerActionBar && (TABShowAlways || force)) {
                 player.spigot().sendMessage(ChatMessageType.ACTION_BAR, new TextComponent(LanguageOptions.parse(getMessage("tracker-offline"), player)));
             }
@@ -648,4 +759,53 @@ public class BountyTracker implements Listener {
         }.runTaskLater(NotBounties.getInstance(), 40);
     }
 
-}
\ No newline at end of file
+    // keep the tracker registry up to date
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onHeldItemChange(PlayerItemHeldEvent event) {
+        queueHeldUpdate(event.getPlayer());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onSwapHands(PlayerSwapHandItemsEvent event) {
+        queueHeldUpdate(event.getPlayer());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onInventoryChange(InventoryClickEvent event) {
+        if (event.getWhoClicked() instanceof Player player)
+            queueHeldUpdate(player);
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onInventoryDrag(InventoryDragEvent event) {
+        if (event.getWhoClicked() instanceof Player player)
+            queueHeldUpdate(player);
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onItemPickup(EntityPickupItemEvent event) {
+        if (event.getEntity() instanceof Player player)
+            queueHeldUpdate(player);
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onItemDrop(PlayerDropItemEvent event) {
+        queueHeldUpdate(event.getPlayer());
+    }
+
+    @EventHandler
+    public void onJoin(PlayerJoinEvent event) {
+        queueHeldUpdate(event.getPlayer());
+    }
+
+    @EventHandler
+    public void onRespawn(PlayerRespawnEvent event) {
+        queueHeldUpdate(event.getPlayer());
+    }
+
+    @EventHandler
+    public void onQuit(PlayerQuitEvent event) {
+        setHeldTracker(event.getPlayer().getUniqueId(), null);
+    }
+
+}
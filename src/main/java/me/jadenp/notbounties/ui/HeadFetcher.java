@@ -4,6 +4,7 @@ import me.jadenp.notbounties.NotBounties;
 import me.jadenp.notbounties.ui.gui.GUI;
 import me.jadenp.notbounties.ui.gui.GUIOptions;
 import me.jadenp.notbounties.ui.gui.PlayerGUInfo;
+import me.jadenp.notbounties.utils.ExpiringCache;
 import me.jadenp.notbounties.utils.LoggedPlayers;
 import org.bukkit.Bukkit;
 import org.bukkit.Material;
@@ -18,100 +19,96 @@ import org.bukkit.profile.PlayerProfile;
 import org.bukkit.scheduler.BukkitRunnable;
 
 import java.util.*;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 public class HeadFetcher {
-    private static final Map<UUID, ItemStack> savedHeads = new HashMap<>();
+    // heads aren't saved to a file because they can be created from the saved skins
+    private static final ExpiringCache<UUID, ItemStack> savedHeads = new ExpiringCache<>(1000, 60 * 60 * 1000L); // 1 hour
 
 
     public HeadFetcher() {
     }
 
     public void loadHeads(Player player, PlayerGUInfo guInfo, List<QueuedHead> heads) {
-
+        // heads that are loaded and haven't been put in the inventory yet
+        Map<Integer, ItemStack> loadedHeads = Collections.synchronizedMap(new HashMap<>());
+        AtomicBoolean updateScheduled = new AtomicBoolean(false);
+        AtomicBoolean closed = new AtomicBoolean(false);
         new BukkitRunnable() {
-            int maxRequests = 100;
-            final ItemStack[] fetchedHeads = new ItemStack[heads.size()];
             @Override
             public void run() {
-                boolean[] headsToUpdate = new boolean[heads.size()];
-                int i = 0;
-                for (QueuedHead queuedHead : heads) {
-                    if (fetchedHeads[i] == null) {
-                        if (savedHeads.containsKey(queuedHead.uuid())) {
-                            fetchedHeads[i] = savedHeads.get(queuedHead.uuid());
-                            headsToUpdate[i] = true;
-                        } else {
-                            if (SkinManager.isSkinLoaded(queuedHead.uuid())) {
-                                PlayerSkin playerSkin = SkinManager.getSkin(queuedHead.uuid());
-                                ItemStack head = copyItemText(queuedHead.itemStack(), Head.createPlayerSkull(queuedHead.uuid(), playerSkin.getUrl()));
-                                fetchedHeads[i] = head;
-                                if (!SkinManager.isMissingSkin(playerSkin)) {
-                                    // do not update head if the skin is missing.
-                                    headsToUpdate[i] = true;
-                                    savedHeads.put(queuedHead.uuid(), head);
-                                }
-                            }
-                        }
+                for (int i = 0; i < heads.size(); i++) {
+                    int index = i;
+                    QueuedHead queuedHead = heads.get(i);
+                    ItemStack savedHead = savedHeads.get(queuedHead.uuid());
+                    if (savedHead != null) {
+                        loadedHeads.put(index, copyItemText(queuedHead.itemStack(), savedHead.clone()));
+                        continue;
                     }
-                    i++;
-                }
-
-                // update inventory
-                new BukkitRunnable() {
-                    @Override
-                    public void run() {
-                        if (player.isOnline() && player.getOpenInventory().getType() == InventoryType.CHEST && GUI.playerInfo.containsKey(player.getUniqueId())) {
-                            PlayerGUInfo currentInfo = GUI.playerInfo.get(player.getUniqueId());
-                            if (!currentInfo.guiType().equals(guInfo.guiType()) || currentInfo.page() != guInfo.page() || !currentInfo.title().equals(guInfo.title())) {
-                                // no longer in same GUI
-                                maxRequests = 0;
-                                return;
-                            }
-                            GUIOptions guiOptions = GUI.getGUI(guInfo.guiType());
-                            if (guiOptions == null)
-                                return;
-                            Inventory inventory = player.getOpenInventory().getTopInventory();
-                            ItemStack[] contents = inventory.getContents();
-                            for (int j = 0; j < Math.min(guiOptions.getPlayerSlots().size(), fetchedHeads.length); j++) {
-                                QueuedHead head = heads.get(j);
-                                if (!headsToUpdate[j] || !guiOptions.getPlayerSlots().contains(head.slot()))
-                                    continue;
-                                contents[head.slot()] = fetchedHeads[j];
-                            }
-                            inventory.setContents(contents);
-                        } else {
-                            maxRequests = 0;
-                            if (NotBounties.debug)
-                                Bukkit.getLogger().info("[NotBountiesDebug] Player exited GUI while loading player heads.");
+                    // wait for the skin instead of checking if it is loaded
+                    SkinManager.getSkinAsync(queuedHead.uuid()).thenAccept(playerSkin -> {
+                        if (closed.get())
+                            return;
+                        if (SkinManager.isMissingSkin(playerSkin)) {
+                            // do not update head if the skin is missing.
+                            NotBounties.debugMessage("[NotBountiesDebug] Could not load skin for " + LoggedPlayers.getPlayerName(queuedHead.uuid()), true);
+                            return;
                         }
+                        ItemStack head = Head.createPlayerSkull(queuedHead.uuid(), playerSkin.getUrl());
+                        savedHeads.put(queuedHead.uuid(), head);
+                        loadedHeads.put(index, copyItemText(queuedHead.itemStack(), head.clone()));
+                        updateInventory(player, guInfo, heads, loadedHeads, updateScheduled, closed);
+                    });
+                }
+                updateInventory(player, guInfo, heads, loadedHeads, updateScheduled, closed);
+            }
+        }.runTaskAsynchronously(NotBounties.getInstance());
+    }
 
+    /**
+     * Put the loaded heads in the player's inventory on the next tick.
+     * Heads that are loaded before the update runs are put in the inventory with the same update.
+     */
+    private void updateInventory(Player player, PlayerGUInfo guInfo, List<QueuedHead> heads, Map<Integer, ItemStack> loadedHeads, AtomicBoolean updateScheduled, AtomicBoolean closed) {
+        if (loadedHeads.isEmpty() || !updateScheduled.compareAndSet(false, true))
+            return;
+        new BukkitRunnable() {
+            @Override
+            public void run() {
+                updateScheduled.set(false);
+                Map<Integer, ItemStack> fetchedHeads;
+                synchronized (loadedHeads) {
+                    fetchedHeads = new HashMap<>(loadedHeads);
+                    loadedHeads.clear();
+                }
+                if (player.isOnline() && player.getOpenInventory().getType() == InventoryType.CHEST && GUI.playerInfo.containsKey(player.getUniqueId())) {
+                    PlayerGUInfo currentInfo = GUI.playerInfo.get(player.getUniqueId());
+                    if (!currentInfo.guiType().equals(guInfo.guiType()) || currentInfo.page() != guInfo.page() || !currentInfo.title().equals(guInfo.title())) {
+                        // no longer in same GUI
+                        closed.set(true);
+                        return;
                     }
-                }.runTask(NotBounties.getInstance());
-                // check if max requests hit
-                if (maxRequests <= 0) {
-                    this.cancel();
-                    if (NotBounties.debug) {
-                        i = 0;
-                        for (QueuedHead queuedHead : heads) {
-                            if (fetchedHeads[i] == null) {
-                                NotBounties.debugMessage("[NotBountiesDebug] Timed out loading skin for " + LoggedPlayers.getPlayerName(queuedHead.uuid()), true);
-                            }
-                            i++;
-                        }
+                    GUIOptions guiOptions = GUI.getGUI(guInfo.guiType());
+                    if (guiOptions == null)
+                        return;
+                    Inventory inventory = player.getOpenInventory().getTopInventory();
+                    ItemStack[] contents = inventory.getContents();
+                    for (Map.Entry<Integer, ItemStack> entry : fetchedHeads.entrySet()) {
+                        QueuedHead head = heads.get(entry.getKey());
+                        if (entry.getKey() >= guiOptions.getPlayerSlots().size() || !guiOptions.getPlayerSlots().contains(head.slot()))
+                            continue;
+                        contents[head.slot()] = entry.getValue();
                     }
+                    inventory.setContents(contents);
+                } else {
+                    closed.set(true);
+                    if (NotBounties.debug)
+                        Bukkit.getLogger().info("[NotBountiesDebug] Player exited GUI while loading player heads.");
                 }
-                maxRequests--;
-                // check if all heads are loaded
-                for (ItemStack itemStack : fetchedHeads)
-                    if (itemStack == null)
-                        return;
-                this.cancel();
             }
-        }.runTaskTimerAsynchronously(NotBounties.getInstance(), 1, 4);
+        }.runTask(NotBounties.getInstance());
     }
 
-
-
     private ItemStack copyItemText(ItemStack from, ItemStack to) {
         ItemMeta fromMeta = from.getItemMeta();
         ItemMeta toMeta = to.getItemMeta();
@@ -125,9 +122,14 @@ public class HeadFetcher {
         return to;
     }
 
+    public static ExpiringCache<UUID, ItemStack> getSavedHeads() {
+        return savedHeads;
+    }
+
     public static ItemStack getUnloadedHead(UUID uuid) {
-        if (savedHeads.containsKey(uuid))
-            return savedHeads.get(uuid);
+        ItemStack savedHead = savedHeads.get(uuid);
+        if (savedHead != null)
+            return savedHead.clone();
         ItemStack head = new ItemStack(Material.PLAYER_HEAD);
         SkullMeta meta = (SkullMeta) head.getItemMeta();
         assert meta != null;
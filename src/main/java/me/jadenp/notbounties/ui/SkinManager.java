@@ -4,32 +4,41 @@ import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonParser;
 import com.google.gson.JsonSyntaxException;
-import com.google.gson.stream.MalformedJsonException;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
 import me.jadenp.notbounties.NotBounties;
+import me.jadenp.notbounties.databases.DataJournal;
 import me.jadenp.notbounties.utils.DataManager;
+import me.jadenp.notbounties.utils.ExpiringCache;
 import me.jadenp.notbounties.utils.LoggedPlayers;
 import me.jadenp.notbounties.utils.configuration.ConfigOptions;
 import me.jadenp.notbounties.utils.external_api.SkinsRestorerClass;
 import org.apache.hc.client5.http.classic.methods.HttpGet;
 import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
 import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
 import org.apache.hc.core5.http.io.entity.EntityUtils;
 import org.apache.hc.core5.http.message.StatusLine;
 import org.bukkit.Bukkit;
 import org.bukkit.scheduler.BukkitRunnable;
-import org.bukkit.scheduler.BukkitTask;
 import org.jetbrains.annotations.Nullable;
 
 import javax.imageio.ImageIO;
 import java.awt.image.BufferedImage;
-import java.io.IOException;
+import java.io.*;
 import java.net.*;
 import java.util.*;
-import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.*;
 
 public class SkinManager {
-    private static final Map<UUID, PlayerSkin> savedSkins = new HashMap<>();
-    private static final Map<UUID, Long> requestCooldown = new HashMap<>();
+    private static final long SKIN_EXPIRE_TIME = 3 * 24 * 60 * 60 * 1000L; // 3 days
+    private static final ExpiringCache<UUID, PlayerSkin> savedSkins = new ExpiringCache<>(5000, SKIN_EXPIRE_TIME);
+    // faces for bounty posters stored as png images
+    private static final ExpiringCache<UUID, byte[]> savedFaces = new ExpiringCache<>(1000, SKIN_EXPIRE_TIME);
+    private static final Map<UUID, Long> requestCooldown = new ConcurrentHashMap<>();
+    // requests for the same player share one future
+    private static final Map<UUID, CompletableFuture<PlayerSkin>> pendingSkins = new ConcurrentHashMap<>();
+    private static final Executor asyncExecutor = task -> Bukkit.getScheduler().runTaskAsynchronously(NotBounties.getInstance(), task);
     private static final long REQUEST_FAIL_TIMEOUT = 60000 * 30L; // 30 min
     private static final long CONCURRENT_REQUEST_INTERVAL = 10000;
     private static final String MISSING_SKIN_TEXTURE = "http://textures.minecraft.net/texture/b6e0dfed46c33023110e295b177c623fd36b39e4137aeb7241777064af7a0b57";
@@ -42,29 +51,25 @@ public class SkinManager {
         } catch (MalformedURLException | URISyntaxException e) {
             throw new RuntimeException(e);
         }
-        savedSkins.put(DataManager.GLOBAL_SERVER_ID, missingSkin);
     }
 
-    private static final List<Long> rateLimit = new ArrayList<>(); // 200 requests / min
-    private static final List<UUID> queuedRequests = new ArrayList<>();
-
     private SkinManager(){}
 
     public static void refreshSkinRequests() {
         requestCooldown.clear(); // clear request times
-        try {
-            savedSkins.entrySet().removeIf(pair -> isMissingSkin(pair.getValue()) && !pair.getKey().equals(DataManager.GLOBAL_SERVER_ID)); // remove any skins that are set to missing
-        } catch (ConcurrentModificationException ignored) {
-            // skins are still being processed
-            Bukkit.getLogger().warning("[NotBounties] Failed to refresh skin cache.");
-            Bukkit.getLogger().warning("[NotBounties] Skins are currently being processed.");
-            Bukkit.getLogger().warning("[NotBounties] Please try again.");
-        }
+        savedSkins.removeIf((uuid, playerSkin) -> isMissingSkin(playerSkin)); // remove any skins that are set to missing
     }
 
     public static void saveSkin(UUID uuid, PlayerSkin playerSkin) {
+        PlayerSkin previousSkin = savedSkins.peek(uuid);
+        if (previousSkin != null && !Objects.equals(String.valueOf(previousSkin.getUrl()), String.valueOf(playerSkin.getUrl())))
+            // the skin changed
+            savedFaces.remove(uuid);
         savedSkins.put(uuid, playerSkin);
         NotBounties.debugMessage("Saved player skin -> " + uuid, false);
+        CompletableFuture<PlayerSkin> pendingSkin = pendingSkins.remove(uuid);
+        if (pendingSkin != null)
+            pendingSkin.complete(playerSkin);
     }
 
     /**
@@ -73,9 +78,13 @@ public class SkinManager {
      * @return Whether the skin is loaded and can be obtained with getSkin(UUID uuid)
      */
     public static boolean isSkinLoaded(UUID uuid) {
-        if (savedSkins.containsKey(uuid)) {
+        if (uuid.equals(DataManager.GLOBAL_SERVER_ID))
+            // the server always uses the missing skin
+            return true;
+        PlayerSkin playerSkin = savedSkins.get(uuid);
+        if (playerSkin != null) {
             // check if the skin is missing
-            if (isMissingSkin(savedSkins.get(uuid)) && !uuid.equals(DataManager.GLOBAL_SERVER_ID) && (!requestCooldown.containsKey(uuid) || requestCooldown.get(uuid) < System.currentTimeMillis())) {
+            if (isMissingSkin(playerSkin) && (!requestCooldown.containsKey(uuid) || requestCooldown.get(uuid) < System.currentTimeMillis())) {
                 // Skin is missing. Send a request to load the skin again if the uuid isn't on a cooldown
                 savedSkins.remove(uuid);
                 saveSkin(uuid);
@@ -93,9 +102,25 @@ public class SkinManager {
      * @return The player's skin information.
      */
     public static PlayerSkin getSkin(UUID uuid) {
-        if (!savedSkins.containsKey(uuid))
+        PlayerSkin playerSkin = savedSkins.peek(uuid);
+        if (playerSkin == null)
             return missingSkin;
-        return savedSkins.get(uuid);
+        return playerSkin;
+    }
+
+    /**
+     * Get the skin from a player once it is loaded. If the skin isn't loaded, a request will be made to load it.
+     * @param uuid UUID of the player
+     * @return A future that completes with the player's skin, or the missing skin if it couldn't be loaded.
+     */
+    public static CompletableFuture<PlayerSkin> getSkinAsync(UUID uuid) {
+        if (isSkinLoaded(uuid))
+            return CompletableFuture.completedFuture(getSkin(uuid));
+        CompletableFuture<PlayerSkin> pendingSkin = pendingSkins.get(uuid);
+        if (pendingSkin != null)
+            return pendingSkin;
+        // the request finished already, or the player is on a cooldown
+        return CompletableFuture.completedFuture(getSkin(uuid));
     }
 
     /**
@@ -104,99 +129,173 @@ public class SkinManager {
      * @param uuid UUID of the player
      */
     public static void saveSkin(UUID uuid) {
+        if (uuid.equals(DataManager.GLOBAL_SERVER_ID))
+            return;
         if (requestCooldown.containsKey(uuid) && System.currentTimeMillis() < requestCooldown.get(uuid)) {
             return;
         }
 
         requestCooldown.put(uuid, System.currentTimeMillis() + CONCURRENT_REQUEST_INTERVAL);
         NotBounties.debugMessage("Attempting to save skin for: " + uuid, false);
-        if (savedSkins.containsKey(uuid))
-            return;
+        PlayerSkin savedSkin = savedSkins.peek(uuid);
+        if (savedSkin != null) {
+            if (!isMissingSkin(savedSkin))
+                return;
+            // the skin is requested again
+            savedSkins.remove(uuid);
+        }
         requestSkin(uuid, true);
     }
 
     public static void requestSkin(UUID uuid, boolean firstAttempt) {
-        if (isSafeToRequest()) {
-            SkinResponseHandler.webRequestSkin(uuid, firstAttempt);
-        } else {
-            NotBounties.debugMessage("Too many requests to save skins! Delaying some... ", false);
-            requestLater(uuid);
-        }
-    }
-
-    private static boolean isSafeToRequest(){
-        List<Long> rateLimitCopy = new ArrayList<>(rateLimit);
-        // remove on main thread
-        new BukkitRunnable() {
-            @Override
-            public void run() {
-                rateLimit.removeIf(l -> l < System.currentTimeMillis() - 60000); // remove times more than 1 minute ago
-            }
-        }.runTask(NotBounties.getInstance());
-        rateLimitCopy.removeIf(l -> l < System.currentTimeMillis() - 60000);
-        if (rateLimitCopy.size() < 66)
-            return true;
-        long threshold = System.currentTimeMillis() - 5000;
-        int numRecent = (int) rateLimitCopy.stream().mapToLong(l -> l).filter(l -> l > threshold).count(); // get number of requests less than 5 seconds ago
-        return rateLimitCopy.size() < 190 && rateLimitCopy.size() + numRecent < 200;
+        pendingSkins.computeIfAbsent(uuid, key -> new CompletableFuture<>());
+        SkinResponseHandler.webRequestSkin(uuid, firstAttempt);
     }
 
     public static void removeOldData() {
         long currentTime = System.currentTimeMillis();
-        rateLimit.removeIf(l -> l < currentTime - 60000); // remove times more than 1 minute ago
         requestCooldown.entrySet().removeIf(entry -> entry.getValue() < currentTime);
+        // requests that never got a response can be requested again
+        pendingSkins.entrySet().removeIf(entry -> {
+            if (requestCooldown.containsKey(entry.getKey()))
+                return false;
+            entry.getValue().complete(getSkin(entry.getKey()));
+            return true;
+        });
+        savedSkins.removeExpired();
+        savedFaces.removeExpired();
         SkinResponseHandler.checkSleep();
     }
 
     /**
-     * Close the http client used for getting skin requests
+     * Load skins and faces that were saved to a file.
+     * @param file File that the skins were saved to.
      */
-    public static void shutdown() {
-        SkinResponseHandler.closeClient();
-    }
-
-    private static void requestLater(UUID uuid) {
-        if (queuedRequests.isEmpty() && !rateLimit.isEmpty()) {
-            queuedRequests.add(uuid);
-            long nextRequestTime = 70000 - (System.currentTimeMillis() - rateLimit.get(0)); // 10 seconds after the first item in the rate limit expires.
-            new BukkitRunnable() {
-                @Override
-                public void run() {
-                    List<UUID> requests = new ArrayList<>(queuedRequests);
-                    queuedRequests.clear();
-                    for (UUID currentUUID : requests)
-                        isSkinLoaded(currentUUID);
+    public static void loadSkins(File file) {
+        if (!file.exists())
+            return;
+        try (JsonReader reader = new JsonReader(new FileReader(file))) {
+            reader.beginArray();
+            while (reader.hasNext()) {
+                UUID uuid = null;
+                String url = null;
+                String id = null;
+                long time = 0;
+                byte[] face = null;
+                reader.beginObject();
+                while (reader.hasNext()) {
+                    switch (reader.nextName()) {
+                        case "uuid" -> uuid = UUID.fromString(reader.nextString());
+                        case "url" -> url = reader.nextString();
+                        case "id" -> {
+                            // skins saved before ids were checked may have a null id
+                            if (reader.peek() == JsonToken.NULL)
+                                reader.nextNull();
+                            else
+                                id = reader.nextString();
+                        }
+                        case "time" -> time = reader.nextLong();
+                        case "face" -> face = Base64.getDecoder().decode(reader.nextString());
+                        default -> reader.skipValue();
+                    }
                 }
-            }.runTaskLaterAsynchronously(NotBounties.getInstance(), nextRequestTime);
-        } else {
-            queuedRequests.add(uuid);
+                reader.endObject();
+                if (uuid == null || url == null)
+                    continue;
+                savedSkins.put(uuid, new PlayerSkin(new URI(url).toURL(), id), time);
+                if (face != null)
+                    savedFaces.put(uuid, face, time);
+            }
+            reader.endArray();
+        } catch (IOException | URISyntaxException | IllegalArgumentException | IllegalStateException e) {
+            Bukkit.getLogger().warning("[NotBounties] Could not load saved skins.");
+            Bukkit.getLogger().warning(e.toString());
         }
+        NotBounties.debugMessage("Loaded " + savedSkins.size() + " saved skins.", false);
     }
 
-    public static void incrementMojangRate() {
-        new BukkitRunnable() {
-            @Override
-            public void run() {
-                rateLimit.add(System.currentTimeMillis());
+    /**
+     * Save the loaded skins and faces to a file. Missing skins aren't saved, so they will be requested again.
+     * The file is replaced atomically, so a failed save leaves the last saved skins.
+     * @param file File to save the skins to.
+     * @throws IOException If the file couldn't be written to.
+     */
+    public static void saveSkins(File file) throws IOException {
+        Map<UUID, ExpiringCache.Entry<PlayerSkin>> skins = savedSkins.getEntries();
+        Map<UUID, ExpiringCache.Entry<byte[]>> faces = savedFaces.getEntries();
+        DataJournal.writeAtomically(file, writer -> {
+            writer.beginArray();
+            // skins are written from least to most recently used, so they are loaded in the same order
+            for (Map.Entry<UUID, ExpiringCache.Entry<PlayerSkin>> entry : skins.entrySet()) {
+                PlayerSkin playerSkin = entry.getValue().value();
+                if (playerSkin.getUrl() == null || isMissingSkin(playerSkin))
+                    continue;
+                writer.beginObject();
+                writer.name("uuid").value(entry.getKey().toString());
+                writer.name("url").value(playerSkin.getUrl().toString());
+                if (playerSkin.getId() != null)
+                    writer.name("id").value(playerSkin.getId());
+                writer.name("time").value(entry.getValue().time());
+                ExpiringCache.Entry<byte[]> face = faces.get(entry.getKey());
+                if (face != null)
+                    writer.name("face").value(Base64.getEncoder().encodeToString(face.value()));
+                writer.endObject();
             }
-        }.runTask(NotBounties.getInstance());
+            writer.endArray();
+        });
+    }
 
+    public static ExpiringCache<UUID, PlayerSkin> getSavedSkins() {
+        return savedSkins;
+    }
+
+    public static ExpiringCache<UUID, byte[]> getSavedFaces() {
+        return savedFaces;
+    }
+
+    /**
+     * Close the http client used for getting skin requests
+     */
+    public static void shutdown() {
+        SkinResponseHandler.closeClient();
     }
 
     public static void failRequest(UUID uuid) {
         requestCooldown.put(uuid, System.currentTimeMillis() + REQUEST_FAIL_TIMEOUT);
-        savedSkins.computeIfAbsent(uuid, u -> missingSkin);
+        savedSkins.putIfAbsent(uuid, missingSkin);
+        CompletableFuture<PlayerSkin> pendingSkin = pendingSkins.remove(uuid);
+        if (pendingSkin != null)
+            pendingSkin.complete(getSkin(uuid));
     }
 
     public static boolean isMissingSkin(PlayerSkin playerSkin) {
         return Objects.equals(playerSkin.getId(), missingSkin.getId()) && playerSkin.getUrl() == missingSkin.getUrl();
     }
 
+    /**
+     * Get the face of a player's skin once the skin is loaded.
+     * @param uuid UUID of the player
+     * @return A future that completes with the face on an async thread. The face may be null if the texture couldn't
+     * be read.
+     */
+    public static CompletableFuture<BufferedImage> getPlayerFaceAsync(UUID uuid) {
+        return getSkinAsync(uuid).thenApplyAsync(playerSkin -> getPlayerFace(uuid), asyncExecutor);
+    }
+
     public static BufferedImage getPlayerFace(UUID uuid) {
         if (!isSkinLoaded(uuid))
             return null;
+        byte[] savedFace = savedFaces.get(uuid);
+        if (savedFace != null) {
+            try {
+                return ImageIO.read(new ByteArrayInputStream(savedFace));
+            } catch (IOException e) {
+                savedFaces.remove(uuid);
+            }
+        }
         try {
-            URL textureUrl = getSkin(uuid).getUrl();
+            PlayerSkin playerSkin = getSkin(uuid);
+            URL textureUrl = playerSkin.getUrl();
 
             BufferedImage skin = ImageIO.read(textureUrl);
             BufferedImage head = new BufferedImage(64, 64, BufferedImage.TYPE_INT_ARGB);
@@ -209,6 +308,11 @@ public class SkinManager {
                 Bukkit.getLogger().warning(e.toString());
                 return null;
             }
+            if (!isMissingSkin(playerSkin)) {
+                ByteArrayOutputStream png = new ByteArrayOutputStream();
+                ImageIO.write(head, "png", png);
+                savedFaces.put(uuid, png.toByteArray());
+            }
             return head;
 
         } catch (IOException e) {
@@ -262,10 +366,18 @@ enum SkinType {
 
 record SkinRequestType(UUID uuid, SkinType skinType) {}
 
+/**
+ * Sends skin requests with a shared http client.
+ * A limited number of requests are sent at the same time, and requests to Mojang are limited by a token bucket.
+ */
 class SkinResponseHandler {
     private SkinResponseHandler() {}
-    private static BukkitTask client = null;
-    private static final Queue<SkinRequestType> requestQueue = new ConcurrentLinkedQueue<>();
+    private static final int MAX_CONCURRENT_REQUESTS = 4;
+    // Mojang allows 200 requests / min
+    private static final TokenBucket mojangRateLimit = new TokenBucket(10, 180);
+    private static final Set<SkinRequestType> activeRequests = ConcurrentHashMap.newKeySet();
+    private static CloseableHttpClient client = null;
+    private static ExecutorService executor = null;
 
     private static long lastRequest = System.currentTimeMillis();
     private static final long SLEEP_TIME = 10 * 60 * 1000L; // 10 minutes
@@ -273,50 +385,69 @@ class SkinResponseHandler {
     /**
      * Checks if there hasn't been a request in a while. If so, it will close the http client.
      */
-    public static void checkSleep() {
-        if (client != null && System.currentTimeMillis() - lastRequest > SLEEP_TIME) {
+    public static synchronized void checkSleep() {
+        if (client != null && activeRequests.isEmpty() && System.currentTimeMillis() - lastRequest > SLEEP_TIME) {
             closeClient();
         }
     }
 
-    public static void closeClient(){
+    public static synchronized void closeClient(){
+        if (executor != null) {
+            executor.shutdownNow();
+            executor = null;
+        }
         if (client != null) {
-            client.cancel();
+            try {
+                client.close();
+            } catch (IOException e) {
+                NotBounties.debugMessage("Error closing http client: " + e, true);
+            }
             client = null;
             NotBounties.debugMessage("Http client has been closed.", false);
         }
+        activeRequests.clear();
     }
 
     private static void createClient() {
         if (client != null)
             return;
         NotBounties.debugMessage("Creating new skin request client.", false);
-        client = new BukkitRunnable() {
-            @Override
-            public void run() {
-                if (requestQueue.isEmpty())
-                    return;
-                UUID uuid = null;
-                try (final CloseableHttpClient httpclient = HttpClients.createDefault()) {
-                    SkinRequestType skinRequestType = requestQueue.poll();
-                    while (skinRequestType != null) {
-                        uuid = skinRequestType.uuid();
-                        PlayerSkin playerSkin = requestPlayerSkin(skinRequestType, httpclient);
-                        // a null player skin means it was requested using skinsrestorer
-                        if (playerSkin != null) {
-                            SkinManager.saveSkin(uuid, playerSkin);
-                        }
-                        skinRequestType = requestQueue.poll();
-                    }
-                } catch(IOException e){
-                    // skin request fail
-                    SkinManager.failRequest(uuid);
-                    NotBounties.debugMessage("Failed to request skin: " + uuid, true);
-                    NotBounties.debugMessage(e.toString(), true);
+        client = HttpClients.custom()
+                .setConnectionManager(PoolingHttpClientConnectionManagerBuilder.create()
+                        .setMaxConnTotal(MAX_CONCURRENT_REQUESTS)
+                        .setMaxConnPerRoute(MAX_CONCURRENT_REQUESTS)
+                        .build())
+                .build();
+        executor = Executors.newFixedThreadPool(MAX_CONCURRENT_REQUESTS, runnable -> {
+            Thread thread = new Thread(runnable, "NotBounties Skin Request");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    private static void sendRequest(SkinRequestType skinRequestType) {
+        if (!activeRequests.add(skinRequestType))
+            // this request is already being sent
+            return;
+        CloseableHttpClient httpClient = client;
+        executor.execute(() -> {
+            UUID uuid = skinRequestType.uuid();
+            try {
+                PlayerSkin playerSkin = requestPlayerSkin(skinRequestType, httpClient);
+                // a null player skin means it was requested using skinsrestorer
+                if (playerSkin != null) {
+                    SkinManager.saveSkin(uuid, playerSkin);
                 }
+            } catch (IOException | RuntimeException e) {
+                // skin request fail
+                SkinManager.failRequest(uuid);
+                NotBounties.debugMessage("Failed to request skin: " + uuid, true);
+                NotBounties.debugMessage(e.toString(), true);
+            } finally {
+                activeRequests.remove(skinRequestType);
                 setLastRequest();
             }
-        }.runTaskTimerAsynchronously(NotBounties.getInstance(), 0, 3);
+        });
     }
 
     private static @Nullable PlayerSkin requestPlayerSkin(SkinRequestType skinRequestType, CloseableHttpClient httpClient) throws IOException {
@@ -340,18 +471,18 @@ class SkinResponseHandler {
         lastRequest = System.currentTimeMillis();
     }
 
-    protected static void webRequestSkin(UUID uuid, boolean firstAttempt){
+    protected static synchronized void webRequestSkin(UUID uuid, boolean firstAttempt){
         if (client == null)
             createClient();
         if (ConfigOptions.skinsRestorerEnabled && firstAttempt) {
-            requestQueue.add(new SkinRequestType(uuid, SkinType.SKINSRESTORER));
+            sendRequest(new SkinRequestType(uuid, SkinType.SKINSRESTORER));
         } else if (NotBounties.isBedrockPlayer(uuid)) {
-            requestQueue.add(new SkinRequestType(uuid, SkinType.BEDROCK));
+            sendRequest(new SkinRequestType(uuid, SkinType.BEDROCK));
         } else {
             if (uuid.version() == 4)
-                requestQueue.add(new SkinRequestType(uuid, SkinType.JAVA));
+                sendRequest(new SkinRequestType(uuid, SkinType.JAVA));
             else
-                requestQueue.add(new SkinRequestType(uuid, SkinType.USERNAME));
+                sendRequest(new SkinRequestType(uuid, SkinType.USERNAME));
         }
     }
 
@@ -379,7 +510,7 @@ class SkinResponseHandler {
     }
 
     private static PlayerSkin saveJavaSkin(CloseableHttpClient httpClient, UUID requestUUID, boolean tryNamed) throws IOException {
-        SkinManager.incrementMojangRate();
+        mojangRateLimit.acquire();
 
         final HttpGet request = new HttpGet("https://sessionserver.mojang.com/session/minecraft/profile/" + requestUUID);
 
@@ -406,7 +537,7 @@ class SkinResponseHandler {
 
 
     private static PlayerSkin saveNamedSkin(CloseableHttpClient httpClient, UUID uuid) throws IOException {
-        SkinManager.incrementMojangRate();
+        mojangRateLimit.acquire();
         String playerName = LoggedPlayers.getPlayerName(uuid);
         if (playerName.length() > 24) {
             // not a valid length
@@ -444,3 +575,55 @@ class SkinResponseHandler {
         });
     }
 }
+
+/**
+ * Limits the rate of requests. Tokens are refilled at a constant rate, and a request takes one token.
+ */
+class TokenBucket {
+    private final int capacity;
+    private final double tokensPerMs;
+    private double tokens;
+    private long lastRefill = System.currentTimeMillis();
+
+    /**
+     * Create a new token bucket that starts full.
+     * @param capacity The maximum number of requests that can be sent at once.
+     * @param tokensPerMinute The number of requests that can be sent every minute.
+     */
+    TokenBucket(int capacity, int tokensPerMinute) {
+        this.capacity = capacity;
+        this.tokensPerMs = tokensPerMinute / 60000.0;
+        this.tokens = capacity;
+    }
+
+    /**
+     * Take a token, waiting until one is available.
+     * @throws InterruptedIOException If the thread was interrupted while waiting.
+     */
+    void acquire() throws InterruptedIOException {
+        long wait;
+        while ((wait = tryAcquire()) > 0) {
+            try {
+                Thread.sleep(wait);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting to send a request.");
+            }
+        }
+    }
+
+    /**
+     * Take a token if one is available.
+     * @return 0 if a token was taken, or the time in milliseconds until the next token is available.
+     */
+    private synchronized long tryAcquire() {
+        long now = System.currentTimeMillis();
+        tokens = Math.min(capacity, tokens + (now - lastRefill) * tokensPerMs);
+        lastRefill = now;
+        if (tokens >= 1) {
+            tokens--;
+            return 0;
+        }
+        return (long) Math.ceil((1 - tokens) / tokensPerMs);
+    }
+}
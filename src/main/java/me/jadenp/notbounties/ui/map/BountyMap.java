@@ -322,7 +322,7 @@ public class BountyMap implements Listener {
         } else {
             playerFont = new Font("Serif", Font.PLAIN, 20);
         }
-
+        Renderer.clearCache();
     }
 
     public static Font getPlayerFont(float fontSize, boolean bold) {
@@ -26,13 +26,45 @@ import java.awt.*;
 import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.IOException;
-import java.util.HashMap;
-import java.util.Map;
-import java.util.UUID;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
 
 public class Renderer extends MapRenderer {
-    private BufferedImage image = null;
-    private final BufferedImage reward = new BufferedImage(128, 14, BufferedImage.TYPE_INT_ARGB);
+    private static final int SIZE = 128;
+    private static final int REWARD_Y = 114;
+    private static final int MAX_CACHED_REWARDS = 64;
+    /**
+     * Rendered reward lines as pixels, keyed by the reward text.
+     */
+    private static final Map<String, int[]> rewardCache = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, int[]> eldest) {
+            return size() > MAX_CACHED_REWARDS;
+        }
+    });
+    private static int[] deadBountyPixels = null;
+
+    private volatile BufferedImage image = null;
+    /**
+     * The pixels of the poster image. Opaque pixels are stored as ARGB with full alpha, and transparent pixels are 0.
+     */
+    private volatile int[] posterPixels = null;
+    /**
+     * The pixels that were last drawn to the canvas.
+     */
+    private final int[] drawnPixels = new int[SIZE * SIZE];
+    /**
+     * Colors drawn with setPixelColor on 1.19+, keyed by ARGB.
+     */
+    private final Map<Integer, Color> colors = new HashMap<>();
+    /**
+     * Map colors drawn with setPixel before 1.19, keyed by ARGB.
+     */
+    private final Map<Integer, Byte> matchedColors = new HashMap<>();
+    // the reward text is parsed again when the text or the bounty data changes
+    private String rewardTemplate = null;
+    private long rewardRevision = -1;
+    private String parsedReward = null;
     private static final float maxFont = 20f;
     private double currentCost = -1;
     private final OfflinePlayer player;
@@ -52,7 +84,9 @@ public class Renderer extends MapRenderer {
         File imageFile = new File(BountyMap.posterDirectory + File.separator + name.toLowerCase() + ".png");
         if (ConfigOptions.saveTemplates && imageFile.exists()) {
             try {
-                image = ImageIO.read(imageFile);
+                BufferedImage savedImage = ImageIO.read(imageFile);
+                posterPixels = toPixels(savedImage, SIZE);
+                image = savedImage;
             } catch (IOException e) {
                 Bukkit.getLogger().warning(e.toString());
             }
@@ -64,38 +98,28 @@ public class Renderer extends MapRenderer {
                 if (Bukkit.getOnlinePlayers().isEmpty())
                     return;
                 this.cancel();
-                new BukkitRunnable() {
-                    int maxRequests = 50;
-                    @Override
-                    public void run() {
-                        // check if max requests hit
-                        if (maxRequests <= 0) {
-                            this.cancel();
+                SkinManager.getPlayerFaceAsync(uuid).orTimeout(10, TimeUnit.SECONDS).whenComplete((face, throwable) -> {
+                    if (throwable == null) {
+                        renderPoster(face, name, true);
+                        return;
+                    }
+                    // render on an async thread instead of the thread that timed out the request
+                    new BukkitRunnable() {
+                        @Override
+                        public void run() {
                             if (NotBounties.debug)
-                                new BukkitRunnable() {
-                                    @Override
-                                    public void run() {
-                                        Bukkit.getLogger().warning("[NotBounties] Timed out getting skin from \"" + name + "\" for a bounty poster. A question mark will be displayed instead.");
-                                    }
-                                }.runTask(NotBounties.getInstance());
+                                Bukkit.getLogger().warning("[NotBounties] Timed out getting skin from \"" + name + "\" for a bounty poster. A question mark will be displayed instead.");
                             renderPoster(SkinManager.getPlayerFace(DataManager.GLOBAL_SERVER_ID), name, false);
-                            return;
                         }
-                        maxRequests--;
-                        if (!SkinManager.isSkinLoaded(uuid))
-                            return;
-                        renderPoster(SkinManager.getPlayerFace(uuid), name, true);
-                        this.cancel();
-                    }
-                }.runTaskTimerAsynchronously(NotBounties.getInstance(),10,4);
+                    }.runTaskAsynchronously(NotBounties.getInstance());
+                });
             }
         }.runTaskTimer(NotBounties.getInstance(), 0, 40);
 
     }
 
     private void renderPoster(BufferedImage head, String name, boolean save) {
-        if (image == null)
-            image = BountyMap.deepCopy(BountyMap.bountyPoster);
+        BufferedImage image = this.image == null ? BountyMap.deepCopy(BountyMap.bountyPoster) : this.image;
         Graphics2D graphics = image.createGraphics();
         graphics.drawImage(head, 32, 32, null);
 
@@ -125,6 +149,8 @@ public class Renderer extends MapRenderer {
         }
 
         graphics.dispose();
+        posterPixels = toPixels(image, SIZE);
+        this.image = image;
 
         File imageFile = new File(BountyMap.posterDirectory + File.separator + name.toLowerCase() + ".png");
 
@@ -146,33 +172,64 @@ public class Renderer extends MapRenderer {
         return 0;
     }
 
-    private Color getColor(int argb) {
-        int b = (argb)&0xFF;
-        int g = (argb>>8)&0xFF;
-        int r = (argb>>16)&0xFF;
-        int a = (argb>>24)&0xFF;
-        return new Color(r,g,b,a);
+    /**
+     * Convert an image to pixels that can be drawn on a frame.
+     * Pixels that are mostly transparent are converted to 0, so they won't be drawn.
+     * @param image Image to convert.
+     * @param height Number of rows to convert.
+     * @return The pixels of the image in rows of 128 pixels.
+     */
+    private static int[] toPixels(BufferedImage image, int height) {
+        int[] pixels = new int[SIZE * height];
+        int width = Math.min(image.getWidth(), SIZE);
+        height = Math.min(image.getHeight(), height);
+        int[] argb = image.getRGB(0, 0, width, height, null, 0, width);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int color = argb[y * width + x];
+                if ((color >>> 24) > 10)
+                    pixels[y * SIZE + x] = color | 0xFF000000;
+            }
+        }
+        return pixels;
+    }
+
+    /**
+     * Draw pixels on top of a frame. Pixels with a value of 0 aren't drawn.
+     */
+    private static void drawPixels(int[] frame, int x, int y, int[] pixels, int width) {
+        for (int i = 0; i < pixels.length; i++) {
+            int px = x + i % width;
+            int py = y + i / width;
+            if (pixels[i] != 0 && px < SIZE && py < SIZE)
+                frame[py * SIZE + px] = pixels[i];
+        }
     }
 
-    private void drawTransparentImage(int x, int y, BufferedImage image, MapCanvas canvas) {
-        for (int ix = 0; ix < Math.min(image.getWidth(), 128 - x); ix++) {
-            for (int iy = 0; iy < Math.min(image.getHeight(), 128 - y); iy++) {
-                Color color = getColor(image.getRGB(ix, iy));
-                if (color.getAlpha() > 10) {
-                    if (NotBounties.serverVersion >= 19)
-                        canvas.setPixelColor(x + ix, y + iy, color);
-                    else
-                        canvas.setPixel(x + ix, y + iy, MapPalette.matchColor(color));
+    /**
+     * Remove the cached reward lines and dead bounty overlay.
+     * This should be called when the fonts are reloaded.
+     */
+    public static void clearCache() {
+        rewardCache.clear();
+        synchronized (Renderer.class) {
+            deadBountyPixels = null;
+        }
+    }
 
-                }
-            }
+    private static synchronized int[] getDeadBountyPixels() {
+        if (deadBountyPixels == null) {
+            // stored with the full map width so it can be drawn like the other layers
+            deadBountyPixels = toPixels(BountyMap.deadBounty, BountyMap.deadBounty.getHeight());
         }
+        return deadBountyPixels;
     }
 
 
     @Override
     public void render(@NotNull MapView map, @NotNull MapCanvas canvas, @NotNull Player renderer) {
-        if (image == null)
+        int[] poster = posterPixels;
+        if (poster == null)
             return;
         if (!map.isLocked() || currentCost == -1) {
             if (System.currentTimeMillis() - lastRender < ConfigOptions.updateInterval)
@@ -182,39 +239,22 @@ public class Renderer extends MapRenderer {
             if (currentCost != bountyAmount || ConfigOptions.alwaysUpdate) {
                 // redraw canvas
                 currentCost = bountyAmount;
-                drawTransparentImage(0, 0, image, canvas);
+                int[] frame = poster.clone();
                 if (ConfigOptions.displayReward) {
-                    Graphics2D graphics = reward.createGraphics();
-                    graphics.setComposite(AlphaComposite.Clear);
-                    graphics.fillRect(0, 0, reward.getWidth(), reward.getHeight());
-                    graphics.setComposite(AlphaComposite.Src);
                     String rewardText = ConfigOptions.rewardText;
                     String bountyText = ConfigOptions.currencyWrap ? NumberFormatting.currencyPrefix + NumberFormatting.formatNumber(currentCost) + NumberFormatting.currencySuffix : NumberFormatting.formatNumber(currentCost);
                     rewardText = rewardText.replace("{reward}", (bountyText));
-                    rewardText = LanguageOptions.parse(rewardText, player);
-                    rewardText = ChatColor.translateAlternateColorCodes('&', rewardText);
-
-
-                    int y = 12;
-                    if (BackupFontManager.isUsingTraditionalFont()) {
-                        try {
-                            int x = 64 - setBiggestFontSize(graphics, rewardText, false, rewardFont) / 2;
-                            drawColors(rewardText, graphics, x, y);
-                        } catch (Throwable throwable) {
-                            Bukkit.getLogger().warning("[NotBounties] Unable to access font configuration on this system. Reverting to backup font!");
-                            BackupFontManager.loadBackupFonts();
-                            int x = 64 - BackupFontManager.getRewardLine().getWidth(rewardText) / 2;
-                            BackupFontManager.getRewardLine().drawText(reward, x, y, rewardText);
-                        }
-                    } else {
-                        int x = 64 - BackupFontManager.getRewardLine().getWidth(rewardText) / 2;
-                        BackupFontManager.getRewardLine().drawText(reward, x, y, rewardText);
-                    }
-                    drawTransparentImage(0, 114, reward, canvas);
-                    graphics.dispose();
+                    drawPixels(frame, 0, REWARD_Y, rewardCache.computeIfAbsent(parseReward(rewardText), this::renderReward), SIZE);
                 }
                 if (currentCost == 0) {
-                    drawTransparentImage(28,28, BountyMap.deadBounty, canvas);
+                    drawPixels(frame, 28, 28, getDeadBountyPixels(), SIZE);
+                }
+                // only draw the pixels that changed since the last render
+                for (int i = 0; i < frame.length; i++) {
+                    if (frame[i] != drawnPixels[i]) {
+                        drawPixel(canvas, i % SIZE, i / SIZE, frame[i]);
+                        drawnPixels[i] = frame[i];
+                    }
                 }
             }
         }
@@ -223,6 +263,63 @@ public class Renderer extends MapRenderer {
 
     }
 
+    /**
+     * Parse the placeholders in the reward text. The parsed text is reused until the text or the bounty data changes.
+     * Text with PlaceholderAPI placeholders is always parsed, because those placeholders can change at any time.
+     * @param rewardText The reward text with the reward filled in.
+     * @return The parsed reward text.
+     */
+    private String parseReward(String rewardText) {
+        long revision = DataManager.getLocalData().getRevision();
+        if (ConfigOptions.papiEnabled || parsedReward == null || revision != rewardRevision || !rewardText.equals(rewardTemplate)) {
+            rewardTemplate = rewardText;
+            rewardRevision = revision;
+            parsedReward = ChatColor.translateAlternateColorCodes('&', LanguageOptions.parse(rewardText, player));
+        }
+        return parsedReward;
+    }
+
+    /**
+     * Draw a pixel on the canvas. Colors are drawn directly on 1.19+, and matched to the map palette on older versions.
+     * @param argb The pixel to draw, or 0 to draw the base pixel.
+     */
+    @SuppressWarnings("deprecation")
+    private void drawPixel(MapCanvas canvas, int x, int y, int argb) {
+        if (NotBounties.serverVersion >= 19) {
+            canvas.setPixelColor(x, y, argb == 0 ? canvas.getBasePixelColor(x, y) : colors.computeIfAbsent(argb, Color::new));
+        } else {
+            // poster images use few colors, so the matched colors are remembered
+            canvas.setPixel(x, y, argb == 0 ? canvas.getBasePixel(x, y) : matchedColors.computeIfAbsent(argb, rgb -> MapPalette.matchColor(new Color(rgb))));
+        }
+    }
+
+    /**
+     * Render the reward line.
+     * @param rewardText Text to be displayed.
+     * @return The pixels of the reward line.
+     */
+    private int[] renderReward(String rewardText) {
+        BufferedImage reward = new BufferedImage(SIZE, SIZE - REWARD_Y, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D graphics = reward.createGraphics();
+        int y = 12;
+        if (BackupFontManager.isUsingTraditionalFont()) {
+            try {
+                int x = 64 - setBiggestFontSize(graphics, rewardText, false, rewardFont) / 2;
+                drawColors(rewardText, graphics, x, y);
+            } catch (Throwable throwable) {
+                Bukkit.getLogger().warning("[NotBounties] Unable to access font configuration on this system. Reverting to backup font!");
+                BackupFontManager.loadBackupFonts();
+                int x = 64 - BackupFontManager.getRewardLine().getWidth(rewardText) / 2;
+                BackupFontManager.getRewardLine().drawText(reward, x, y, rewardText);
+            }
+        } else {
+            int x = 64 - BackupFontManager.getRewardLine().getWidth(rewardText) / 2;
+            BackupFontManager.getRewardLine().drawText(reward, x, y, rewardText);
+        }
+        graphics.dispose();
+        return toPixels(reward, SIZE - REWARD_Y);
+    }
+
     /**
      * Sets the size of the font in the graphics to be biggest it can between 1 and rewardFont
      * @param graphics The graphics to display the font with
@@ -289,8 +289,9 @@ public class BountyManager {
 
     public static List<Bounty> getPublicBounties(int sortType) {
         List<Bounty> bounties = DataManager.getAllBounties(sortType);
-        bounties.removeIf(bounty -> hiddenNames.contains(bounty.getName()));
-        return bounties;
+        if (hiddenNames.isEmpty())
+            return bounties;
+        return bounties.stream().filter(bounty -> !hiddenNames.contains(bounty.getName())).toList();
     }
 
     public static List<Bounty> getAllBounties(int sortType) {
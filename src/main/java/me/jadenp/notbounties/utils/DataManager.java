@@ -6,6 +6,8 @@ import com.google.gson.stream.JsonReader;
 import me.jadenp.notbounties.*;
 import me.jadenp.notbounties.data.*;
 import me.jadenp.notbounties.databases.AsyncDatabaseWrapper;
+import me.jadenp.notbounties.databases.ChangeFeed;
+import me.jadenp.notbounties.databases.DataJournal;
 import me.jadenp.notbounties.databases.LocalData;
 import me.jadenp.notbounties.databases.NotBountiesDatabase;
 import me.jadenp.notbounties.databases.TempDatabase;
@@ -55,6 +57,7 @@ public class DataManager {
     private static final List<AsyncDatabaseWrapper> databases = new ArrayList<>();
 
     private static LocalData localData; // locally stored bounties and stats
+    private static DataJournal dataJournal; // saves the local bounties and stats
     private static UUID databaseServerID = UUID.randomUUID();
     public static final long CONNECTION_REMEMBRANCE_MS = (long) 2.592e+8; // how long before databases stop storing changes if no connection was made (3 days)
     public static final UUID GLOBAL_SERVER_ID = new UUID(0,0);
@@ -65,53 +68,14 @@ public class DataManager {
         localData = new LocalData();
         loadOldData();
         readPlayerData(plugin);
-        readBounties(plugin);
-        readStats(plugin);
+        dataJournal = new DataJournal(new File(plugin.getDataFolder() + File.separator + "data"));
+        dataJournal.load(localData);
         // load player data for immunity
         // currently this is just for time immunity
         Immunity.loadPlayerData();
 
     }
 
-    private static void readStats(Plugin plugin) throws IOException {
-        File statsFile = new File(plugin.getDataFolder() + File.separator + "data" + File.separator + "player_stats.json");
-        if (!statsFile.exists())
-            return;
-        try (JsonReader reader = new JsonReader(new FileReader(statsFile))) {
-            reader.beginArray();
-            PlayerStatAdapter adapter = new PlayerStatAdapter();
-            while (reader.hasNext()) {
-                reader.beginObject();
-                UUID uuid = null;
-                PlayerStat playerStat = null;
-                while (reader.hasNext()) {
-                    String name = reader.nextName();
-                    if (name.equals("uuid"))
-                        uuid = UUID.fromString(reader.nextString());
-                    else if (name.equals("stats"))
-                        playerStat = adapter.read(reader);
-                }
-                reader.endObject();
-                localData.addStats(uuid, playerStat);
-            }
-            reader.endArray();
-        }
-    }
-
-    private static void readBounties(Plugin plugin) throws IOException {
-        File bountiesFile = new File(plugin.getDataFolder() + File.separator + "data" + File.separator + "bounties.json");
-        if (!bountiesFile.exists())
-            return;
-        try (JsonReader reader = new JsonReader(new FileReader(bountiesFile))) {
-            reader.beginArray();
-            BountyTypeAdapter adapter = new BountyTypeAdapter();
-            while (reader.hasNext()) {
-                localData.addBounty(adapter.read(reader));
-            }
-            reader.endArray();
-        }
-    }
-
     private static void readPlayerData(Plugin plugin) throws IOException {
         ChallengeManager.setNextChallengeChange(1); // prepare new challenges if the last challenge change wasn't read
         File playerDataFile = new File(plugin.getDataFolder() + File.separator + "data" + File.separator + "player_data.json");
@@ -139,7 +103,8 @@ public class DataManager {
                             RandomBounties.setNextRandomBounty();
                         }
                     }
-                    case "nextTimedBounties" -> TimedBounties.setNextBounties(readTimedBounties(reader));
+                    case "nextTimedBounties" -> TimedBounties.setNextBounties(readPlayerTimes(reader));
+                    case "timeImmunity" -> Immunity.setRemainingTimes(readPlayerTimes(reader));
                     case "bountyBoards" -> BountyBoard.addBountyBoards(readBountyBoards(reader));
                     case "nextChallengeChange" -> ChallengeManager.setNextChallengeChange(reader.nextLong());
                     case "serverID" -> databaseServerID = UUID.fromString(reader.nextString());
@@ -237,7 +202,7 @@ public class DataManager {
         return map;
     }
 
-    private static Map<UUID, Long> readTimedBounties(JsonReader reader) throws IOException {
+    private static Map<UUID, Long> readPlayerTimes(JsonReader reader) throws IOException {
         Map<UUID, Long> timedBounties = new HashMap<>();
         reader.beginArray();
         while (reader.hasNext()) {
@@ -294,6 +259,19 @@ public class DataManager {
         return localData;
     }
 
+    /**
+     * Save the local bounties and stats that changed since the last save.
+     * @param compact Whether all the local bounties and stats should be written.
+     * @throws IOException If the data couldn't be saved.
+     */
+    public static void saveLocalData(boolean compact) throws IOException {
+        dataJournal.save(localData, compact);
+    }
+
+    public static DataJournal getDataJournal() {
+        return dataJournal;
+    }
+
     public static void connectProxy(List<Bounty> bounties, Map<UUID, PlayerStat> playerStatMap) {
         // turn local data into proxy database
         new BukkitRunnable() {
@@ -301,7 +279,7 @@ public class DataManager {
             public void run() {
                 for (AsyncDatabaseWrapper database : databases) {
                     if (database.getDatabase() instanceof ProxyDatabase) {
-                        syncDatabase(database.getDatabase(), bounties, playerStatMap);
+                        syncDatabase(database.getDatabase(), bounties, playerStatMap, null);
                     }
                 }
             }
@@ -689,27 +667,22 @@ public class DataManager {
     }
 
     public static @Nullable Bounty getBounty(UUID receiver) {
-        for (Bounty bounty : localData.getAllBounties(-1)) {
-            if (bounty.getUUID().equals(receiver)) {
-                return bounty;
-            }
-        }
-        return null;
+        return localData.getBounty(receiver);
     }
 
     public static boolean hasBounty(UUID receiver) {
-            return getBounty(receiver) != null;
+            return localData.hasBounty(receiver);
     }
 
     /**
-     * Get a copy of all bounties on the server.
+     * Get all bounties on the server.
      * @param sortType
      *   <p>-1 : unsorted</p>
-     *   <p> 0 : newer bounties at top</p>
-     *   <p> 1 : older bounties at top</p>
+     *   <p> 0 : older bounties at top</p>
+     *   <p> 1 : newer bounties at top</p>
      *   <p> 2 : more expensive bounties at top</p>
      *   <p> 3 : less expensive bounties at top</p>
-     * @return A copy of all bounties on the server.
+     * @return An unmodifiable list of all bounties on the server.
      */
     public static List<Bounty> getAllBounties(int sortType) {
         return sortBounties(sortType);
@@ -1063,8 +1036,12 @@ public class DataManager {
             public void run() {
                 List<Bounty> databaseBounties;
                 Map<UUID, PlayerStat> databaseStats;
+                String changeCursor = null;
 
                 try {
+                    // read the cursor before the data, so changes during the read are read again next refresh
+                    if (database instanceof ChangeFeed changeFeed && changeFeed.isChangeFeedEnabled())
+                        changeCursor = changeFeed.getChangeCursor();
                     databaseBounties = database.getAllBounties(2);
                     databaseStats = database.getAllStats();
                 } catch (IOException e) {
@@ -1072,12 +1049,12 @@ public class DataManager {
                     return;
                 }
 
-                syncDatabase(database, databaseBounties, databaseStats);
+                syncDatabase(database, databaseBounties, databaseStats, changeCursor);
             }
         }.runTaskAsynchronously(NotBounties.getInstance());
     }
 
-    private static void syncDatabase(NotBountiesDatabase database, List<Bounty> databaseBounties, Map<UUID, PlayerStat> databaseStats) {
+    private static void syncDatabase(NotBountiesDatabase database, List<Bounty> databaseBounties, Map<UUID, PlayerStat> databaseStats, @Nullable String changeCursor) {
         AsyncDatabaseWrapper databaseWrapper = null;
         for (AsyncDatabaseWrapper asyncDatabaseWrapper : databases) {
             if (asyncDatabaseWrapper.getName().equals(database.getName())) {
@@ -1111,6 +1088,7 @@ public class DataManager {
         long lastSyncTime = database.getLastSync();// get last sync time
         database.setLastSync(System.currentTimeMillis());
 
+        long reconcileStart = System.currentTimeMillis();
         List<Bounty>[] dataChanges = Inconsistent.getAsyncronousObjects(localBounties, databaseBounties, lastSyncTime);
         // these bounties should be added/removed to local data
         List<Bounty> databaseAdded = dataChanges[0];
@@ -1123,8 +1101,9 @@ public class DataManager {
         localData.removeBounty(databaseRemoved);
         databaseWrapper.addBounty(localAdded);
         databaseWrapper.removeBounty(localRemoved);
+        databaseWrapper.setChangeCursor(changeCursor);
 
-        NotBounties.debugMessage("Since last sync: databaseAdded=" + databaseAdded.size() + " databaseRemoved=" + databaseRemoved.size() + " localAdded=" + localAdded.size() + " localRemoved=" + localRemoved.size(), false);
+        NotBounties.debugMessage("Since last sync (" + (System.currentTimeMillis() - reconcileStart) + "ms): databaseAdded=" + databaseAdded.size() + " databaseRemoved=" + databaseRemoved.size() + " localAdded=" + localAdded.size() + " localRemoved=" + localRemoved.size(), false);
 
         if (lastSyncTime == 0) {
             // never sunk
@@ -0,0 +1,153 @@
+package me.jadenp.notbounties.utils;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.util.*;
+import java.util.function.BiPredicate;
+
+/**
+ * A thread safe cache that holds a limited number of values for a limited time.
+ * When the cache is full, the value that was used least recently is removed.
+ * @param <K> Key type.
+ * @param <V> Value type.
+ */
+public class ExpiringCache<K, V> {
+
+    /**
+     * A cached value.
+     * @param value The value.
+     * @param time The time in milliseconds when the value was cached.
+     */
+    public record Entry<V>(V value, long time) {}
+
+    private final int maxSize;
+    private final long expireTime;
+    private final LinkedHashMap<K, Entry<V>> entries;
+    private long hits = 0;
+    private long misses = 0;
+
+    /**
+     * Create a new cache.
+     * @param maxSize The maximum number of values in the cache.
+     * @param expireTime How long a value can be used in milliseconds.
+     */
+    public ExpiringCache(int maxSize, long expireTime) {
+        this.maxSize = maxSize;
+        this.expireTime = expireTime;
+        entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, Entry<V>> eldest) {
+                return size() > ExpiringCache.this.maxSize;
+            }
+        };
+    }
+
+    /**
+     * Get a value and record a hit or miss.
+     * @param key Key of the value.
+     * @return The value, or null if it isn't cached or has expired.
+     */
+    public synchronized @Nullable V get(K key) {
+        V value = peek(key);
+        if (value == null)
+            misses++;
+        else
+            hits++;
+        return value;
+    }
+
+    /**
+     * Get a value without recording a hit or miss.
+     * @param key Key of the value.
+     * @return The value, or null if it isn't cached or has expired.
+     */
+    public synchronized @Nullable V peek(K key) {
+        Entry<V> entry = entries.get(key);
+        if (entry == null)
+            return null;
+        if (isExpired(entry)) {
+            entries.remove(key);
+            return null;
+        }
+        return entry.value();
+    }
+
+    public synchronized boolean containsKey(K key) {
+        return peek(key) != null;
+    }
+
+    public synchronized void put(K key, V value) {
+        entries.put(key, new Entry<>(value, System.currentTimeMillis()));
+    }
+
+    /**
+     * Add a value if there isn't a value for the key already.
+     * @param key Key of the value.
+     * @param value The value.
+     */
+    public synchronized void putIfAbsent(K key, V value) {
+        if (peek(key) == null)
+            put(key, value);
+    }
+
+    /**
+     * Add a value that was cached at an earlier time, such as a value that was saved to a file.
+     * Expired values aren't added.
+     * @param key Key of the value.
+     * @param value The value.
+     * @param time The time in milliseconds when the value was cached.
+     */
+    public synchronized void put(K key, V value, long time) {
+        Entry<V> entry = new Entry<>(value, time);
+        if (!isExpired(entry))
+            entries.put(key, entry);
+    }
+
+    public synchronized @Nullable V remove(K key) {
+        Entry<V> entry = entries.remove(key);
+        return entry == null ? null : entry.value();
+    }
+
+    /**
+     * Remove the values that match a condition.
+     * @param filter Returns true for the keys and values that should be removed.
+     */
+    public synchronized void removeIf(BiPredicate<K, V> filter) {
+        entries.entrySet().removeIf(entry -> filter.test(entry.getKey(), entry.getValue().value()));
+    }
+
+    /**
+     * Remove the values that have expired.
+     */
+    public synchronized void removeExpired() {
+        entries.values().removeIf(this::isExpired);
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * Get a copy of the cached values, from least recently used to most recently used.
+     * @return The cached values and the time they were cached.
+     */
+    public synchronized Map<K, Entry<V>> getEntries() {
+        return new LinkedHashMap<>(entries);
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    private boolean isExpired(Entry<V> entry) {
+        return System.currentTimeMillis() - entry.time() > expireTime;
+    }
+}
@@ -2,9 +2,9 @@ package me.jadenp.notbounties.utils;
 
 import org.bukkit.Bukkit;
 
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.List;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.*;
 
 /**
  * This describes data that could be changed elsewhere unknowingly.
@@ -47,31 +47,55 @@ public interface Inconsistent {
     void setSubElements(List<Inconsistent> subElements);
 
     /**
-     * Searches for an item starting at the specified index.
-     * @param identifier Identifier of the item to search for
-     * @param items List of items to search through.
-     * @param index Center of the search.
-     * @return Index of the item that was found, or -1 if no item was found
+     * Inconsistent items mapped by their identifier, so matching items can be found without searching a list.
+     * Items with duplicate identifiers are matched in the order they were added.
+     * @param <T> An inconsistent object.
      */
-    private static int indexSearch(String identifier, List<? extends Inconsistent> items, int index) {
-        if (items.isEmpty())
-            return -1;
-        if (index >= items.size())
-            index = items.size() - 1;
-        if (index < 0)
-            index = 0;
-        if (items.get(index).getID().equals(identifier))
-            return index;
-        for (int i = 1; i < items.size(); i++) {
-            if (index + i < items.size() && items.get(index + i).getID().equals(identifier))
-                    return index + i;
-
-            if (index - i > 0 && items.get(index - i).getID().equals(identifier))
-                    return index - 1;
-            if (index + i >= items.size() && index - i < 0)
-                break;
+    final class IdentifierIndex<T extends Inconsistent> {
+        private final Map<String, T> items;
+        // only created if items share an identifier
+        private Map<String, Deque<T>> duplicates = null;
+
+        IdentifierIndex(List<T> list) {
+            items = new LinkedHashMap<>((int) (list.size() / 0.75f) + 1);
+            for (T item : list) {
+                T previous = items.putIfAbsent(item.getID(), item);
+                if (previous != null) {
+                    if (duplicates == null)
+                        duplicates = new HashMap<>();
+                    duplicates.computeIfAbsent(item.getID(), k -> new ArrayDeque<>()).add(item);
+                }
+            }
+        }
+
+        /**
+         * Remove the next item with an identifier.
+         * @param identifier Identifier of the item.
+         * @return The item that was removed, or null if no item has the identifier.
+         */
+        @Nullable T remove(String identifier) {
+            T item = items.remove(identifier);
+            if (item != null && duplicates != null) {
+                Deque<T> sameIdentifier = duplicates.get(identifier);
+                if (sameIdentifier != null) {
+                    items.put(identifier, sameIdentifier.poll());
+                    if (sameIdentifier.isEmpty())
+                        duplicates.remove(identifier);
+                }
+            }
+            return item;
+        }
+
+        /**
+         * Get the items that haven't been removed.
+         * @return The remaining items.
+         */
+        List<T> remaining() {
+            List<T> remaining = new ArrayList<>(items.values());
+            if (duplicates != null)
+                duplicates.values().forEach(remaining::addAll);
+            return remaining;
         }
-        return -1;
     }
 
     /**
@@ -79,7 +103,6 @@ public interface Inconsistent {
      * If an item exists in one list but not the other, it will only be kept if the last update was after the last sync.
      * If items share the same identifier, the item with the latest update will be used as a base item,
      * and the 2 items' sub elements will be merged recursively.
-     * Using lists in the same order will be faster.
      * @param list1 First list of inconsistent elements.
      * @param list2 Second list of inconsistent elements.
      * @param lastSync The time in milliseconds when the items were synced last.
@@ -87,13 +110,12 @@ public interface Inconsistent {
      * @param <T> An inconsistent object.
      */
     static <T extends Inconsistent> List<T> compareInconsistentLists(List<T> list1, List<T> list2, long lastSync) {
-        List<T> consistentList = new ArrayList<>();
-        int searchIndex = 0;
-        for (int i = 0; i < list1.size(); i++) {
-            T item1 = list1.get(i);
+        List<T> consistentList = new ArrayList<>(Math.max(list1.size(), list2.size()));
+        IdentifierIndex<T> list2Index = new IdentifierIndex<>(list2);
+        for (T item1 : list1) {
             // search for item1 in list2
-            searchIndex = indexSearch(item1.getID(), list2, searchIndex == -1 ? i : searchIndex); // searchIndex should have the index of the last item in list2, or -1 if the last item didn't exist in list2
-            if (searchIndex == -1) {
+            T item2 = list2Index.remove(item1.getID()); // item is removed to know that it has a match
+            if (item2 == null) {
                 // item1 doesn't exist in list2
                 if (item1.getLatestUpdate() > lastSync) {
                     // item1 was added in list2 after last sync
@@ -101,7 +123,6 @@ public interface Inconsistent {
                 }
             } else {
                 // items exist in both lists
-                T item2 = list2.remove(searchIndex); // item is removed to know that it has a match
                 // set the base item to the one with the latest update
                 T baseItem = item1.getLatestUpdate() > item2.getLatestUpdate() ? item1 : item2;
                 // compare sub elements with recursion and set to baseItem's sub elements to make baseItem the consistent item
@@ -111,7 +132,7 @@ public interface Inconsistent {
         }
 
         // any items left in list2 do not exist in list1
-        for (T item2 : list2) {
+        for (T item2 : list2Index.remaining()) {
             if (item2.getLatestUpdate() > lastSync) {
                 // item2 was added after last sync
                 consistentList.add(item2);
@@ -142,13 +163,12 @@ public interface Inconsistent {
         ArrayList<T> list2Removed = new ArrayList<>();
         ArrayList<T> list1Added = new ArrayList<>();
         ArrayList<T> list1Removed = new ArrayList<>();
-        int searchIndex = 0;
-        for (int i = 0; i < list1.size(); i++) {
-            T item1 = list1.get(i);
+        IdentifierIndex<T> list2Index = new IdentifierIndex<>(list2);
+        for (T item1 : list1) {
             //Bukkit.getLogger().info("i1: " + item1.getID() + " " + item1.getLatestUpdate());
             // search for item1 in list2
-            searchIndex = indexSearch(item1.getID(), list2, searchIndex == -1 ? i : searchIndex); // searchIndex should have the index of the last item in list2, or -1 if the last item didn't exist in list2
-            if (searchIndex == -1) {
+            T item2 = list2Index.remove(item1.getID()); // item is removed to know that it has a match
+            if (item2 == null) {
                 //Bukkit.getLogger().info("no match");
                 // item1 doesn't exist in list2
                 if (item1.getLatestUpdate() > lastSync) {
@@ -160,7 +180,6 @@ public interface Inconsistent {
                 }
             } else {
                 // items exist in both lists
-                T item2 = list2.remove(searchIndex); // item is removed to know that it has a match
                 // update the inconsistent sub elements
                 List<Inconsistent>[] inconsistentSubData = getAsyncronousObjects(item1.getSubElements(), item2.getSubElements(), lastSync);
                 // add the added and removed versions of item1 to list2 lists
@@ -189,7 +208,7 @@ public interface Inconsistent {
         }
 
         // any items left in list2 do not exist in list1
-        for (T item2 : list2) {
+        for (T item2 : list2Index.remaining()) {
             //Bukkit.getLogger().info("i2: " + item2.getID() + " " + item2.getLatestUpdate());
             if (item2.getLatestUpdate() > lastSync) {
                 // item2 was added to list2 after the last update
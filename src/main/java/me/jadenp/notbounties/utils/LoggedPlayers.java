@@ -7,6 +7,7 @@ import org.bukkit.OfflinePlayer;
 import org.bukkit.configuration.ConfigurationSection;
 import org.bukkit.entity.Player;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import java.util.*;
 import java.util.stream.Collectors;
@@ -21,6 +22,11 @@ public class LoggedPlayers {
      * Name (lowercase), UUID
      */
     private static final Map<String, UUID> playerIDs = new HashMap<>();
+    /**
+     * Every logged player in the order they were logged, so a random player can be picked without copying the player data.
+     */
+    private static final List<UUID> loggedPlayerList = new ArrayList<>();
+    private static final Set<UUID> loggedPlayerSet = new HashSet<>();
 
     public static void readOldConfiguration(ConfigurationSection configuration) {
         // add all previously logged on players to a map
@@ -32,6 +38,7 @@ public class LoggedPlayers {
                 UUID uuid = UUID.fromString(Objects.requireNonNull(configuration.getString(i + ".uuid")));
                 playerIDs.put(name.toLowerCase(), uuid);
                 DataManager.getPlayerData(uuid).setPlayerName(name);
+                register(uuid);
                 i++;
             }
         } else {
@@ -42,6 +49,7 @@ public class LoggedPlayers {
                     UUID uuid = UUID.fromString(key);
                     playerIDs.put(name.toLowerCase(), uuid);
                     DataManager.getPlayerData(uuid).setPlayerName(name);
+                    register(uuid);
                 } catch (IllegalArgumentException e) {
                     Bukkit.getLogger().warning("Key in logged-players is not a UUID: " + key);
                 }
@@ -55,7 +63,26 @@ public class LoggedPlayers {
     public static void loadPlayerData() {
         DataManager.getPlayerDataMap().entrySet().stream()
                 .filter(entry -> entry.getValue().getPlayerName() != null)
-                .forEach(entry -> playerIDs.put(entry.getValue().getPlayerName().toLowerCase(), entry.getKey()));
+                .forEach(entry -> {
+                    playerIDs.put(entry.getValue().getPlayerName().toLowerCase(), entry.getKey());
+                    register(entry.getKey());
+                });
+    }
+
+    private static synchronized void register(UUID uuid) {
+        if (!uuid.equals(DataManager.GLOBAL_SERVER_ID) && loggedPlayerSet.add(uuid))
+            loggedPlayerList.add(uuid);
+    }
+
+    /**
+     * Pick a random logged player.
+     * @param random Random number generator to pick with.
+     * @return The UUID of the player, or null if no players have been logged.
+     */
+    public static synchronized @Nullable UUID getRandomPlayer(Random random) {
+        if (loggedPlayerList.isEmpty())
+            return null;
+        return loggedPlayerList.get(random.nextInt(loggedPlayerList.size()));
     }
 
     public static Map<UUID, String> getLoggedPlayers() {
@@ -85,6 +112,7 @@ public class LoggedPlayers {
     public static void logPlayer(String name, UUID uuid) {
         playerIDs.put(name.toLowerCase(), uuid);
         DataManager.getPlayerData(uuid).setPlayerName(name);
+        register(uuid);
     }
 
     public static void replacePlayerName(String newName, UUID uuid) {
@@ -94,6 +122,7 @@ public class LoggedPlayers {
             playerIDs.remove(oldName.toLowerCase());
         playerIDs.put(newName.toLowerCase(), uuid);
         playerData.setPlayerName(newName);
+        register(uuid);
     }
 
     public static boolean isLogged(String name) {
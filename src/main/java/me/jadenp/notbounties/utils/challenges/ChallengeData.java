@@ -1,10 +1,10 @@
 package me.jadenp.notbounties.utils.challenges;
 
 public class ChallengeData {
-    private double progress; // current value that the player has for the challenge
+    private volatile double progress; // current value that the player has for the challenge
     private final double goal; // number that the player's progress needs to reach to complete the challenge
-    private boolean rewarded; // if the player has been rewarded or not
-    private boolean notified; // if the player has been notified - this is not stored after a restart
+    private volatile boolean rewarded; // if the player has been rewarded or not
+    private volatile boolean notified; // if the player has been notified - this is not stored after a restart
 
     public ChallengeData(double progress, double goal, boolean rewarded) {
         this.progress = progress;
@@ -20,7 +20,7 @@ public class ChallengeData {
         return progress;
     }
 
-    public void addProgress(double addedProgress){
+    public synchronized void addProgress(double addedProgress){
         progress+= addedProgress;
     }
 
@@ -17,10 +17,12 @@ import org.bukkit.configuration.file.YamlConfiguration;
 import org.bukkit.entity.Player;
 import org.bukkit.event.Listener;
 import org.bukkit.inventory.ItemStack;
+import org.bukkit.scheduler.BukkitRunnable;
 
 import java.io.File;
 import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * How to add a built-in challenge:
@@ -33,8 +35,8 @@ import java.util.*;
  */
 
 public class ChallengeManager implements Listener {
-    private static final Map<UUID, LinkedList<ChallengeData>> challengeDataMap = new HashMap<>(); // there will always be entries for players in this map
-    private static final Map<UUID, LinkedList<ActiveChallenge>> activeChallenges = new HashMap<>(); // depending on the mode, only the console uuid may have an entry in this map
+    private static final Map<UUID, List<ChallengeData>> challengeDataMap = new ConcurrentHashMap<>(); // there will always be entries for players in this map
+    private static final Map<UUID, IndexedChallenges> activeChallenges = new ConcurrentHashMap<>(); // depending on the mode, only the console uuid may have an entry in this map
     private static final List<Challenge> allChallenges = new ArrayList<>(); // all challenges in the challenges.yml file
 
     private static long nextChallengeChange = 0; // the time of the next challenge - this should be set from the bounties.yml file when it is read from
@@ -46,6 +48,36 @@ public class ChallengeManager implements Listener {
 
     private static final Random random = new Random(System.currentTimeMillis());
 
+    private static final long CUSTOM_UPDATE_BUDGET = 2_000_000; // maximum nanoseconds per tick spent updating custom challenges
+    private static final Deque<UUID> customUpdateQueue = new ArrayDeque<>(); // players waiting for their custom challenges to be updated
+
+    /**
+     * Active challenges with the indexes of each challenge type, so progress updates only check matching challenges.
+     * @param challenges The active challenges.
+     * @param typeIndexes The indexes in challenges for each challenge type that is active.
+     */
+    private record IndexedChallenges(List<ActiveChallenge> challenges, Map<ChallengeType, int[]> typeIndexes) {
+        IndexedChallenges(List<ActiveChallenge> challenges) {
+            this(List.copyOf(challenges), indexTypes(challenges));
+        }
+
+        private static Map<ChallengeType, int[]> indexTypes(List<ActiveChallenge> challenges) {
+            Map<ChallengeType, int[]> typeIndexes = new EnumMap<>(ChallengeType.class);
+            for (int i = 0; i < challenges.size(); i++) {
+                ChallengeType challengeType = challenges.get(i).getChallenge().getChallengeType();
+                int[] indexes = typeIndexes.getOrDefault(challengeType, new int[0]);
+                indexes = Arrays.copyOf(indexes, indexes.length + 1);
+                indexes[indexes.length - 1] = i;
+                typeIndexes.put(challengeType, indexes);
+            }
+            return typeIndexes;
+        }
+
+        int[] getIndexes(ChallengeType challengeType) {
+            return typeIndexes.getOrDefault(challengeType, new int[0]);
+        }
+    }
+
     private ChallengeManager(){}
 
     public static void reloadOptions() {
@@ -134,8 +166,8 @@ public class ChallengeManager implements Listener {
             // should be configuration section
             if (!configuration.isConfigurationSection(key))
                 continue;
-            LinkedList<ChallengeData> challengeDataList = new LinkedList<>();
-            LinkedList<ActiveChallenge> activeChallengeList = new LinkedList<>();
+            List<ChallengeData> challengeDataList = new ArrayList<>();
+            List<ActiveChallenge> activeChallengeList = new ArrayList<>();
             for (String challengeIndexString : Objects.requireNonNull(configuration.getConfigurationSection(key)).getKeys(false)) {
                 int challengeIndex;
                 try {
@@ -179,7 +211,7 @@ public class ChallengeManager implements Listener {
 
             // activeChallengeList will be empty if global challenges is enabled and the current uuid is of a player
             if (!activeChallengeList.isEmpty()) {
-                activeChallenges.put(uuid, activeChallengeList);
+                activeChallenges.put(uuid, new IndexedChallenges(activeChallengeList));
             }
             // challengeDataList will be empty if the uuid is from the console
             if (!challengeDataList.isEmpty()) {
@@ -223,7 +255,7 @@ public class ChallengeManager implements Listener {
             if (!activeChallenges.containsKey(consoleUUID))
                 // no active challenges
                 return;
-            LinkedList<ActiveChallenge> challenges = activeChallenges.get(consoleUUID);
+            List<ActiveChallenge> challenges = activeChallenges.get(consoleUUID).challenges();
             for (int i = 0; i < challenges.size(); i++) {
                 Challenge challenge = challenges.get(i).getChallenge();
                 // get challenge index
@@ -243,7 +275,7 @@ public class ChallengeManager implements Listener {
                 // save variation to configuration
                 configuration.set(consoleUUID + "." + challengeIndex + ".variation", variationIndex);
                 // get player progress and goal for this challenge
-                for (Map.Entry<UUID, LinkedList<ChallengeData>> entry : challengeDataMap.entrySet()) {
+                for (Map.Entry<UUID, List<ChallengeData>> entry : challengeDataMap.entrySet()) {
                     ChallengeData challengeData = entry.getValue().get(i);
                     configuration.set(entry.getKey() + "." + challengeIndex + ".progress", challengeData.getProgress());
                     configuration.set(entry.getKey() + "." + challengeIndex + ".goal", challengeData.getGoal());
@@ -253,10 +285,10 @@ public class ChallengeManager implements Listener {
             }
         } else {
             // active challenges are different for everyone
-            for (Map.Entry<UUID, LinkedList<ActiveChallenge>> entry : activeChallenges.entrySet()) {
+            for (Map.Entry<UUID, IndexedChallenges> entry : activeChallenges.entrySet()) {
                 // these should both be valid and of the same size
-                LinkedList<ActiveChallenge> activeChallengeList = entry.getValue();
-                LinkedList<ChallengeData> challengeDataList = challengeDataMap.get(entry.getKey());
+                List<ActiveChallenge> activeChallengeList = entry.getValue().challenges();
+                List<ChallengeData> challengeDataList = challengeDataMap.get(entry.getKey());
                 for (int i = 0; i < activeChallengeList.size(); i++) {
                     Challenge challenge = activeChallengeList.get(i).getChallenge();
                     int challengeIndex = getChallengeIndex(challenge);
@@ -312,15 +344,13 @@ public class ChallengeManager implements Listener {
      */
     private static void generateProgress(Player player) {
         if (!globalChallenges) {
-            generateChallenges(player.getUniqueId()); // generate new challenges
-        } else if (!activeChallenges.containsKey(DataManager.GLOBAL_SERVER_ID)) {
-            generateChallenges(DataManager.GLOBAL_SERVER_ID); // generate challenges for the console
+            activeChallenges.put(player.getUniqueId(), generateChallenges()); // generate new challenges
         }
         // create progress and goal list
-        LinkedList<ChallengeData> challengeDataList = new LinkedList<>();
+        List<ChallengeData> challengeDataList = new ArrayList<>();
 
-        // get created challenges
-        LinkedList<ActiveChallenge> createdChallenges = globalChallenges ? activeChallenges.get(DataManager.GLOBAL_SERVER_ID) : activeChallenges.get(player.getUniqueId());
+        // get created challenges - global challenges are generated for the console if they don't exist
+        List<ActiveChallenge> createdChallenges = getActiveChallenges(player.getUniqueId());
         // get the progress and goal for each challenge
         for (ActiveChallenge createdChallenge : createdChallenges) {
             Challenge challenge = createdChallenge.getChallenge();
@@ -345,20 +375,19 @@ public class ChallengeManager implements Listener {
     public static void updateChallengeProgress(UUID uuid, ChallengeType challengeType, double progressChange) {
         if (!enabled)
             return;
-        List<ActiveChallenge> playerChallenges = getActiveChallenges(uuid);
-        for (int i = 0; i < playerChallenges.size(); i++) {
-            ActiveChallenge challenge = playerChallenges.get(i);
-            if (challenge.getChallenge().getChallengeType().equals(challengeType)) {
-                ChallengeData challengeData = getChallengeData(uuid, i);
-                if (challengeType == ChallengeType.CLOSE_BOUNTY && progressChange < challenge.getChallenge().getVariations().get(challenge.getVariationIndex())) {
-                    challengeData.addProgress(1);
-                } else {
-                    challengeData.addProgress(progressChange);
-                }
-                // check completion
-                if (challengeData.getProgress() >= challengeData.getGoal() && !challengeData.isNotified())
-                    notifyCompletion(uuid, i);
+        IndexedChallenges playerChallenges = getIndexedChallenges(uuid);
+        // only check the challenges of this type
+        for (int i : playerChallenges.getIndexes(challengeType)) {
+            ActiveChallenge challenge = playerChallenges.challenges().get(i);
+            ChallengeData challengeData = getChallengeData(uuid, i);
+            if (challengeType == ChallengeType.CLOSE_BOUNTY && progressChange < challenge.getChallenge().getVariations().get(challenge.getVariationIndex())) {
+                challengeData.addProgress(1);
+            } else {
+                challengeData.addProgress(progressChange);
             }
+            // check completion
+            if (challengeData.getProgress() >= challengeData.getGoal() && !challengeData.isNotified())
+                notifyCompletion(uuid, i);
         }
 
     }
@@ -408,27 +437,67 @@ public class ChallengeManager implements Listener {
     }
 
     /**
-     * Updates custom challenge progression for online players
+     * Queues custom challenge progression updates for online players.
+     * The updates are spread over the next ticks, so only a limited amount of time is spent each tick.
      */
     private static void updateCustomChallenges() {
+        if (!customUpdateQueue.isEmpty())
+            // still updating the last batch
+            return;
         for (Player player : Bukkit.getOnlinePlayers()) {
-            List<ActiveChallenge> activeChallengeList = ChallengeManager.getActiveChallenges(player.getUniqueId());
+            // progress is missing if it couldn't be generated when the challenges changed
             if (!challengeDataMap.containsKey(player.getUniqueId()))
                 generateProgress(player);
-            List<ChallengeData> challengeDataList = challengeDataMap.get(player.getUniqueId());
-            for (int i = 0; i < activeChallengeList.size(); i++) {
-                ActiveChallenge activeChallenge = activeChallengeList.get(i);
-                ChallengeData challengeData = challengeDataList.get(i);
-                if (activeChallenge.getChallenge().getChallengeType() == ChallengeType.CUSTOM && !challengeData.isNotified()) {
-                    // update progress
-                    double currentValue = activeChallenge.getChallenge().getCustomProgress(player);
-                    challengeData.addProgress(currentValue -  challengeData.getProgress());
-
-                    // check for completion
-                    if (activeChallenge.getChallenge().isCustomRequirementCompleted(player, challengeData.getGoal())) {
-                        // completed challenge - notify
-                        notifyCompletion(player.getUniqueId(), i);
-                    }
+        }
+        if (globalChallenges && getIndexedChallenges(DataManager.GLOBAL_SERVER_ID).getIndexes(ChallengeType.CUSTOM).length == 0)
+            // no custom challenges are active
+            return;
+        for (Player player : Bukkit.getOnlinePlayers()) {
+            if (getIndexedChallenges(player.getUniqueId()).getIndexes(ChallengeType.CUSTOM).length > 0)
+                customUpdateQueue.add(player.getUniqueId());
+        }
+        if (customUpdateQueue.isEmpty())
+            return;
+        new BukkitRunnable() {
+            @Override
+            public void run() {
+                long endTime = System.nanoTime() + CUSTOM_UPDATE_BUDGET;
+                // at least one player is updated every tick
+                do {
+                    UUID uuid = customUpdateQueue.poll();
+                    if (uuid == null)
+                        break;
+                    Player player = Bukkit.getPlayer(uuid);
+                    if (player != null)
+                        updateCustomChallenges(player);
+                } while (System.nanoTime() < endTime);
+                if (customUpdateQueue.isEmpty())
+                    this.cancel();
+            }
+        }.runTaskTimer(NotBounties.getInstance(), 1, 1);
+    }
+
+    /**
+     * Updates custom challenge progression for a player
+     * @param player Player to update
+     */
+    private static void updateCustomChallenges(Player player) {
+        IndexedChallenges playerChallenges = getIndexedChallenges(player.getUniqueId());
+        if (!challengeDataMap.containsKey(player.getUniqueId()))
+            generateProgress(player);
+        List<ChallengeData> challengeDataList = challengeDataMap.get(player.getUniqueId());
+        for (int i : playerChallenges.getIndexes(ChallengeType.CUSTOM)) {
+            ActiveChallenge activeChallenge = playerChallenges.challenges().get(i);
+            ChallengeData challengeData = challengeDataList.get(i);
+            if (!challengeData.isNotified()) {
+                // update progress
+                double currentValue = activeChallenge.getChallenge().getCustomProgress(player);
+                challengeData.addProgress(currentValue -  challengeData.getProgress());
+
+                // check for completion
+                if (activeChallenge.getChallenge().isCustomRequirementCompleted(player, challengeData.getGoal())) {
+                    // completed challenge - notify
+                    notifyCompletion(player.getUniqueId(), i);
                 }
             }
         }
@@ -440,42 +509,42 @@ public class ChallengeManager implements Listener {
     private static void changeChallenges() {
         activeChallenges.clear();
         challengeDataMap.clear();
-        if (globalChallenges) {
-            generateChallenges(DataManager.GLOBAL_SERVER_ID);
-        } else {
-            for (Player player : Bukkit.getOnlinePlayers()) {
-                generateChallenges(player.getUniqueId());
-            }
-        }
+        customUpdateQueue.clear();
+        if (globalChallenges)
+            activeChallenges.put(DataManager.GLOBAL_SERVER_ID, generateChallenges());
+        // generates new challenges for each player if the challenges aren't global
+        for (Player player : Bukkit.getOnlinePlayers())
+            generateProgress(player);
     }
 
     /**
      * Get the active challenges for a player
      * @param uuid UUID of the player
-     * @return A LinkedList of the player's active challenges
+     * @return The player's active challenges
      */
     public static List<ActiveChallenge> getActiveChallenges(UUID uuid) {
-        if (enabled) {
-            if (globalChallenges) {
-                if (activeChallenges.containsKey(new UUID(0, 0)))
-                    return activeChallenges.get(new UUID(0, 0));
-                generateChallenges(new UUID(0, 0)); // generate challenges if no active global challenge exists
-            } else {
-                if (activeChallenges.containsKey(uuid))
-                    return activeChallenges.get(uuid);
-                generateChallenges(uuid); // generate challenges if no active challenge exists for this player
-            }
-            return getActiveChallenges(uuid);
-        }
+        if (enabled)
+            return getIndexedChallenges(uuid).challenges();
         return new ArrayList<>();
     }
 
     /**
-     * Generates concurrentChallenges number of challenges for the uuid, and stores them in the activeChallenges and variation array
-     * @param uuid UUID of the player to generate the challenges for
+     * Get the active challenges for a player with the indexes of each challenge type.
+     * Challenges are generated if no active challenges exist.
+     * @param uuid UUID of the player
+     * @return The player's active challenges
      */
-    private static void generateChallenges(UUID uuid) {
-        LinkedList<ActiveChallenge> activeChallengeList = new LinkedList<>();
+    private static IndexedChallenges getIndexedChallenges(UUID uuid) {
+        UUID key = globalChallenges ? DataManager.GLOBAL_SERVER_ID : uuid;
+        return activeChallenges.computeIfAbsent(key, k -> generateChallenges());
+    }
+
+    /**
+     * Generates concurrentChallenges number of challenges
+     * @return The generated challenges
+     */
+    private static IndexedChallenges generateChallenges() {
+        List<ActiveChallenge> activeChallengeList = new ArrayList<>();
         List<Challenge> createdChallenges = new ArrayList<>();
         int uniqueChallengesEnabled = getUniqueChallengesEnabled();
         for (int i = 0; i < concurrentChallenges; i++) {
@@ -489,7 +558,7 @@ public class ChallengeManager implements Listener {
             // add to list
             activeChallengeList.add(new ActiveChallenge(challenge, randomVariationIndex));
         }
-        activeChallenges.put(uuid, activeChallengeList);
+        return new IndexedChallenges(activeChallengeList);
     }
 
     private static boolean isChallengeEnabled(Challenge challenge) {
@@ -549,15 +618,12 @@ public class ChallengeManager implements Listener {
      * @return The current active variation chosen from the list of variations in the challenges.yml file
      */
     private static double getVariation(UUID uuid, int challengeIndex) {
-        if (globalChallenges) {
-            // return the active challenge variation for console uuid
-            return activeChallenges.get(DataManager.GLOBAL_SERVER_ID).get(challengeIndex).getChallenge().getVariations().get(activeChallenges.get(DataManager.GLOBAL_SERVER_ID).get(challengeIndex).getVariationIndex());
-        } else {
-            if (!activeChallenges.containsKey(uuid))
-                return 0;
-            // return the active challenge variation for uuid argument
-            return activeChallenges.get(uuid).get(challengeIndex).getChallenge().getVariations().get(activeChallenges.get(uuid).get(challengeIndex).getVariationIndex());
-        }
+        IndexedChallenges indexedChallenges = activeChallenges.get(globalChallenges ? DataManager.GLOBAL_SERVER_ID : uuid);
+        if (indexedChallenges == null)
+            return 0;
+        // return the active challenge variation
+        ActiveChallenge activeChallenge = indexedChallenges.challenges().get(challengeIndex);
+        return activeChallenge.getChallenge().getVariations().get(activeChallenge.getVariationIndex());
     }
 
     /**
@@ -616,9 +682,14 @@ public class ChallengeManager implements Listener {
      * @return The corresponding challenge data
      */
     private static ChallengeData getChallengeData(UUID uuid, int challengeIndex) {
-        if (!challengeDataMap.containsKey(uuid))
-            return new ChallengeData(0, 0, true);
-        return challengeDataMap.get(uuid).get(challengeIndex);
+        List<ChallengeData> challengeDataList = challengeDataMap.get(uuid);
+        if (challengeDataList == null) {
+            // the progress isn't recorded, so this data shouldn't complete the challenge
+            ChallengeData challengeData = new ChallengeData(0, 0, true);
+            challengeData.setNotified(true);
+            return challengeData;
+        }
+        return challengeDataList.get(challengeIndex);
     }
 
     /**
@@ -10,6 +10,7 @@ import me.jadenp.notbounties.ui.gui.display_items.PlayerItem;
 import me.jadenp.notbounties.utils.BountyManager;
 import me.jadenp.notbounties.utils.CommandPrompt;
 import me.jadenp.notbounties.utils.DataManager;
+import me.jadenp.notbounties.utils.ExpiringCache;
 import me.jadenp.notbounties.utils.LoggedPlayers;
 import me.jadenp.notbounties.utils.external_api.PlaceholderAPIClass;
 import org.bukkit.Bukkit;
@@ -33,22 +34,42 @@ import static me.jadenp.notbounties.utils.configuration.LanguageOptions.getPrefi
 import static me.jadenp.notbounties.utils.configuration.NumberFormatting.*;
 
 public class ActionCommands {
-    private static List<String> bountyClaimCommands;
-    private static List<String> bigBountyCommands;
-    private static List<String> bountySetCommands;
+    private static List<CommandTemplate> bountyClaimCommands;
+    private static List<CommandTemplate> bigBountyCommands;
+    private static List<CommandTemplate> bountySetCommands;
+    // commands and requirements that aren't from the lists above are compiled when they are first used
+    private static final long COMPILED_EXPIRE_TIME = 60 * 60 * 1000L; // 1 hour
+    private static final ExpiringCache<String, CommandTemplate> compiledCommands = new ExpiringCache<>(1000, COMPILED_EXPIRE_TIME);
+    private static final ExpiringCache<String, Requirement> compiledRequirements = new ExpiringCache<>(1000, COMPILED_EXPIRE_TIME);
 
     public static void loadConfiguration(List<String> bountyClaimCommands, List<String> bigBountyCommands, List<String> bountySetCommands) {
-        ActionCommands.bountyClaimCommands = bountyClaimCommands;
-        ActionCommands.bigBountyCommands = bigBountyCommands;
-        ActionCommands.bountySetCommands = bountySetCommands;
+        compiledCommands.clear();
+        compiledRequirements.clear();
+        ActionCommands.bountyClaimCommands = compile(bountyClaimCommands);
+        ActionCommands.bigBountyCommands = compile(bigBountyCommands);
+        ActionCommands.bountySetCommands = compile(bountySetCommands);
+    }
+
+    private static List<CommandTemplate> compile(List<String> commands) {
+        return commands.stream().map(CommandTemplate::new).toList();
+    }
+
+    private static CommandTemplate getTemplate(String command) {
+        CommandTemplate template = compiledCommands.get(command);
+        if (template == null) {
+            template = new CommandTemplate(command);
+            compiledCommands.put(command, template);
+        }
+        return template;
     }
 
     public static void executeBountyClaim(Player player, Player killer, Bounty bounty) {
         new BukkitRunnable() {
             @Override
             public void run() {
-                for (String command : bountyClaimCommands) {
-                    execute(player, killer, bounty, command);
+                CommandContext context = new CommandContext(player, killer, bounty, null);
+                for (CommandTemplate command : bountyClaimCommands) {
+                    execute(context, command);
                 }
             }
         }.runTaskLater(NotBounties.getInstance(), 10);
@@ -58,9 +79,9 @@ public class ActionCommands {
         new BukkitRunnable() {
             @Override
             public void run() {
-                for (String command : bountySetCommands) {
-                    command = command.replace("{receiever}", LoggedPlayers.getPlayerName(receiver));
-                    execute(setter, setter, bounty, command);
+                CommandContext context = new CommandContext(setter, setter, bounty, LoggedPlayers.getPlayerName(receiver));
+                for (CommandTemplate command : bountySetCommands) {
+                    execute(context, command);
                 }
             }
         }.runTaskLater(NotBounties.getInstance(), 10);
@@ -68,8 +89,9 @@ public class ActionCommands {
 
     public static void executeCommands(Player player, List<String> commands) {
         Bounty bounty = BountyManager.getBounty(player.getUniqueId());
+        CommandContext context = new CommandContext(player, player, bounty, null);
         for (String command : commands) {
-            execute(player, player, bounty, command);
+            execute(context, getTemplate(command));
         }
     }
 
@@ -77,138 +99,95 @@ public class ActionCommands {
         new BukkitRunnable() {
             @Override
             public void run() {
-                for (String command : bigBountyCommands) {
-                    execute(player, player, bounty, command);
+                CommandContext context = new CommandContext(player, player, bounty, null);
+                for (CommandTemplate command : bigBountyCommands) {
+                    execute(context, command);
                 }
             }
         }.runTaskLater(NotBounties.getInstance(), 10);
     }
 
-    // <TODO> move some string parsing to LanguageOptions.parse</TODO>
-    private static void execute(Player player, Player killer, @Nullable Bounty bounty, String command) {
-        if (command.isEmpty())
-            return;
-        if (NotBounties.debug)
-            Bukkit.getLogger().info("[NotBountiesDebug] Executing Command for " + player.getName() + " : " + command);
-        PlayerGUInfo info = playerInfo.containsKey(player.getUniqueId()) ? playerInfo.get(player.getUniqueId()) : new PlayerGUInfo(1, "", new Object[0], new ArrayList<>(), "");
-        double totalBounty = bounty != null ? bounty.getTotalDisplayBounty() : 0;
-        double bountyCurrency = bounty != null ? bounty.getTotalBounty() : 0;
-        double bountyItemValues = bounty != null ? NumberFormatting.getTotalValue(bounty.getTotalItemBounty()) : 0;
-        String bountyItems = bounty != null ? NumberFormatting.listItems(bounty.getTotalItemBounty(), ':') : "";
-        String killerName = killer != null ? killer.getName() : "";
-
-        command = command.replace("{player}", (player.getName()));
-        command = command.replace("{killer}", (killerName));
-        command = command.replace("{amount}", (NumberFormatting.getValue(totalBounty)));
-        command = command.replace("{bounty}", (NumberFormatting.formatNumber(totalBounty)));
-        command = command.replace("{bounty_currency}", (NumberFormatting.formatNumber(bountyCurrency)));
-        command = command.replace("{bounty_item_values}", (NumberFormatting.formatNumber(bountyItemValues)));
-        command = command.replace("{bounty_items}", (bountyItems));
-        command = command.replace("{cost}", (NumberFormatting.currencyPrefix + NumberFormatting.formatNumber(totalBounty) + NumberFormatting.currencySuffix));
-        command = command.replace("{page}", (info.page() + ""));
-        command = command.replace("{min_bounty}", getValue(ConfigOptions.minBounty));
-        if (info.data().length > 0) {
-            Object[] data = info.data();
-            if (info.guiType().equals("bounty-item-select") && player.getOpenInventory().getTitle().equals(info.title())) {
-                // update data with current item contentse
-                GUIOptions guiOptions = GUI.getGUI("bounty-item-select");
-                if (guiOptions == null)
-                    return; // this shouldn't be reached
-                // read current inventory
-                ItemStack[] currentContents = new ItemStack[GUI.getMaxBountyItemSlots()];
-                for (int i = 0; i < currentContents.length; i++) {
-                    currentContents[i] = player.getOpenInventory().getTopInventory().getContents()[guiOptions.getPlayerSlots().get(i + 1)];
-                }
-                // get all items
-                ItemStack[][] allItems = data.length > 1 && data[1] instanceof ItemStack[][] itemStacks ? itemStacks : new ItemStack[GUI.getMaxBountyItemSlots()][(int) info.page()];
-                allItems[(int) info.page() - 1] = currentContents; // set current content
-                data = new Object[]{data[0], allItems};
-                playerInfo.replace(player.getUniqueId(), new PlayerGUInfo(info.page(), info.guiType(), data, info.displayItems(), info.title()));
-            }
-            StringBuilder builder = new StringBuilder();
-            for (int i = 0; i < data.length; i++) {
-                if (data[i] == null)
-                    data[i] = "";
-                if (info.guiType().equals("bounty-item-select")) {
-                    if (i == 0)
-                        // player uuid to set bounty on
-                        builder.append(data[0]).append(' ');
-                    else if (i > 1)
-                        builder.append(",");
-                    if (i > 0) {
-                        // items to set bounty
-                        ItemStack[][] allItems = (ItemStack[][]) data[i];
-                        List<ItemStack> listItems = new ArrayList<>();
-                        Arrays.stream(allItems).forEach(itemStacks -> Arrays.stream(itemStacks).filter(Objects::nonNull).forEach(listItems::add));
-                        builder.append(NumberFormatting.listItems(listItems, ':'));
-                    }
-                } else {
-                    if (i > 0)
-                        builder.append(' ');
-                    builder.append(data[i].toString());
-                }
-            }
-            command = command.replace("{data}", (builder.toString()));
+    /**
+     * The players and bounty that a list of commands is executed for.
+     * Values from the bounty are calculated the first time a command uses them, and are shared by the rest of the commands.
+     */
+    private static class CommandContext {
+        private final Player player;
+        private final Player killer;
+        private final @Nullable Bounty bounty;
+        private final @Nullable String receiverName;
+        private Double totalBounty = null;
+        private Double bountyCurrency = null;
+        private List<ItemStack> itemBounty = null;
+        private Double bountyItemValues = null;
+        private String bountyItems = null;
+
+        CommandContext(Player player, Player killer, @Nullable Bounty bounty, @Nullable String receiverName) {
+            this.player = player;
+            this.killer = killer;
+            this.bounty = bounty;
+            this.receiverName = receiverName;
+        }
 
+        double getTotalBounty() {
+            if (totalBounty == null)
+                totalBounty = bounty != null ? bounty.getTotalDisplayBounty() : 0;
+            return totalBounty;
         }
 
+        double getBountyCurrency() {
+            if (bountyCurrency == null)
+                bountyCurrency = bounty != null ? bounty.getTotalBounty() : 0;
+            return bountyCurrency;
+        }
 
+        private List<ItemStack> getItemBounty() {
+            if (itemBounty == null)
+                itemBounty = bounty != null ? bounty.getTotalItemBounty() : new ArrayList<>();
+            return itemBounty;
+        }
 
-        // check for {slot<x>}
-        while (player.getOpenInventory().getType() != InventoryType.CRAFTING && command.contains("{slot") && command.substring(command.indexOf("{slot")).contains("}")) {
-            String replacement = "";
-            try {
-                int slot = Integer.parseInt(command.substring(command.indexOf("{slot") + 5, command.substring(command.indexOf("{slot")).indexOf("}") + command.substring(0, command.indexOf("{slot")).length()));
-                ItemStack item = player.getOpenInventory().getTopInventory().getContents()[slot];
-                if (item != null) {
-                    if (item.getType() == Material.PLAYER_HEAD) {
-                        SkullMeta meta = (SkullMeta) item.getItemMeta();
-                        assert meta != null;
-                        OfflinePlayer p = meta.getOwningPlayer();
-                        if (p != null) {
-                            replacement = LoggedPlayers.getPlayerName(p.getUniqueId());
-                        } else {
-                            if (!info.guiType().isEmpty()) {
-                               GUIOptions guiOptions = GUI.getGUI(info.guiType());
-                               if (guiOptions != null) {
-                                   if (guiOptions.getPlayerSlots().contains(slot) && info.displayItems().get(guiOptions.getPlayerSlots().indexOf(slot)) instanceof PlayerItem playerItem) {
-                                        replacement = LoggedPlayers.getPlayerName(playerItem.getUuid());
-                                   }
-                               } else {
-                                   Bukkit.getLogger().warning("Invalid player for slot " + slot);
-                               }
-                            } else {
-                                Bukkit.getLogger().warning("Invalid player for slot " + slot);
-                            }
-
-                        }
-                    }
-                    if (replacement.isEmpty()) {
-                        ItemMeta meta = item.getItemMeta();
-                        if (meta != null)
-                            replacement = meta.getDisplayName();
-                    }
-                }
-            } catch (NumberFormatException e) {
-                Bukkit.getLogger().warning("Error getting slot in command: \n" + command);
-            }
-            command = command.substring(0, command.indexOf("{slot")) + replacement + command.substring(command.substring(command.indexOf("{slot")).indexOf("}") + command.substring(0, command.indexOf("{slot")).length() + 1);
+        double getBountyItemValues() {
+            if (bountyItemValues == null)
+                bountyItemValues = bounty != null ? NumberFormatting.getTotalValue(getItemBounty()) : 0;
+            return bountyItemValues;
         }
 
-        // check for {player<x>}
-        while (command.contains("{player") && command.substring(command.indexOf("{player")).contains("}")) {
-            String replacement = "";
-            String slotString = command.substring(command.indexOf("{player") + 7, command.substring(command.indexOf("{player")).indexOf("}") + command.substring(0, command.indexOf("{player")).length());
-            try {
-                int slot = Integer.parseInt(slotString);
-                if (info.displayItems().size() > slot-1 && info.displayItems().get(slot-1) instanceof PlayerItem playerItem) {
-                    replacement = LoggedPlayers.getPlayerName(playerItem.getUuid());
-                }
-            } catch (NumberFormatException e) {
-                Bukkit.getLogger().warning("Error getting player in command: \n" + command);
-            }
-            command = command.replace(("{player" + slotString + "}"), (replacement));
+        String getBountyItems() {
+            if (bountyItems == null)
+                bountyItems = bounty != null ? NumberFormatting.listItems(getItemBounty(), ':') : "";
+            return bountyItems;
         }
+    }
+
+    // <TODO> move some string parsing to LanguageOptions.parse</TODO>
+    private static void execute(CommandContext context, CommandTemplate template) {
+        if (template.isEmpty())
+            return;
+        Player player = context.player;
+        Player killer = context.killer;
+        if (NotBounties.debug)
+            Bukkit.getLogger().info("[NotBountiesDebug] Executing Command for " + player.getName() + " : " + template.getCommand());
+        PlayerGUInfo info = playerInfo.containsKey(player.getUniqueId()) ? playerInfo.get(player.getUniqueId()) : new PlayerGUInfo(1, "", new Object[0], new ArrayList<>(), "");
+        double totalBounty = context.getTotalBounty();
+        boolean inGUI = player.getOpenInventory().getType() != InventoryType.CRAFTING;
+
+        String command = template.render(part -> switch (Objects.requireNonNull(part.placeholder())) {
+            case PLAYER -> player.getName();
+            case KILLER -> killer != null ? killer.getName() : "";
+            case AMOUNT -> NumberFormatting.getValue(totalBounty);
+            case BOUNTY -> NumberFormatting.formatNumber(totalBounty);
+            case BOUNTY_CURRENCY -> NumberFormatting.formatNumber(context.getBountyCurrency());
+            case BOUNTY_ITEM_VALUES -> NumberFormatting.formatNumber(context.getBountyItemValues());
+            case BOUNTY_ITEMS -> context.getBountyItems();
+            case COST -> NumberFormatting.currencyPrefix + NumberFormatting.formatNumber(totalBounty) + NumberFormatting.currencySuffix;
+            case PAGE -> info.page() + "";
+            case MIN_BOUNTY -> getValue(ConfigOptions.minBounty);
+            case DATA -> getData(player, info);
+            case RECEIVER -> context.receiverName;
+            case SLOT -> inGUI ? getSlotValue(player, info, part.slot()) : null;
+            case PLAYER_SLOT -> getPlayerSlotValue(info, part.slot());
+        });
 
         boolean canceled = false;
         int loops = 100; // to stop an infinite loop if the command isn't formatted correctly
@@ -595,48 +574,180 @@ public class ActionCommands {
     }
 
 
-    public static boolean isRequirementCompleted(String requirement, OfflinePlayer player) {
-        try {
-            String placeholder = requirement.substring(0, requirement.indexOf(" "));
-            String operator = requirement.substring(requirement.indexOf(" ") + 1, requirement.lastIndexOf(" "));
-            String value = requirement.substring(requirement.lastIndexOf(" ") + 1);
-            Object parsedValue = parseValue(value);
-
-            if (placeholder.contains("%") && papiEnabled) {
-                String parsed = LanguageOptions.parse(placeholder, player);
-                Object parsedPlaceholder = parseValue(parsed);
-
-                // value types don't match
-                if (parsedValue instanceof Boolean && !(parsedPlaceholder instanceof Boolean)
-                        || parsedValue instanceof Integer && !(parsedPlaceholder instanceof Integer)
-                        || parsedValue instanceof Double && !(parsedPlaceholder instanceof Double)
-                        || parsedValue instanceof String && !(parsedPlaceholder instanceof String)) {
-                    return false;
+    /**
+     * Get the value of {data} from the GUI the player has open.
+     * If the player is selecting bounty items, the items in the open inventory are saved to their GUI info first.
+     * @return The data, or null if the GUI doesn't have any data.
+     */
+    private static @Nullable String getData(Player player, PlayerGUInfo info) {
+        if (info.data().length == 0)
+            return null;
+        Object[] data = info.data();
+        if (info.guiType().equals("bounty-item-select") && player.getOpenInventory().getTitle().equals(info.title())) {
+            // update data with current item contentse
+            GUIOptions guiOptions = GUI.getGUI("bounty-item-select");
+            if (guiOptions != null) {
+                // read current inventory
+                ItemStack[] inventoryContents = player.getOpenInventory().getTopInventory().getContents();
+                ItemStack[] currentContents = new ItemStack[GUI.getMaxBountyItemSlots()];
+                for (int i = 0; i < currentContents.length; i++) {
+                    currentContents[i] = inventoryContents[guiOptions.getPlayerSlots().get(i + 1)];
+                }
+                // get all items
+                ItemStack[][] allItems = data.length > 1 && data[1] instanceof ItemStack[][] itemStacks ? itemStacks : new ItemStack[GUI.getMaxBountyItemSlots()][(int) info.page()];
+                allItems[(int) info.page() - 1] = currentContents; // set current content
+                data = new Object[]{data[0], allItems};
+                playerInfo.replace(player.getUniqueId(), new PlayerGUInfo(info.page(), info.guiType(), data, info.displayItems(), info.title()));
+            }
+        }
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < data.length; i++) {
+            if (data[i] == null)
+                data[i] = "";
+            if (info.guiType().equals("bounty-item-select")) {
+                if (i == 0)
+                    // player uuid to set bounty on
+                    builder.append(data[0]).append(' ');
+                else if (i > 1)
+                    builder.append(",");
+                if (i > 0) {
+                    // items to set bounty
+                    ItemStack[][] allItems = (ItemStack[][]) data[i];
+                    List<ItemStack> listItems = new ArrayList<>();
+                    Arrays.stream(allItems).forEach(itemStacks -> Arrays.stream(itemStacks).filter(Objects::nonNull).forEach(listItems::add));
+                    builder.append(NumberFormatting.listItems(listItems, ':'));
                 }
-                return compareObjects(parsedValue, parsedPlaceholder, operator);
             } else {
-                int customModelData = -1;
-                if (placeholder.contains("<") && placeholder.contains(">"))
-                    try {
-                        customModelData = (int) tryParse(placeholder.substring(placeholder.indexOf("<") + 1, placeholder.indexOf(">")));
-                        placeholder = placeholder.substring(0, placeholder.indexOf("<"));
-                    } catch (NumberFormatException e) {
-                        Bukkit.getLogger().warning("[NotRanks] Could not get custom model data from " + placeholder);
-                        Bukkit.getLogger().warning(e.toString());
+                if (i > 0)
+                    builder.append(' ');
+                builder.append(data[i].toString());
+            }
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Get the value of {slot<x>}, which is the player or display name of the item in the slot of the open inventory.
+     */
+    private static String getSlotValue(Player player, PlayerGUInfo info, int slot) {
+        if (slot < 0)
+            return "";
+        String replacement = "";
+        ItemStack item = player.getOpenInventory().getTopInventory().getContents()[slot];
+        if (item != null) {
+            if (item.getType() == Material.PLAYER_HEAD) {
+                SkullMeta meta = (SkullMeta) item.getItemMeta();
+                assert meta != null;
+                OfflinePlayer p = meta.getOwningPlayer();
+                if (p != null) {
+                    replacement = LoggedPlayers.getPlayerName(p.getUniqueId());
+                } else {
+                    if (!info.guiType().isEmpty()) {
+                       GUIOptions guiOptions = GUI.getGUI(info.guiType());
+                       if (guiOptions != null) {
+                           if (guiOptions.getPlayerSlots().contains(slot) && info.displayItems().get(guiOptions.getPlayerSlots().indexOf(slot)) instanceof PlayerItem playerItem) {
+                                replacement = LoggedPlayers.getPlayerName(playerItem.getUuid());
+                           }
+                       } else {
+                           Bukkit.getLogger().warning("Invalid player for slot " + slot);
+                       }
+                    } else {
+                        Bukkit.getLogger().warning("Invalid player for slot " + slot);
                     }
-                // check if it is a material
-                if (player.isOnline() && player.getPlayer() != null) {
-                    Material m = Material.getMaterial(placeholder);
-                    if (m != null && (parsedValue instanceof Integer || parsedValue instanceof Double)) {
-                            int reqValue = parsedValue instanceof Double ? ((Double) parsedValue).intValue() : (int) parsedValue;
-                            int playerValue = checkAmount(player.getPlayer(), m, customModelData);
-                            return compareObjects(reqValue, playerValue, operator);
-                        }
 
                 }
             }
-        } catch (IndexOutOfBoundsException e) {
-            Bukkit.getLogger().warning("Could not check requirement: " + requirement + "\nIs it formatted properly?");
+            if (replacement.isEmpty()) {
+                ItemMeta meta = item.getItemMeta();
+                if (meta != null)
+                    replacement = meta.getDisplayName();
+            }
+        }
+        return replacement;
+    }
+
+    /**
+     * Get the value of {player<x>}, which is the name of the player displayed at that position in the GUI.
+     */
+    private static String getPlayerSlotValue(PlayerGUInfo info, int slot) {
+        if (slot >= 0 && info.displayItems().size() > slot-1 && info.displayItems().get(slot-1) instanceof PlayerItem playerItem) {
+            return LoggedPlayers.getPlayerName(playerItem.getUuid());
+        }
+        return "";
+    }
+
+    /**
+     * A requirement that has been split into its parts.
+     * @param placeholder The placeholder or material to check, without custom model data.
+     * @param operator The comparison operator.
+     * @param value The value to compare the placeholder to.
+     * @param material The material to count if the placeholder is a material.
+     * @param customModelData The custom model data of the material, or -1 for any.
+     */
+    private record Requirement(String placeholder, String operator, Object value, @Nullable Material material, int customModelData) {}
+
+    /**
+     * Split a requirement into its parts.
+     * @param requirement The requirement in the format: placeholder operator value
+     * @return The compiled requirement.
+     * @throws IndexOutOfBoundsException If the requirement isn't formatted properly.
+     */
+    private static Requirement compileRequirement(String requirement) {
+        String placeholder = requirement.substring(0, requirement.indexOf(" "));
+        String operator = requirement.substring(requirement.indexOf(" ") + 1, requirement.lastIndexOf(" "));
+        String value = requirement.substring(requirement.lastIndexOf(" ") + 1);
+        Object parsedValue = parseValue(value);
+        if (placeholder.contains("%"))
+            return new Requirement(placeholder, operator, parsedValue, null, -1);
+        int customModelData = -1;
+        String materialName = placeholder;
+        if (placeholder.contains("<") && placeholder.contains(">"))
+            try {
+                customModelData = (int) tryParse(placeholder.substring(placeholder.indexOf("<") + 1, placeholder.indexOf(">")));
+                materialName = placeholder.substring(0, placeholder.indexOf("<"));
+            } catch (NumberFormatException e) {
+                Bukkit.getLogger().warning("[NotRanks] Could not get custom model data from " + placeholder);
+                Bukkit.getLogger().warning(e.toString());
+            }
+        return new Requirement(placeholder, operator, parsedValue, Material.getMaterial(materialName), customModelData);
+    }
+
+
+    public static boolean isRequirementCompleted(String requirement, OfflinePlayer player) {
+        Requirement compiled = compiledRequirements.get(requirement);
+        if (compiled == null) {
+            try {
+                compiled = compileRequirement(requirement);
+            } catch (IndexOutOfBoundsException e) {
+                Bukkit.getLogger().warning("Could not check requirement: " + requirement + "\nIs it formatted properly?");
+                return false;
+            }
+            compiledRequirements.put(requirement, compiled);
+        }
+        Object parsedValue = compiled.value();
+        if (compiled.placeholder().contains("%")) {
+            if (!papiEnabled)
+                return false;
+            String parsed = LanguageOptions.parse(compiled.placeholder(), player);
+            Object parsedPlaceholder = parseValue(parsed);
+
+            // value types don't match
+            if (parsedValue instanceof Boolean && !(parsedPlaceholder instanceof Boolean)
+                    || parsedValue instanceof Integer && !(parsedPlaceholder instanceof Integer)
+                    || parsedValue instanceof Double && !(parsedPlaceholder instanceof Double)
+                    || parsedValue instanceof String && !(parsedPlaceholder instanceof String)) {
+                return false;
+            }
+            return compareObjects(parsedValue, parsedPlaceholder, compiled.operator());
+        }
+        // check if it is a material
+        if (player.isOnline() && player.getPlayer() != null) {
+            Material m = compiled.material();
+            if (m != null && (parsedValue instanceof Integer || parsedValue instanceof Double)) {
+                int reqValue = parsedValue instanceof Double ? ((Double) parsedValue).intValue() : (int) parsedValue;
+                int playerValue = checkAmount(player.getPlayer(), m, compiled.customModelData());
+                return compareObjects(reqValue, playerValue, compiled.operator());
+            }
         }
         return false;
     }
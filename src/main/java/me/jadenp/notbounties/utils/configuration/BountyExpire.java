@@ -11,6 +11,7 @@ import org.bukkit.entity.Player;
 import org.bukkit.scheduler.BukkitRunnable;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 import static me.jadenp.notbounties.utils.BountyManager.*;
 import static me.jadenp.notbounties.utils.configuration.ConfigOptions.autoBountyExpireTime;
@@ -24,17 +25,44 @@ public class BountyExpire {
     private static final Map<UUID, Long> playTimes = new HashMap<>();
     private static final Map<UUID, Long> logonTimes = new HashMap<>();
 
+    /**
+     * The time when the next setter of a bounty expires.
+     * @param receiver UUID of the bounty receiver.
+     * @param time The time in milliseconds when the setter expires.
+     */
+    private record Expiry(UUID receiver, long time) {}
+
+    // bounties ordered by when their next setter expires
+    // entries that don't match scheduledTimes have been rescheduled and are skipped
+    private static final PriorityQueue<Expiry> expiryQueue = new PriorityQueue<>(Comparator.comparingLong(Expiry::time));
+    private static final Map<UUID, Long> scheduledTimes = new HashMap<>();
+    // receivers whose expiry time needs to be calculated again
+    private static final Set<UUID> changedReceivers = ConcurrentHashMap.newKeySet();
+    private static volatile boolean rescheduleAll = true;
+
     private BountyExpire(){}
 
     public static void loadConfiguration(ConfigurationSection configuration) {
         time = configuration.getDouble("time");
         offlineTracking = configuration.getBoolean("offline-tracking");
         rewardReceiver = configuration.getBoolean("reward-receiver");
+        rescheduleAll = true;
+    }
+
+    /**
+     * Mark a bounty to have its expiry time calculated again.
+     * This should be called whenever the setters of a bounty change.
+     * @param receiver UUID of the bounty receiver.
+     */
+    public static void bountyChanged(UUID receiver) {
+        changedReceivers.add(receiver);
     }
 
     public static void login(Player player) {
         logonTimes.put(player.getUniqueId(), System.currentTimeMillis());
         playTimes.put(player.getUniqueId(), 0L);
+        // play time starts counting again
+        changedReceivers.add(player.getUniqueId());
     }
 
     public static void logout(Player player) {
@@ -50,6 +78,7 @@ public class BountyExpire {
             playTimes.put(player.getUniqueId(), timePlayed);
         }
         logonTimes.remove(player.getUniqueId());
+        changedReceivers.add(player.getUniqueId());
     }
 
     public static long getTimePlayed(UUID uuid) {
@@ -130,49 +159,118 @@ public class BountyExpire {
         return (long) (time * 1000L * 60 * 60 * 24 - compareTime);
     }
 
-    public static boolean removeExpiredBounties() {
+    /**
+     * Remove the setters of bounties that have expired. Only bounties that are due to expire are checked.
+     * Expired setters are refunded and notified in one task on the main thread.
+     * @return True if any setters were removed.
+     */
+    public static synchronized boolean removeExpiredBounties() {
         if (time <= 0 && autoBountyExpireTime <= 0) {
             return false;
         }
-        boolean change = false;
-        // go through all the bounties and remove setters if it has been more than expire time
-
-            Map<UUID, List<Setter>> settersToRemove = new HashMap<>();
-            for (Bounty bounty : BountyManager.getAllBounties(-1)) {
-                for (Setter setter : bounty.getSetters()) {
-                    if (isExpired(bounty.getUUID(), setter)) {
-                        if (!setter.getUuid().equals(new UUID(0, 0))) {
-                            // check if setter is online
-                            new BukkitRunnable() {
-                                @Override
-                                public void run() {
-                                    Player player = Bukkit.getPlayer(setter.getUuid());
-                                    if (player != null) {
-                                        player.sendMessage(parse(getPrefix() + getMessage("expired-bounty"), setter.getDisplayAmount(), Bukkit.getOfflinePlayer(bounty.getUUID())));
-                                    }
-                                    if (rewardReceiver) {
-                                        refundPlayer(bounty.getUUID(), setter.getAmount(), setter.getItems());
-                                    } else {
-                                        refundSetter(setter);
-                                    }
-                                }
-                            }.runTask(NotBounties.getInstance());
+        updateSchedule();
+        long now = System.currentTimeMillis();
+        Map<UUID, List<Setter>> settersToRemove = new HashMap<>();
+        Expiry expiry;
+        while ((expiry = expiryQueue.peek()) != null && expiry.time() <= now) {
+            expiryQueue.poll();
+            UUID receiver = expiry.receiver();
+            Long scheduledTime = scheduledTimes.get(receiver);
+            if (scheduledTime == null || scheduledTime != expiry.time())
+                continue; // this bounty was rescheduled
+            scheduledTimes.remove(receiver);
+            // the next setter to expire will be scheduled
+            changedReceivers.add(receiver);
+            Bounty bounty = getBounty(receiver);
+            if (bounty == null)
+                continue;
+            List<Setter> expiredSetters = new ArrayList<>();
+            for (Setter setter : bounty.getSetters()) {
+                if (isExpired(receiver, setter))
+                    expiredSetters.add(setter);
+            }
+            if (!expiredSetters.isEmpty())
+                settersToRemove.put(receiver, expiredSetters);
+        }
+        if (settersToRemove.isEmpty()) {
+            updateSchedule();
+            return false;
+        }
+
+        for (Map.Entry<UUID, List<Setter>> entry : settersToRemove.entrySet()) {
+            DataManager.removeSetters(getBounty(entry.getKey()), entry.getValue());
+        }
+        updateSchedule();
+
+        new BukkitRunnable() {
+            @Override
+            public void run() {
+                for (Map.Entry<UUID, List<Setter>> entry : settersToRemove.entrySet()) {
+                    for (Setter setter : entry.getValue()) {
+                        if (setter.getUuid().equals(new UUID(0, 0)))
+                            continue;
+                        // check if setter is online
+                        Player player = Bukkit.getPlayer(setter.getUuid());
+                        if (player != null) {
+                            player.sendMessage(parse(getPrefix() + getMessage("expired-bounty"), setter.getDisplayAmount(), Bukkit.getOfflinePlayer(entry.getKey())));
                         }
-                        if (settersToRemove.containsKey(bounty.getUUID())) {
-                            settersToRemove.get(bounty.getUUID()).add(setter);
+                        if (rewardReceiver) {
+                            refundPlayer(entry.getKey(), setter.getAmount(), setter.getItems());
                         } else {
-                            settersToRemove.put(bounty.getUUID(), new ArrayList<>(List.of(setter)));
+                            refundSetter(setter);
                         }
-
-                        change = true;
                     }
                 }
             }
-            for (Map.Entry<UUID, List<Setter>> entry : settersToRemove.entrySet()) {
-                DataManager.removeSetters(getBounty(entry.getKey()), entry.getValue());
-            }
+        }.runTask(NotBounties.getInstance());
+        NotBounties.debugMessage("Removed expired setters from " + settersToRemove.size() + " bounties.", false);
+        return true;
+    }
+
+    /**
+     * Calculate the expiry time of the bounties that have changed.
+     * Every bounty is scheduled again after the configuration is loaded.
+     */
+    private static void updateSchedule() {
+        if (rescheduleAll) {
+            rescheduleAll = false;
+            changedReceivers.clear();
+            expiryQueue.clear();
+            scheduledTimes.clear();
+            for (Bounty bounty : BountyManager.getAllBounties(-1))
+                schedule(bounty.getUUID(), bounty);
+            return;
+        }
+        Iterator<UUID> iterator = changedReceivers.iterator();
+        while (iterator.hasNext()) {
+            UUID receiver = iterator.next();
+            iterator.remove();
+            schedule(receiver, getBounty(receiver));
+        }
+    }
 
-        return change;
+    /**
+     * Schedule the next time a setter of a bounty expires.
+     * In play time mode, the setters of offline players only expire if they already have.
+     * @param receiver UUID of the bounty receiver.
+     * @param bounty The bounty, or null if the receiver doesn't have a bounty.
+     */
+    private static void schedule(UUID receiver, Bounty bounty) {
+        scheduledTimes.remove(receiver);
+        if (bounty == null)
+            return;
+        long now = System.currentTimeMillis();
+        boolean counting = offlineTracking || logonTimes.containsKey(receiver);
+        long nextExpiry = Long.MAX_VALUE;
+        for (Setter setter : bounty.getSetters()) {
+            long expireTime = getExpireTime(receiver, setter);
+            if (counting || expireTime <= 0)
+                nextExpiry = Math.min(nextExpiry, now + Math.max(0, expireTime));
+        }
+        if (nextExpiry == Long.MAX_VALUE)
+            return;
+        scheduledTimes.put(receiver, nextExpiry);
+        expiryQueue.add(new Expiry(receiver, nextExpiry));
     }
 
     public static double getTime() {
@@ -0,0 +1,137 @@
+package me.jadenp.notbounties.utils.configuration;
+
+import org.bukkit.Bukkit;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.*;
+import java.util.function.Function;
+
+/**
+ * An action command that has been split into text and placeholders, so the placeholders can be filled in
+ * without searching the command again.
+ */
+class CommandTemplate {
+
+    enum Placeholder {
+        PLAYER, KILLER, AMOUNT, BOUNTY, BOUNTY_CURRENCY, BOUNTY_ITEM_VALUES, BOUNTY_ITEMS, COST, PAGE, MIN_BOUNTY, DATA,
+        RECEIVER, SLOT, PLAYER_SLOT
+    }
+
+    private static final Map<String, Placeholder> placeholderNames = Map.ofEntries(
+            Map.entry("player", Placeholder.PLAYER),
+            Map.entry("killer", Placeholder.KILLER),
+            Map.entry("amount", Placeholder.AMOUNT),
+            Map.entry("bounty", Placeholder.BOUNTY),
+            Map.entry("bounty_currency", Placeholder.BOUNTY_CURRENCY),
+            Map.entry("bounty_item_values", Placeholder.BOUNTY_ITEM_VALUES),
+            Map.entry("bounty_items", Placeholder.BOUNTY_ITEMS),
+            Map.entry("cost", Placeholder.COST),
+            Map.entry("page", Placeholder.PAGE),
+            Map.entry("min_bounty", Placeholder.MIN_BOUNTY),
+            Map.entry("data", Placeholder.DATA),
+            Map.entry("receiever", Placeholder.RECEIVER)
+    );
+
+    /**
+     * A part of the command.
+     * @param text The text of the part. For placeholders, this is the original placeholder text.
+     * @param placeholder The placeholder, or null if the part is plain text.
+     * @param slot The slot for {slot<x>} and {player<x>} placeholders, or -1 if the slot isn't a number.
+     */
+    record Part(String text, @Nullable Placeholder placeholder, int slot) {}
+
+    private final String command;
+    private final List<Part> parts;
+    private final Set<Placeholder> placeholders = EnumSet.noneOf(Placeholder.class);
+
+    /**
+     * Split a command into its parts.
+     * @param command The command from the configuration.
+     */
+    CommandTemplate(String command) {
+        this.command = command;
+        List<Part> commandParts = new ArrayList<>();
+        StringBuilder text = new StringBuilder();
+        int index = 0;
+        while (index < command.length()) {
+            int start = command.indexOf('{', index);
+            int end = start == -1 ? -1 : command.indexOf('}', start);
+            if (end == -1) {
+                text.append(command, index, command.length());
+                break;
+            }
+            int nextStart = command.indexOf('{', start + 1);
+            if (nextStart != -1 && nextStart < end) {
+                // another placeholder starts before this one ends
+                text.append(command, index, nextStart);
+                index = nextStart;
+                continue;
+            }
+            Part part = parsePlaceholder(command.substring(start, end + 1));
+            if (part == null) {
+                text.append(command, index, end + 1);
+            } else {
+                text.append(command, index, start);
+                if (!text.isEmpty()) {
+                    commandParts.add(new Part(text.toString(), null, -1));
+                    text.setLength(0);
+                }
+                commandParts.add(part);
+                placeholders.add(part.placeholder());
+            }
+            index = end + 1;
+        }
+        if (!text.isEmpty())
+            commandParts.add(new Part(text.toString(), null, -1));
+        parts = List.copyOf(commandParts);
+    }
+
+    private @Nullable Part parsePlaceholder(String text) {
+        String name = text.substring(1, text.length() - 1);
+        Placeholder placeholder = placeholderNames.get(name);
+        if (placeholder != null)
+            return new Part(text, placeholder, -1);
+        if (name.startsWith("slot"))
+            return new Part(text, Placeholder.SLOT, parseSlot(name.substring(4), "slot"));
+        if (name.startsWith("player"))
+            return new Part(text, Placeholder.PLAYER_SLOT, parseSlot(name.substring(6), "player"));
+        return null;
+    }
+
+    private int parseSlot(String slot, String type) {
+        try {
+            return Integer.parseInt(slot);
+        } catch (NumberFormatException e) {
+            Bukkit.getLogger().warning("Error getting " + type + " in command: \n" + command);
+            return -1;
+        }
+    }
+
+    /**
+     * Fill in the placeholders of the command.
+     * @param values Returns the value of a placeholder part, or null if the placeholder should be left as it is.
+     * @return The command with the placeholders filled in.
+     */
+    String render(Function<Part, String> values) {
+        if (placeholders.isEmpty())
+            return command;
+        StringBuilder builder = new StringBuilder(command.length() + 32);
+        for (Part part : parts) {
+            if (part.placeholder() == null) {
+                builder.append(part.text());
+            } else {
+                String value = values.apply(part);
+                builder.append(value != null ? value : part.text());
+            }
+        }
+        return builder.toString();
+    }
+
+    boolean isEmpty() {
+        return command.isEmpty();
+    }
+
+    String getCommand() {
+        return command;
+    }
+}
@@ -8,6 +8,8 @@ import org.bukkit.configuration.ConfigurationSection;
 import org.bukkit.entity.Player;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.PriorityBlockingQueue;
 
 import static me.jadenp.notbounties.utils.configuration.LanguageOptions.*;
 
@@ -74,8 +76,23 @@ public class Immunity {
     /**
      * Time immunity tracking. This will either display at what time in milliseconds that the immunity expires,
      * or how many milliseconds the player has left in their immunity.
+     * The immunity stat is only changed when immunity is given, removed, or expires. The remaining immunity is
+     * calculated from this when it is read.
      */
-    private static Map<UUID, Long> immunityTimeTracker = new HashMap<>();
+    private static Map<UUID, Long> immunityTimeTracker = new ConcurrentHashMap<>();
+
+    /**
+     * A time that a player's immunity expires.
+     * @param uuid UUID of the player.
+     * @param time The time in milliseconds when the immunity expires.
+     */
+    private record Expiry(UUID uuid, long time) {}
+
+    /**
+     * Expire times of the immunity that is counting down, with the soonest first.
+     * Entries are left in the queue when the immunity changes, and are skipped if they don't match the time tracker.
+     */
+    private static final PriorityBlockingQueue<Expiry> expiryQueue = new PriorityBlockingQueue<>(11, Comparator.comparingLong(Expiry::time));
     /**
      * The time at which the grace period started for players.
      */
@@ -104,25 +121,36 @@ public class Immunity {
             boolean updatedOfflineTracking = configuration.getBoolean("time-immunity.offline-tracking");
             if (!timeOfflineTracking && updatedOfflineTracking) {
                 // convert to global time
-                Map<UUID, Long> updatedNextBounties = new HashMap<>();
+                Map<UUID, Long> updatedNextBounties = new ConcurrentHashMap<>();
                 for (Map.Entry<UUID, Long> entry : immunityTimeTracker.entrySet()) {
                     // only convert if the player is offline, otherwise the value should already be in global time
-                    if (!Bukkit.getOfflinePlayer(entry.getKey()).isOnline())
+                    if (Bukkit.getPlayer(entry.getKey()) == null)
                         updatedNextBounties.put(entry.getKey(), entry.getValue() + System.currentTimeMillis());
+                    else
+                        updatedNextBounties.put(entry.getKey(), entry.getValue());
                 }
                 immunityTimeTracker = updatedNextBounties;
             } else if (timeOfflineTracking && !updatedOfflineTracking) {
                 // convert to local time
-                Map<UUID, Long> updatedNextBounties = new HashMap<>();
+                Map<UUID, Long> updatedNextBounties = new ConcurrentHashMap<>();
                 for (Map.Entry<UUID, Long> entry : immunityTimeTracker.entrySet()) {
-                    if (!Bukkit.getOfflinePlayer(entry.getKey()).isOnline())
+                    if (Bukkit.getPlayer(entry.getKey()) == null)
                         updatedNextBounties.put(entry.getKey(), entry.getValue() - System.currentTimeMillis());
+                    else
+                        updatedNextBounties.put(entry.getKey(), entry.getValue());
                 }
                 immunityTimeTracker = updatedNextBounties;
             }
             timeOfflineTracking = updatedOfflineTracking;
+            // expire times may have changed
+            expiryQueue.clear();
+            for (Map.Entry<UUID, Long> entry : immunityTimeTracker.entrySet()) {
+                if (isCounting(entry.getKey()))
+                    expiryQueue.add(new Expiry(entry.getKey(), entry.getValue()));
+            }
         } else {
             immunityTimeTracker.clear();
+            expiryQueue.clear();
         }
 
     }
@@ -133,11 +161,7 @@ public class Immunity {
         if (immunityType == ImmunityType.TIME) {
             for (Map.Entry<UUID, Double> entry : immunity.entrySet()) {
                 if (entry.getValue() > 0 && !immunityTimeTracker.containsKey(entry.getKey())) {
-                    if (Bukkit.getOfflinePlayer(entry.getKey()).isOnline() || timeOfflineTracking) {
-                        immunityTimeTracker.put(entry.getKey(), (long) ((entry.getValue() * time * 1000) + System.currentTimeMillis()));
-                    } else {
-                        immunityTimeTracker.put(entry.getKey(), (long) (entry.getValue() * time * 1000));
-                    }
+                    trackTime(entry.getKey(), (long) (entry.getValue() * time * 1000));
                 }
             }
         }
@@ -152,6 +176,7 @@ public class Immunity {
         if (getImmunity(uuid) == 0)
             return false;
         DataManager.changeStat(uuid, Leaderboard.IMMUNITY, DataManager.getStat(uuid, Leaderboard.IMMUNITY) * -1);
+        // the entry in the expiry queue is skipped when it doesn't match the tracker
         if (immunityType == ImmunityType.TIME)
             immunityTimeTracker.remove(uuid);
         return true;
@@ -173,54 +198,106 @@ public class Immunity {
         gracePeriodTracker.put(player.getUniqueId(), System.currentTimeMillis());
     }
 
+    /**
+     * Expires the time immunity that has run out.
+     * Only the immunity at the front of the expiry queue is checked.
+     */
     public static void update() {
         if (immunityType != ImmunityType.TIME)
             return;
 
-        // iterate through time tracker to find any expired immunity.
-        List<UUID> expiredImmunity = new ArrayList<>();
-        for (Map.Entry<UUID, Long> entry : immunityTimeTracker.entrySet()) {
-            if ((Bukkit.getOfflinePlayer(entry.getKey()).isOnline() || timeOfflineTracking) && System.currentTimeMillis() > entry.getValue()) {
-                expiredImmunity.add(entry.getKey());
-            } else if (!(Bukkit.getOfflinePlayer(entry.getKey()).isOnline() || timeOfflineTracking) && entry.getValue() <= 0) {
-                expiredImmunity.add(entry.getKey());
-            } else {
-                double immunity = Bukkit.getOfflinePlayer(entry.getKey()).isOnline() || timeOfflineTracking ? (entry.getValue() - System.currentTimeMillis()) / 1000.0D / time : (double) (entry.getValue()) / 1000 / time;
-                DataManager.changeStat(entry.getKey(), Leaderboard.IMMUNITY, immunity - DataManager.getStat(entry.getKey(), Leaderboard.IMMUNITY));
-            }
+        long now = System.currentTimeMillis();
+        Expiry expiry;
+        while ((expiry = expiryQueue.peek()) != null && expiry.time() <= now) {
+            expiryQueue.poll();
+            Long expireTime = immunityTimeTracker.get(expiry.uuid());
+            // the immunity was changed or removed after this was queued
+            if (expireTime == null || expireTime != expiry.time() || !isCounting(expiry.uuid()))
+                continue;
+            expireImmunity(expiry.uuid());
         }
-        for (UUID uuid : expiredImmunity) {
-            OfflinePlayer player = Bukkit.getOfflinePlayer(uuid);
-            if (player.isOnline())
-                Objects.requireNonNull(player.getPlayer()).sendMessage(parse(getPrefix() + getMessage("immunity-expire"), player));
-            immunityTimeTracker.remove(uuid);
-            DataManager.changeStat(uuid, Leaderboard.IMMUNITY, DataManager.getStat(uuid, Leaderboard.IMMUNITY) * -1);
+    }
+
+    /**
+     * Removes a player's time immunity and notifies them if they are online.
+     * @param uuid UUID of the player.
+     */
+    private static void expireImmunity(UUID uuid) {
+        Player player = Bukkit.getPlayer(uuid);
+        if (player != null)
+            player.sendMessage(parse(getPrefix() + getMessage("immunity-expire"), player));
+        immunityTimeTracker.remove(uuid);
+        DataManager.changeStat(uuid, Leaderboard.IMMUNITY, DataManager.getStat(uuid, Leaderboard.IMMUNITY) * -1);
+    }
+
+    /**
+     * Check if a player's time immunity is counting down.
+     * Counting immunity is stored as the time it expires, and other immunity is stored as the time remaining.
+     * @param uuid UUID of the player.
+     * @return True if the player is online or offline tracking is enabled.
+     */
+    private static boolean isCounting(UUID uuid) {
+        return timeOfflineTracking || Bukkit.getPlayer(uuid) != null;
+    }
+
+    /**
+     * Start tracking a player's time immunity.
+     * @param uuid UUID of the player.
+     * @param remaining Milliseconds of immunity remaining.
+     */
+    private static void trackTime(UUID uuid, long remaining) {
+        if (isCounting(uuid)) {
+            long expireTime = remaining + System.currentTimeMillis();
+            immunityTimeTracker.put(uuid, expireTime);
+            expiryQueue.add(new Expiry(uuid, expireTime));
+        } else {
+            immunityTimeTracker.put(uuid, remaining);
         }
+    }
 
+    /**
+     * Get the time immunity remaining for players.
+     * @return The milliseconds of immunity remaining for each player with time immunity.
+     */
+    public static Map<UUID, Long> getRemainingTimes() {
+        Map<UUID, Long> remainingTimes = new HashMap<>();
+        for (Map.Entry<UUID, Long> entry : immunityTimeTracker.entrySet()) {
+            long remaining = isCounting(entry.getKey()) ? entry.getValue() - System.currentTimeMillis() : entry.getValue();
+            remainingTimes.put(entry.getKey(), Math.max(0, remaining));
+        }
+        return remainingTimes;
     }
 
+    /**
+     * Set the time immunity remaining for players. This should be called before the player data is loaded.
+     * @param remainingTimes The milliseconds of immunity remaining for each player.
+     */
+    public static void setRemainingTimes(Map<UUID, Long> remainingTimes) {
+        if (immunityType != ImmunityType.TIME)
+            return;
+        for (Map.Entry<UUID, Long> entry : remainingTimes.entrySet())
+            trackTime(entry.getKey(), entry.getValue());
+    }
 
     public static void addImmunity(UUID uuid, double amount) {
         DataManager.changeStat(uuid, Leaderboard.IMMUNITY, amount);
-        if (immunityType == ImmunityType.TIME)
-            if (immunityTimeTracker.containsKey(uuid)) {
-                immunityTimeTracker.replace(uuid, (long) (immunityTimeTracker.get(uuid) + amount * time * 1000L));
+        if (immunityType == ImmunityType.TIME) {
+            Long trackedTime = immunityTimeTracker.get(uuid);
+            if (trackedTime != null) {
+                long updatedTime = (long) (trackedTime + amount * time * 1000L);
+                immunityTimeTracker.put(uuid, updatedTime);
+                if (isCounting(uuid))
+                    expiryQueue.add(new Expiry(uuid, updatedTime));
             } else {
-                if (Bukkit.getOfflinePlayer(uuid).isOnline() || !timeOfflineTracking)
-                    immunityTimeTracker.put(uuid, (long) (amount * time * 1000L + System.currentTimeMillis()));
-                else
-                    immunityTimeTracker.put(uuid, (long) (amount * time * 1000L));
+                trackTime(uuid, (long) (amount * time * 1000L));
             }
+        }
     }
 
     public static void setImmunity(UUID uuid, double amount) {
         DataManager.changeStat(uuid, Leaderboard.IMMUNITY, amount - DataManager.getStat(uuid, Leaderboard.IMMUNITY));
         if (immunityType == ImmunityType.TIME) {
-            if (Bukkit.getOfflinePlayer(uuid).isOnline() || !timeOfflineTracking) {
-                immunityTimeTracker.put(uuid, (long) (amount * time * 1000L + System.currentTimeMillis()));
-            } else {
-                immunityTimeTracker.put(uuid, (long) (amount * time * 1000L));
-            }
+            trackTime(uuid, (long) (amount * time * 1000L));
         }
     }
 
@@ -241,16 +318,31 @@ public class Immunity {
         return 0;
     }
 
+    /**
+     * Get the immunity of a player. Time immunity is calculated from the time remaining.
+     * @param uuid UUID of the player.
+     * @return The amount of immunity the player has.
+     */
     public static double getImmunity(UUID uuid) {
-        return Leaderboard.IMMUNITY.getStat(uuid);
+        if (immunityType == ImmunityType.TIME && time > 0) {
+            Long trackedTime = immunityTimeTracker.get(uuid);
+            if (trackedTime != null) {
+                long remaining = isCounting(uuid) ? trackedTime - System.currentTimeMillis() : trackedTime;
+                return Math.max(0, remaining) / 1000.0D / time;
+            }
+        }
+        return DataManager.getStat(uuid, Leaderboard.IMMUNITY);
     }
 
     public static long getTimeImmunity(OfflinePlayer player) {
         if (!hasTimeImmunity(player))
             return 0;
+        Long trackedTime = immunityTimeTracker.get(player.getUniqueId());
+        if (trackedTime == null)
+            return 0;
         if (player.isOnline() || timeOfflineTracking)
-            return immunityTimeTracker.get(player.getUniqueId()) - System.currentTimeMillis();
-        return immunityTimeTracker.get(player.getUniqueId());
+            return trackedTime - System.currentTimeMillis();
+        return trackedTime;
     }
 
     /**
@@ -285,23 +377,33 @@ public class Immunity {
     }
 
     private static boolean hasTimeImmunity(OfflinePlayer player) {
-        if ((player.isOnline() || timeOfflineTracking) && immunityTimeTracker.containsKey(player.getUniqueId()) && immunityTimeTracker.get(player.getUniqueId()) > System.currentTimeMillis()) {
-            return true;
-        }
-        return !player.isOnline() && !timeOfflineTracking && immunityTimeTracker.containsKey(player.getUniqueId()) && immunityTimeTracker.get(player.getUniqueId()) > 0;
+        Long trackedTime = immunityTimeTracker.get(player.getUniqueId());
+        if (trackedTime == null)
+            return false;
+        if (player.isOnline() || timeOfflineTracking)
+            return trackedTime > System.currentTimeMillis();
+        return trackedTime > 0;
     }
 
     public static void login(Player player) {
-        if (immunityType == ImmunityType.TIME && !timeOfflineTracking && immunityTimeTracker.containsKey(player.getUniqueId())) {
+        Long trackedTime = immunityTimeTracker.get(player.getUniqueId());
+        if (immunityType == ImmunityType.TIME && !timeOfflineTracking && trackedTime != null) {
             // change storage type from time until expire to time of expire
-            immunityTimeTracker.replace(player.getUniqueId(), immunityTimeTracker.get(player.getUniqueId()) + System.currentTimeMillis());
+            long expireTime = trackedTime + System.currentTimeMillis();
+            immunityTimeTracker.put(player.getUniqueId(), expireTime);
+            expiryQueue.add(new Expiry(player.getUniqueId(), expireTime));
         }
     }
 
     public static void logout(Player player){
-        if (immunityType == ImmunityType.TIME && !timeOfflineTracking && immunityTimeTracker.containsKey(player.getUniqueId())) {
+        Long trackedTime = immunityTimeTracker.get(player.getUniqueId());
+        if (immunityType == ImmunityType.TIME && !timeOfflineTracking && trackedTime != null) {
             // change storage type from time to expire to time until expire
-            immunityTimeTracker.replace(player.getUniqueId(), immunityTimeTracker.get(player.getUniqueId()) - System.currentTimeMillis());
+            long remaining = trackedTime - System.currentTimeMillis();
+            if (remaining > 0)
+                immunityTimeTracker.put(player.getUniqueId(), remaining);
+            else
+                expireImmunity(player.getUniqueId());
         }
         DataManager.getPlayerData(player.getUniqueId()).setGeneralImmunity(player.hasPermission("notbounties.immune"));
     }
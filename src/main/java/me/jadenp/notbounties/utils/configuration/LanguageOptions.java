@@ -1,17 +1,9 @@
 package me.jadenp.notbounties.utils.configuration;
 
-import me.jadenp.notbounties.data.Bounty;
 import me.jadenp.notbounties.NotBounties;
-import me.jadenp.notbounties.data.PlayerData;
 import me.jadenp.notbounties.ui.BountyTracker;
-import me.jadenp.notbounties.ui.gui.GUI;
-import me.jadenp.notbounties.ui.gui.PlayerGUInfo;
-import me.jadenp.notbounties.ui.gui.display_items.PlayerItem;
-import me.jadenp.notbounties.utils.BountyManager;
-import me.jadenp.notbounties.utils.DataManager;
 import me.jadenp.notbounties.utils.LoggedPlayers;
 import me.jadenp.notbounties.utils.Tutorial;
-import me.jadenp.notbounties.data.Whitelist;
 import me.jadenp.notbounties.utils.challenges.ChallengeManager;
 import me.jadenp.notbounties.utils.external_api.LocalTime;
 import me.jadenp.notbounties.utils.external_api.PlaceholderAPIClass;
@@ -105,6 +97,15 @@ public class LanguageOptions {
             }
         }
 
+        // split the messages into placeholders now instead of when they are first sent
+        MessageTemplate.clearCache();
+        for (String message : messages.values())
+            if (message != null)
+                MessageTemplate.of(message);
+        for (List<String> listMessage : listMessages.values())
+            for (String message : listMessage)
+                MessageTemplate.of(message);
+
 
         prefix = configuration.getString("prefix");
 
@@ -345,86 +346,7 @@ public class LanguageOptions {
     }
 
     public static String parse(String str, OfflinePlayer receiver) {
-        if (str.contains("{time}")) {
-            String timeString = formatTime(System.currentTimeMillis(), LocalTime.TimeFormat.PLAYER, receiver.getPlayer());
-            str = str.replace("{time}", (timeString));
-        }
-        str = str.replace("{next_challenges}", formatTime(ChallengeManager.getNextChallengeChange() - System.currentTimeMillis(), LocalTime.TimeFormat.RELATIVE));
-        str = str.replace("{min_bounty}", (NumberFormatting.getValue(ConfigOptions.minBounty)));
-        str = str.replace("{c_prefix}", (NumberFormatting.currencyPrefix));
-        str = str.replace("{c_suffix}", (NumberFormatting.currencySuffix));
-        str = str.replace("{whitelist_cost}", NumberFormatting.currencyPrefix + NumberFormatting.formatNumber(ConfigOptions.bountyWhitelistCost) + NumberFormatting.currencySuffix);
-        str = str.replace("{tax}", (NumberFormatting.formatNumber(ConfigOptions.bountyTax * 100)));
-        str = str.replace("{buy_back_interest}", (NumberFormatting.formatNumber(ConfigOptions.buyBackInterest * 100)));
-        str = str.replace("{permanent_cost}", (NumberFormatting.currencyPrefix + NumberFormatting.formatNumber(Immunity.getPermanentCost()) + NumberFormatting.currencySuffix));
-        str = str.replace("{scaling_ratio}", (NumberFormatting.formatNumber(Immunity.getScalingRatio())));
-        str = str.replace("{time_immunity}", (formatTime((long) (Immunity.getTime() * 1000L), LocalTime.TimeFormat.RELATIVE)));
-
-        if (receiver != null) {
-            Bounty bounty = BountyManager.getBounty(receiver.getUniqueId());
-            if (bounty != null) {
-                str = str.replace("{min_expire}", (formatTime(BountyExpire.getLowestExpireTime(bounty), LocalTime.TimeFormat.RELATIVE)));
-                str = str.replace("{max_expire}", (formatTime(BountyExpire.getHighestExpireTime(bounty), LocalTime.TimeFormat.RELATIVE)));
-                str = str.replace("{bounty}", NumberFormatting.currencyPrefix + NumberFormatting.formatNumber(bounty.getTotalDisplayBounty()) + NumberFormatting.currencySuffix);
-                str = str.replace("{bounty_value}", NumberFormatting.getValue(bounty.getTotalDisplayBounty()) );
-            } else {
-                str = str.replace("{min_expire}", "");
-                str = str.replace("{max_expire}", "");
-            }
-            if (receiver.getName() != null) {
-                str = str.replace("{player}", getMessage("player-prefix") + receiver.getName() + getMessage("player-suffix"));
-                str = str.replace("{receiver}", getMessage("player-prefix") + receiver.getName() + getMessage("player-suffix"));
-            } else {
-                str = str.replace("{player}", getMessage("player-prefix") + LoggedPlayers.getPlayerName(receiver.getUniqueId()) + getMessage("player-prefix"));
-                str = str.replace("{receiver}", getMessage("player-prefix") + LoggedPlayers.getPlayerName(receiver.getUniqueId()) + getMessage("player-suffix"));
-            }
-            if (str.contains("{balance}"))
-                str = str.replace("{balance}", (NumberFormatting.currencyPrefix + NumberFormatting.formatNumber(NumberFormatting.getBalance(receiver)) + NumberFormatting.currencySuffix));
-            PlayerData playerData = DataManager.getPlayerData(receiver.getUniqueId());
-            Whitelist whitelist = playerData.getWhitelist();
-            str = str.replace("{whitelist}", (whitelist.toString()));
-            String mode = whitelist.isBlacklist() ? "Blacklist" : "Whitelist";
-            str = str.replace("{mode}", mode);
-            mode = whitelist.isBlacklist() ? "false" : "true";
-            str = str.replace("{mode_raw}", mode);
-            String notification = playerData.isDisableBroadcast() ? "true" : "false";
-            str = str.replace("{notification}", notification);
-            // {whitelist2} turns into the name of the second player in the receiver's whitelist
-            while (str.contains("{whitelist") && str.substring(str.indexOf("{whitelist")).contains("}")) {
-                int num;
-                String stringValue = str.substring(str.indexOf("{whitelist") + 10, str.indexOf("{whitelist") + str.substring(str.indexOf("{whitelist")).indexOf(">}"));
-                try {
-                    num = Integer.parseInt(stringValue);
-                } catch (NumberFormatException e) {
-                    str = str.replace("{whitelist" + stringValue + "}", "<Error>");
-                    continue;
-                }
-                if (num < 1)
-                    num = 1;
-                if (whitelist.getList().size() > num)
-                    str = str.replace("{whitelist" + stringValue + "}", "");
-                else
-                    str = str.replace("{whitelist" + stringValue + "}", LoggedPlayers.getPlayerName(whitelist.getList().get(num-1)));
-            }
-            // parsing for GUI
-            if (receiver.isOnline() && GUI.playerInfo.containsKey(receiver.getUniqueId())) {
-                PlayerGUInfo info = GUI.playerInfo.get(receiver.getUniqueId());
-                // check for {player<x>}
-                while (str.contains("{player") && str.substring(str.indexOf("{player")).contains("}")) {
-                    String replacement = "";
-                    String slotString = str.substring(str.indexOf("{player") + 7, str.substring(str.indexOf("{player")).indexOf("}") + str.substring(0, str.indexOf("{player")).length());
-                    try {
-                        int slot = Integer.parseInt(slotString);
-                        if (info.displayItems().size() > slot-1 && info.displayItems().get(slot-1) instanceof PlayerItem playerItem) {
-                            replacement = LoggedPlayers.getPlayerName(playerItem.getUuid());
-                        }
-                    } catch (NumberFormatException e) {
-                        Bukkit.getLogger().warning("Error getting player in command: \n" + str);
-                    }
-                    str = str.replace(("{player" + slotString + "}"), (replacement));
-                }
-            }
-        }
+        str = MessageTemplate.of(str).render(receiver);
         if (ConfigOptions.papiEnabled && receiver != null) {
             str = new PlaceholderAPIClass().parse(receiver, str);
         }
@@ -0,0 +1,343 @@
+package me.jadenp.notbounties.utils.configuration;
+
+import me.jadenp.notbounties.data.Bounty;
+import me.jadenp.notbounties.data.PlayerData;
+import me.jadenp.notbounties.data.Whitelist;
+import me.jadenp.notbounties.ui.gui.GUI;
+import me.jadenp.notbounties.ui.gui.PlayerGUInfo;
+import me.jadenp.notbounties.ui.gui.display_items.PlayerItem;
+import me.jadenp.notbounties.utils.BountyManager;
+import me.jadenp.notbounties.utils.DataManager;
+import me.jadenp.notbounties.utils.LoggedPlayers;
+import me.jadenp.notbounties.utils.challenges.ChallengeManager;
+import me.jadenp.notbounties.utils.external_api.LocalTime;
+import org.bukkit.Bukkit;
+import org.bukkit.OfflinePlayer;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.*;
+
+import static me.jadenp.notbounties.utils.configuration.LanguageOptions.getMessage;
+import static me.jadenp.notbounties.utils.external_api.LocalTime.formatTime;
+
+/**
+ * A message that was split into text and placeholders, so it can be parsed without searching for every placeholder.
+ * Only the placeholders in the message are evaluated when it is rendered.
+ * Placeholders are replaced in the same order as {@link LanguageOptions#parse(String, OfflinePlayer)} used to
+ * replace them, so a value that contains a placeholder is parsed the same way.
+ */
+class MessageTemplate {
+
+    private static final int MAX_CACHED_TEMPLATES = 1000;
+    private static final int MAX_BUILDER_CAPACITY = 8192;
+
+    private static final Map<String, MessageTemplate> templates = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, MessageTemplate> eldest) {
+            return size() > MAX_CACHED_TEMPLATES;
+        }
+    });
+    private static final ThreadLocal<StringBuilder> builders = ThreadLocal.withInitial(StringBuilder::new);
+
+    /**
+     * The placeholders that can be in a message, in the order they are replaced.
+     */
+    private enum Token {
+        TIME("time"),
+        NEXT_CHALLENGES("next_challenges"),
+        MIN_BOUNTY("min_bounty"),
+        C_PREFIX("c_prefix"),
+        C_SUFFIX("c_suffix"),
+        WHITELIST_COST("whitelist_cost"),
+        TAX("tax"),
+        BUY_BACK_INTEREST("buy_back_interest"),
+        PERMANENT_COST("permanent_cost"),
+        SCALING_RATIO("scaling_ratio"),
+        TIME_IMMUNITY("time_immunity"),
+        MIN_EXPIRE("min_expire"),
+        MAX_EXPIRE("max_expire"),
+        BOUNTY("bounty"),
+        BOUNTY_VALUE("bounty_value"),
+        PLAYER("player"),
+        RECEIVER("receiver"),
+        BALANCE("balance"),
+        WHITELIST("whitelist"),
+        MODE("mode"),
+        MODE_RAW("mode_raw"),
+        NOTIFICATION("notification"),
+        /**
+         * {whitelist[x]} - name of the player in the receiver's whitelist.
+         */
+        WHITELIST_INDEX(null),
+        /**
+         * {player[x]} - name of the player in a slot of the receiver's open GUI.
+         */
+        GUI_PLAYER(null);
+
+        private static final Map<String, Token> byName = new HashMap<>();
+        static {
+            for (Token token : values())
+                if (token.name != null)
+                    byName.put(token.name, token);
+        }
+
+        private final String name;
+
+        Token(@Nullable String name) {
+            this.name = name;
+        }
+    }
+
+    /**
+     * A part of the message.
+     * @param text The literal text, or the text of the placeholder if it can't be replaced.
+     * @param token The placeholder, or null if this is literal text.
+     * @param argument The text after the placeholder name for {@link Token#WHITELIST_INDEX} and {@link Token#GUI_PLAYER}.
+     */
+    private record Segment(String text, @Nullable Token token, @Nullable String argument) {}
+
+    /**
+     * Values that are read once for every render.
+     */
+    private static class Context {
+        private final @Nullable OfflinePlayer receiver;
+        private Bounty bounty;
+        private boolean bountyRead = false;
+        private PlayerData playerData;
+
+        Context(@Nullable OfflinePlayer receiver) {
+            this.receiver = receiver;
+        }
+
+        @Nullable Bounty getBounty() {
+            if (!bountyRead) {
+                bounty = BountyManager.getBounty(Objects.requireNonNull(receiver).getUniqueId());
+                bountyRead = true;
+            }
+            return bounty;
+        }
+
+        PlayerData getPlayerData() {
+            if (playerData == null)
+                playerData = DataManager.getPlayerData(Objects.requireNonNull(receiver).getUniqueId());
+            return playerData;
+        }
+    }
+
+    private final String message;
+    private final Segment[] segments;
+    private final boolean hasPlaceholders;
+
+    private MessageTemplate(String message, Segment[] segments) {
+        this.message = message;
+        this.segments = segments;
+        this.hasPlaceholders = Arrays.stream(segments).anyMatch(segment -> segment.token() != null);
+    }
+
+    /**
+     * Get the template of a message. Templates are cached, so a message is only split once.
+     * @param message Message to get the template of.
+     * @return The template of the message.
+     */
+    static MessageTemplate of(String message) {
+        MessageTemplate template = templates.get(message);
+        if (template == null) {
+            template = compile(message);
+            templates.put(message, template);
+        }
+        return template;
+    }
+
+    /**
+     * Remove all cached templates.
+     */
+    static void clearCache() {
+        templates.clear();
+    }
+
+    /**
+     * Split a message into text and placeholders.
+     * @param message Message to split.
+     * @return A new template.
+     */
+    static MessageTemplate compile(String message) {
+        List<Segment> segments = new ArrayList<>();
+        int textStart = 0;
+        int index = message.indexOf('{');
+        while (index != -1) {
+            int end = message.indexOf('}', index + 1);
+            if (end == -1)
+                break;
+            String name = message.substring(index + 1, end);
+            Segment segment = getPlaceholder(message.substring(index, end + 1), name);
+            if (segment == null) {
+                // not a placeholder, the next bracket could start one
+                index = message.indexOf('{', index + 1);
+                continue;
+            }
+            if (textStart < index)
+                segments.add(new Segment(message.substring(textStart, index), null, null));
+            segments.add(segment);
+            textStart = end + 1;
+            index = message.indexOf('{', textStart);
+        }
+        if (textStart < message.length())
+            segments.add(new Segment(message.substring(textStart), null, null));
+        return new MessageTemplate(message, segments.toArray(new Segment[0]));
+    }
+
+    private static @Nullable Segment getPlaceholder(String text, String name) {
+        Token token = Token.byName.get(name);
+        if (token != null)
+            return new Segment(text, token, null);
+        if (name.startsWith("whitelist") && name.length() > 9)
+            return new Segment(text, Token.WHITELIST_INDEX, name.substring(9));
+        if (name.startsWith("player") && name.length() > 6)
+            return new Segment(text, Token.GUI_PLAYER, name.substring(6));
+        return null;
+    }
+
+    /**
+     * Replace the placeholders in this message.
+     * @param receiver The player the message is about.
+     * @return The message with the placeholders replaced.
+     */
+    String render(@Nullable OfflinePlayer receiver) {
+        if (!hasPlaceholders)
+            return message;
+        StringBuilder builder = builders.get();
+        if (builder.length() > 0)
+            // an outer render on this thread is using the builder
+            builder = new StringBuilder();
+        render(builder, new Context(receiver), 0);
+        String result = builder.toString();
+        builder.setLength(0);
+        if (builder.capacity() > MAX_BUILDER_CAPACITY)
+            builders.remove();
+        return result;
+    }
+
+    /**
+     * Append this message to a builder.
+     * @param builder Builder to append to.
+     * @param context Values for the placeholders.
+     * @param firstToken Placeholders before this ordinal aren't replaced.
+     */
+    private void render(StringBuilder builder, Context context, int firstToken) {
+        for (Segment segment : segments) {
+            Token token = segment.token();
+            String value = token == null || token.ordinal() < firstToken ? null : getValue(segment, context);
+            if (value == null) {
+                builder.append(segment.text());
+            } else if (value.indexOf('{') != -1 && token.ordinal() < Token.GUI_PLAYER.ordinal()) {
+                // the value could have a placeholder that would have been replaced after this one
+                of(value).render(builder, context, token.ordinal() + 1);
+            } else {
+                builder.append(value);
+            }
+        }
+    }
+
+    /**
+     * Get the value of a placeholder.
+     * @return The value, or null if the placeholder shouldn't be replaced.
+     */
+    private static @Nullable String getValue(Segment segment, Context context) {
+        OfflinePlayer receiver = context.receiver;
+        switch (Objects.requireNonNull(segment.token())) {
+            case TIME:
+                return formatTime(System.currentTimeMillis(), LocalTime.TimeFormat.PLAYER, receiver == null ? null : receiver.getPlayer());
+            case NEXT_CHALLENGES:
+                return formatTime(ChallengeManager.getNextChallengeChange() - System.currentTimeMillis(), LocalTime.TimeFormat.RELATIVE);
+            case MIN_BOUNTY:
+                return NumberFormatting.getValue(ConfigOptions.minBounty);
+            case C_PREFIX:
+                return NumberFormatting.currencyPrefix;
+            case C_SUFFIX:
+                return NumberFormatting.currencySuffix;
+            case WHITELIST_COST:
+                return NumberFormatting.currencyPrefix + NumberFormatting.formatNumber(ConfigOptions.bountyWhitelistCost) + NumberFormatting.currencySuffix;
+            case TAX:
+                return NumberFormatting.formatNumber(ConfigOptions.bountyTax * 100);
+            case BUY_BACK_INTEREST:
+                return NumberFormatting.formatNumber(ConfigOptions.buyBackInterest * 100);
+            case PERMANENT_COST:
+                return NumberFormatting.currencyPrefix + NumberFormatting.formatNumber(Immunity.getPermanentCost()) + NumberFormatting.currencySuffix;
+            case SCALING_RATIO:
+                return NumberFormatting.formatNumber(Immunity.getScalingRatio());
+            case TIME_IMMUNITY:
+                return formatTime((long) (Immunity.getTime() * 1000L), LocalTime.TimeFormat.RELATIVE);
+            default:
+                break;
+        }
+        if (receiver == null)
+            return null;
+        switch (segment.token()) {
+            case MIN_EXPIRE:
+                return context.getBounty() == null ? "" : formatTime(BountyExpire.getLowestExpireTime(context.getBounty()), LocalTime.TimeFormat.RELATIVE);
+            case MAX_EXPIRE:
+                return context.getBounty() == null ? "" : formatTime(BountyExpire.getHighestExpireTime(context.getBounty()), LocalTime.TimeFormat.RELATIVE);
+            case BOUNTY:
+                return context.getBounty() == null ? null : NumberFormatting.currencyPrefix + NumberFormatting.formatNumber(context.getBounty().getTotalDisplayBounty()) + NumberFormatting.currencySuffix;
+            case BOUNTY_VALUE:
+                return context.getBounty() == null ? null : NumberFormatting.getValue(context.getBounty().getTotalDisplayBounty());
+            case PLAYER:
+                if (receiver.getName() != null)
+                    return getMessage("player-prefix") + receiver.getName() + getMessage("player-suffix");
+                return getMessage("player-prefix") + LoggedPlayers.getPlayerName(receiver.getUniqueId()) + getMessage("player-prefix");
+            case RECEIVER:
+                return getMessage("player-prefix") + (receiver.getName() != null ? receiver.getName() : LoggedPlayers.getPlayerName(receiver.getUniqueId())) + getMessage("player-suffix");
+            case BALANCE:
+                return NumberFormatting.currencyPrefix + NumberFormatting.formatNumber(NumberFormatting.getBalance(receiver)) + NumberFormatting.currencySuffix;
+            case WHITELIST:
+                return context.getPlayerData().getWhitelist().toString();
+            case MODE:
+                return context.getPlayerData().getWhitelist().isBlacklist() ? "Blacklist" : "Whitelist";
+            case MODE_RAW:
+                return context.getPlayerData().getWhitelist().isBlacklist() ? "false" : "true";
+            case NOTIFICATION:
+                return context.getPlayerData().isDisableBroadcast() ? "true" : "false";
+            case WHITELIST_INDEX:
+                return getWhitelistedPlayer(context.getPlayerData().getWhitelist(), Objects.requireNonNull(segment.argument()));
+            case GUI_PLAYER:
+                return getGUIPlayer(receiver, Objects.requireNonNull(segment.argument()));
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * {whitelist2} turns into the name of the second player in the receiver's whitelist
+     */
+    private static String getWhitelistedPlayer(Whitelist whitelist, String indexString) {
+        int num;
+        try {
+            num = Integer.parseInt(indexString);
+        } catch (NumberFormatException e) {
+            return "<Error>";
+        }
+        if (num < 1)
+            num = 1;
+        if (num > whitelist.getList().size())
+            return "";
+        return LoggedPlayers.getPlayerName(whitelist.getList().get(num - 1));
+    }
+
+    /**
+     * {player3} turns into the name of the player in the third slot of the receiver's GUI
+     */
+    private static @Nullable String getGUIPlayer(OfflinePlayer receiver, String slotString) {
+        if (!receiver.isOnline() || !GUI.playerInfo.containsKey(receiver.getUniqueId()))
+            return null;
+        PlayerGUInfo info = GUI.playerInfo.get(receiver.getUniqueId());
+        try {
+            int slot = Integer.parseInt(slotString);
+            if (slot > 0 && info.displayItems().size() > slot-1 && info.displayItems().get(slot-1) instanceof PlayerItem playerItem) {
+                return LoggedPlayers.getPlayerName(playerItem.getUuid());
+            }
+        } catch (NumberFormatException e) {
+            Bukkit.getLogger().warning("Error getting player in command: \n{player" + slotString + "}");
+        }
+        return "";
+    }
+}
@@ -7,13 +7,13 @@ import org.bukkit.GameMode;
 import org.bukkit.Location;
 import org.bukkit.OfflinePlayer;
 import org.bukkit.configuration.ConfigurationSection;
-import org.bukkit.entity.ArmorStand;
-import org.bukkit.entity.EntityType;
-import org.bukkit.entity.Player;
+import org.bukkit.World;
+import org.bukkit.entity.*;
 import org.bukkit.persistence.PersistentDataType;
 import org.bukkit.util.Vector;
 
 import java.util.Map;
+import java.util.Objects;
 
 import static me.jadenp.notbounties.NotBounties.isVanished;
 import static me.jadenp.notbounties.utils.configuration.ConfigOptions.*;
@@ -51,6 +51,11 @@ public class WantedTags {
      * Whether the tag should be hidden when the player is moving.
      */
     private static boolean hideWantedWhenMoving;
+    /**
+     * Whether the tag should be a text display entity instead of an armor stand.
+     * Text displays are only teleported when the player moves.
+     */
+    private static boolean useTextDisplay;
 
     /**
      * Load the Wanted Tags configuration.
@@ -65,6 +70,8 @@ public class WantedTags {
         wantedTextUpdateInterval = configuration.getLong("text-update-interval");
         wantedVisibilityUpdateInterval = configuration.getLong("visibility-update-interval");
         hideWantedWhenMoving = configuration.getBoolean("hide-when-moving");
+        // text displays were added in 1.19.4
+        useTextDisplay = configuration.getBoolean("text-display") && NotBounties.isAboveVersion(19, 3);
     }
 
     /**
@@ -108,14 +115,26 @@ public class WantedTags {
      */
     private final Player player;
     /**
-     * The wanted tag entity.
+     * The wanted tag entity if armor stands are used.
      */
     private ArmorStand armorStand = null;
+    /**
+     * The wanted tag entity if text displays are used.
+     */
+    private TextDisplay textDisplay = null;
+    /**
+     * The text that is displayed on the tag.
+     */
+    private String displayedText = null;
     /**
      * The last location of the wanted tag.
      * This is for saving the last location of the tag on shutdown.
      */
     private Location lastLocation = null;
+    /**
+     * The eye location of the player when the tag was last teleported.
+     */
+    private Location lastTeleportLocation = null;
     /**
      * The time in milliseconds when the text should update next.
      */
@@ -144,13 +163,27 @@ public class WantedTags {
     }
 
     private boolean hasMoved() {
-        boolean moved = player.getWorld().equals(lastPlayerLocation.getWorld()) && player.getLocation().distance(lastPlayerLocation) > 0.1;
-        lastPlayerLocation = player.getLocation();
+        Location location = player.getLocation();
+        boolean moved = location.getWorld() != null && location.getWorld().equals(lastPlayerLocation.getWorld()) && location.distanceSquared(lastPlayerLocation) > 0.01;
+        lastPlayerLocation = location;
         return moved;
     }
 
+    /**
+     * Get the entity that displays the tag.
+     * @return The armor stand or text display, or null if the tag isn't spawned.
+     */
+    private Entity getTagEntity() {
+        return textDisplay != null ? textDisplay : armorStand;
+    }
+
     public void updateArmorStand(){
         if (enabled && player != null && player.isOnline()) {
+            if (textDisplay != null && !textDisplay.isValid()) {
+                // text displays aren't saved, so they are removed when their chunk unloads
+                textDisplay = null;
+                lastTeleportLocation = null;
+            }
             if (nextVisibilityUpdateTime < System.currentTimeMillis()) {
                 // conditions if the tag should be removed/invisible
                 if (!BountyManager.hasBounty(player.getUniqueId())
@@ -159,26 +192,25 @@ public class WantedTags {
                         || player.getGameMode().equals(GameMode.SPECTATOR)
                         || player.isInvisible()
                         || isVanished(player)) {
-                    if (armorStand != null)
-                        removeStand();
+                    removeStand();
                     return;
                 }
-                if (armorStand == null) {
+                if (getTagEntity() == null) {
                     spawnWantedTag();
                 }
                 nextVisibilityUpdateTime = System.currentTimeMillis() + wantedVisibilityUpdateInterval;
             }
+            Entity tagEntity = getTagEntity();
+            if (tagEntity == null)
+                return;
 
             if (nextTextUpdateTime < System.currentTimeMillis()) {
-                // check if the name should be changed
-                String text = getWantedDisplayText(player);
-                if (!text.equalsIgnoreCase(armorStand.getCustomName())) {
-                    armorStand.setCustomName(text);
-                }
+                // only send the text if it changed
+                setText(getWantedDisplayText(player));
                 nextTextUpdateTime = System.currentTimeMillis() + wantedTextUpdateInterval;
             }
-            if (NotBounties.serverVersion >= 17 && player.canSee(armorStand))
-                player.hideEntity(NotBounties.getInstance(), armorStand);
+            if (NotBounties.serverVersion >= 17 && player.canSee(tagEntity))
+                player.hideEntity(NotBounties.getInstance(), tagEntity);
             // a fix for 1.16, the random is to help with performance
             if (NotBounties.serverVersion <= 16 && Math.random() <= 0.5) {
                 armorStand.setVisible(true);
@@ -192,20 +224,41 @@ public class WantedTags {
                 armorStand.setCollidable(true);
                 armorStand.setCollidable(false);
             }
-            if (!armorStand.getLocation().getChunk().isLoaded()) {
-                armorStand.getLocation().getChunk().load();
-                teleport();
-                armorStand.getLocation().getChunk().unload();
-            } else {
-                teleport();
-            }
+            teleport(tagEntity);
         } else {
          removeStand();
         }
     }
 
-    private void teleport() {
-        armorStand.teleport(player.getEyeLocation().add(new Vector(0, wantedOffset, 0)));
+    /**
+     * Move the tag above the player if the player has moved since the last teleport.
+     * The tag isn't moved while its chunk is unloaded, so a teleport never loads a chunk.
+     */
+    private void teleport(Entity tagEntity) {
+        Location eyeLocation = player.getEyeLocation();
+        if (lastTeleportLocation != null && Objects.equals(eyeLocation.getWorld(), lastTeleportLocation.getWorld())
+                && eyeLocation.getX() == lastTeleportLocation.getX()
+                && eyeLocation.getY() == lastTeleportLocation.getY()
+                && eyeLocation.getZ() == lastTeleportLocation.getZ())
+            // the player hasn't moved
+            return;
+        Location tagLocation = tagEntity.getLocation();
+        World world = tagLocation.getWorld();
+        if (world != null && !world.isChunkLoaded(tagLocation.getBlockX() >> 4, tagLocation.getBlockZ() >> 4))
+            // tried again on the next update
+            return;
+        lastTeleportLocation = eyeLocation;
+        tagEntity.teleport(eyeLocation.clone().add(new Vector(0, wantedOffset, 0)));
+    }
+
+    private void setText(String text) {
+        if (text.equals(displayedText))
+            return;
+        displayedText = text;
+        if (textDisplay != null)
+            textDisplay.setText(text);
+        else if (armorStand != null)
+            armorStand.setCustomName(text);
     }
 
     public void disable() {
@@ -214,36 +267,58 @@ public class WantedTags {
     }
 
     public void removeStand(){
-        if (armorStand == null)
-            return;
-        lastLocation = armorStand.getLocation();
-        armorStand.setInvulnerable(false);
-        armorStand.setCollidable(true);
-        armorStand.setVisible(true);
-        armorStand.remove();
-        armorStand = null;
+        if (textDisplay != null) {
+            lastLocation = textDisplay.getLocation();
+            textDisplay.remove();
+            textDisplay = null;
+        }
+        if (armorStand != null) {
+            lastLocation = armorStand.getLocation();
+            armorStand.setInvulnerable(false);
+            armorStand.setCollidable(true);
+            armorStand.setVisible(true);
+            armorStand.remove();
+            armorStand = null;
+        }
+        displayedText = null;
+        lastTeleportLocation = null;
     }
 
     private void spawnWantedTag() {
-        armorStand = (ArmorStand) player.getWorld().spawnEntity(player.getEyeLocation().add(0,wantedOffset,0), EntityType.ARMOR_STAND);
-        armorStand.setVisible(false);
-        armorStand.setMarker(true);
-        armorStand.setCustomName(getWantedDisplayText(player));
-        armorStand.setCustomNameVisible(true);
-        armorStand.setAI(false);
-        armorStand.setCollidable(false);
-        armorStand.setRemoveWhenFarAway(false);
-        armorStand.setInvulnerable(true);
-        armorStand.getPersistentDataContainer().set(NotBounties.namespacedKey, PersistentDataType.STRING, NotBounties.sessionKey);
+        Location location = player.getEyeLocation().add(0,wantedOffset,0);
+        Entity tagEntity;
+        if (useTextDisplay) {
+            textDisplay = (TextDisplay) player.getWorld().spawnEntity(location, EntityType.TEXT_DISPLAY);
+            textDisplay.setBillboard(Display.Billboard.CENTER);
+            textDisplay.setPersistent(false);
+            if (NotBounties.isAboveVersion(20, 1))
+                // smooth the movement between teleports
+                textDisplay.setTeleportDuration(1);
+            tagEntity = textDisplay;
+        } else {
+            armorStand = (ArmorStand) player.getWorld().spawnEntity(location, EntityType.ARMOR_STAND);
+            armorStand.setVisible(false);
+            armorStand.setMarker(true);
+            armorStand.setCustomNameVisible(true);
+            armorStand.setAI(false);
+            armorStand.setCollidable(false);
+            armorStand.setRemoveWhenFarAway(false);
+            armorStand.setInvulnerable(true);
+            tagEntity = armorStand;
+        }
+        setText(getWantedDisplayText(player));
+        tagEntity.getPersistentDataContainer().set(NotBounties.namespacedKey, PersistentDataType.STRING, NotBounties.sessionKey);
         if (NotBounties.serverVersion >= 17)
-            player.hideEntity(NotBounties.getInstance(), armorStand);
+            player.hideEntity(NotBounties.getInstance(), tagEntity);
+        lastTeleportLocation = player.getEyeLocation();
         if (lastLocation == null)
-            lastLocation = armorStand.getLocation();
+            lastLocation = tagEntity.getLocation();
     }
 
     public Location getLastLocation() {
-        if (armorStand != null)
-            lastLocation = armorStand.getLocation();
+        Entity tagEntity = getTagEntity();
+        if (tagEntity != null)
+            lastLocation = tagEntity.getLocation();
         return lastLocation;
     }
 
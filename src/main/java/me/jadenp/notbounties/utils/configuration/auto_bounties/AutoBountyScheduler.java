@@ -0,0 +1,95 @@
+package me.jadenp.notbounties.utils.configuration.auto_bounties;
+
+import me.jadenp.notbounties.NotBounties;
+import me.jadenp.notbounties.utils.external_api.LiteBansClass;
+import org.bukkit.OfflinePlayer;
+import org.bukkit.scheduler.BukkitRunnable;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static me.jadenp.notbounties.utils.configuration.ConfigOptions.liteBansEnabled;
+
+/**
+ * Updates the random and timed bounties. Players picked for an auto bounty are checked for bans together in one
+ * asynchronous task, and the results are handled back on the main thread.
+ */
+public class AutoBountyScheduler {
+
+    /**
+     * A player waiting for a ban check.
+     * @param player The player to check.
+     * @param notBanned Ran on the main thread if the player isn't banned.
+     * @param banned Ran on the main thread if the player is banned.
+     */
+    private record BanCheck(OfflinePlayer player, Runnable notBanned, Runnable banned) {}
+
+    // only used on the main thread
+    private static final List<BanCheck> banChecks = new ArrayList<>();
+
+    private AutoBountyScheduler(){}
+
+    /**
+     * Update the auto bounties. This should be called on the main thread.
+     */
+    public static void update() {
+        RandomBounties.update();
+        TimedBounties.update();
+        if (banChecks.isEmpty())
+            return;
+        List<BanCheck> checks = new ArrayList<>(banChecks);
+        banChecks.clear();
+        new BukkitRunnable() {
+            @Override
+            public void run() {
+                boolean[] banned = new boolean[checks.size()];
+                try {
+                    LiteBansClass liteBans = liteBansEnabled ? new LiteBansClass() : null;
+                    for (int i = 0; i < checks.size(); i++)
+                        banned[i] = isBanned(checks.get(i).player(), liteBans);
+                } catch (RuntimeException | LinkageError e) {
+                    // the remaining players are treated as not banned, so the callbacks still run
+                    NotBounties.debugMessage("Error checking bans for auto bounties: " + e, true);
+                }
+                // back into sync thread
+                new BukkitRunnable() {
+                    @Override
+                    public void run() {
+                        for (int i = 0; i < checks.size(); i++) {
+                            if (banned[i])
+                                checks.get(i).banned().run();
+                            else
+                                checks.get(i).notBanned().run();
+                        }
+                    }
+                }.runTask(NotBounties.getInstance());
+            }
+        }.runTaskAsynchronously(NotBounties.getInstance());
+    }
+
+    /**
+     * Check if a player is banned. A check that fails is logged, and the player is treated as not banned so one
+     * player can't stop the rest of the batch.
+     * @param player The player to check.
+     * @param liteBans The LiteBans hook, or null if LiteBans isn't enabled.
+     * @return True if the player is banned.
+     */
+    private static boolean isBanned(OfflinePlayer player, LiteBansClass liteBans) {
+        try {
+            return player.isBanned() || (liteBans != null && !liteBans.isPlayerNotBanned(player.getUniqueId()));
+        } catch (RuntimeException e) {
+            NotBounties.debugMessage("Could not check if " + player.getUniqueId() + " is banned: " + e, true);
+            return false;
+        }
+    }
+
+    /**
+     * Check if a player is banned in the next batch of ban checks.
+     * @param player The player to check.
+     * @param notBanned Ran on the main thread if the player isn't banned.
+     * @param banned Ran on the main thread if the player is banned.
+     */
+    static void checkBan(OfflinePlayer player, Runnable notBanned, Runnable banned) {
+        banChecks.add(new BanCheck(player, notBanned, banned));
+    }
+}
@@ -5,19 +5,16 @@ import me.jadenp.notbounties.utils.DataManager;
 import me.jadenp.notbounties.utils.LoggedPlayers;
 import me.jadenp.notbounties.utils.configuration.ConfigOptions;
 import me.jadenp.notbounties.utils.configuration.Immunity;
-import me.jadenp.notbounties.utils.external_api.LiteBansClass;
 import me.jadenp.notbounties.utils.configuration.NumberFormatting;
 import me.jadenp.notbounties.data.Whitelist;
 import org.bukkit.Bukkit;
 import org.bukkit.OfflinePlayer;
 import org.bukkit.configuration.ConfigurationSection;
 import org.bukkit.entity.Player;
-import org.bukkit.scheduler.BukkitRunnable;
 
 import java.util.*;
 
 import static me.jadenp.notbounties.utils.BountyManager.addBounty;
-import static me.jadenp.notbounties.utils.configuration.ConfigOptions.liteBansEnabled;
 
 public class RandomBounties {
     /**
@@ -49,6 +46,10 @@ public class RandomBounties {
      * The random number generator used to generate random amounts.
      */
     private static final Random random = new Random();
+    /**
+     * Whether the picked player is waiting for a ban check.
+     */
+    private static boolean awaitingBanCheck = false;
 
     private RandomBounties(){}
 
@@ -72,61 +73,59 @@ public class RandomBounties {
             setNextRandomBounty();
     }
 
-    public static void update() {
+    /**
+     * Pick a random player for a bounty if it is time. The player is checked for bans before the bounty is set.
+     */
+    static void update() {
         // random bounties
-        if (randomBountyMinTime != 0 && nextRandomBounty != 0 && System.currentTimeMillis() > nextRandomBounty) {
-            if (!randomBountyOfflineSet && NotBounties.getNetworkPlayers().isEmpty()) {
+        if (randomBountyMinTime != 0 && nextRandomBounty != 0 && System.currentTimeMillis() > nextRandomBounty && !awaitingBanCheck) {
+            UUID uuid = pickPlayer();
+            if (uuid == null) {
                 setNextRandomBounty();
                 return;
             }
-            UUID uuid = randomBountyOfflineSet ? (UUID) LoggedPlayers.getLoggedPlayers().keySet().toArray()[random.nextInt(LoggedPlayers.getLoggedPlayers().size())] : (UUID) NotBounties.getNetworkPlayers().keySet().toArray()[random.nextInt(NotBounties.getNetworkPlayers().size())];
             if (uuid.equals(DataManager.GLOBAL_SERVER_ID))
                 // this shouldn't be possible, but it's an extra safety measure
                 return;
-            final double[] price = {randomBountyMinPrice + Math.random() * (randomBountyMaxPrice - randomBountyMinPrice)};
+            double price = randomBountyMinPrice + Math.random() * (randomBountyMaxPrice - randomBountyMinPrice);
+            if (!NumberFormatting.shouldUseDecimals())
+                price = (long) price;
             try {
                 OfflinePlayer player = Bukkit.getOfflinePlayer(uuid);
                 // check immunity
-                if (!ConfigOptions.autoBountyOverrideImmunity && Immunity.getAppliedImmunity(player, price[0]) != Immunity.ImmunityType.DISABLE || hasImmunity(player))
+                if (!ConfigOptions.autoBountyOverrideImmunity && Immunity.getAppliedImmunity(player, price) != Immunity.ImmunityType.DISABLE || hasImmunity(player))
                     return;
-                new BukkitRunnable() {
-                    @Override
-                    public void run() {
-                        if (!player.isBanned()) {
-                            if (liteBansEnabled) {
-                                if (new LiteBansClass().isPlayerNotBanned(player.getUniqueId())) {
-                                    // back into sync thread
-                                    if (!NumberFormatting.shouldUseDecimals())
-                                        price[0] = (long) price[0];
-                                    double finalPrice = price[0];
-                                    new BukkitRunnable() {
-                                        @Override
-                                        public void run() {
-                                            addBounty(player, finalPrice, new ArrayList<>(), new Whitelist(new ArrayList<>(), false));
-                                        }
-                                    }.runTask(NotBounties.getInstance());
-                                }
-                            } else {
-                                if (!NumberFormatting.shouldUseDecimals())
-                                    price[0] = (long) price[0];
-                                double finalPrice = price[0];
-                                new BukkitRunnable() {
-                                    @Override
-                                    public void run() {
-                                        addBounty(player, finalPrice, new ArrayList<>(), new Whitelist(new ArrayList<>(), false));
-                                    }
-                                }.runTask(NotBounties.getInstance());
-                            }
-                            setNextRandomBounty();
-                        }
-                    }
-                }.runTaskAsynchronously(NotBounties.getInstance());
+                double finalPrice = price;
+                awaitingBanCheck = true;
+                AutoBountyScheduler.checkBan(player, () -> {
+                    awaitingBanCheck = false;
+                    addBounty(player, finalPrice, new ArrayList<>(), new Whitelist(new ArrayList<>(), false));
+                    setNextRandomBounty();
+                }, () -> awaitingBanCheck = false);
             } catch (IllegalArgumentException e) {
                 Bukkit.getLogger().info("[NotBounties] Invalid UUID of picked player for random bounty: " + uuid);
             }
         }
     }
 
+    /**
+     * Pick a random player that can receive a bounty.
+     * @return The UUID of the player, or null if there are no players to pick from.
+     */
+    private static UUID pickPlayer() {
+        if (randomBountyOfflineSet)
+            return LoggedPlayers.getRandomPlayer(random);
+        Map<UUID, String> networkPlayers = NotBounties.getNetworkPlayers();
+        if (networkPlayers.isEmpty())
+            return null;
+        int index = random.nextInt(networkPlayers.size());
+        for (UUID uuid : networkPlayers.keySet()) {
+            if (index-- == 0)
+                return uuid;
+        }
+        return null;
+    }
+
     public static boolean isEnabled() {
         return randomBountyMinTime != 0;
     }
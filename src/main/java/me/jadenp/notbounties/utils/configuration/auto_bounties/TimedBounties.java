@@ -4,19 +4,18 @@ import me.jadenp.notbounties.NotBounties;
 import me.jadenp.notbounties.utils.DataManager;
 import me.jadenp.notbounties.utils.configuration.ConfigOptions;
 import me.jadenp.notbounties.utils.configuration.Immunity;
-import me.jadenp.notbounties.utils.external_api.LiteBansClass;
 import me.jadenp.notbounties.data.Whitelist;
 import org.bukkit.Bukkit;
 import org.bukkit.OfflinePlayer;
 import org.bukkit.configuration.ConfigurationSection;
 import org.bukkit.entity.Player;
-import org.bukkit.scheduler.BukkitRunnable;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.PriorityBlockingQueue;
 
 import static me.jadenp.notbounties.NotBounties.isVanished;
 import static me.jadenp.notbounties.utils.BountyManager.*;
-import static me.jadenp.notbounties.utils.configuration.ConfigOptions.liteBansEnabled;
 
 public class TimedBounties {
 
@@ -50,7 +49,20 @@ public class TimedBounties {
      *   false -> The time in milliseconds until the bounty should be set is stored when the player is offline.
      * Online players will ALWAYS have the value be the time when the next bounty should be set.
      */
-    private static Map<UUID, Long> nextBounties = new HashMap<>();
+    private static Map<UUID, Long> nextBounties = new ConcurrentHashMap<>();
+
+    /**
+     * The time when a player should get their next bounty.
+     * @param uuid UUID of the player.
+     * @param time The time in milliseconds when the bounty should be set.
+     */
+    private record DueBounty(UUID uuid, long time) {}
+
+    /**
+     * Players ordered by when their next bounty is due. Only players whose time is counting down are queued.
+     * Entries that don't match nextBounties have been rescheduled and are skipped.
+     */
+    private static final PriorityBlockingQueue<DueBounty> dueBounties = new PriorityBlockingQueue<>(11, Comparator.comparingLong(DueBounty::time));
 
     public static void loadConfiguration(ConfigurationSection timedBounties) {
         time  = timedBounties.getInt("time");
@@ -60,7 +72,7 @@ public class TimedBounties {
         boolean updatedOfflineTracking = timedBounties.getBoolean("offline-tracking");
         if (!offlineTracking && updatedOfflineTracking) {
             // convert to global time
-            Map<UUID, Long> updatedNextBounties = new HashMap<>();
+            Map<UUID, Long> updatedNextBounties = new ConcurrentHashMap<>();
             for (Map.Entry<UUID, Long> entry : nextBounties.entrySet()) {
                 // only convert if the player is offline, otherwise the value should already be in global time
                 if (!Bukkit.getOfflinePlayer(entry.getKey()).isOnline())
@@ -69,7 +81,7 @@ public class TimedBounties {
             nextBounties = updatedNextBounties;
         } else if (offlineTracking && !updatedOfflineTracking) {
             // convert to local time
-            Map<UUID, Long> updatedNextBounties = new HashMap<>();
+            Map<UUID, Long> updatedNextBounties = new ConcurrentHashMap<>();
             for (Map.Entry<UUID, Long> entry : nextBounties.entrySet()) {
                 if (!Bukkit.getOfflinePlayer(entry.getKey()).isOnline())
                     updatedNextBounties.put(entry.getKey(), entry.getValue() - System.currentTimeMillis());
@@ -85,48 +97,73 @@ public class TimedBounties {
                     nextBounties.put(player.getUniqueId(), System.currentTimeMillis() + time * 1000);
             }
         }
+        rebuildQueue();
+    }
+
+    /**
+     * Queue every player whose time until their next bounty is counting down.
+     */
+    private static void rebuildQueue() {
+        dueBounties.clear();
+        for (Map.Entry<UUID, Long> entry : nextBounties.entrySet()) {
+            if (offlineTracking || Bukkit.getPlayer(entry.getKey()) != null)
+                dueBounties.add(new DueBounty(entry.getKey(), entry.getValue()));
+        }
+    }
+
+    /**
+     * Set when the next bounty will be set on a player whose time is counting down.
+     * @param uuid UUID of the player.
+     * @param nextBounty The time in milliseconds when the next bounty should be set.
+     */
+    private static void scheduleBounty(UUID uuid, long nextBounty) {
+        nextBounties.put(uuid, nextBounty);
+        dueBounties.add(new DueBounty(uuid, nextBounty));
     }
 
     public static boolean isEnabled() {
         return time != 0 && bountyIncrease != 0;
     }
 
-    public static void update() {
+    /**
+     * Set bounties on the players that are due. Players are checked for bans before the bounty is set.
+     */
+    static void update() {
         if (!isEnabled())
             return;
-        Map<UUID, Long> nextBountiesCopy = Map.copyOf(nextBounties);
-        for (Map.Entry<UUID, Long> entry : nextBountiesCopy.entrySet()) {
-            OfflinePlayer player = Bukkit.getOfflinePlayer(entry.getKey());
+        long now = System.currentTimeMillis();
+        List<DueBounty> vanished = new ArrayList<>();
+        DueBounty dueBounty;
+        while ((dueBounty = dueBounties.peek()) != null && dueBounty.time() < now) {
+            dueBounties.poll();
+            UUID uuid = dueBounty.uuid();
+            Long nextBounty = nextBounties.get(uuid);
+            if (nextBounty == null || nextBounty != dueBounty.time())
+                continue; // this player was rescheduled
+            OfflinePlayer player = Bukkit.getOfflinePlayer(uuid);
             if (!offlineTracking && !player.isOnline())
+                continue; // time will be queued again when the player logs in
+            if (player.isOnline() && isVanished(Objects.requireNonNull(player.getPlayer()))) {
+                // try again next update
+                vanished.add(dueBounty);
                 continue;
-            if (System.currentTimeMillis() > entry.getValue()) {
-                if (player.isOnline() && isVanished(Objects.requireNonNull(player.getPlayer())))
-                    continue;
-                // set bounty
-                new BukkitRunnable() {
-                    @Override
-                    public void run() {
-                        if (player.isBanned() || (liteBansEnabled && !new LiteBansClass().isPlayerNotBanned(player.getUniqueId()))) {
-                            nextBounties.remove(entry.getKey());
-                            return;
-                        }
-                        new BukkitRunnable() {
-                            @Override
-                            public void run() {
-                                if (player.isOnline() || offlineTracking)
-                                    nextBounties.replace(entry.getKey(), System.currentTimeMillis() + time * 1000);
-                                else nextBounties.replace(entry.getKey(), time * 1000);
-                                if (!hasBounty(player.getUniqueId()) || !isMaxed(Objects.requireNonNull(getBounty(player.getUniqueId())).getTotalDisplayBounty())) {
-                                    // check immunity
-                                    if ((ConfigOptions.autoBountyOverrideImmunity || Immunity.getAppliedImmunity(player, bountyIncrease) == Immunity.ImmunityType.DISABLE) && !hasImmunity(player))
-                                        addBounty(player, bountyIncrease, new ArrayList<>(), new Whitelist(new ArrayList<>(), false));
-                                }
-                            }
-                        }.runTask(NotBounties.getInstance());
-
-                    }
-                }.runTaskAsynchronously(NotBounties.getInstance());
             }
+            AutoBountyScheduler.checkBan(player, () -> setBounty(player), () -> nextBounties.remove(uuid));
+        }
+        dueBounties.addAll(vanished);
+    }
+
+    private static void setBounty(OfflinePlayer player) {
+        if (!isEnabled())
+            return;
+        if (player.isOnline() || offlineTracking)
+            scheduleBounty(player.getUniqueId(), System.currentTimeMillis() + time * 1000);
+        else
+            nextBounties.put(player.getUniqueId(), time * 1000);
+        if (!hasBounty(player.getUniqueId()) || !isMaxed(Objects.requireNonNull(getBounty(player.getUniqueId())).getTotalDisplayBounty())) {
+            // check immunity
+            if ((ConfigOptions.autoBountyOverrideImmunity || Immunity.getAppliedImmunity(player, bountyIncrease) == Immunity.ImmunityType.DISABLE) && !hasImmunity(player))
+                addBounty(player, bountyIncrease, new ArrayList<>(), new Whitelist(new ArrayList<>(), false));
         }
     }
 
@@ -138,16 +175,16 @@ public class TimedBounties {
         if (time != 0 && bountyIncrease != 0) {
             if (nextBounties.containsKey(player.getUniqueId())) {
                 if (!offlineTracking)
-                    nextBounties.replace(player.getUniqueId(), nextBounties.get(player.getUniqueId()) + System.currentTimeMillis());
+                    scheduleBounty(player.getUniqueId(), nextBounties.get(player.getUniqueId()) + System.currentTimeMillis());
             } else {
-                nextBounties.put(player.getUniqueId(), System.currentTimeMillis() + time * 1000);
+                scheduleBounty(player.getUniqueId(), System.currentTimeMillis() + time * 1000);
             }
         }
     }
 
     public static void onDeath(Player player) {
         if (resetOnDeath && time != 0 && bountyIncrease != 0)
-            nextBounties.put(player.getUniqueId(), System.currentTimeMillis() + time * 1000);
+            scheduleBounty(player.getUniqueId(), System.currentTimeMillis() + time * 1000);
     }
 
     public static void logout(Player player) {
@@ -156,7 +193,8 @@ public class TimedBounties {
         DataManager.getPlayerData(player.getUniqueId()).setTimedImmunity(player.hasPermission("notbounties.immunity.timed"));
     }
     public static void setNextBounties(Map<UUID, Long> nextBounties) {
-        TimedBounties.nextBounties = nextBounties;
+        TimedBounties.nextBounties = new ConcurrentHashMap<>(nextBounties);
+        rebuildQueue();
     }
 
     public static Map<UUID, Long> getNextBounties() {
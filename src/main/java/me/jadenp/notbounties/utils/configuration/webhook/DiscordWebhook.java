@@ -53,7 +53,50 @@ public class DiscordWebhook {
         this.embeds.add(embed);
     }
 
+    public String getContent() {
+        return content;
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    public String getAvatarUrl() {
+        return avatarUrl;
+    }
+
+    public boolean isTts() {
+        return tts;
+    }
+
+    public List<EmbedObject> getEmbeds() {
+        return embeds;
+    }
+
     public void execute() throws IOException {
+        String json = toJson();
+
+        URL url = new URL(this.url);
+        HttpsURLConnection connection = (HttpsURLConnection) url.openConnection();
+        connection.addRequestProperty("Content-Type", "application/json");
+        connection.addRequestProperty("User-Agent", "Java-DiscordWebhook-BY-Gelox_");
+        connection.setDoOutput(true);
+        connection.setRequestMethod("POST");
+
+        OutputStream stream = connection.getOutputStream();
+        stream.write(json.getBytes());
+        stream.flush();
+        stream.close();
+
+        connection.getInputStream().close(); //I'm not sure why but it doesn't work without getting the InputStream
+        connection.disconnect();
+    }
+
+    /**
+     * Build the body of the webhook request.
+     * @return The webhook as a json string.
+     */
+    public String toJson() {
         if (this.content == null && this.embeds.isEmpty()) {
             throw new IllegalArgumentException("Set content or add at least one EmbedObject");
         }
@@ -139,20 +182,7 @@ public class DiscordWebhook {
             json.put("embeds", embedObjects.toArray());
         }
 
-        URL url = new URL(this.url);
-        HttpsURLConnection connection = (HttpsURLConnection) url.openConnection();
-        connection.addRequestProperty("Content-Type", "application/json");
-        connection.addRequestProperty("User-Agent", "Java-DiscordWebhook-BY-Gelox_");
-        connection.setDoOutput(true);
-        connection.setRequestMethod("POST");
-
-        OutputStream stream = connection.getOutputStream();
-        stream.write(json.toString().getBytes());
-        stream.flush();
-        stream.close();
-
-        connection.getInputStream().close(); //I'm not sure why but it doesn't work without getting the InputStream
-        connection.disconnect();
+        return json.toString();
     }
 
     public static class EmbedObject {
@@ -203,6 +233,25 @@ public class DiscordWebhook {
             return fields;
         }
 
+        /**
+         * Get the number of characters that count toward Discord's limit for the embeds in a message.
+         * @return The length of the title, description, field names and values, footer text, and author name.
+         */
+        public int getLength() {
+            int length = length(title) + length(description);
+            for (Field field : fields)
+                length += length(field.getName()) + length(field.getValue());
+            if (footer != null)
+                length += length(footer.getText());
+            if (author != null)
+                length += length(author.getName());
+            return length;
+        }
+
+        private static int length(String text) {
+            return text == null ? 0 : text.length();
+        }
+
         public EmbedObject setTitle(String title) {
             this.title = title;
             return this;
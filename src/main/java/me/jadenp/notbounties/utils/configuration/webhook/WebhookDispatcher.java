@@ -0,0 +1,295 @@
+package me.jadenp.notbounties.utils.configuration.webhook;
+
+import me.jadenp.notbounties.NotBounties;
+import org.apache.hc.client5.http.classic.methods.HttpPost;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.core5.http.ClassicHttpResponse;
+import org.apache.hc.core5.http.ContentType;
+import org.apache.hc.core5.http.Header;
+import org.apache.hc.core5.http.io.entity.EntityUtils;
+import org.apache.hc.core5.http.io.entity.StringEntity;
+import org.apache.hc.core5.http.message.StatusLine;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.*;
+
+/**
+ * Sends discord webhooks one at a time from a bounded queue with a shared http client.
+ * Webhooks that are waiting together are merged into one message when only their embeds are different.
+ * If Discord rejects a merged message, the webhooks in it are sent separately.
+ * Rate limits from Discord are respected, and failed requests are retried with a backoff.
+ */
+public class WebhookDispatcher {
+
+    private static final int MAX_QUEUE_SIZE = 100;
+    private static final int MAX_EMBEDS = 10; // Discord allows 10 embeds in a message
+    private static final int MAX_EMBED_LENGTH = 6000; // Discord's limit for the characters of all embeds in a message
+    private static final int MAX_ATTEMPTS = 5; // rate limited requests don't count as an attempt
+    private static final int MAX_RATE_LIMITS = 20; // rate limited requests before the webhook is dropped
+    private static final long RETRY_DELAY = 1000L; // doubled after every failed attempt
+    private static final long MAX_RETRY_DELAY = 60000L;
+
+    /**
+     * The result of a webhook request.
+     * @param statusCode The http status code of the response, or 0 if there wasn't a response.
+     * @param delay Time in milliseconds to wait before the next request.
+     */
+    private record Response(int statusCode, long delay) {}
+
+    private final String url;
+    private final long retryDelay;
+    private final BlockingQueue<DiscordWebhook> queue = new LinkedBlockingQueue<>(MAX_QUEUE_SIZE);
+    private final CloseableHttpClient client;
+    private final ExecutorService executor;
+    // the next webhook to be sent, taken from the queue but didn't fit in the last message
+    private DiscordWebhook nextWebhook = null;
+
+    /**
+     * Create a dispatcher that sends webhooks to a url.
+     * @param url The webhook url obtained in Discord.
+     */
+    public WebhookDispatcher(String url) {
+        this(url, RETRY_DELAY);
+    }
+
+    /**
+     * Create a dispatcher with a different delay before the first retry.
+     * @param url The webhook url.
+     * @param retryDelay Time in milliseconds to wait after the first failed attempt.
+     */
+    WebhookDispatcher(String url, long retryDelay) {
+        this.url = url;
+        this.retryDelay = retryDelay;
+        client = HttpClients.custom()
+                .setConnectionManager(PoolingHttpClientConnectionManagerBuilder.create()
+                        .setMaxConnTotal(1)
+                        .setMaxConnPerRoute(1)
+                        .build())
+                // retries are handled here, so rate limits don't use up an attempt
+                .disableAutomaticRetries()
+                .build();
+        executor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "NotBounties Webhook Dispatcher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.execute(this::run);
+    }
+
+    /**
+     * Queue a webhook to be sent. The webhook is dropped if the queue is full.
+     * @param webhook The webhook to send.
+     * @return True if the webhook was queued.
+     */
+    public boolean send(DiscordWebhook webhook) {
+        if (executor.isShutdown())
+            return false;
+        if (!queue.offer(webhook)) {
+            NotBounties.debugMessage("Webhook queue is full! A discord webhook was not sent.", true);
+            return false;
+        }
+        return true;
+    }
+
+    public String getUrl() {
+        return url;
+    }
+
+    /**
+     * Stop sending webhooks and close the http client. Webhooks that haven't been sent are dropped.
+     */
+    public void shutdown() {
+        executor.shutdownNow();
+        if (!queue.isEmpty())
+            NotBounties.debugMessage("Dropped " + queue.size() + " discord webhooks that weren't sent.", false);
+        queue.clear();
+        try {
+            client.close();
+        } catch (IOException e) {
+            NotBounties.debugMessage("Error closing webhook http client: " + e, true);
+        }
+    }
+
+    private void run() {
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                List<DiscordWebhook> webhooks = takeMerged();
+                long delay;
+                if (webhooks.size() == 1) {
+                    delay = sendWithRetries(webhooks.get(0)).delay();
+                } else {
+                    Response response = sendWithRetries(merge(webhooks));
+                    delay = response.delay();
+                    if (response.statusCode() == 400) {
+                        // one of the webhooks could be the reason, so the others are still sent
+                        NotBounties.debugMessage("Discord rejected a merged webhook. Sending the " + webhooks.size() + " webhooks separately.", true);
+                        for (DiscordWebhook webhook : webhooks) {
+                            if (delay > 0)
+                                Thread.sleep(delay);
+                            delay = sendWithRetries(webhook).delay();
+                        }
+                    }
+                }
+                if (delay > 0)
+                    Thread.sleep(delay);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Wait for a webhook, then take the webhooks waiting behind it that can be merged into the same message.
+     * @return The webhooks to send in one message.
+     */
+    private List<DiscordWebhook> takeMerged() throws InterruptedException {
+        DiscordWebhook first = nextWebhook != null ? nextWebhook : queue.take();
+        nextWebhook = null;
+        List<DiscordWebhook> merged = new ArrayList<>();
+        merged.add(first);
+        int embeds = first.getEmbeds().size();
+        int length = getEmbedLength(first);
+        DiscordWebhook next;
+        while ((next = queue.poll()) != null) {
+            int nextLength = getEmbedLength(next);
+            if (!canMerge(first, next) || embeds + next.getEmbeds().size() > MAX_EMBEDS || length + nextLength > MAX_EMBED_LENGTH) {
+                nextWebhook = next;
+                break;
+            }
+            merged.add(next);
+            embeds += next.getEmbeds().size();
+            length += nextLength;
+        }
+        return merged;
+    }
+
+    private static int getEmbedLength(DiscordWebhook webhook) {
+        int length = 0;
+        for (DiscordWebhook.EmbedObject embed : webhook.getEmbeds())
+            length += embed.getLength();
+        return length;
+    }
+
+    /**
+     * Merge the embeds of webhooks into one message.
+     * @param merged Webhooks from {@link #takeMerged()}.
+     * @return The webhook to send.
+     */
+    private DiscordWebhook merge(List<DiscordWebhook> merged) {
+        DiscordWebhook first = merged.get(0);
+        DiscordWebhook webhook = new DiscordWebhook(url);
+        webhook.setContent(first.getContent());
+        webhook.setUsername(first.getUsername());
+        webhook.setAvatarUrl(first.getAvatarUrl());
+        webhook.setTts(first.isTts());
+        for (DiscordWebhook mergedWebhook : merged)
+            mergedWebhook.getEmbeds().forEach(webhook::addEmbed);
+        NotBounties.debugMessage("Merged " + merged.size() + " discord webhooks into one message.", false);
+        return webhook;
+    }
+
+    /**
+     * Webhooks can be merged if they have embeds and would look the same apart from the embeds.
+     */
+    private static boolean canMerge(DiscordWebhook first, DiscordWebhook second) {
+        return !first.getEmbeds().isEmpty() && !second.getEmbeds().isEmpty()
+                && Objects.equals(first.getContent(), second.getContent())
+                && Objects.equals(first.getUsername(), second.getUsername())
+                && Objects.equals(first.getAvatarUrl(), second.getAvatarUrl())
+                && first.isTts() == second.isTts();
+    }
+
+    /**
+     * Send a webhook until it succeeds, can't succeed, or runs out of attempts.
+     * Rate limited requests wait for the Retry-After time and are sent again without using up an attempt.
+     * @return The last response. The delay is the time in milliseconds to wait before sending the next webhook.
+     */
+    private Response sendWithRetries(DiscordWebhook webhook) throws InterruptedException {
+        String json;
+        try {
+            json = webhook.toJson();
+        } catch (IllegalArgumentException e) {
+            NotBounties.debugMessage("Skipping empty discord webhook.", true);
+            return new Response(0, 0);
+        }
+        long backoff = retryDelay;
+        int attempt = 1;
+        int rateLimits = 0;
+        Response response = new Response(0, 0);
+        while (attempt <= MAX_ATTEMPTS) {
+            try {
+                response = post(json);
+                int statusCode = response.statusCode();
+                if (statusCode >= 200 && statusCode < 300)
+                    return response;
+                if (statusCode == 429) {
+                    if (++rateLimits > MAX_RATE_LIMITS) {
+                        NotBounties.debugMessage("Discord webhook was rate limited too many times and will not be sent.", true);
+                        return response;
+                    }
+                    long delay = response.delay() > 0 ? response.delay() : backoff;
+                    NotBounties.debugMessage("Discord webhook was rate limited. Retrying in " + delay + "ms.", false);
+                    Thread.sleep(delay);
+                    continue;
+                }
+                if (statusCode < 500) {
+                    // the request won't succeed by sending it again
+                    NotBounties.debugMessage("Could not send a discord webhook! Response code: " + statusCode, true);
+                    return response;
+                }
+                NotBounties.debugMessage("Discord webhook failed with response code " + statusCode + ". Attempt " + attempt + "/" + MAX_ATTEMPTS, true);
+            } catch (IOException e) {
+                NotBounties.debugMessage("Could not send a discord webhook! Attempt " + attempt + "/" + MAX_ATTEMPTS, true);
+                NotBounties.debugMessage(e.toString(), true);
+            }
+            if (attempt < MAX_ATTEMPTS) {
+                Thread.sleep(backoff);
+                backoff = Math.min(backoff * 2, MAX_RETRY_DELAY);
+            }
+            attempt++;
+        }
+        // the delay was already waited for with the backoff
+        return new Response(response.statusCode(), 0);
+    }
+
+    private Response post(String json) throws IOException {
+        HttpPost request = new HttpPost(url);
+        request.setHeader("User-Agent", "NotBounties");
+        request.setEntity(new StringEntity(json, ContentType.APPLICATION_JSON));
+        return client.execute(request, response -> {
+            NotBounties.debugMessage(request + "->" + new StatusLine(response), false);
+            EntityUtils.consume(response.getEntity());
+            return new Response(response.getCode(), getDelay(response));
+        });
+    }
+
+    /**
+     * Get how long to wait before the next request from the rate limit headers.
+     * Retry-After is set when the request was rate limited, and the X-RateLimit headers tell when the current
+     * limit resets.
+     * @return The delay in milliseconds.
+     */
+    private static long getDelay(ClassicHttpResponse response) {
+        Header retryAfter = response.getFirstHeader("Retry-After");
+        if (retryAfter != null)
+            return parseSeconds(retryAfter.getValue());
+        Header remaining = response.getFirstHeader("X-RateLimit-Remaining");
+        Header resetAfter = response.getFirstHeader("X-RateLimit-Reset-After");
+        if (remaining != null && resetAfter != null && remaining.getValue().trim().equals("0"))
+            return parseSeconds(resetAfter.getValue());
+        return 0;
+    }
+
+    private static long parseSeconds(String value) {
+        try {
+            return Math.min((long) (Double.parseDouble(value.trim()) * 1000), MAX_RETRY_DELAY);
+        } catch (NumberFormatException e) {
+            return RETRY_DELAY;
+        }
+    }
+}
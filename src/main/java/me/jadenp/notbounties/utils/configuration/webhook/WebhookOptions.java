@@ -6,6 +6,7 @@ import me.jadenp.notbounties.bounty_events.BountyClaimEvent;
 import me.jadenp.notbounties.bounty_events.BountyEditEvent;
 import me.jadenp.notbounties.bounty_events.BountyRemoveEvent;
 import me.jadenp.notbounties.bounty_events.BountySetEvent;
+import me.jadenp.notbounties.ui.PlayerSkin;
 import me.jadenp.notbounties.ui.SkinManager;
 import me.jadenp.notbounties.utils.BountyManager;
 import me.jadenp.notbounties.utils.DataManager;
@@ -18,20 +19,23 @@ import org.bukkit.entity.Player;
 import org.bukkit.event.Event;
 import org.bukkit.event.EventHandler;
 import org.bukkit.event.Listener;
-import org.bukkit.scheduler.BukkitRunnable;
 
 import java.io.File;
-import java.io.IOException;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Objects;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 public class WebhookOptions implements Listener {
     private static String link;
     private static boolean tts;
     private static final Map<Class<? extends Event>, Webhook> webhooks = new HashMap<>();
     private static final String UNSET_LINK = "https://discord.com/api/webhooks/...";
+    private static final long SKIN_TIMEOUT = 10; // seconds to wait for skins to load
+    private static WebhookDispatcher dispatcher = null;
 
     public static File getFile() {
         return new File(NotBounties.getInstance().getDataFolder() + File.separator + "webhook.yml");
@@ -49,6 +53,21 @@ public class WebhookOptions implements Listener {
         webhooks.put(BountyClaimEvent.class, new Webhook(Objects.requireNonNull(configuration.getConfigurationSection("bounty-claim"))));
         webhooks.put(BountyRemoveEvent.class, new Webhook(Objects.requireNonNull(configuration.getConfigurationSection("bounty-remove"))));
         webhooks.put(BountyEditEvent.class, new Webhook(Objects.requireNonNull(configuration.getConfigurationSection("bounty-edit"))));
+
+        if (dispatcher != null && (link == null || !dispatcher.getUrl().equals(link)))
+            shutdown();
+        if (dispatcher == null && link != null && !link.equals(UNSET_LINK))
+            dispatcher = new WebhookDispatcher(link);
+    }
+
+    /**
+     * Stop sending webhooks.
+     */
+    public static void shutdown() {
+        if (dispatcher != null) {
+            dispatcher.shutdown();
+            dispatcher = null;
+        }
     }
 
     @EventHandler
@@ -96,67 +115,64 @@ public class WebhookOptions implements Listener {
     
     private void buildWebhook(Webhook webhook, UUID receiver, UUID player, double amount, double total){
         if (webhook.isEnabled()) {
-            new BukkitRunnable() {
-                int maxRequests = 50;
-
-                @Override
-                public void run() {
-
-                    boolean sendEmbed = !webhook.getTitle().isEmpty() || !webhook.getDescription().isEmpty() || !webhook.getFooterText().isEmpty() || webhook.isSendImage();
-                    DiscordWebhook.EmbedObject embed = null;
-                    UUID avatarUUID = webhook.isSwitchImages() ? receiver : player;
-                    UUID imageUUID = webhook.isSwitchImages() ? player : receiver;
-
-                    if (!SkinManager.isSkinLoaded(avatarUUID) || !SkinManager.isSkinLoaded(imageUUID)) {
-                        // check if max requests hit
-                        if (maxRequests <= 0) {
-                            this.cancel();
-                            if (NotBounties.debug) {
+            UUID avatarUUID = webhook.isSwitchImages() ? receiver : player;
+            UUID imageUUID = webhook.isSwitchImages() ? player : receiver;
+            CompletableFuture<PlayerSkin> avatarSkin = loadSkin(avatarUUID);
+            CompletableFuture<PlayerSkin> imageSkin = loadSkin(imageUUID);
+            avatarSkin.thenCombine(imageSkin, (avatar, image) -> {
+                        sendWebhook(webhook, receiver, player, amount, total, avatar.getId(), image.getId());
+                        return null;
+                    })
+                    .orTimeout(SKIN_TIMEOUT, TimeUnit.SECONDS)
+                    .exceptionally(throwable -> {
+                        if (throwable instanceof TimeoutException) {
+                            if (NotBounties.debug)
                                 Bukkit.getLogger().warning("[NotBountiesDebug] Timed out loading skin for " + LoggedPlayers.getPlayerName(avatarUUID) + " or " + LoggedPlayers.getPlayerName(imageUUID));
-                            }
+                        } else {
+                            Bukkit.getLogger().warning("[NotBounties] Could not send a discord webhook!");
+                            Bukkit.getLogger().warning(throwable.toString());
                         }
-                        maxRequests--;
-                        return;
-                    }
-                    this.cancel();
-                    String avatarTextureID = SkinManager.getSkin(avatarUUID).getId();
-                    String imageTextureID = SkinManager.getSkin(imageUUID).getId();
-                    String avatarURL = "https://mc-heads.net/head/" + avatarTextureID + ".png";
-                    String imageURL = "https://mc-heads.net/avatar/" + imageTextureID + "/128.png";
-                    if (sendEmbed) {
-                        embed = new DiscordWebhook.EmbedObject()
-                                .setTitle(ChatColor.stripColor(LanguageOptions.parse(webhook.getTitle(), Bukkit.getOfflinePlayer(player), amount, total, Bukkit.getOfflinePlayer(receiver))))
-                                .setDescription(ChatColor.stripColor(LanguageOptions.parse(webhook.getDescription(), Bukkit.getOfflinePlayer(player), amount, total, Bukkit.getOfflinePlayer(receiver))))
-                                .setColor(webhook.getColor())
-                                .setFooter(ChatColor.stripColor(LanguageOptions.parse(webhook.getFooterText(), Bukkit.getOfflinePlayer(player), amount, total, Bukkit.getOfflinePlayer(receiver))), webhook.getFooterURL());
-                        for (WebhookField field : webhook.getContent())
-                            embed.addField(ChatColor.stripColor(LanguageOptions.parse(field.getName(), Bukkit.getOfflinePlayer(player), amount, total, Bukkit.getOfflinePlayer(receiver))), ChatColor.stripColor(LanguageOptions.parse(field.getValue(), Bukkit.getOfflinePlayer(player), amount, total, Bukkit.getOfflinePlayer(receiver))), field.isInline());
-                        embed.setImage(imageURL);
-                    }
-                    String username = ChatColor.stripColor(LanguageOptions.parse(webhook.getUsername(), Bukkit.getOfflinePlayer(player), amount, total, Bukkit.getOfflinePlayer(receiver)));
-                    String content = ChatColor.stripColor(LanguageOptions.parse(webhook.getMessage(), Bukkit.getOfflinePlayer(player), amount, total, Bukkit.getOfflinePlayer(receiver)));
-                    try {
-                        sendEmbed(embed, username, avatarURL, content);
-                    } catch (IOException e) {
-                        new BukkitRunnable() {
-                            @Override
-                            public void run() {
-                                Bukkit.getLogger().warning("[NotBounties] Could not send a discord webhook!");
-                                Bukkit.getLogger().warning(e.toString());
-                            }
-                        }.runTask(NotBounties.getInstance());
-
-                    }
-                }
-
-
-            }.runTaskTimerAsynchronously(NotBounties.getInstance(), 0, 4);
+                        return null;
+                    });
         }
 
     }
 
-    private void sendEmbed(DiscordWebhook.EmbedObject embed, String username, String avatarURL, String content) throws IOException {
-        if (link.equals(UNSET_LINK))
+    /**
+     * Request a skin that isn't loaded before waiting for it, so the webhook uses the player's skin instead of the
+     * missing skin.
+     * @param uuid UUID of the player.
+     * @return A future that completes with the skin.
+     */
+    private static CompletableFuture<PlayerSkin> loadSkin(UUID uuid) {
+        if (SkinManager.isMissingSkin(SkinManager.getSkin(uuid)))
+            SkinManager.saveSkin(uuid);
+        return SkinManager.getSkinAsync(uuid);
+    }
+
+    private void sendWebhook(Webhook webhook, UUID receiver, UUID player, double amount, double total, String avatarTextureID, String imageTextureID) {
+        boolean sendEmbed = !webhook.getTitle().isEmpty() || !webhook.getDescription().isEmpty() || !webhook.getFooterText().isEmpty() || webhook.isSendImage();
+        DiscordWebhook.EmbedObject embed = null;
+        String avatarURL = "https://mc-heads.net/head/" + avatarTextureID + ".png";
+        String imageURL = "https://mc-heads.net/avatar/" + imageTextureID + "/128.png";
+        if (sendEmbed) {
+            embed = new DiscordWebhook.EmbedObject()
+                    .setTitle(ChatColor.stripColor(LanguageOptions.parse(webhook.getTitle(), Bukkit.getOfflinePlayer(player), amount, total, Bukkit.getOfflinePlayer(receiver))))
+                    .setDescription(ChatColor.stripColor(LanguageOptions.parse(webhook.getDescription(), Bukkit.getOfflinePlayer(player), amount, total, Bukkit.getOfflinePlayer(receiver))))
+                    .setColor(webhook.getColor())
+                    .setFooter(ChatColor.stripColor(LanguageOptions.parse(webhook.getFooterText(), Bukkit.getOfflinePlayer(player), amount, total, Bukkit.getOfflinePlayer(receiver))), webhook.getFooterURL());
+            for (WebhookField field : webhook.getContent())
+                embed.addField(ChatColor.stripColor(LanguageOptions.parse(field.getName(), Bukkit.getOfflinePlayer(player), amount, total, Bukkit.getOfflinePlayer(receiver))), ChatColor.stripColor(LanguageOptions.parse(field.getValue(), Bukkit.getOfflinePlayer(player), amount, total, Bukkit.getOfflinePlayer(receiver))), field.isInline());
+            embed.setImage(imageURL);
+        }
+        String username = ChatColor.stripColor(LanguageOptions.parse(webhook.getUsername(), Bukkit.getOfflinePlayer(player), amount, total, Bukkit.getOfflinePlayer(receiver)));
+        String content = ChatColor.stripColor(LanguageOptions.parse(webhook.getMessage(), Bukkit.getOfflinePlayer(player), amount, total, Bukkit.getOfflinePlayer(receiver)));
+        sendEmbed(embed, username, avatarURL, content);
+    }
+
+    private void sendEmbed(DiscordWebhook.EmbedObject embed, String username, String avatarURL, String content) {
+        WebhookDispatcher webhookDispatcher = dispatcher;
+        if (link.equals(UNSET_LINK) || webhookDispatcher == null)
             return;
         DiscordWebhook webhook = new DiscordWebhook(link);
         webhook.setTts(tts);
@@ -165,7 +181,7 @@ public class WebhookOptions implements Listener {
         webhook.setUsername(username);
         if (embed != null)
             webhook.addEmbed(embed);
-        webhook.execute();
+        webhookDispatcher.send(webhook);
     }
 
 }
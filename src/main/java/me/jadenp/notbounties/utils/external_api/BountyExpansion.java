@@ -1,6 +1,10 @@
 package me.jadenp.notbounties.utils.external_api;
 
 import me.clip.placeholderapi.expansion.PlaceholderExpansion;
+import me.jadenp.notbounties.bounty_events.BountyClaimEvent;
+import me.jadenp.notbounties.bounty_events.BountyEditEvent;
+import me.jadenp.notbounties.bounty_events.BountyRemoveEvent;
+import me.jadenp.notbounties.bounty_events.BountySetEvent;
 import me.jadenp.notbounties.data.Bounty;
 import me.jadenp.notbounties.Leaderboard;
 import me.jadenp.notbounties.NotBounties;
@@ -16,11 +20,38 @@ import me.jadenp.notbounties.utils.configuration.NumberFormatting;
 import me.jadenp.notbounties.data.Whitelist;
 import org.bukkit.Bukkit;
 import org.bukkit.OfflinePlayer;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.Listener;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
 
-public class BountyExpansion extends PlaceholderExpansion {
+public class BountyExpansion extends PlaceholderExpansion implements Listener {
+
+    /**
+     * How long a cached value can be used.
+     * Bounties can be changed without going through the local data, so cached values are only kept for a short time.
+     */
+    private static final long CACHE_MS = 1000;
+    private static final int MAX_CACHE_SIZE = 10000;
+
+    /**
+     * Returns the value of a placeholder for a player.
+     */
+    private interface Resolver {
+        String resolve(OfflinePlayer player);
+    }
+
+    private record CacheKey(String key, @Nullable UUID uuid) {}
+
+    private record CachedValue(Object value, long time) {}
+
+    private final Map<String, Resolver> resolvers = new ConcurrentHashMap<>();
+    private final Map<CacheKey, CachedValue> cache = new ConcurrentHashMap<>();
+    private volatile long cacheRevision = -1;
 
     @Override
     public @NotNull String getAuthor() {
@@ -66,178 +97,234 @@ public class BountyExpansion extends PlaceholderExpansion {
 
     @Override
     public String onRequest(OfflinePlayer player, String params){
-        UUID uuid = player.getUniqueId();
+        if (resolvers.size() > MAX_CACHE_SIZE)
+            resolvers.clear();
+        return resolvers.computeIfAbsent(params, this::compile).resolve(player);
+    }
+
+    /**
+     * Parse the parameters of a placeholder.
+     * @param params Parameters of the placeholder.
+     * @return A resolver that returns the value of the placeholder for a player.
+     */
+    private Resolver compile(String params) {
         if (params.equalsIgnoreCase("timed_bounty")) {
-            if (BountyManager.hasBounty(uuid) && TimedBounties.isMaxed(Objects.requireNonNull(BountyManager.getBounty(uuid)).getTotalDisplayBounty()))
-                // maxed out, cant get any higher
-                return "";
-            long next = TimedBounties.getUntilNextBounty(player.getUniqueId());
-            if (next == -1)
-                return "";
-            return LocalTime.formatTime(next, LocalTime.TimeFormat.RELATIVE);
+            return player -> {
+                UUID uuid = player.getUniqueId();
+                if (BountyManager.hasBounty(uuid) && TimedBounties.isMaxed(Objects.requireNonNull(BountyManager.getBounty(uuid)).getTotalDisplayBounty()))
+                    // maxed out, cant get any higher
+                    return "";
+                long next = TimedBounties.getUntilNextBounty(uuid);
+                if (next == -1)
+                    return "";
+                return LocalTime.formatTime(next, LocalTime.TimeFormat.RELATIVE);
+            };
         }
         if (params.equalsIgnoreCase("wanted")) {
-            Bounty bounty = BountyManager.getBounty(uuid);
-            if (bounty == null)
-                return "";
-            return WantedTags.getWantedDisplayText(player);
+            return player -> {
+                Bounty bounty = BountyManager.getBounty(player.getUniqueId());
+                if (bounty == null)
+                    return "";
+                return WantedTags.getWantedDisplayText(player);
+            };
         }
         if (params.startsWith("bounty")){
-            Bounty bounty = BountyManager.getBounty(uuid);
-            if (bounty != null){
-                if (params.endsWith("_formatted"))
-                    return LanguageOptions.color(NumberFormatting.currencyPrefix + NumberFormatting.formatNumber(bounty.getTotalDisplayBounty()) + NumberFormatting.currencySuffix);
-                return NumberFormatting.getValue(bounty.getTotalDisplayBounty());
-            }
-            return "0";
+            boolean formatted = params.endsWith("_formatted");
+            return player -> cached(params, player.getUniqueId(), () -> {
+                Bounty bounty = BountyManager.getBounty(player.getUniqueId());
+                if (bounty != null){
+                    if (formatted)
+                        return LanguageOptions.color(NumberFormatting.currencyPrefix + NumberFormatting.formatNumber(bounty.getTotalDisplayBounty()) + NumberFormatting.currencySuffix);
+                    return NumberFormatting.getValue(bounty.getTotalDisplayBounty());
+                }
+                return "0";
+            });
         }
         if (params.startsWith("challenge")) {
             if (params.length() < 11)
-                return ChallengeManager.getTimeLeft();
-            params = params.substring(10);
-            if (params.equalsIgnoreCase("time"))
-                return ChallengeManager.getTimeLeft();
+                return player -> ChallengeManager.getTimeLeft();
+            String challenge = params.substring(10);
+            if (challenge.equalsIgnoreCase("time"))
+                return player -> ChallengeManager.getTimeLeft();
             try {
-                int index = (int) NumberFormatting.tryParse(params);
-                return ChallengeManager.getChallengeTitle(player, index);
+                int index = (int) NumberFormatting.tryParse(challenge);
+                return player -> ChallengeManager.getChallengeTitle(player, index);
             } catch (NumberFormatException e) {
-                return "Placeholder Error";
+                return player -> "Placeholder Error";
             }
         }
         if (params.startsWith("total")) {
             if (params.equalsIgnoreCase("total")) {
-                int bounties = BountyManager.getAllBounties(-1).size();
-                return NumberFormatting.formatNumber(bounties);
-            } else if (params.equalsIgnoreCase("total_unique")) {
-                List<Bounty> bounties = BountyManager.getAllBounties(-1);
-                List<UUID> counted = new ArrayList<>();
-                for (Bounty bounty : bounties) {
-                    for (Setter setter : bounty.getSetters()) {
-                        if (!counted.contains(setter.getUuid()))
+                return player -> cached(params, null, () -> NumberFormatting.formatNumber(BountyManager.getAllBounties(-1).size()));
+            }
+            if (params.equalsIgnoreCase("total_unique")) {
+                return player -> cached(params, null, () -> {
+                    Set<UUID> counted = new HashSet<>();
+                    for (Bounty bounty : BountyManager.getAllBounties(-1)) {
+                        for (Setter setter : bounty.getSetters())
                             counted.add(setter.getUuid());
                     }
-                }
-                return NumberFormatting.formatNumber(counted.size());
+                    return NumberFormatting.formatNumber(counted.size());
+                });
             }
         }
 
-        if (params.equalsIgnoreCase("bounties_claimed")){
-            return String.valueOf(Leaderboard.KILLS.getStat(uuid));
-        }
-
-        if (params.equalsIgnoreCase("bounties_set")){
-            return String.valueOf(Leaderboard.SET.getStat(uuid));
-        }
-
-        if (params.equalsIgnoreCase("bounties_received")){
-            return String.valueOf(Leaderboard.DEATHS.getStat(uuid));
-        }
-
-        if (params.equalsIgnoreCase("immunity_spent")){
-            return String.valueOf(Leaderboard.IMMUNITY.getStat(uuid));
-        }
-
-        if (params.equalsIgnoreCase("all_time_bounty")){
-            return String.valueOf(Leaderboard.ALL.getStat(uuid));
-        }
-
-        if (params.equalsIgnoreCase("currency_gained")){
-            return String.valueOf(Leaderboard.CLAIMED.getStat(uuid));
-        }
+        Leaderboard legacyStat = switch (params.toLowerCase(Locale.ROOT)) {
+            case "bounties_claimed" -> Leaderboard.KILLS;
+            case "bounties_set" -> Leaderboard.SET;
+            case "bounties_received" -> Leaderboard.DEATHS;
+            case "immunity_spent" -> Leaderboard.IMMUNITY;
+            case "all_time_bounty" -> Leaderboard.ALL;
+            case "currency_gained" -> Leaderboard.CLAIMED;
+            default -> null;
+        };
+        if (legacyStat != null)
+            return player -> cached(params, player.getUniqueId(), () -> String.valueOf(legacyStat.getStat(player.getUniqueId())));
 
         if (params.equalsIgnoreCase("notification")) {
-            return DataManager.getPlayerData(player.getUniqueId()).isDisableBroadcast() + "";
+            return player -> DataManager.getPlayerData(player.getUniqueId()).isDisableBroadcast() + "";
         }
 
         if (params.equalsIgnoreCase("mode")) {
-            Whitelist whitelist = DataManager.getPlayerData(player.getUniqueId()).getWhitelist();
-            return whitelist.isBlacklist() ? "Blacklist" : "Whitelist";
+            return player -> {
+                Whitelist whitelist = DataManager.getPlayerData(player.getUniqueId()).getWhitelist();
+                return whitelist.isBlacklist() ? "Blacklist" : "Whitelist";
+            };
         }
 
+        String stat = params;
         int ending = 0;
-        if (params.endsWith("_full")) {
+        if (stat.endsWith("_full")) {
             ending = 1;
-            params = params.substring(0,params.lastIndexOf("_"));
+            stat = stat.substring(0,stat.lastIndexOf("_"));
         }
-        if (params.endsWith("_formatted")) {
+        if (stat.endsWith("_formatted")) {
             ending = 2;
-            params = params.substring(0,params.lastIndexOf("_"));
+            stat = stat.substring(0,stat.lastIndexOf("_"));
         }
-        if (params.endsWith("_value")) {
+        if (stat.endsWith("_value")) {
             ending = 3;
-            params = params.substring(0,params.lastIndexOf("_"));
+            stat = stat.substring(0,stat.lastIndexOf("_"));
         }
-        if (params.endsWith("_name")) {
+        if (stat.endsWith("_name")) {
             ending = 4;
-            params = params.substring(0,params.lastIndexOf("_"));
+            stat = stat.substring(0,stat.lastIndexOf("_"));
         }
-        if (params.endsWith("_rank")) {
+        if (stat.endsWith("_rank")) {
             ending = 5;
-            params = params.substring(0,params.lastIndexOf("_"));
+            stat = stat.substring(0,stat.lastIndexOf("_"));
+        }
+        if (stat.startsWith("top_")) {
+            return compileTop(params, stat.substring(4), ending);
         }
-        if (params.startsWith("top_")) {
-            params = params.substring(4);
-            int rank;
+
+        String value = stat.contains("_") ? stat.substring(0, stat.indexOf("_")) : stat;
+        Leaderboard leaderboard;
+        try {
+            leaderboard = Leaderboard.valueOf(value.toUpperCase());
+        } catch (IllegalArgumentException ignored){
+            // not a valid leaderboard
+            return player -> null;
+        }
+        return switch (ending) {
+            case 1 -> player -> LanguageOptions.parse(leaderboard.getStatMsg(true).replace("{amount}", (leaderboard.getFormattedStat(player.getUniqueId()))), player);
+            case 2 -> player -> LanguageOptions.parse(leaderboard.getFormattedStat(player.getUniqueId()),player);
+            case 3 -> player -> cached(params, player.getUniqueId(), () -> NumberFormatting.getValue(leaderboard.getStat(player.getUniqueId())));
+            case 5 -> player -> cached(params, player.getUniqueId(), () -> NumberFormatting.formatNumber(leaderboard.getRank(player.getUniqueId())));
+            default -> player -> cached(params, player.getUniqueId(), () -> NumberFormatting.formatNumber(leaderboard.getStat(player.getUniqueId())));
+        };
+    }
+
+    /**
+     * Parse a top leaderboard placeholder.
+     * @param params Parameters of the placeholder.
+     * @param top The parameters after "top_" without the ending.
+     * @param ending The ending of the placeholder.
+     * @return A resolver that returns the value of the placeholder.
+     */
+    private Resolver compileTop(String params, String top, int ending) {
+        int parsedRank;
+        try {
+            if (top.contains("_"))
+                parsedRank = Integer.parseInt(top.substring(0,top.indexOf("_")));
+            else
+                parsedRank = Integer.parseInt(top);
+        } catch (NumberFormatException ignored) {
+            parsedRank = 0;
+        }
+        int rank = Math.max(parsedRank, 1);
+        Leaderboard leaderboard;
+        if (!top.contains("_")) {
+            leaderboard = Leaderboard.CURRENT;
+        } else {
             try {
-                if (params.contains("_"))
-                    rank = Integer.parseInt(params.substring(0,params.indexOf("_")));
-                else
-                    rank = Integer.parseInt(params);
-            } catch (NumberFormatException ignored) {
-                rank = 0;
+                leaderboard = Leaderboard.valueOf(top.substring(top.indexOf("_") + 1).toUpperCase());
+            } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+                return player -> null;
             }
-            if (rank < 1)
-                rank = 1;
-            Leaderboard leaderboard;
-            if (!params.contains("_")) {
-                leaderboard = Leaderboard.CURRENT;
-            } else {
-                params = params.substring(params.indexOf("_") + 1);
-                try {
-                    leaderboard = Leaderboard.valueOf(params.toUpperCase());
-                } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
-                    return null;
-                }
-            }
-            Map<UUID, Double> stat = leaderboard.getTop(rank - 1, 1);
+        }
+        boolean useCurrency = leaderboard == Leaderboard.IMMUNITY || leaderboard == Leaderboard.CLAIMED || leaderboard == Leaderboard.ALL || leaderboard == Leaderboard.CURRENT;
+        String entryKey = "#top_" + rank + "_" + leaderboard;
+        return player -> {
+            Optional<Map.Entry<UUID, Double>> stat = cached(entryKey, null, () -> leaderboard.getTop(rank - 1, 1).entrySet().stream().findFirst());
             if (stat.isEmpty())
                 return "...";
-            boolean useCurrency = leaderboard == Leaderboard.IMMUNITY || leaderboard == Leaderboard.CLAIMED || leaderboard == Leaderboard.ALL || leaderboard == Leaderboard.CURRENT;
-            Map.Entry<UUID, Double> entry = stat.entrySet().iterator().next();
-            double amount = entry.getValue();
-            UUID uuid1 = entry.getKey();
-            String name = LoggedPlayers.getPlayerName(uuid1);
-            OfflinePlayer p = Bukkit.getOfflinePlayer(uuid1);
-            if (ending == 1)
-                return LanguageOptions.parse(leaderboard.getStatMsg(true).replace("{amount}", (leaderboard.getFormattedStat(uuid1))), p);
-            if (ending == 2)
-                return LanguageOptions.parse(leaderboard.getFormattedStat(uuid1),p);
-            if (ending == 3)
-                return NumberFormatting.getValue(leaderboard.getStat(uuid1));
-            if (ending == 4) {
-                return name;
-            }
-            return Leaderboard.parseBountyTopString(rank, name, amount, useCurrency, p);
+            double amount = stat.get().getValue();
+            UUID uuid = stat.get().getKey();
+            return switch (ending) {
+                case 1 -> LanguageOptions.parse(leaderboard.getStatMsg(true).replace("{amount}", (leaderboard.getFormattedStat(uuid))), Bukkit.getOfflinePlayer(uuid));
+                case 2 -> LanguageOptions.parse(leaderboard.getFormattedStat(uuid), Bukkit.getOfflinePlayer(uuid));
+                case 3 -> cached(params, null, () -> NumberFormatting.getValue(leaderboard.getStat(uuid)));
+                case 4 -> cached(params, null, () -> LoggedPlayers.getPlayerName(uuid));
+                default -> Leaderboard.parseBountyTopString(rank, LoggedPlayers.getPlayerName(uuid), amount, useCurrency, Bukkit.getOfflinePlayer(uuid));
+            };
+        };
+    }
+
+    /**
+     * Get a value from the cache, or compute it if it isn't cached.
+     * The cache is cleared when the local data changes, and values are recomputed after {@link #CACHE_MS}.
+     * @param key Key of the value.
+     * @param uuid UUID of the player the value is for, or null if the value is the same for every player.
+     * @param supplier Computes the value. Null values aren't cached.
+     * @return The cached or computed value.
+     */
+    @SuppressWarnings("unchecked")
+    private <T> T cached(String key, @Nullable UUID uuid, Supplier<T> supplier) {
+        long revision = DataManager.getLocalData().getRevision();
+        if (revision != cacheRevision || cache.size() > MAX_CACHE_SIZE) {
+            cache.clear();
+            cacheRevision = revision;
         }
+        CacheKey cacheKey = new CacheKey(key, uuid);
+        CachedValue cachedValue = cache.get(cacheKey);
+        long now = System.currentTimeMillis();
+        if (cachedValue != null && now - cachedValue.time() < CACHE_MS)
+            return (T) cachedValue.value();
+        T value = supplier.get();
+        // don't cache values that were read while the data was changing
+        if (value != null && revision == DataManager.getLocalData().getRevision())
+            cache.put(cacheKey, new CachedValue(value, now));
+        return value;
+    }
 
-        String value = params.contains("_") ? params.substring(0, params.indexOf("_")) : params;
+    @EventHandler
+    public void onBountySet(BountySetEvent event) {
+        cache.clear();
+    }
 
-        try {
-            Leaderboard leaderboard = Leaderboard.valueOf(value.toUpperCase());
-            if (ending == 1)
-                return LanguageOptions.parse(leaderboard.getStatMsg(true).replace("{amount}", (leaderboard.getFormattedStat(player.getUniqueId()))), player);
-            if (ending == 2)
-                return LanguageOptions.parse(leaderboard.getFormattedStat(player.getUniqueId()),player);
-            if (ending == 3)
-                return NumberFormatting.getValue(leaderboard.getStat(player.getUniqueId()));
-            if (ending == 5) {
-                return NumberFormatting.formatNumber(leaderboard.getRank(player.getUniqueId()));
-            }
-            return NumberFormatting.formatNumber(leaderboard.getStat(player.getUniqueId()));
-        } catch (IllegalArgumentException ignored){
-            // not a valid leaderboard
-        }
+    @EventHandler
+    public void onBountyClaim(BountyClaimEvent event) {
+        cache.clear();
+    }
+
+    @EventHandler
+    public void onBountyRemove(BountyRemoveEvent event) {
+        cache.clear();
+    }
 
-        return null;
+    @EventHandler
+    public void onBountyEdit(BountyEditEvent event) {
+        cache.clear();
     }
-}
\ No newline at end of file
+}
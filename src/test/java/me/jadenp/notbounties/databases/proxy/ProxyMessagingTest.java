@@ -0,0 +1,87 @@
+package me.jadenp.notbounties.databases.proxy;
+
+import me.jadenp.notbounties.data.PlayerStat;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Encodes proxy messages at the size limits and reads them back.
+ */
+class ProxyMessagingTest {
+
+    private static final String KEY = UUID.randomUUID().toString();
+
+    /**
+     * Create json that makes an entry with the key exactly the given number of bytes.
+     */
+    private static String jsonForEntrySize(int entrySize) {
+        // each string is prefixed with a 2 byte length
+        return "x".repeat(entrySize - 4 - KEY.length());
+    }
+
+    @Test
+    void largestEntryRoundTrips() throws IOException {
+        String json = jsonForEntrySize(ProxyCodec.MAX_CHUNK_SIZE);
+        byte[] entry = ProxyMessaging.encodeEntry(KEY, json);
+        assertNotNull(entry);
+        assertEquals(ProxyCodec.MAX_CHUNK_SIZE, entry.length);
+
+        List<ByteArrayOutputStream> messages = ProxyMessaging.splitMessages("StatUpdate", List.of(entry, entry));
+        assertEquals(2, messages.size());
+        for (ByteArrayOutputStream message : messages) {
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(ProxyMessaging.wrapGlobalMessage(message)));
+            assertEquals("Forward", in.readUTF());
+            assertEquals(message.size(), in.readShort());
+            assertEquals("StatUpdate", in.readUTF());
+            assertEquals(1, in.readShort());
+            assertEquals(KEY, in.readUTF());
+            assertEquals(json, in.readUTF());
+            assertEquals(0, in.available());
+        }
+    }
+
+    @Test
+    void oversizedEntriesAreRejected() throws IOException {
+        assertNull(ProxyMessaging.encodeEntry(KEY, jsonForEntrySize(ProxyCodec.MAX_CHUNK_SIZE + 1)));
+        // too long to be written as a string
+        assertNull(ProxyMessaging.encodeEntry(KEY, "x".repeat(70000)));
+    }
+
+    @Test
+    void messagesTooLargeToWrapAreRejected() {
+        ByteArrayOutputStream message = new ByteArrayOutputStream();
+        message.writeBytes(new byte[Short.MAX_VALUE + 1]);
+        assertThrows(IOException.class, () -> ProxyMessaging.wrapGlobalMessage(message));
+    }
+
+    @Test
+    void binaryUpdateRoundTripsAcrossChunks() throws IOException {
+        Map<UUID, PlayerStat> stats = new HashMap<>();
+        for (int i = 0; i < 4000; i++)
+            stats.put(UUID.randomUUID(), new PlayerStat(i, i * 2L, i * 3L, i * 1.5, i * 2.5, i * 3.5, UUID.randomUUID()));
+        List<byte[]> chunks = ProxyCodec.encodeStatChanges(stats);
+        assertTrue(chunks.size() > 1);
+
+        ProxyCodec.Update update = null;
+        for (byte[] chunk : chunks) {
+            ByteArrayOutputStream message = new ByteArrayOutputStream();
+            message.writeBytes(chunk);
+            // every chunk fits in a proxy message
+            ProxyMessaging.wrapGlobalMessage(message);
+            assertNull(update);
+            update = ProxyCodec.receiveChunk(new DataInputStream(new ByteArrayInputStream(chunk)));
+        }
+        assertNotNull(update);
+        assertEquals(stats, update.statChanges());
+    }
+}
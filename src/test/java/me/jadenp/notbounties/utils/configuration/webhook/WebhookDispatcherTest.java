@@ -0,0 +1,228 @@
+package me.jadenp.notbounties.utils.configuration.webhook;
+
+import com.google.gson.JsonParser;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Deque;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Sends webhooks to a stub server on localhost that answers with the queued responses.
+ */
+class WebhookDispatcherTest {
+
+    private static final long TIMEOUT = 5; // seconds to wait for a request
+
+    /**
+     * A response from the stub server.
+     * @param statusCode The http status code.
+     * @param retryAfter The Retry-After header, or null if the header isn't sent.
+     */
+    private record StubResponse(int statusCode, String retryAfter) {}
+
+    /**
+     * A request received by the stub server.
+     * @param body The body of the request.
+     * @param time The time in milliseconds that the request was received.
+     */
+    private record Request(String body, long time) {}
+
+    private final Deque<StubResponse> responses = new ConcurrentLinkedDeque<>();
+    private final BlockingQueue<Request> requests = new LinkedBlockingQueue<>();
+    // requests wait for this before they are answered
+    private volatile CountDownLatch gate = new CountDownLatch(0);
+    private HttpServer server;
+    private WebhookDispatcher dispatcher;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/webhook", this::handle);
+        server.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        gate.countDown();
+        if (dispatcher != null)
+            dispatcher.shutdown();
+        server.stop(0);
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        String body = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+        requests.add(new Request(body, System.currentTimeMillis()));
+        try {
+            gate.await(TIMEOUT, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        StubResponse response = responses.poll();
+        if (response == null)
+            response = new StubResponse(204, null);
+        if (response.retryAfter() != null)
+            exchange.getResponseHeaders().add("Retry-After", response.retryAfter());
+        exchange.sendResponseHeaders(response.statusCode(), -1);
+        exchange.close();
+    }
+
+    private WebhookDispatcher createDispatcher(long retryDelay) {
+        dispatcher = new WebhookDispatcher("http://localhost:" + server.getAddress().getPort() + "/webhook", retryDelay);
+        return dispatcher;
+    }
+
+    private static DiscordWebhook message(String content) {
+        DiscordWebhook webhook = new DiscordWebhook("");
+        webhook.setContent(content);
+        return webhook;
+    }
+
+    private static DiscordWebhook embed(String title) {
+        DiscordWebhook webhook = new DiscordWebhook("");
+        webhook.addEmbed(new DiscordWebhook.EmbedObject().setTitle(title));
+        return webhook;
+    }
+
+    private static DiscordWebhook describedEmbed(int length) {
+        DiscordWebhook webhook = new DiscordWebhook("");
+        webhook.addEmbed(new DiscordWebhook.EmbedObject().setDescription("x".repeat(length)));
+        return webhook;
+    }
+
+    private static int countEmbeds(Request request) {
+        return JsonParser.parseString(request.body()).getAsJsonObject().getAsJsonArray("embeds").size();
+    }
+
+    private Request nextRequest() throws InterruptedException {
+        Request request = requests.poll(TIMEOUT, TimeUnit.SECONDS);
+        assertNotNull(request, "Expected another webhook request");
+        return request;
+    }
+
+    @Test
+    void waitsForRetryAfterWhenRateLimited() throws InterruptedException {
+        responses.add(new StubResponse(429, "1"));
+        createDispatcher(10);
+        assertTrue(dispatcher.send(message("rate limited")));
+
+        Request limited = nextRequest();
+        Request retried = nextRequest();
+        assertEquals(limited.body(), retried.body());
+        assertTrue(retried.time() - limited.time() >= 900, "Retried before the Retry-After time");
+    }
+
+    @Test
+    void rateLimitsDoNotUseAttempts() throws InterruptedException {
+        // more rate limits than attempts, then a success
+        for (int i = 0; i < 7; i++)
+            responses.add(new StubResponse(429, "0.05"));
+        createDispatcher(10);
+        assertTrue(dispatcher.send(message("rate limited")));
+
+        for (int i = 0; i < 8; i++)
+            nextRequest();
+        assertTrue(responses.isEmpty());
+        assertNull(requests.poll(500, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    void retriesServerErrorsWithBackoff() throws InterruptedException {
+        responses.add(new StubResponse(500, null));
+        responses.add(new StubResponse(503, null));
+        createDispatcher(100);
+        assertTrue(dispatcher.send(message("server error")));
+
+        Request first = nextRequest();
+        Request second = nextRequest();
+        Request third = nextRequest();
+        assertTrue(second.time() - first.time() >= 100, "First retry was too soon");
+        assertTrue(third.time() - second.time() >= 200, "Backoff didn't double");
+        assertNull(requests.poll(500, TimeUnit.MILLISECONDS), "Sent again after a success");
+    }
+
+    @Test
+    void stopsRetryingAfterMaxAttempts() throws InterruptedException {
+        for (int i = 0; i < 10; i++)
+            responses.add(new StubResponse(500, null));
+        createDispatcher(10);
+        assertTrue(dispatcher.send(message("server error")));
+
+        for (int i = 0; i < 5; i++)
+            nextRequest();
+        assertNull(requests.poll(1, TimeUnit.SECONDS), "Sent more than the max attempts");
+    }
+
+    @Test
+    void mergesUpToTenEmbeds() throws InterruptedException {
+        gate = new CountDownLatch(1);
+        createDispatcher(10);
+        assertTrue(dispatcher.send(message("first")));
+        // the dispatcher is waiting for the first response while the embeds are queued
+        nextRequest();
+        for (int i = 0; i < 12; i++)
+            assertTrue(dispatcher.send(embed("embed " + i)));
+        gate.countDown();
+
+        assertEquals(10, countEmbeds(nextRequest()));
+        assertEquals(2, countEmbeds(nextRequest()));
+        assertNull(requests.poll(500, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    void mergesUpToTheEmbedLength() throws InterruptedException {
+        gate = new CountDownLatch(1);
+        createDispatcher(10);
+        assertTrue(dispatcher.send(message("first")));
+        nextRequest();
+        for (int i = 0; i < 3; i++)
+            assertTrue(dispatcher.send(describedEmbed(2500)));
+        gate.countDown();
+
+        assertEquals(2, countEmbeds(nextRequest()));
+        assertEquals(1, countEmbeds(nextRequest()));
+        assertNull(requests.poll(500, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    void sendsMergedWebhooksSeparatelyWhenRejected() throws InterruptedException {
+        gate = new CountDownLatch(1);
+        responses.add(new StubResponse(204, null));
+        responses.add(new StubResponse(400, null));
+        createDispatcher(10);
+        assertTrue(dispatcher.send(message("first")));
+        nextRequest();
+        for (int i = 0; i < 3; i++)
+            assertTrue(dispatcher.send(embed("embed " + i)));
+        gate.countDown();
+
+        assertEquals(3, countEmbeds(nextRequest()));
+        for (int i = 0; i < 3; i++)
+            assertEquals(1, countEmbeds(nextRequest()));
+        assertNull(requests.poll(500, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    void dropsWebhooksWhenQueueIsFull() throws InterruptedException {
+        gate = new CountDownLatch(1);
+        createDispatcher(10);
+        assertTrue(dispatcher.send(message("first")));
+        nextRequest();
+        for (int i = 0; i < 100; i++)
+            assertTrue(dispatcher.send(message("queued " + i)));
+        assertFalse(dispatcher.send(message("dropped")));
+    }
+}